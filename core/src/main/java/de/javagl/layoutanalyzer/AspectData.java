@@ -40,7 +40,10 @@ import de.javagl.layoutanalyzer.objects.LayoutObject;
  * which affects the layout process.<br>
  * <br>
  * Currently, this only consists of <i>forces</i> that may be applied to the layout objects during
- * the simulation in the {@link Layouter}.
+ * the simulation in the {@link Layouter}.<br>
+ * <br>
+ * This class stores the forces in a map. The {@link IndexedAspectData} stores them in primitive
+ * arrays, and should be preferred by aspects that compute the forces for all objects.
  */
 public class AspectData {
   /**
@@ -53,7 +56,7 @@ public class AspectData {
    * 
    * @see Aspect#setWeight(double)
    */
-  private final double weight;
+  private double weight;
 
   /**
    * The mapping from {@link LayoutObject}s to forces.
@@ -86,6 +89,16 @@ public class AspectData {
     return weight;
   }
 
+  /**
+   * Set the weight of this data, when it is reused for a new computation
+   * 
+   * @param weight
+   *          The weight that was set in the {@link Aspect}
+   */
+  void setWeight(double weight) {
+    this.weight = weight;
+  }
+
   /**
    * Returns an unmodifiable list containing the {@link LayoutObject}s for which this data was
    * computed.
@@ -126,4 +139,29 @@ public class AspectData {
     }
     return new Point2D.Double(force.getX(), force.getY());
   }
-}
\ No newline at end of file
+
+  /**
+   * Stores the force that was set for the given {@link LayoutObject} in the given result point.
+   * If no force was associated with the given object, then the result will be (0,0). If the given
+   * result is <code>null</code>, then a new point will be created and returned.
+   * 
+   * @param layoutObject
+   *          The {@link LayoutObject}
+   * @param result
+   *          The point that will store the result
+   * @return The result
+   */
+  public Point2D getForce(LayoutObject layoutObject, Point2D result) {
+    Objects.requireNonNull(layoutObject, "The layoutObject is null");
+    if (result == null) {
+      result = new Point2D.Double();
+    }
+    Point2D force = forces.get(layoutObject);
+    if (force == null) {
+      result.setLocation(0.0, 0.0);
+    } else {
+      result.setLocation(force);
+    }
+    return result;
+  }
+}
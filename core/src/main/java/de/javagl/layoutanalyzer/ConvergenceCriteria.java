@@ -0,0 +1,131 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+/**
+ * The criteria that determine when {@link Layouter#run(ConvergenceCriteria)} stops performing
+ * steps. The run stops when the layout becomes {@link Layouter#isStable() stable}, when the
+ * maximum number of steps has been performed, or when the timeout has been reached, whatever
+ * happens first.
+ */
+public class ConvergenceCriteria {
+  /**
+   * The maximum number of steps
+   */
+  private int maxSteps;
+
+  /**
+   * The timeout, in milliseconds
+   */
+  private long timeoutMs;
+
+  /**
+   * The number of steps after which the {@link LayouterListener}s are notified
+   */
+  private int notificationInterval;
+
+  /**
+   * Creates new criteria without a step limit and without a timeout, where the
+   * {@link LayouterListener}s are not notified.
+   */
+  public ConvergenceCriteria() {
+    this.maxSteps = Integer.MAX_VALUE;
+    this.timeoutMs = Long.MAX_VALUE;
+    this.notificationInterval = 0;
+  }
+
+  /**
+   * Set the maximum number of steps that should be performed. The default is
+   * <code>Integer.MAX_VALUE</code>.
+   * 
+   * @param maxSteps
+   *          The maximum number of steps
+   * @throws IllegalArgumentException
+   *           If the value is negative
+   */
+  public void setMaxSteps(int maxSteps) {
+    if (maxSteps < 0) {
+      throw new IllegalArgumentException("The maximum steps are negative: " + maxSteps);
+    }
+    this.maxSteps = maxSteps;
+  }
+
+  /**
+   * @return the maximum number of steps that should be performed
+   */
+  public int getMaxSteps() {
+    return maxSteps;
+  }
+
+  /**
+   * Set the wall-clock time after which no further steps should be started. The default is
+   * <code>Long.MAX_VALUE</code>.
+   * 
+   * @param timeoutMs
+   *          The timeout, in milliseconds
+   * @throws IllegalArgumentException
+   *           If the value is negative
+   */
+  public void setTimeoutMs(long timeoutMs) {
+    if (timeoutMs < 0) {
+      throw new IllegalArgumentException("The timeout is negative: " + timeoutMs);
+    }
+    this.timeoutMs = timeoutMs;
+  }
+
+  /**
+   * @return the wall-clock time after which no further steps should be started, in milliseconds
+   */
+  public long getTimeoutMs() {
+    return timeoutMs;
+  }
+
+  /**
+   * Set the number of steps after which the {@link LayouterListener}s should be notified. If this
+   * is 0 (which is the default), then the listeners are not notified during the run. Otherwise,
+   * they are notified after every N-th step, and after the last step.
+   * 
+   * @param notificationInterval
+   *          The notification interval
+   * @throws IllegalArgumentException
+   *           If the value is negative
+   */
+  public void setNotificationInterval(int notificationInterval) {
+    if (notificationInterval < 0) {
+      throw new IllegalArgumentException(
+          "The notification interval is negative: " + notificationInterval);
+    }
+    this.notificationInterval = notificationInterval;
+  }
+
+  /**
+   * @return the number of steps after which the {@link LayouterListener}s should be notified
+   */
+  public int getNotificationInterval() {
+    return notificationInterval;
+  }
+}
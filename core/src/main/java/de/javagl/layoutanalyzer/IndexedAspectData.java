@@ -0,0 +1,316 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import de.javagl.layoutanalyzer.aspects.Aspect;
+import de.javagl.layoutanalyzer.objects.LayoutObject;
+
+/**
+ * Implementation of {@link AspectData} that stores the forces in primitive arrays, where the
+ * force of each {@link LayoutObject} is stored at the index of the object in the
+ * {@link #getLayoutObjects() list of objects}.<br>
+ * <br>
+ * {@link Aspect} implementations can accumulate the forces in place with
+ * {@link #addForce(int, double, double)}, or write directly into the
+ * {@link #getForcesX() arrays}, without creating <code>Point2D</code> objects. The
+ * {@link de.javagl.layoutanalyzer.Layouter} reads the forces from the arrays when the objects
+ * are given in the order of its state.<br>
+ * <br>
+ * The methods that receive a {@link LayoutObject} are still supported. They look up the index of
+ * the object in a map that is created when one of these methods is called for the first time.<br>
+ * <br>
+ * Instances may be reused for the computation in the next step, via
+ * {@link #reuseOrCreate(AspectData, List, double)}, so that no new arrays and lists have to be
+ * created when the objects did not change.
+ */
+public class IndexedAspectData extends AspectData {
+  /**
+   * The x-components of the forces
+   */
+  private final double[] forceX;
+
+  /**
+   * The y-components of the forces
+   */
+  private final double[] forceY;
+
+  /**
+   * The mapping from {@link LayoutObject}s to their indices, created lazily
+   */
+  private volatile Map<LayoutObject, Integer> indices;
+
+  /**
+   * Default constructor. A reference to the given list will be stored. It should thus be an
+   * unmodifiable list, and should not be changed after it has been passed to this constructor.
+   * All forces are initially (0,0).
+   * 
+   * @param layoutObjects
+   *          The {@link LayoutObject}s
+   * @param weight
+   *          The weight that was set in the {@link Aspect}
+   */
+  public IndexedAspectData(List<LayoutObject> layoutObjects, double weight) {
+    super(layoutObjects, weight);
+    int n = layoutObjects.size();
+    this.forceX = new double[n];
+    this.forceY = new double[n];
+  }
+
+  /**
+   * Returns an {@link IndexedAspectData} for the given {@link LayoutObject}s and weight, where all
+   * forces are (0,0). If the given data is an {@link IndexedAspectData} that was created for the
+   * same objects, in the same order, then its forces are reset, and it is returned. Otherwise, a
+   * new instance is created, with an unmodifiable copy of the given list.
+   * 
+   * @param reuse
+   *          The data that may be reused. May be <code>null</code>.
+   * @param layoutObjects
+   *          The {@link LayoutObject}s
+   * @param weight
+   *          The weight that was set in the {@link Aspect}
+   * @return The {@link IndexedAspectData}
+   */
+  public static IndexedAspectData reuseOrCreate(AspectData reuse,
+      List<? extends LayoutObject> layoutObjects, double weight) {
+    Objects.requireNonNull(layoutObjects, "The layoutObjects are null");
+    if (reuse instanceof IndexedAspectData) {
+      IndexedAspectData indexedData = (IndexedAspectData) reuse;
+      if (indexedData.hasLayoutObjects(layoutObjects)) {
+        indexedData.setWeight(weight);
+        indexedData.clearForces();
+        return indexedData;
+      }
+    }
+    return new IndexedAspectData(
+        Collections.unmodifiableList(new ArrayList<LayoutObject>(layoutObjects)), weight);
+  }
+
+  /**
+   * Returns whether the list of objects of this data contains the same objects as the given
+   * list, in the same order
+   * 
+   * @param layoutObjects
+   *          The {@link LayoutObject}s
+   * @return Whether the objects are the same
+   */
+  private boolean hasLayoutObjects(List<? extends LayoutObject> layoutObjects) {
+    List<LayoutObject> ownLayoutObjects = getLayoutObjects();
+    int n = ownLayoutObjects.size();
+    if (layoutObjects.size() != n) {
+      return false;
+    }
+    for (int i = 0; i < n; i++) {
+      if (ownLayoutObjects.get(i) != layoutObjects.get(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Set all forces to (0,0)
+   */
+  public void clearForces() {
+    Arrays.fill(forceX, 0.0);
+    Arrays.fill(forceY, 0.0);
+  }
+
+  /**
+   * Returns the number of {@link LayoutObject}s
+   * 
+   * @return The number of objects
+   */
+  public int size() {
+    return forceX.length;
+  }
+
+  /**
+   * Add the given force to the force of the object with the given index
+   * 
+   * @param index
+   *          The index of the object
+   * @param fx
+   *          The x-component of the force
+   * @param fy
+   *          The y-component of the force
+   * @throws IndexOutOfBoundsException
+   *           If the index is not in [0, {@link #size()})
+   */
+  public void addForce(int index, double fx, double fy) {
+    forceX[index] += fx;
+    forceY[index] += fy;
+  }
+
+  /**
+   * Set the force of the object with the given index
+   * 
+   * @param index
+   *          The index of the object
+   * @param fx
+   *          The x-component of the force
+   * @param fy
+   *          The y-component of the force
+   * @throws IndexOutOfBoundsException
+   *           If the index is not in [0, {@link #size()})
+   */
+  public void setForce(int index, double fx, double fy) {
+    forceX[index] = fx;
+    forceY[index] = fy;
+  }
+
+  /**
+   * Returns the x-component of the force of the object with the given index
+   * 
+   * @param index
+   *          The index of the object
+   * @return The x-component of the force
+   * @throws IndexOutOfBoundsException
+   *           If the index is not in [0, {@link #size()})
+   */
+  public double getForceX(int index) {
+    return forceX[index];
+  }
+
+  /**
+   * Returns the y-component of the force of the object with the given index
+   * 
+   * @param index
+   *          The index of the object
+   * @return The y-component of the force
+   * @throws IndexOutOfBoundsException
+   *           If the index is not in [0, {@link #size()})
+   */
+  public double getForceY(int index) {
+    return forceY[index];
+  }
+
+  /**
+   * Returns the live array containing the x-components of the forces. Its length is
+   * {@link #size()}.
+   * 
+   * @return The array
+   */
+  public double[] getForcesX() {
+    return forceX;
+  }
+
+  /**
+   * Returns the live array containing the y-components of the forces. Its length is
+   * {@link #size()}.
+   * 
+   * @return The array
+   */
+  public double[] getForcesY() {
+    return forceY;
+  }
+
+  /**
+   * Copy the first {@link #size()} elements of the given arrays into the forces of this data
+   * 
+   * @param fx
+   *          The x-components of the forces
+   * @param fy
+   *          The y-components of the forces
+   * @throws IndexOutOfBoundsException
+   *           If the arrays are shorter than {@link #size()}
+   */
+  public void setForces(double[] fx, double[] fy) {
+    System.arraycopy(fx, 0, forceX, 0, forceX.length);
+    System.arraycopy(fy, 0, forceY, 0, forceY.length);
+  }
+
+  /**
+   * Returns the index of the given {@link LayoutObject} in the list of objects, or -1 if it is
+   * not contained
+   * 
+   * @param layoutObject
+   *          The {@link LayoutObject}
+   * @return The index
+   */
+  public int indexOf(LayoutObject layoutObject) {
+    if (indices == null) {
+      List<LayoutObject> layoutObjects = getLayoutObjects();
+      Map<LayoutObject, Integer> newIndices = new HashMap<LayoutObject, Integer>();
+      for (int i = layoutObjects.size() - 1; i >= 0; i--) {
+        newIndices.put(layoutObjects.get(i), i);
+      }
+      indices = newIndices;
+    }
+    Integer index = indices.get(layoutObject);
+    if (index == null) {
+      return -1;
+    }
+    return index;
+  }
+
+  /**
+   * {@inheritDoc}
+   * 
+   * @throws IllegalArgumentException
+   *           If the given object is not contained in the list of objects
+   */
+  @Override
+  public void setForce(LayoutObject layoutObject, Point2D force) {
+    Objects.requireNonNull(layoutObject, "The layoutObject is null");
+    Objects.requireNonNull(force, "The force is null");
+    int index = indexOf(layoutObject);
+    if (index == -1) {
+      throw new IllegalArgumentException(
+          "The layoutObject is not contained in the list of objects");
+    }
+    setForce(index, force.getX(), force.getY());
+  }
+
+  @Override
+  public Point2D getForce(LayoutObject layoutObject) {
+    return getForce(layoutObject, null);
+  }
+
+  @Override
+  public Point2D getForce(LayoutObject layoutObject, Point2D result) {
+    Objects.requireNonNull(layoutObject, "The layoutObject is null");
+    if (result == null) {
+      result = new Point2D.Double();
+    }
+    int index = indexOf(layoutObject);
+    if (index == -1) {
+      result.setLocation(0.0, 0.0);
+    } else {
+      result.setLocation(forceX[index], forceY[index]);
+    }
+    return result;
+  }
+}
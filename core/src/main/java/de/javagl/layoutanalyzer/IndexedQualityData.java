@@ -0,0 +1,480 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import de.javagl.layoutanalyzer.objects.LayoutObject;
+
+/**
+ * Implementation of {@link QualityData} that stores the quality values in a primitive array,
+ * where the quality of each {@link LayoutObject} is stored at the index of the object in the list
+ * of objects.<br>
+ * <br>
+ * The statistics are updated whenever a quality value is set: The minimum, maximum and average
+ * are maintained together with the variance, using Welford's algorithm, so that reading them does
+ * not require another pass over the values. When a quality value is replaced with a new one, then
+ * its contribution is removed from the average and variance. Only when the replaced value was the
+ * minimum or maximum, the minimum and maximum are recomputed, the next time they are requested.<br>
+ * <br>
+ * Quality values that are <code>NaN</code> are counted separately. As in the {@link QualityData},
+ * the minimum, maximum, average and variance are <code>NaN</code> as long as any of the quality
+ * values is <code>NaN</code>. When these values are replaced, the statistics of the remaining
+ * values are available again.<br>
+ * <br>
+ * Optionally, the quality values may be counted in a histogram with a fixed number of bins that
+ * are distributed evenly over a fixed range. Values that are <code>NaN</code> are not counted in
+ * the histogram.<br>
+ * <br>
+ * The methods that receive a {@link LayoutObject} are still supported. They look up the index of
+ * the object in a map that is created when one of these methods is called for the first time.
+ * Unlike in the {@link QualityData}, a quality value can only be set for the objects that are
+ * contained in the list of objects.
+ */
+public class IndexedQualityData extends QualityData {
+  /**
+   * The quality values
+   */
+  private final double[] qualities;
+
+  /**
+   * Whether a quality value was set for each index
+   */
+  private final boolean[] assigned;
+
+  /**
+   * The number of quality values that have been set
+   */
+  private int count;
+
+  /**
+   * The number of quality values that are <code>NaN</code>. These are not included in the
+   * {@link #mean}, {@link #m2}, {@link #min} and {@link #max}.
+   */
+  private int nanCount;
+
+  /**
+   * The average of the quality values
+   */
+  private double mean;
+
+  /**
+   * The sum of the squared differences between the quality values and their average
+   */
+  private double m2;
+
+  /**
+   * The minimum quality value
+   */
+  private double min = Double.POSITIVE_INFINITY;
+
+  /**
+   * The maximum quality value
+   */
+  private double max = Double.NEGATIVE_INFINITY;
+
+  /**
+   * Whether the {@link #min} and {@link #max} have to be recomputed, because an extremal value
+   * was replaced
+   */
+  private boolean extremaOutdated;
+
+  /**
+   * The counts of the histogram bins. This is an empty array if no histogram is maintained.
+   */
+  private final int[] histogram;
+
+  /**
+   * The minimum value of the range of the histogram
+   */
+  private final double histogramMin;
+
+  /**
+   * The maximum value of the range of the histogram
+   */
+  private final double histogramMax;
+
+  /**
+   * The mapping from {@link LayoutObject}s to their indices, created lazily
+   */
+  private volatile Map<LayoutObject, Integer> indices;
+
+  /**
+   * Default constructor. A reference to the given list will be stored. It should thus be an
+   * unmodifiable list, and should not be changed after it has been passed to this constructor.
+   * No histogram will be maintained.
+   * 
+   * @param layoutObjects
+   *          The {@link LayoutObject}s
+   */
+  public IndexedQualityData(List<? extends LayoutObject> layoutObjects) {
+    this(layoutObjects, 0, 0.0, 1.0);
+  }
+
+  /**
+   * Creates a new instance that maintains a histogram with the given number of bins over the
+   * range [0,1] of normalized quality values. A reference to the given list will be stored. It
+   * should thus be an unmodifiable list, and should not be changed after it has been passed to
+   * this constructor.
+   * 
+   * @param layoutObjects
+   *          The {@link LayoutObject}s
+   * @param binCount
+   *          The number of bins of the histogram
+   * @throws IllegalArgumentException
+   *           If the number of bins is negative
+   */
+  public IndexedQualityData(List<? extends LayoutObject> layoutObjects, int binCount) {
+    this(layoutObjects, binCount, 0.0, 1.0);
+  }
+
+  /**
+   * Creates a new instance that maintains a histogram with the given number of bins over the
+   * given range. Quality values outside of this range are counted in the first or last bin. A
+   * reference to the given list will be stored. It should thus be an unmodifiable list, and
+   * should not be changed after it has been passed to this constructor.
+   * 
+   * @param layoutObjects
+   *          The {@link LayoutObject}s
+   * @param binCount
+   *          The number of bins of the histogram. If this is 0, then no histogram will be
+   *          maintained.
+   * @param histogramMin
+   *          The minimum value of the range of the histogram
+   * @param histogramMax
+   *          The maximum value of the range of the histogram
+   * @throws IllegalArgumentException
+   *           If the number of bins is negative, or the minimum is not smaller than the maximum
+   */
+  public IndexedQualityData(List<? extends LayoutObject> layoutObjects, int binCount,
+      double histogramMin, double histogramMax) {
+    super(Objects.requireNonNull(layoutObjects, "The layoutObjects are null"));
+    if (binCount < 0) {
+      throw new IllegalArgumentException("The binCount may not be negative, but is " + binCount);
+    }
+    if (!(histogramMin < histogramMax)) {
+      throw new IllegalArgumentException("The histogram minimum " + histogramMin
+          + " must be smaller than the histogram maximum " + histogramMax);
+    }
+    int n = layoutObjects.size();
+    this.qualities = new double[n];
+    this.assigned = new boolean[n];
+    Arrays.fill(qualities, Double.NaN);
+    this.histogram = new int[binCount];
+    this.histogramMin = histogramMin;
+    this.histogramMax = histogramMax;
+  }
+
+  /**
+   * Returns the number of {@link LayoutObject}s
+   * 
+   * @return The number of objects
+   */
+  public int size() {
+    return qualities.length;
+  }
+
+  /**
+   * Set the quality for the {@link LayoutObject} with the given index. This should usually be a
+   * value in [0,1], with 1.0 meaning a "perfect" quality.
+   * 
+   * @param index
+   *          The index of the object
+   * @param quality
+   *          The quality
+   * @throws IndexOutOfBoundsException
+   *           If the index is negative or not smaller than the {@link #size()}
+   */
+  public void setQuality(int index, double quality) {
+    if (assigned[index]) {
+      remove(qualities[index]);
+    }
+    qualities[index] = quality;
+    assigned[index] = true;
+    add(quality);
+  }
+
+  /**
+   * Returns the quality for the {@link LayoutObject} with the given index. If no quality value
+   * was set for this object, then <code>Double.NaN</code> will be returned.
+   * 
+   * @param index
+   *          The index of the object
+   * @return The quality
+   * @throws IndexOutOfBoundsException
+   *           If the index is negative or not smaller than the {@link #size()}
+   */
+  public double getQuality(int index) {
+    return qualities[index];
+  }
+
+  /**
+   * Include the given quality value in the statistics
+   * 
+   * @param quality
+   *          The quality value
+   */
+  private void add(double quality) {
+    count++;
+    if (Double.isNaN(quality)) {
+      nanCount++;
+      return;
+    }
+    int n = count - nanCount;
+    double delta = quality - mean;
+    mean += delta / n;
+    m2 += delta * (quality - mean);
+    min = Math.min(min, quality);
+    max = Math.max(max, quality);
+    if (histogram.length > 0) {
+      histogram[binOf(quality)]++;
+    }
+  }
+
+  /**
+   * Remove the given quality value, which was included before, from the statistics
+   * 
+   * @param quality
+   *          The quality value
+   */
+  private void remove(double quality) {
+    count--;
+    if (Double.isNaN(quality)) {
+      nanCount--;
+      return;
+    }
+    int n = count - nanCount;
+    if (n == 0) {
+      mean = 0.0;
+      m2 = 0.0;
+    } else {
+      double delta = quality - mean;
+      mean -= delta / n;
+      m2 -= delta * (quality - mean);
+    }
+    if (quality <= min || quality >= max) {
+      extremaOutdated = true;
+    }
+    if (histogram.length > 0) {
+      histogram[binOf(quality)]--;
+    }
+  }
+
+  /**
+   * Returns the index of the histogram bin for the given quality value
+   * 
+   * @param quality
+   *          The quality value
+   * @return The bin index
+   */
+  private int binOf(double quality) {
+    double relative = (quality - histogramMin) / (histogramMax - histogramMin);
+    int bin = (int) (relative * histogram.length);
+    return Math.max(0, Math.min(histogram.length - 1, bin));
+  }
+
+  /**
+   * Recompute the {@link #min} and {@link #max} from the assigned quality values that are not
+   * <code>NaN</code>
+   */
+  private void updateExtrema() {
+    min = Double.POSITIVE_INFINITY;
+    max = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < qualities.length; i++) {
+      if (assigned[i] && !Double.isNaN(qualities[i])) {
+        min = Math.min(min, qualities[i]);
+        max = Math.max(max, qualities[i]);
+      }
+    }
+    extremaOutdated = false;
+  }
+
+  /**
+   * Returns the index of the given {@link LayoutObject} in the list of objects, or -1 if it is not
+   * contained in this list
+   * 
+   * @param layoutObject
+   *          The {@link LayoutObject}
+   * @return The index
+   */
+  public int indexOf(LayoutObject layoutObject) {
+    if (indices == null) {
+      List<? extends LayoutObject> layoutObjects = getLayoutObjects();
+      Map<LayoutObject, Integer> newIndices = new HashMap<LayoutObject, Integer>();
+      for (int i = layoutObjects.size() - 1; i >= 0; i--) {
+        newIndices.put(layoutObjects.get(i), i);
+      }
+      indices = newIndices;
+    }
+    Integer index = indices.get(layoutObject);
+    if (index == null) {
+      return -1;
+    }
+    return index;
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * <br>
+   * Unlike in the {@link QualityData}, the given object must be contained in the list of objects
+   * that this data was created for.
+   * 
+   * @throws IllegalArgumentException
+   *           If the given object is not contained in the list of objects
+   */
+  @Override
+  public void setQuality(LayoutObject layoutObject, double quality) {
+    Objects.requireNonNull(layoutObject, "The layoutObject is null");
+    int index = indexOf(layoutObject);
+    if (index == -1) {
+      throw new IllegalArgumentException(
+          "The layoutObject is not contained in the list of objects");
+    }
+    setQuality(index, quality);
+  }
+
+  @Override
+  public double getQuality(LayoutObject layoutObject) {
+    Objects.requireNonNull(layoutObject, "The layoutObject is null");
+    int index = indexOf(layoutObject);
+    if (index == -1) {
+      return Double.NaN;
+    }
+    return qualities[index];
+  }
+
+  @Override
+  public double getMin() {
+    if (nanCount > 0) {
+      return Double.NaN;
+    }
+    if (extremaOutdated) {
+      updateExtrema();
+    }
+    return min;
+  }
+
+  @Override
+  public double getMax() {
+    if (nanCount > 0) {
+      return Double.NaN;
+    }
+    if (extremaOutdated) {
+      updateExtrema();
+    }
+    return max;
+  }
+
+  @Override
+  public double getAverage() {
+    if (nanCount > 0) {
+      return Double.NaN;
+    }
+    return mean;
+  }
+
+  /**
+   * Returns the number of {@link LayoutObject}s for which a quality value was set, including the
+   * quality values that are <code>NaN</code>
+   * 
+   * @return The number of quality values
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * Returns the (population) variance of the quality values, or 0.0 if no quality values have
+   * been set. If any quality value is <code>NaN</code>, then <code>NaN</code> is returned.
+   * 
+   * @return The variance
+   */
+  public double getVariance() {
+    if (nanCount > 0) {
+      return Double.NaN;
+    }
+    if (count == 0) {
+      return 0.0;
+    }
+    return Math.max(0.0, m2 / count);
+  }
+
+  /**
+   * Returns the (population) standard deviation of the quality values, or 0.0 if no quality
+   * values have been set
+   * 
+   * @return The standard deviation
+   */
+  public double getStandardDeviation() {
+    return Math.sqrt(getVariance());
+  }
+
+  /**
+   * Returns the number of bins of the histogram, which is 0 if no histogram is maintained
+   * 
+   * @return The number of bins
+   */
+  public int getHistogramBinCount() {
+    return histogram.length;
+  }
+
+  /**
+   * Returns the number of quality values that are counted in the given bin of the histogram
+   * 
+   * @param bin
+   *          The index of the bin
+   * @return The number of values in the bin
+   * @throws IndexOutOfBoundsException
+   *           If the index is negative or not smaller than the
+   *           {@link #getHistogramBinCount() number of bins}
+   */
+  public int getHistogramCount(int bin) {
+    return histogram[bin];
+  }
+
+  /**
+   * Returns the minimum value of the range of the histogram
+   * 
+   * @return The minimum value
+   */
+  public double getHistogramMin() {
+    return histogramMin;
+  }
+
+  /**
+   * Returns the maximum value of the range of the histogram
+   * 
+   * @return The maximum value
+   */
+  public double getHistogramMax() {
+    return histogramMax;
+  }
+}
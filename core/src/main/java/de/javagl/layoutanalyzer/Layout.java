@@ -29,12 +29,17 @@ package de.javagl.layoutanalyzer;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import de.javagl.layoutanalyzer.objects.LayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutState;
 
 /**
- * A layout is a collection of {@link LayoutObject}s and there bounding box
+ * A layout is a collection of {@link LayoutObject}s and there bounding box.<br>
+ * <br>
+ * The simulation state of the objects is stored in a {@link LayoutState}, where the index of each
+ * object is its index in the {@link #getLayoutObjects() list of objects}.
  */
 public class Layout<T extends LayoutObject> {
   /**
@@ -42,11 +47,44 @@ public class Layout<T extends LayoutObject> {
    */
   private final List<T> layoutObjects;
 
+  /**
+   * The {@link LayoutState} storing the simulation state of the {@link LayoutObject}s
+   */
+  private final LayoutState layoutState;
+
+  /**
+   * The {@link LayoutListener}s
+   */
+  private final List<LayoutListener> layoutListeners;
+
   /**
    * Creates a new, empty layout
    */
   public Layout() {
     this.layoutObjects = new CopyOnWriteArrayList<T>(); // CopyOnWriteArrayList ???
+    this.layoutState = new LayoutState();
+    this.layoutListeners = new CopyOnWriteArrayList<LayoutListener>();
+  }
+
+  /**
+   * Add the given {@link LayoutListener} to be informed about structural changes of this layout
+   * 
+   * @param layoutListener
+   *          The {@link LayoutListener}
+   */
+  public void addLayoutListener(LayoutListener layoutListener) {
+    Objects.requireNonNull(layoutListener, "The layoutListener is null");
+    layoutListeners.add(layoutListener);
+  }
+
+  /**
+   * Remove the given {@link LayoutListener}
+   * 
+   * @param layoutListener
+   *          The {@link LayoutListener}
+   */
+  public void removeLayoutListener(LayoutListener layoutListener) {
+    layoutListeners.remove(layoutListener);
   }
 
   /**
@@ -58,14 +96,27 @@ public class Layout<T extends LayoutObject> {
     return Collections.unmodifiableList(layoutObjects);
   }
 
+  /**
+   * Returns the {@link LayoutState} that stores the simulation state of the {@link LayoutObject}s
+   * of this layout. Structural modifications of this layout are performed while holding the
+   * monitor of the returned state.
+   * 
+   * @return The {@link LayoutState}
+   */
+  public LayoutState getLayoutState() {
+    return layoutState;
+  }
+
   /**
    * Add the given {@link LayoutObject} to this layout
    * 
    * @param object
    *          The {@link LayoutObject}
    */
-  public synchronized void addLayoutObject(T object) {
-    layoutObjects.add(object);
+  public void addLayoutObject(T object) {
+    synchronized (layoutState) {
+      add(object);
+    }
   }
 
   /**
@@ -75,21 +126,78 @@ public class Layout<T extends LayoutObject> {
    *          The {@link LayoutObject}
    */
   public void removeLayoutObject(T object) {
-    layoutObjects.remove(object);
+    synchronized (layoutState) {
+      if (layoutObjects.remove(object)) {
+        remove(object);
+      }
+    }
   }
 
   public void addAll(Collection<T> objects) {
-    layoutObjects.addAll(objects);
+    synchronized (layoutState) {
+      for (T object : objects) {
+        add(object);
+      }
+    }
   }
 
   public void removeAll(Collection<T> objects) {
-    layoutObjects.removeAll(objects);
+    synchronized (layoutState) {
+      for (T object : layoutObjects) {
+        if (objects.contains(object)) {
+          remove(object);
+        }
+      }
+      layoutObjects.removeAll(objects);
+    }
   }
 
   /**
    * Removes all {@link LayoutObject} from this layout
    */
   public void clear() {
-    layoutObjects.clear();
+    synchronized (layoutState) {
+      layoutObjects.clear();
+      if (layoutListeners.isEmpty()) {
+        layoutState.clear();
+        return;
+      }
+      for (int i = layoutState.size() - 1; i >= 0; i--) {
+        remove(layoutState.getLayoutObject(i));
+      }
+    }
+  }
+
+  /**
+   * Add the given object to the {@link #layoutState} and the list of objects, and notify the
+   * {@link LayoutListener}s. Must be called while holding the monitor of the state.
+   * 
+   * @param object
+   *          The object
+   */
+  private void add(T object) {
+    int index = layoutState.add(object);
+    layoutObjects.add(object);
+    for (LayoutListener layoutListener : layoutListeners) {
+      layoutListener.layoutObjectAdded(object, index);
+    }
+  }
+
+  /**
+   * Remove the given object from the {@link #layoutState}, and notify the
+   * {@link LayoutListener}s. Must be called while holding the monitor of the state.
+   * 
+   * @param object
+   *          The object
+   */
+  private void remove(LayoutObject object) {
+    int index = layoutState.indexOf(object);
+    if (index == -1) {
+      return;
+    }
+    layoutState.remove(object);
+    for (LayoutListener layoutListener : layoutListeners) {
+      layoutListener.layoutObjectRemoved(object, index);
+    }
   }
 }
@@ -26,11 +26,14 @@
  */
 package de.javagl.layoutanalyzer;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import de.javagl.layoutanalyzer.aspects.Aspect;
 
@@ -46,11 +49,17 @@ public class LayoutAspects {
    */
   private final Map<Aspect, AspectData> layoutDatas;
 
+  /**
+   * The {@link Aspect}s, in the order in which they have been added
+   */
+  private final List<Aspect> orderedAspects;
+
   /**
    * Default constructor
    */
   public LayoutAspects() {
     layoutDatas = new ConcurrentHashMap<>();// new LinkedHashMap<Aspect, AspectData>();
+    orderedAspects = new CopyOnWriteArrayList<Aspect>();
   }
 
   /**
@@ -64,7 +73,26 @@ public class LayoutAspects {
   public void add(Aspect aspect, AspectData layoutData) {
     Objects.requireNonNull(aspect, "The aspect is null");
     Objects.requireNonNull(layoutData, "The layoutData is null");
-    layoutDatas.put(aspect, layoutData);
+    if (layoutDatas.put(aspect, layoutData) == null) {
+      orderedAspects.add(aspect);
+    }
+  }
+
+  /**
+   * Remove the data of all {@link Aspect}s that are not contained in the given collection. This
+   * is used when an instance is reused for the next step.
+   * 
+   * @param aspects
+   *          The {@link Aspect}s whose data should be retained
+   */
+  public void retainAspects(Collection<? extends Aspect> aspects) {
+    Objects.requireNonNull(aspects, "The aspects are null");
+    for (Aspect aspect : orderedAspects) {
+      if (!aspects.contains(aspect)) {
+        layoutDatas.remove(aspect);
+        orderedAspects.remove(aspect);
+      }
+    }
   }
 
   /**
@@ -88,4 +116,16 @@ public class LayoutAspects {
   public Set<Aspect> getAspects() {
     return Collections.unmodifiableSet(layoutDatas.keySet());
   }
+
+  /**
+   * Returns an unmodifiable list containing all {@link Aspect}s which have contributed to this
+   * data set, in the order in which they have been added. In contrast to the iteration order of
+   * the {@link #getAspects() set of aspects}, this order does not depend on the hash codes of the
+   * aspects.
+   * 
+   * @return The {@link Aspect}s
+   */
+  public List<Aspect> getOrderedAspects() {
+    return Collections.unmodifiableList(orderedAspects);
+  }
 }
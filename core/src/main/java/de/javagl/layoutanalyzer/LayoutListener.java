@@ -0,0 +1,59 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+import de.javagl.layoutanalyzer.objects.LayoutObject;
+
+/**
+ * Interface for classes that want to be informed about structural changes of a {@link Layout}.
+ * <br>
+ * <br>
+ * The given indices are the indices of the objects in the {@link Layout#getLayoutState() state}
+ * of the layout. When an object is removed, the indices of all subsequent objects are decreased by
+ * one. The methods are called while holding the monitor of the state.
+ */
+public interface LayoutListener {
+  /**
+   * Will be called when the given {@link LayoutObject} was added to the layout
+   * 
+   * @param layoutObject
+   *          The {@link LayoutObject}
+   * @param index
+   *          The index of the object
+   */
+  void layoutObjectAdded(LayoutObject layoutObject, int index);
+
+  /**
+   * Will be called when the given {@link LayoutObject} was removed from the layout
+   * 
+   * @param layoutObject
+   *          The {@link LayoutObject}
+   * @param index
+   *          The index that the object had before it was removed
+   */
+  void layoutObjectRemoved(LayoutObject layoutObject, int index);
+}
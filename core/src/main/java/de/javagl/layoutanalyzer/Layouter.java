@@ -28,15 +28,24 @@ package de.javagl.layoutanalyzer;
 
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import de.javagl.geom.Points;
 import de.javagl.layoutanalyzer.aspects.Aspect;
+import de.javagl.layoutanalyzer.aspects.ForceAccumulatingAspect;
+import de.javagl.layoutanalyzer.integration.Integrator;
+import de.javagl.layoutanalyzer.integration.Integrators;
+import de.javagl.layoutanalyzer.integration.TimeStepController;
 import de.javagl.layoutanalyzer.objects.LayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutState;
 
 /**
  * The class computing the positions of the {@link LayoutObject}s in a
@@ -50,7 +59,9 @@ import de.javagl.layoutanalyzer.objects.LayoutObject;
  * The actual work is done in the {@link #performStep()} method: It computes the
  * {@link LayoutAspects}, which summarizes the {@link AspectData} of all
  * {@link Aspect}s. The forces that are stored in these {@link AspectData}
- * objects are accumulated and used for the simulation step.<br>
+ * objects are accumulated and used for the simulation step. The time
+ * integration is performed by an {@link Integrator}, directly on the
+ * primitive arrays of the {@link LayoutState} of the {@link Layout}.<br>
  * <br>
  * {@link LayouterListener} instances may be attached to a layouter, to be
  * informed whenever a new {@link LayoutAspects} has been computed and a new
@@ -85,10 +96,132 @@ public class Layouter<T extends LayoutObject> {
 	 */
 	private double timeStep;
 
+	/**
+	 * The optional {@link TimeStepController} that adjusts the
+	 * {@link #timeStep} in each step
+	 */
+	private TimeStepController timeStepController;
+
+	/**
+	 * The minimum time step that may be chosen by the
+	 * {@link #timeStepController}
+	 */
+	private double minTimeStep = 0.001;
+
+	/**
+	 * The maximum time step that may be chosen by the
+	 * {@link #timeStepController}
+	 */
+	private double maxTimeStep = 10.0;
+
+	/**
+	 * The relative change of the time step that is ignored when the
+	 * {@link #timeStepController} proposes a new time step
+	 */
+	private double timeStepHysteresis = 0.0;
+
+	/**
+	 * The maximum speed of a single {@link LayoutObject}
+	 */
+	private double maxSpeed = Double.POSITIVE_INFINITY;
+
+	/**
+	 * The {@link Integrator} that updates the accelerations, velocities and
+	 * positions based on the forces
+	 */
+	private Integrator integrator;
+
+	/**
+	 * The number of consecutive steps in which the velocity of an object has
+	 * to be below {@link #epsilonStable} before it is put to sleep. If this
+	 * is 0, then objects are never put to sleep.
+	 */
+	private int sleepSteps = 0;
+
+	/**
+	 * The change of the force on a sleeping object that causes it to be woken
+	 * up
+	 */
+	private double wakeThreshold = 1e-3;
+
+	/**
+	 * Whether the forces are accumulated in a deterministic order, with
+	 * compensated summation
+	 */
+	private boolean deterministic = false;
+
+	/**
+	 * The {@link LayoutState#getSleepVersion() sleep version} of the state at
+	 * the time when the reference forces of the sleeping objects have been
+	 * recorded
+	 */
+	private int sleepReferenceVersion = -1;
+
 	/**
 	 * The current state of the layout regarding forces computed by aspects
 	 */
-	private LayoutAspects currentAspectForces;
+	private volatile LayoutAspects currentAspectForces;
+
+	/**
+	 * Whether the {@link LayoutAspects} and the {@link AspectData} of the
+	 * previous steps are reused in the next steps
+	 */
+	private boolean reuseLayoutAspects = false;
+
+	/**
+	 * Whether the forces of the {@link ForceAccumulatingAspect}s are added
+	 * directly to the force arrays of the state, in the steps where no
+	 * {@link LayoutAspects} are required
+	 */
+	private boolean directForceAccumulation = false;
+
+	/**
+	 * Whether the {@link #currentAspectForces} have not been computed in the
+	 * last step, because the forces have been accumulated directly
+	 */
+	private boolean currentAspectForcesOutdated = false;
+
+	/**
+	 * The {@link LayoutAspects} that was published in the step before the
+	 * current one, and that will be filled in the next step, when the
+	 * {@link #reuseLayoutAspects} flag is set
+	 */
+	private LayoutAspects spareAspectForces;
+
+	/**
+	 * The {@link AspectData} of each aspect in the current step, used in
+	 * {@link #integrate(LayoutState, LayoutAspects)}
+	 */
+	private AspectData[] stepLayoutDatas = new AspectData[0];
+
+	/**
+	 * The weight of each aspect in the current step
+	 */
+	private double[] stepAspectWeights = new double[0];
+
+	/**
+	 * The objects of the {@link IndexedAspectData} of each aspect in the
+	 * current step, or <code>null</code> for other {@link AspectData}
+	 */
+	private List<?>[] stepIndexedObjects = new List<?>[0];
+
+	/**
+	 * The x-components of the forces of the {@link IndexedAspectData} of
+	 * each aspect in the current step
+	 */
+	private double[][] stepIndexedForcesX = new double[0][];
+
+	/**
+	 * The y-components of the forces of the {@link IndexedAspectData} of
+	 * each aspect in the current step
+	 */
+	private double[][] stepIndexedForcesY = new double[0][];
+
+	/**
+	 * The point that receives the force of one aspect on one object in
+	 * {@link #integrate(LayoutState, LayoutAspects)}
+	 */
+	private final Point2D contributedForce = new Point2D.Double();
 
 	/**
 	 * The {@link LayouterListener}s that have been attached, and will be
@@ -109,16 +242,28 @@ public class Layouter<T extends LayoutObject> {
 
 	/**
 	 * If length of velocity Vector is less or equal this value the Layout is
-	 * considered stable {@link #updateVelocities()}
+	 * considered stable {@link #isStable()}
 	 */
 	private double epsilonStable = 1e-4;
 
+	/**
+	 * The maximum length of the velocity of any object after the last step
+	 */
+	private double residual = Double.POSITIVE_INFINITY;
+
 	/**
 	 * List of {@link LayouterExtension} which are invoked after a layout step
 	 * is performed in {@link #performStep()}
 	 */
 	private final List<LayouterExtension<T>> extensions;
 
+	/**
+	 * The optional executor service that is used for computing the
+	 * {@link AspectData} of the {@link Aspect}s in parallel. If this is
+	 * <code>null</code>, then the aspects are evaluated one after another.
+	 */
+	private ExecutorService aspectExecutor;
+
 	/**
 	 * Default constructor
 	 * 
@@ -138,6 +283,7 @@ public class Layouter<T extends LayoutObject> {
 		resetStepCounter();
 		this.totalTime = 0.0;
 		this.timeStep = 0.5;
+		this.integrator = Integrators.overdamped();
 
 		currentAspectForces = new LayoutAspects();
 		isStable = false;
@@ -183,6 +329,422 @@ public class Layouter<T extends LayoutObject> {
 		return timeStep;
 	}
 
+	/**
+	 * Set the {@link TimeStepController} that should adjust the time step in
+	 * each step, based on global quantities of the layout. The time step
+	 * that was set with {@link #setTimeStep(double)} is used as the initial
+	 * value, and the proposed time steps are clamped to the
+	 * {@link #setTimeStepBounds(double, double) time step bounds}. If the
+	 * given controller is <code>null</code> (which is the default), then the
+	 * time step remains fixed.
+	 * 
+	 * @param timeStepController
+	 *            The {@link TimeStepController}, or <code>null</code>
+	 */
+	public void setTimeStepController(TimeStepController timeStepController) {
+		this.timeStepController = timeStepController;
+	}
+
+	/**
+	 * Returns the {@link TimeStepController}, or <code>null</code> if the time
+	 * step is fixed
+	 * 
+	 * @return The {@link TimeStepController}
+	 * @see #setTimeStepController(TimeStepController)
+	 */
+	public TimeStepController getTimeStepController() {
+		return timeStepController;
+	}
+
+	/**
+	 * Set the bounds for the time steps that may be chosen by the
+	 * {@link #setTimeStepController(TimeStepController) time step controller}.
+	 * The default bounds are [0.001, 10.0].
+	 * 
+	 * @param minTimeStep
+	 *            The minimum time step
+	 * @param maxTimeStep
+	 *            The maximum time step
+	 * @throws IllegalArgumentException
+	 *             If the minimum is not positive, or the maximum is smaller
+	 *             than the minimum
+	 */
+	public void setTimeStepBounds(double minTimeStep, double maxTimeStep) {
+		if (!(minTimeStep > 0.0)) {
+			throw new IllegalArgumentException(
+					"The minimum time step must be positive, but is "
+							+ minTimeStep);
+		}
+		if (!(maxTimeStep >= minTimeStep)) {
+			throw new IllegalArgumentException("The maximum time step "
+					+ maxTimeStep + " is smaller than the minimum time step "
+					+ minTimeStep);
+		}
+		this.minTimeStep = minTimeStep;
+		this.maxTimeStep = maxTimeStep;
+	}
+
+	/**
+	 * @return the minimum time step that may be chosen by the
+	 *         {@link #setTimeStepController(TimeStepController) time step
+	 *         controller}
+	 */
+	public double getMinTimeStep() {
+		return minTimeStep;
+	}
+
+	/**
+	 * @return the maximum time step that may be chosen by the
+	 *         {@link #setTimeStepController(TimeStepController) time step
+	 *         controller}
+	 */
+	public double getMaxTimeStep() {
+		return maxTimeStep;
+	}
+
+	/**
+	 * Set the hysteresis for the time step adjustments: When the
+	 * {@link #setTimeStepController(TimeStepController) time step controller}
+	 * proposes a time step whose relative difference to the current time step
+	 * is not larger than this value, then the current time step is kept. The
+	 * default value is 0.0.
+	 * 
+	 * @param timeStepHysteresis
+	 *            The hysteresis, as a non-negative relative value
+	 * @throws IllegalArgumentException
+	 *             If the value is negative
+	 */
+	public void setTimeStepHysteresis(double timeStepHysteresis) {
+		if (!(timeStepHysteresis >= 0.0)) {
+			throw new IllegalArgumentException(
+					"The hysteresis must not be negative, but is "
+							+ timeStepHysteresis);
+		}
+		this.timeStepHysteresis = timeStepHysteresis;
+	}
+
+	/**
+	 * @return the hysteresis for the time step adjustments
+	 * @see #setTimeStepHysteresis(double)
+	 */
+	public double getTimeStepHysteresis() {
+		return timeStepHysteresis;
+	}
+
+	/**
+	 * Set the maximum speed of all {@link LayoutObject}s. When the velocity
+	 * of an object exceeds this value after the integration, then the
+	 * velocity is scaled down to this length, and the movement of the object
+	 * in this step is limited to the maximum speed multiplied with the time
+	 * step. The default value is <code>Double.POSITIVE_INFINITY</code>.<br>
+	 * <br>
+	 * A lower limit for individual objects may be set with
+	 * {@link #setMaxSpeed(LayoutObject, double)}. The smaller one of both
+	 * limits is applied.
+	 * 
+	 * @param maxSpeed
+	 *            The maximum speed
+	 * @throws IllegalArgumentException
+	 *             If the value is not positive
+	 */
+	public void setMaxSpeed(double maxSpeed) {
+		if (!(maxSpeed > 0.0)) {
+			throw new IllegalArgumentException(
+					"The maximum speed must be positive, but is " + maxSpeed);
+		}
+		this.maxSpeed = maxSpeed;
+	}
+
+	/**
+	 * @return the maximum speed of all {@link LayoutObject}s
+	 * @see #setMaxSpeed(double)
+	 */
+	public double getMaxSpeed() {
+		return maxSpeed;
+	}
+
+	/**
+	 * Set the maximum speed of the given {@link LayoutObject}. This limit is
+	 * stored in the {@link LayoutState} of the layout (see
+	 * {@link LayoutState#setMaxSpeed(int, double)}), and applied in addition
+	 * to the limit for all objects that is set with
+	 * {@link #setMaxSpeed(double)}. It is reset when the object is removed
+	 * from the layout.
+	 * 
+	 * @param layoutObject
+	 *            The {@link LayoutObject}
+	 * @param maxSpeed
+	 *            The maximum speed
+	 * @throws IllegalArgumentException
+	 *             If the object is not contained in the layout, or the value
+	 *             is not positive
+	 */
+	public void setMaxSpeed(T layoutObject, double maxSpeed) {
+		LayoutState state = layout.getLayoutState();
+		synchronized (state) {
+			int index = state.indexOf(layoutObject);
+			if (index == -1) {
+				throw new IllegalArgumentException(
+						"The layoutObject is not contained in the layout");
+			}
+			state.setMaxSpeed(index, maxSpeed);
+		}
+	}
+
+	/**
+	 * Set the {@link Integrator} that should be used for updating the
+	 * accelerations, velocities and positions of the {@link LayoutObject}s
+	 * based on the forces. The default is the
+	 * {@link Integrators#overdamped() overdamped} integrator, where the
+	 * velocity only depends on the current force. Integrators with momentum,
+	 * like {@link Integrators#nesterov(double)}, usually cause the layout to
+	 * become {@link #isStable() stable} after far fewer steps.
+	 * 
+	 * @param integrator
+	 *            The {@link Integrator}
+	 */
+	public void setIntegrator(Integrator integrator) {
+		Objects.requireNonNull(integrator, "The integrator is null");
+		this.integrator = integrator;
+	}
+
+	/**
+	 * Returns the {@link Integrator} that is used by this layouter
+	 * 
+	 * @return The {@link Integrator}
+	 * @see #setIntegrator(Integrator)
+	 */
+	public Integrator getIntegrator() {
+		return integrator;
+	}
+
+	/**
+	 * Set the number of consecutive steps in which the velocity of a
+	 * {@link LayoutObject} has to be below the {@link #getEpsilonStable()
+	 * epsilon} before the object is put to sleep. If this is 0 (which is the
+	 * default), then objects are never put to sleep.<br>
+	 * <br>
+	 * Sleeping objects are not moved, and the interactions between two
+	 * sleeping objects are not computed by the built-in {@link Aspect}s, so
+	 * that the cost of a step mainly depends on the number of objects that
+	 * are still moving. A sleeping object is woken up when the force on it
+	 * changes by more than the {@link #setWakeThreshold(double) wake
+	 * threshold}. All objects are woken up when objects or {@link Aspect}s are
+	 * added or removed. When the parameters of an {@link Aspect} are changed,
+	 * {@link #wakeAll()} should be called.
+	 * 
+	 * @param sleepSteps
+	 *            The number of steps
+	 * @throws IllegalArgumentException
+	 *             If the value is negative
+	 */
+	public void setSleepSteps(int sleepSteps) {
+		if (sleepSteps < 0) {
+			throw new IllegalArgumentException(
+					"The sleep steps are negative: " + sleepSteps);
+		}
+		this.sleepSteps = sleepSteps;
+		if (sleepSteps == 0) {
+			wakeAll();
+		}
+	}
+
+	/**
+	 * @return the number of steps after which calm objects are put to sleep
+	 * @see #setSleepSteps(int)
+	 */
+	public int getSleepSteps() {
+		return sleepSteps;
+	}
+
+	/**
+	 * Set the threshold for waking up sleeping {@link LayoutObject}s. When the
+	 * force on a sleeping object differs from the force at the time when it
+	 * fell asleep by more than this value, then the object is woken up.
+	 * 
+	 * @param wakeThreshold
+	 *            The wake threshold
+	 * @throws IllegalArgumentException
+	 *             If the value is negative
+	 */
+	public void setWakeThreshold(double wakeThreshold) {
+		if (!(wakeThreshold >= 0.0)) {
+			throw new IllegalArgumentException(
+					"The wake threshold must not be negative, but is "
+							+ wakeThreshold);
+		}
+		this.wakeThreshold = wakeThreshold;
+	}
+
+	/**
+	 * @return the threshold for waking up sleeping {@link LayoutObject}s
+	 * @see #setWakeThreshold(double)
+	 */
+	public double getWakeThreshold() {
+		return wakeThreshold;
+	}
+
+	/**
+	 * Wake up all {@link LayoutObject}s that have been put to sleep
+	 * 
+	 * @see #setSleepSteps(int)
+	 */
+	public void wakeAll() {
+		layout.getLayoutState().wakeAll();
+	}
+
+	/**
+	 * Set whether the forces should be accumulated deterministically.<br>
+	 * <br>
+	 * Each {@link Aspect} computes its {@link AspectData} on its own, with a
+	 * fixed partitioning of the work that does not depend on the
+	 * {@link #setAspectExecutor(ExecutorService) executor} or the number of
+	 * available processors. By default, the forces of the aspects are then
+	 * summed in the iteration order of the {@link LayoutAspects#getAspects()
+	 * set of aspects}, which depends on their hash codes, and may thus differ
+	 * between two runs of the same program. In the deterministic mode, the
+	 * forces are summed in the order in which the aspects have been added to
+	 * this layouter, using compensated (Kahan-Babuska) summation. The
+	 * resulting forces and positions are then identical for every run on the
+	 * same platform, with or without an executor, on any number of cores.<br>
+	 * <br>
+	 * Aspects that compute their forces with the
+	 * {@link de.javagl.layoutanalyzer.kernels.ForceKernels#getDefault()
+	 * default} {@link de.javagl.layoutanalyzer.kernels.ForceKernel} may use
+	 * a vectorized kernel, whose results depend on the vector size of the
+	 * platform. For results that are identical on all platforms, these
+	 * aspects have to use the
+	 * {@link de.javagl.layoutanalyzer.kernels.ForceKernels#getScalar()
+	 * scalar} kernel, for example, by setting the
+	 * {@link de.javagl.layoutanalyzer.kernels.ForceKernels#SCALAR_PROPERTY}
+	 * system property.<br>
+	 * <br>
+	 * The additional cost is a few floating point operations for each object
+	 * and aspect in each step, which is usually negligible compared to the
+	 * cost of computing the aspects.
+	 * 
+	 * @param deterministic
+	 *            Whether the forces should be accumulated deterministically
+	 */
+	public void setDeterministic(boolean deterministic) {
+		this.deterministic = deterministic;
+	}
+
+	/**
+	 * @return whether the forces are accumulated deterministically
+	 * @see #setDeterministic(boolean)
+	 */
+	public boolean isDeterministic() {
+		return deterministic;
+	}
+
+	/**
+	 * Set whether the {@link LayoutAspects} should be reused between the
+	 * steps.<br>
+	 * <br>
+	 * By default, each step creates a new {@link LayoutAspects}, and each
+	 * {@link Aspect} creates new {@link AspectData}. When this flag is set,
+	 * then this layouter keeps two generations of {@link LayoutAspects}: One
+	 * of them is the {@link #getCurrentAspectForces() current} one, which was
+	 * passed to the {@link LayouterListener}s in the last step, and the other
+	 * one is filled in the next step. Each {@link Aspect} receives its
+	 * {@link AspectData} from that generation in
+	 * {@link Aspect#computeLayoutData(LayoutState, AspectData)}, and may
+	 * clear and refill it instead of creating a new one. After the step, the
+	 * generations are swapped. As long as the objects and aspects do not
+	 * change, a step will then not allocate new data.<br>
+	 * <br>
+	 * Note that in this mode, {@link LayouterListener}s must not keep a
+	 * reference to the {@link LayoutAspects} that they received (or to the
+	 * {@link AspectData} that it contains) beyond the next step, because
+	 * its contents will be overwritten in the step after the next one.
+	 * 
+	 * @param reuseLayoutAspects
+	 *            Whether the {@link LayoutAspects} should be reused
+	 */
+	public void setReuseLayoutAspects(boolean reuseLayoutAspects) {
+		this.reuseLayoutAspects = reuseLayoutAspects;
+		if (!reuseLayoutAspects) {
+			spareAspectForces = null;
+		}
+	}
+
+	/**
+	 * @return whether the {@link LayoutAspects} are reused between the steps
+	 * @see #setReuseLayoutAspects(boolean)
+	 */
+	public boolean isReuseLayoutAspects() {
+		return reuseLayoutAspects;
+	}
+
+	/**
+	 * Set whether the forces should be accumulated directly in the force
+	 * arrays of the {@link LayoutState}, in the steps where no
+	 * {@link LayoutAspects} are required.<br>
+	 * <br>
+	 * By default, each step computes the {@link AspectData} of all
+	 * {@link Aspect}s, and sums the weighted forces from these data. When
+	 * this flag is set, then each {@link ForceAccumulatingAspect} adds its
+	 * weighted forces directly to the force arrays of the state instead,
+	 * and only the other aspects compute {@link AspectData}. This is done in
+	 * all steps where no {@link LayouterListener} is notified. The
+	 * {@link LayoutAspects} are still computed when a listener is notified,
+	 * in the {@link #setDeterministic(boolean) deterministic} mode, and
+	 * when an {@link #setAspectExecutor(ExecutorService) aspect executor}
+	 * is set. In the other steps, the {@link #getCurrentAspectForces()
+	 * current aspect forces} are not updated.<br>
+	 * <br>
+	 * The resulting forces are the same as in the default mode, up to
+	 * rounding errors.
+	 * 
+	 * @param directForceAccumulation
+	 *            Whether the forces should be accumulated directly
+	 */
+	public void setDirectForceAccumulation(boolean directForceAccumulation) {
+		this.directForceAccumulation = directForceAccumulation;
+	}
+
+	/**
+	 * @return whether the forces are accumulated directly
+	 * @see #setDirectForceAccumulation(boolean)
+	 */
+	public boolean isDirectForceAccumulation() {
+		return directForceAccumulation;
+	}
+
+	/**
+	 * Set the executor service that should be used for computing the
+	 * {@link AspectData} of the {@link Aspect}s in parallel. The aspects only
+	 * read the positions of the {@link LayoutObject}s and each of them
+	 * computes its own {@link AspectData}, so they are evaluated concurrently,
+	 * and the results are joined before the forces are applied. One aspect is
+	 * evaluated in the calling thread. <br>
+	 * <br>
+	 * If the given executor is <code>null</code> (which is the default), then
+	 * the aspects are evaluated one after another.<br>
+	 * <br>
+	 * Note that in the parallel mode, the same {@link Aspect} instance should
+	 * not be added to this layouter more than once.
+	 * 
+	 * @param aspectExecutor
+	 *            The executor service, or <code>null</code>
+	 */
+	public void setAspectExecutor(ExecutorService aspectExecutor) {
+		this.aspectExecutor = aspectExecutor;
+	}
+
+	/**
+	 * Returns the executor service that is used for computing the
+	 * {@link AspectData} of the {@link Aspect}s in parallel, or
+	 * <code>null</code> if they are evaluated one after another.
+	 * 
+	 * @return The executor service
+	 * @see #setAspectExecutor(ExecutorService)
+	 */
+	public ExecutorService getAspectExecutor() {
+		return aspectExecutor;
+	}
+
 	/**
 	 * @param extension
 	 *            removes given extension, possible during runtime
@@ -234,6 +796,7 @@ public class Layouter<T extends LayoutObject> {
 	public void addAspect(Aspect aspect) {
 		Objects.requireNonNull(aspect, "The aspect is null");
 		aspects.add(aspect);
+		wakeAll();
 	}
 
 	/**
@@ -244,7 +807,9 @@ public class Layouter<T extends LayoutObject> {
 	 * @see #addAspect(Aspect)
 	 */
 	public void removeAspect(Aspect aspect) {
-		aspects.remove(aspect);
+		if (aspects.remove(aspect)) {
+			wakeAll();
+		}
 	}
 
 	/**
@@ -259,26 +824,63 @@ public class Layouter<T extends LayoutObject> {
 	 *				attached are notified about this step
 	 */
 	public void performStep(boolean notify) {
-		LayoutAspects layouterData = computeLayouterData();
-
-		applyForces(layouterData);
-		updateAccelerations();
-		updateVelocities();
-		updatePositions();
-		updateStable();
+		LayoutAspects layouterData = null;
+		LayoutState state = layout.getLayoutState();
+		boolean direct = directForceAccumulation && !deterministic
+				&& aspectExecutor == null
+				&& (!notify || layouterDataListeners.isEmpty());
+		synchronized (state) {
+			state.pull();
+			if (direct) {
+				accumulateForces(state);
+				integrate(state, null);
+				currentAspectForcesOutdated = true;
+			} else {
+				layouterData = computeLayouterData(state);
+				integrate(state, layouterData);
+				publishAspectForces(layouterData);
+			}
+			state.push();
+		}
 
 		totalTime += timeStep;
 		step.incrementAndGet();
 
-		synchronized (currentAspectForces) {
-			currentAspectForces = layouterData;
+		for (LayouterExtension<T> extension : extensions) {
+			if (extension.isEnabled()) {
+				extension.process(layout);
+			}
 		}
 
-		extensions.stream().filter(e -> e.isEnabled())
-				.forEach(e -> e.process(layout));
-
 		if (notify) {
-			notifyLayouterDataComputed(layouterData);
+			if (layouterData != null) {
+				notifyLayouterDataComputed(layouterData);
+			} else {
+				notifyCurrentLayouterData();
+			}
+		}
+	}
+
+	/**
+	 * Set the given {@link LayoutAspects} as the
+	 * {@link #currentAspectForces}. If the {@link #setReuseLayoutAspects(boolean)
+	 * reuse} flag is set, then the previous ones will be filled in the next
+	 * step.<br>
+	 * <br>
+	 * This is called while holding the monitor of the state.
+	 * 
+	 * @param layouterData
+	 *            The {@link LayoutAspects}
+	 */
+	private void publishAspectForces(LayoutAspects layouterData) {
+		LayoutAspects previousAspectForces;
+		synchronized (currentAspectForces) {
+			previousAspectForces = currentAspectForces;
+			currentAspectForces = layouterData;
+			currentAspectForcesOutdated = false;
+		}
+		if (reuseLayoutAspects) {
+			spareAspectForces = previousAspectForces;
 		}
 	}
 
@@ -289,6 +891,28 @@ public class Layouter<T extends LayoutObject> {
 		performStep(true);
 	}
 
+	/**
+	 * Perform steps until the given {@link ConvergenceCriteria} are met. This
+	 * is intended for computing layouts without a user interface: The steps
+	 * are performed directly one after another, on the calling thread, and
+	 * the {@link LayouterListener}s are only notified as often as specified
+	 * by the {@link ConvergenceCriteria#getNotificationInterval()
+	 * notification interval}.<br>
+	 * <br>
+	 * The run stops when the layout becomes {@link #isStable() stable}, when
+	 * the maximum number of steps has been performed, when the timeout has
+	 * been reached, or when the calling thread is interrupted. In the latter
+	 * case, the interrupted flag of the thread remains set.
+	 * 
+	 * @param criteria
+	 *            The {@link ConvergenceCriteria}
+	 * @return The {@link LayouterResult}
+	 */
+	public LayouterResult run(ConvergenceCriteria criteria) {
+		LayouterRun run = new LayouterRun(this, criteria);
+		return run.runSlice(Long.MAX_VALUE);
+	}
+
 	/**
 	 * @return unmodifiable list of aspects currently in use for the layout
 	 */
@@ -297,6 +921,15 @@ public class Layouter<T extends LayoutObject> {
 	}
 
 	/**
+	 * Returns the {@link LayoutAspects} that have been computed in the last
+	 * step where they have been required. In steps where the forces are
+	 * {@link #setDirectForceAccumulation(boolean) accumulated directly}, no
+	 * {@link LayoutAspects} are computed, and this method returns the ones
+	 * from an earlier step. They are always computed in the steps where
+	 * {@link LayouterListener}s are notified, on the thread that performs the
+	 * step. This method itself never computes the aspects, so that it may be
+	 * called from any thread without blocking.
+	 * 
 	 * @return the current forces in the layout by different aspects
 	 */
 	public LayoutAspects getCurrentAspectForces() {
@@ -344,6 +977,19 @@ public class Layouter<T extends LayoutObject> {
 		return epsilonStable;
 	}
 
+	/**
+	 * Returns the residual of the last step. This is the maximum length of
+	 * the velocity of any object, which is compared to the
+	 * {@link #getEpsilonStable() epsilon} in order to determine whether the
+	 * layout is {@link #isStable() stable}. Before the first step, this is
+	 * <code>Double.POSITIVE_INFINITY</code>.
+	 * 
+	 * @return The residual
+	 */
+	public double getResidual() {
+		return residual;
+	}
+
 	/**
 	 * @param epsilonStable
 	 *            the threshold when to consider this layout stable
@@ -359,20 +1005,162 @@ public class Layouter<T extends LayoutObject> {
 	 * {@link #addAspect(Aspect)} to compute the {@link AspectData} and
 	 * {@link QualityData} for the current set of {@link LayoutObject}s. The
 	 * forces in the {@link AspectData} will govern the motion of the
-	 * {@link LayoutObject}s for the next time step.
+	 * {@link LayoutObject}s for the next time step.<br>
+	 * <br>
+	 * If an {@link #setAspectExecutor(ExecutorService) aspect executor} was
+	 * set, then the aspects will be evaluated in parallel.<br>
+	 * <br>
+	 * Before the aspects are evaluated, the shape bounds of the state are
+	 * {@link LayoutState#updateShapeBounds() updated}, so that the aspects
+	 * can read them from the arrays of the state.<br>
+	 * <br>
+	 * When the {@link #setReuseLayoutAspects(boolean) reuse} flag is set,
+	 * then the {@link LayoutAspects} of the step before the last one is
+	 * filled, and its {@link AspectData} is passed to the aspects for reuse.
+	 * <br>
+	 * <br>
+	 * This is called while holding the monitor of the given state.
 	 * 
+	 * @param state
+	 *            The {@link LayoutState}
 	 * @return The {@link LayoutAspects}
 	 */
-	private LayoutAspects computeLayouterData() {
-		LayoutAspects layouterData = new LayoutAspects();
-		for (Aspect aspect : aspects) {
-			AspectData layoutData = aspect.computeLayoutData(layout
-					.getLayoutObjects());
-			layouterData.add(aspect, layoutData);
+	private LayoutAspects computeLayouterData(LayoutState state) {
+		state.updateShapeBounds();
+		LayoutAspects layouterData = spareAspectForces;
+		spareAspectForces = null;
+		if (layouterData == null || !reuseLayoutAspects) {
+			layouterData = new LayoutAspects();
+		} else {
+			layouterData.retainAspects(aspects);
+		}
+		ExecutorService executor = aspectExecutor;
+		if (executor == null || aspects.size() < 2) {
+			for (int i = 0; i < aspects.size(); i++) {
+				Aspect aspect = aspects.get(i);
+				AspectData layoutData = aspect.computeLayoutData(state,
+						layouterData.getLayoutData(aspect));
+				layouterData.add(aspect, layoutData);
+			}
+			return layouterData;
+		}
+
+		List<Aspect> currentAspects = new ArrayList<Aspect>(aspects);
+		List<Future<AspectData>> futures = new ArrayList<Future<AspectData>>();
+		for (int i = 1; i < currentAspects.size(); i++) {
+			Aspect aspect = currentAspects.get(i);
+			AspectData reuse = layouterData.getLayoutData(aspect);
+			futures.add(executor.submit(
+					() -> aspect.computeLayoutData(state, reuse)));
+		}
+		Aspect firstAspect = currentAspects.get(0);
+		layouterData.add(firstAspect, firstAspect.computeLayoutData(state,
+				layouterData.getLayoutData(firstAspect)));
+		for (int i = 1; i < currentAspects.size(); i++) {
+			Aspect aspect = currentAspects.get(i);
+			layouterData.add(aspect, join(futures.get(i - 1)));
 		}
 		return layouterData;
 	}
 
+	/**
+	 * Compute the forces for the current time step, and store them in the
+	 * force arrays of the given state. The forces of each
+	 * {@link ForceAccumulatingAspect} are added directly to these arrays.
+	 * For all other aspects, the {@link AspectData} is computed, and its
+	 * weighted forces are added.<br>
+	 * <br>
+	 * This is called while holding the monitor of the given state.
+	 * 
+	 * @param state
+	 *            The {@link LayoutState}
+	 */
+	private void accumulateForces(LayoutState state) {
+		state.updateShapeBounds();
+		double[] forceX = state.getForcesX();
+		double[] forceY = state.getForcesY();
+		int n = state.size();
+		Arrays.fill(forceX, 0, n, 0.0);
+		Arrays.fill(forceY, 0, n, 0.0);
+		for (int a = 0; a < aspects.size(); a++) {
+			Aspect aspect = aspects.get(a);
+			if (aspect instanceof ForceAccumulatingAspect) {
+				ForceAccumulatingAspect accumulatingAspect =
+						(ForceAccumulatingAspect) aspect;
+				accumulatingAspect.accumulateForces(state, forceX, forceY);
+				continue;
+			}
+			AspectData layoutData = aspect.computeLayoutData(state);
+			List<?> indexedObjects = null;
+			double[] indexedForcesX = null;
+			double[] indexedForcesY = null;
+			if (layoutData instanceof IndexedAspectData) {
+				IndexedAspectData indexedData = (IndexedAspectData) layoutData;
+				indexedObjects = indexedData.getLayoutObjects();
+				indexedForcesX = indexedData.getForcesX();
+				indexedForcesY = indexedData.getForcesY();
+			}
+			double weight = aspect.getWeight();
+			for (int i = 0; i < n; i++) {
+				getForce(layoutData, indexedObjects, indexedForcesX,
+						indexedForcesY, i, state.getLayoutObject(i),
+						contributedForce);
+				forceX[i] += weight * contributedForce.getX();
+				forceY[i] += weight * contributedForce.getY();
+			}
+		}
+	}
+
+	/**
+	 * Wait for the given future to complete, and return its result. If the
+	 * computation failed with an unchecked exception, then this exception will
+	 * be rethrown. If the thread is interrupted while waiting, then the
+	 * interruption flag will be set and an <code>IllegalStateException</code>
+	 * will be thrown.
+	 * 
+	 * @param future
+	 *            The future
+	 * @return The result
+	 */
+	private static <R> R join(Future<R> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while computing aspects", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/**
+	 * Notify all registered {@link LayouterListener}s about the
+	 * {@link LayoutAspects} of the last step. If they have not been computed
+	 * in the last step, because the forces have been accumulated directly,
+	 * then they are computed for the current positions of the objects.<br>
+	 * <br>
+	 * This must be called on the thread that performs the steps.
+	 */
+	void notifyCurrentLayouterData() {
+		if (layouterDataListeners.isEmpty()) {
+			return;
+		}
+		LayoutState state = layout.getLayoutState();
+		synchronized (state) {
+			if (currentAspectForcesOutdated) {
+				publishAspectForces(computeLayouterData(state));
+			}
+		}
+		notifyLayouterDataComputed(currentAspectForces);
+	}
+
 	/**
 	 * Notify all registered {@link LayouterListener}s that a new
 	 * {@link LayoutAspects} was computed and a step was performed.
@@ -387,99 +1175,335 @@ public class Layouter<T extends LayoutObject> {
 	}
 
 	/**
-	 * For each {@link LayoutObject}, compute the sum of all forces that are
-	 * assigned to the object based on the {@link AspectData}s in the given
-	 * {@link LayoutAspects}, and assign this accumulated force to the object
-	 * via {@link LayoutObject#setForce(Point2D)}
+	 * Perform the time integration for all {@link LayoutObject}s in the given
+	 * {@link LayoutState}.<br>
+	 * <br>
+	 * For each object, this computes the sum of the forces that are assigned
+	 * to the object in the {@link AspectData}s of the given
+	 * {@link LayoutAspects}, weighted with the weight of the respective
+	 * {@link Aspect}. Forces from an {@link IndexedAspectData} are read from
+	 * its arrays when it contains the objects in the order of the state. In
+	 * the {@link #setDeterministic(boolean) deterministic}
+	 * mode, this sum is computed in a fixed order, with compensated
+	 * summation. Based on this force and the mass of the object, the
+	 * acceleration, velocity and position of the object are updated by the
+	 * {@link #integrator}, using the current time step size. Finally,
+	 * {@link #residual}, {@link #isStable} and {@link #firstStableStep} are
+	 * updated, by testing whether any velocity exceeds
+	 * {@link #epsilonStable}.<br>
+	 * <br>
+	 * Without a {@link #timeStepController}, all this is done in a single
+	 * pass over the arrays of the state. Otherwise, the forces are
+	 * accumulated in a first pass, so that the controller can compute the
+	 * time step from them before the integration is done in a second pass.
+	 * <br>
+	 * <br>
+	 * Sleeping objects are not integrated. When sleeping is enabled or any
+	 * object is sleeping, the sleeping state of the objects is updated
+	 * afterwards, in {@link #updateSleeping(LayoutState)}.<br>
+	 * <br>
+	 * If the given {@link LayoutAspects} are <code>null</code>, then the
+	 * forces have already been stored in the state, in
+	 * {@link #accumulateForces(LayoutState)}, and are only integrated.
 	 * 
+	 * @param state
+	 *            The {@link LayoutState}
 	 * @param layouterData
-	 *            The {@link LayoutAspects}
+	 *            The {@link LayoutAspects}, or <code>null</code>
 	 */
-	private void applyForces(LayoutAspects layouterData) {
-		for (LayoutObject layoutObject : layout.getLayoutObjects()) {
-			Point2D totalForce = new Point2D.Double();
-			for (Aspect aspect : layouterData.getAspects()) {
-				AspectData layoutData = layouterData.getLayoutData(aspect);
-				double aspectWeight = aspect.getWeight();
-				Point2D contributedForce = layoutData.getForce(layoutObject);
-				// TODO In Layouter from LayoutOptimizer here was a check if
-				// contributedForce is null for
-				// the next line
-				Points.addScaled(totalForce, aspectWeight, contributedForce,
-						totalForce);
+	private void integrate(LayoutState state, LayoutAspects layouterData) {
+		boolean compensated = deterministic;
+		boolean accumulated = layouterData == null;
+		Collection<Aspect> stepAspects;
+		if (accumulated) {
+			stepAspects = Collections.emptyList();
+		} else if (compensated) {
+			stepAspects = layouterData.getOrderedAspects();
+		} else {
+			stepAspects = layouterData.getAspects();
+		}
+		int numAspects = stepAspects.size();
+		if (stepLayoutDatas.length < numAspects) {
+			stepLayoutDatas = new AspectData[numAspects];
+			stepAspectWeights = new double[numAspects];
+			stepIndexedObjects = new List<?>[numAspects];
+			stepIndexedForcesX = new double[numAspects][];
+			stepIndexedForcesY = new double[numAspects][];
+		}
+		AspectData[] layoutDatas = stepLayoutDatas;
+		double[] aspectWeights = stepAspectWeights;
+		List<?>[] indexedObjects = stepIndexedObjects;
+		double[][] indexedForcesX = stepIndexedForcesX;
+		double[][] indexedForcesY = stepIndexedForcesY;
+		int k = 0;
+		for (Aspect aspect : stepAspects) {
+			AspectData layoutData = layouterData.getLayoutData(aspect);
+			layoutDatas[k] = layoutData;
+			aspectWeights[k] = aspect.getWeight();
+			if (layoutData instanceof IndexedAspectData) {
+				IndexedAspectData indexedData = (IndexedAspectData) layoutData;
+				indexedObjects[k] = indexedData.getLayoutObjects();
+				indexedForcesX[k] = indexedData.getForcesX();
+				indexedForcesY[k] = indexedData.getForcesY();
+			} else {
+				indexedObjects[k] = null;
+			}
+			k++;
+		}
+
+		double[] forceX = state.getForcesX();
+		double[] forceY = state.getForcesY();
+		TimeStepController controller = timeStepController;
+		boolean fused = controller == null;
+		double dt = timeStep;
+		double maxVelocity = 0.0;
+		boolean[] sleeping = state.getSleeping();
+		int n = state.size();
+		for (int i = 0; i < n; i++) {
+			LayoutObject layoutObject = state.getLayoutObject(i);
+			double fx = 0.0;
+			double fy = 0.0;
+			if (compensated) {
+				double cx = 0.0;
+				double cy = 0.0;
+				for (int a = 0; a < numAspects; a++) {
+					getForce(layoutDatas[a], indexedObjects[a],
+							indexedForcesX[a], indexedForcesY[a], i, layoutObject,
+							contributedForce);
+					double tx = aspectWeights[a] * contributedForce.getX();
+					double ty = aspectWeights[a] * contributedForce.getY();
+					double sx = fx + tx;
+					double sy = fy + ty;
+					cx += Math.abs(fx) >= Math.abs(tx)
+							? (fx - sx) + tx : (tx - sx) + fx;
+					cy += Math.abs(fy) >= Math.abs(ty)
+							? (fy - sy) + ty : (ty - sy) + fy;
+					fx = sx;
+					fy = sy;
+				}
+				fx += cx;
+				fy += cy;
+			} else {
+				for (int a = 0; a < numAspects; a++) {
+					getForce(layoutDatas[a], indexedObjects[a],
+							indexedForcesX[a], indexedForcesY[a], i, layoutObject,
+							contributedForce);
+					fx += aspectWeights[a] * contributedForce.getX();
+					fy += aspectWeights[a] * contributedForce.getY();
+				}
+			}
+			if (!accumulated) {
+				forceX[i] = fx;
+				forceY[i] = fy;
+			}
+
+			if (fused && !sleeping[i]) {
+				double velocityMagnitude = integrateObject(state, i, dt);
+				if (velocityMagnitude > maxVelocity) {
+					maxVelocity = velocityMagnitude;
+				}
 			}
-			layoutObject.setForce(totalForce);
 		}
+		if (!fused) {
+			dt = adaptTimeStep(controller.computeTimeStep(state, dt));
+			for (int i = 0; i < n; i++) {
+				if (sleeping[i]) {
+					continue;
+				}
+				double velocityMagnitude = integrateObject(state, i, dt);
+				if (velocityMagnitude > maxVelocity) {
+					maxVelocity = velocityMagnitude;
+				}
+			}
+		}
+
+		if (sleepSteps > 0 || state.getSleepingCount() > 0) {
+			updateSleeping(state);
+		}
+
+		residual = maxVelocity;
+		boolean stillMoving = maxVelocity > epsilonStable;
+		if (!stillMoving && isStable == false) {
+			firstStableStep = step.get();
+		}
+		isStable = !stillMoving;
 	}
 
 	/**
-	 * Update the {@link LayoutObject#setAcceleration(Point2D) acceleration} of
-	 * all {@link LayoutObject}s, based on their current
-	 * {@link LayoutObject#getForce() force} and {@link LayoutObject#getMass()
-	 * mass}
+	 * Store the force of the given {@link LayoutObject} from the given
+	 * {@link AspectData} in the given result. If the data is an
+	 * {@link IndexedAspectData} (indicated by the given objects not being
+	 * <code>null</code>) that contains the given object at the given index,
+	 * then the force is read from the given arrays. Otherwise, it is looked
+	 * up by the object.
+	 * 
+	 * @param layoutData
+	 *            The {@link AspectData}
+	 * @param indexedObjects
+	 *            The objects of the {@link IndexedAspectData}, or
+	 *            <code>null</code>
+	 * @param indexedForcesX
+	 *            The x-components of the forces of the
+	 *            {@link IndexedAspectData}
+	 * @param indexedForcesY
+	 *            The y-components of the forces of the
+	 *            {@link IndexedAspectData}
+	 * @param index
+	 *            The index of the object in the state
+	 * @param layoutObject
+	 *            The {@link LayoutObject}
+	 * @param result
+	 *            The point that will store the result
 	 */
-	private void updateAccelerations() {
-		for (LayoutObject layoutObject : layout.getLayoutObjects()) {
-			Point2D acceleration = new Point2D.Double();
-			Point2D force = layoutObject.getForce();
-			double mass = layoutObject.getMass();
-			Points.scale(force, 1.0 / mass, acceleration);
-			layoutObject.setAcceleration(acceleration);
-			// System.out.println("Acc "+acceleration);
+	private static void getForce(AspectData layoutData,
+			List<?> indexedObjects, double[] indexedForcesX,
+			double[] indexedForcesY, int index, LayoutObject layoutObject,
+			Point2D result) {
+		if (indexedObjects != null && index < indexedObjects.size()
+				&& indexedObjects.get(index) == layoutObject) {
+			result.setLocation(indexedForcesX[index], indexedForcesY[index]);
+		} else {
+			layoutData.getForce(layoutObject, result);
 		}
 	}
 
 	/**
-	 * Update the {@link LayoutObject#setVelocity(Point2D) velocity} of all
-	 * {@link LayoutObject}s, based on their current
-	 * {@link LayoutObject#getAcceleration() acceleration} and the current time
-	 * step size.
+	 * Update the sleeping state of the {@link LayoutObject}s in the given
+	 * {@link LayoutState}, after the forces have been computed and the
+	 * objects have been integrated.<br>
+	 * <br>
+	 * The forces on sleeping objects do not contain the interactions between
+	 * sleeping objects. These interactions do not change while the objects
+	 * are sleeping, so the change of the force on a sleeping object is only
+	 * caused by the objects that are still moving. Therefore, the force on
+	 * each sleeping object is recorded as a reference whenever the set of
+	 * sleeping objects has changed. In all other steps, a sleeping object is
+	 * woken up when its force differs from this reference by more than the
+	 * {@link #wakeThreshold}. Such an object will be integrated in the next
+	 * step, when the full force on it has been computed.<br>
+	 * <br>
+	 * Objects whose velocity did not exceed the {@link #epsilonStable} for
+	 * {@link #sleepSteps} consecutive steps are put to sleep.
+	 * 
+	 * @param state
+	 *            The {@link LayoutState}
 	 */
-	private void updateVelocities() {
-		for (LayoutObject layoutObject : layout.getLayoutObjects()) {
-			Point2D velocity = layoutObject.getVelocity();
-			Point2D acceleration = layoutObject.getAcceleration();
-			Points.scale(acceleration, timeStep, velocity);
-			layoutObject.setVelocity(velocity);
-			// System.out.println("Vel "+velocity);
+	private void updateSleeping(LayoutState state) {
+		boolean[] sleeping = state.getSleeping();
+		int[] calmSteps = state.getCalmSteps();
+		double[] forceX = state.getForcesX();
+		double[] forceY = state.getForcesY();
+		double[] referenceForceX = state.getReferenceForcesX();
+		double[] referenceForceY = state.getReferenceForcesY();
+		double[] velocityX = state.getVelocitiesX();
+		double[] velocityY = state.getVelocitiesY();
+		int version = state.getSleepVersion();
+		boolean referencesValid = version == sleepReferenceVersion;
+		double wakeThresholdSquared = wakeThreshold * wakeThreshold;
+		int n = state.size();
+		for (int i = 0; i < n; i++) {
+			if (sleeping[i]) {
+				if (!referencesValid) {
+					referenceForceX[i] = forceX[i];
+					referenceForceY[i] = forceY[i];
+				} else {
+					double dx = forceX[i] - referenceForceX[i];
+					double dy = forceY[i] - referenceForceY[i];
+					if (dx * dx + dy * dy > wakeThresholdSquared) {
+						state.setSleeping(i, false);
+					}
+				}
+			} else if (sleepSteps > 0) {
+				double vx = velocityX[i];
+				double vy = velocityY[i];
+				double velocityMagnitude = Math.sqrt(vx * vx + vy * vy);
+				if (velocityMagnitude > epsilonStable) {
+					calmSteps[i] = 0;
+				} else {
+					calmSteps[i]++;
+					if (calmSteps[i] >= sleepSteps) {
+						state.setSleeping(i, true);
+					}
+				}
+			}
 		}
+		sleepReferenceVersion = version;
 	}
 
 	/**
-	 * Update {@link #isStable} and {@link #firstStableStep} and determines if
-	 * Layout is in a stable state by testing if a velocity exist which exceeds
-	 * {@link #epsilonStable}
+	 * Let the {@link #integrator} update the object with the given index in
+	 * the given {@link LayoutState}, and apply the {@link #maxSpeed} limit
+	 * and the maximum speed of the object.
+	 * 
+	 * @param state
+	 *            The {@link LayoutState}
+	 * @param index
+	 *            The index of the object
+	 * @param dt
+	 *            The time step
+	 * @return The length of the resulting velocity of the object
 	 */
-	private void updateStable() {
-		boolean stillMoving = false;
-		for (LayoutObject obj : layout.getLayoutObjects()) {
-			Point2D velocity = obj.getVelocity();
-			double velocityMagnitude = velocity.distance(new Point2D.Double());
+	private double integrateObject(LayoutState state, int index, double dt) {
+		double[] positionX = state.getPositionsX();
+		double[] positionY = state.getPositionsY();
+		double[] velocityX = state.getVelocitiesX();
+		double[] velocityY = state.getVelocitiesY();
+		double oldX = positionX[index];
+		double oldY = positionY[index];
 
-			if (velocityMagnitude > epsilonStable) {
-				stillMoving = true;
-			}
-		}
+		integrator.integrate(state, index, dt);
 
-		if (!stillMoving && isStable == false) {
-			firstStableStep = step.get();
+		double maxSpeed = Math.min(this.maxSpeed, state.getMaxSpeeds()[index]);
+		double vx = velocityX[index];
+		double vy = velocityY[index];
+		double velocityMagnitude = Math.sqrt(vx * vx + vy * vy);
+		if (velocityMagnitude > maxSpeed) {
+			double scale = maxSpeed / velocityMagnitude;
+			velocityX[index] = vx * scale;
+			velocityY[index] = vy * scale;
+			velocityMagnitude = maxSpeed;
 		}
-		isStable = !stillMoving;
+		double dx = positionX[index] - oldX;
+		double dy = positionY[index] - oldY;
+		double distance = Math.sqrt(dx * dx + dy * dy);
+		double maxDistance = maxSpeed * dt;
+		if (distance > maxDistance) {
+			double scale = maxDistance / distance;
+			positionX[index] = oldX + dx * scale;
+			positionY[index] = oldY + dy * scale;
+		}
+		return velocityMagnitude;
 	}
 
 	/**
-	 * Update the {@link LayoutObject#setPosition(Point2D) position} of all
-	 * {@link LayoutObject}s, based on their current
-	 * {@link LayoutObject#getVelocity() velocity} and the current time step
-	 * size.
+	 * Compute the new {@link #timeStep} from the given time step that was
+	 * proposed by the {@link #timeStepController}, taking into account the
+	 * {@link #timeStepHysteresis} and the bounds, and return it. The result
+	 * is always within the bounds, even when the hysteresis keeps a time step
+	 * that was set before the bounds have been changed.
+	 * 
+	 * @param proposedTimeStep
+	 *            The proposed time step
+	 * @return The new time step
 	 */
-	private void updatePositions() {
-		for (LayoutObject layoutObject : layout.getLayoutObjects()) {
-			Point2D position = layoutObject.getPosition();
-			Point2D velocity = layoutObject.getVelocity();
-			Points.addScaled(position, timeStep, velocity, position);
-			layoutObject.setPosition(position);
-			// System.out.println("Pos "+position);
+	private double adaptTimeStep(double proposedTimeStep) {
+		double clamped = clampTimeStep(proposedTimeStep);
+		if (Math.abs(clamped - timeStep) > timeStepHysteresis * timeStep) {
+			timeStep = clamped;
 		}
+		timeStep = clampTimeStep(timeStep);
+		return timeStep;
+	}
+
+	/**
+	 * Clamp the given time step to the bounds that have been set with
+	 * {@link #setTimeStepBounds(double, double)}
+	 * 
+	 * @param timeStep
+	 *            The time step
+	 * @return The clamped time step
+	 */
+	private double clampTimeStep(double timeStep) {
+		return Math.max(minTimeStep, Math.min(maxTimeStep, timeStep));
 	}
 }
@@ -0,0 +1,141 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+/**
+ * The result of {@link Layouter#run(ConvergenceCriteria)}
+ */
+public class LayouterResult {
+  /**
+   * The reasons why a run may have been stopped
+   */
+  public enum Termination {
+    /**
+     * The layout became stable
+     */
+    STABLE,
+
+    /**
+     * The maximum number of steps was reached
+     */
+    MAX_STEPS,
+
+    /**
+     * The timeout was reached
+     */
+    TIMEOUT,
+
+    /**
+     * The running thread was interrupted
+     */
+    INTERRUPTED
+  }
+
+  /**
+   * The reason why the run was stopped
+   */
+  private final Termination termination;
+
+  /**
+   * The number of steps that have been performed
+   */
+  private final int steps;
+
+  /**
+   * The elapsed time, in nanoseconds
+   */
+  private final long elapsedNs;
+
+  /**
+   * The residual after the last step
+   */
+  private final double residual;
+
+  /**
+   * Creates a new result
+   * 
+   * @param termination
+   *          The reason why the run was stopped
+   * @param steps
+   *          The number of steps that have been performed
+   * @param elapsedNs
+   *          The elapsed time, in nanoseconds
+   * @param residual
+   *          The residual after the last step
+   */
+  LayouterResult(Termination termination, int steps, long elapsedNs, double residual) {
+    this.termination = termination;
+    this.steps = steps;
+    this.elapsedNs = elapsedNs;
+    this.residual = residual;
+  }
+
+  /**
+   * @return the reason why the run was stopped
+   */
+  public Termination getTermination() {
+    return termination;
+  }
+
+  /**
+   * @return whether the layout was stable at the end of the run
+   */
+  public boolean isStable() {
+    return termination == Termination.STABLE;
+  }
+
+  /**
+   * @return the number of steps that have been performed in the run
+   */
+  public int getSteps() {
+    return steps;
+  }
+
+  /**
+   * @return the elapsed wall-clock time of the run, in milliseconds
+   */
+  public double getElapsedMs() {
+    return elapsedNs / 1e6;
+  }
+
+  /**
+   * Returns the residual after the last step. This is the maximum length of the velocity of any
+   * object, which is compared to the {@link Layouter#getEpsilonStable() epsilon} for determining
+   * whether the layout is stable.
+   * 
+   * @return the residual
+   */
+  public double getResidual() {
+    return residual;
+  }
+
+  @Override
+  public String toString() {
+    return "LayouterResult[termination=" + termination + ", steps=" + steps + ", elapsedMs="
+        + getElapsedMs() + ", residual=" + residual + "]";
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+import java.util.Objects;
+
+/**
+ * The state of a run of a {@link Layouter} until some {@link ConvergenceCriteria} are met. The run
+ * may be performed in several slices, which is used by the {@link LayouterScheduler}.
+ */
+class LayouterRun {
+  /**
+   * The {@link Layouter}
+   */
+  private final Layouter<?> layouter;
+
+  /**
+   * The maximum number of steps
+   */
+  private final int maxSteps;
+
+  /**
+   * The timeout, in nanoseconds
+   */
+  private final long timeoutNs;
+
+  /**
+   * The number of steps after which the listeners are notified
+   */
+  private final int notificationInterval;
+
+  /**
+   * The time when the first slice was started, in nanoseconds
+   */
+  private long startNs;
+
+  /**
+   * Whether the first slice was started
+   */
+  private boolean started;
+
+  /**
+   * The number of steps that have been performed
+   */
+  private int steps;
+
+  /**
+   * Whether the listeners have been notified after the last step
+   */
+  private boolean notified;
+
+  /**
+   * Creates a new run
+   * 
+   * @param layouter
+   *          The {@link Layouter}
+   * @param criteria
+   *          The {@link ConvergenceCriteria}
+   */
+  LayouterRun(Layouter<?> layouter, ConvergenceCriteria criteria) {
+    this.layouter = Objects.requireNonNull(layouter, "The layouter is null");
+    Objects.requireNonNull(criteria, "The criteria are null");
+    this.maxSteps = criteria.getMaxSteps();
+    long timeoutMs = criteria.getTimeoutMs();
+    this.timeoutNs =
+        timeoutMs >= Long.MAX_VALUE / 1000000L ? Long.MAX_VALUE : timeoutMs * 1000000L;
+    this.notificationInterval = criteria.getNotificationInterval();
+    this.notified = true;
+  }
+
+  /**
+   * Returns the {@link Layouter} of this run
+   * 
+   * @return The {@link Layouter}
+   */
+  Layouter<?> getLayouter() {
+    return layouter;
+  }
+
+  /**
+   * Perform steps until the run is finished, or until the given time has elapsed. At least one
+   * step is performed in each slice, unless the run is finished.
+   * 
+   * @param sliceNs
+   *          The duration of the slice, in nanoseconds
+   * @return The {@link LayouterResult} if the run is finished, or <code>null</code> if the slice
+   *         ended before the run was finished
+   */
+  LayouterResult runSlice(long sliceNs) {
+    long sliceStartNs = System.nanoTime();
+    if (!started) {
+      startNs = sliceStartNs;
+      started = true;
+    }
+    int sliceSteps = 0;
+    while (true) {
+      if (steps >= maxSteps) {
+        return finish(LayouterResult.Termination.MAX_STEPS);
+      }
+      long nowNs = System.nanoTime();
+      if (nowNs - startNs >= timeoutNs) {
+        return finish(LayouterResult.Termination.TIMEOUT);
+      }
+      if (Thread.currentThread().isInterrupted()) {
+        return finish(LayouterResult.Termination.INTERRUPTED);
+      }
+      if (sliceSteps > 0 && nowNs - sliceStartNs >= sliceNs) {
+        return null;
+      }
+      steps++;
+      sliceSteps++;
+      notified = notificationInterval > 0 && steps % notificationInterval == 0;
+      layouter.performStep(notified);
+      if (layouter.isStable()) {
+        return finish(LayouterResult.Termination.STABLE);
+      }
+    }
+  }
+
+  /**
+   * Finish this run, notifying the listeners about the last step if necessary
+   * 
+   * @param termination
+   *          The reason why the run was stopped
+   * @return The {@link LayouterResult}
+   */
+  private LayouterResult finish(LayouterResult.Termination termination) {
+    if (notificationInterval > 0 && !notified) {
+      layouter.notifyCurrentLayouterData();
+      notified = true;
+    }
+    long elapsedNs = System.nanoTime() - startNs;
+    return new LayouterResult(termination, steps, elapsedNs, layouter.getResidual());
+  }
+}
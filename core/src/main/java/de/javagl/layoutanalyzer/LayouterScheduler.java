@@ -0,0 +1,395 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * A class for running many independent {@link Layouter}s concurrently, on a shared executor.<br>
+ * <br>
+ * Each {@link Layouter} that is {@link #submit(Layouter, ConvergenceCriteria, int) submitted}
+ * is run until the given {@link ConvergenceCriteria} are met, as in
+ * {@link Layouter#run(ConvergenceCriteria)}. The layouters are run in time slices: A fixed number
+ * of workers (by default, one for each available processor) repeatedly take the layouter that
+ * waited longest, perform steps on it for the duration of one slice, and put it back, so that
+ * all layouters make progress and no layouter requires its own thread. The duration of the slice
+ * of a layouter is the {@link #setTimeSliceMs(double) time slice} multiplied with its priority.
+ * <br>
+ * <br>
+ * When a layouter becomes stable (or reaches the step limit or the timeout of its criteria), it
+ * is retired, and the future that was returned when it was submitted is completed with the
+ * {@link LayouterResult}. Cancelling the future removes the layouter before its next slice.<br>
+ * <br>
+ * By default, the workers are run on a work-stealing {@link ForkJoinPool}. Any other executor
+ * may be given at construction time, for example, one that runs each task in a virtual thread.
+ * <br>
+ * <br>
+ * Since the layouters run concurrently, they should not share
+ * {@link de.javagl.layoutanalyzer.aspects.Aspect} instances. Aspects that reuse buffers between
+ * the steps throw an <code>IllegalStateException</code> when they are used by two threads at the
+ * same time.
+ */
+public class LayouterScheduler {
+  /**
+   * The logger used in this class
+   */
+  private static final Logger logger = Logger.getLogger(LayouterScheduler.class.getName());
+
+  /**
+   * The executor that runs the workers
+   */
+  private final ExecutorService executor;
+
+  /**
+   * Whether the {@link #executor} was created by this scheduler
+   */
+  private final boolean ownsExecutor;
+
+  /**
+   * The maximum number of workers that are running at the same time
+   */
+  private final int parallelism;
+
+  /**
+   * The number of workers that are currently running
+   */
+  private final AtomicInteger workers;
+
+  /**
+   * The queue of the entries that are waiting for their next slice
+   */
+  private final Queue<Entry> queue;
+
+  /**
+   * The entries of all layouters that have been submitted and not yet retired
+   */
+  private final Map<Layouter<?>, Entry> entries;
+
+  /**
+   * The duration of a time slice with priority 1, in nanoseconds
+   */
+  private volatile long timeSliceNs;
+
+  /**
+   * Whether this scheduler was shut down
+   */
+  private volatile boolean shutdown;
+
+  /**
+   * Creates a new scheduler that runs the layouters on an own {@link ForkJoinPool}, with one
+   * worker for each available processor. This pool will be shut down when
+   * {@link #shutdown()} is called.
+   */
+  public LayouterScheduler() {
+    this(new ForkJoinPool(Runtime.getRuntime().availableProcessors()),
+        Runtime.getRuntime().availableProcessors(), true);
+  }
+
+  /**
+   * Creates a new scheduler that runs the layouters on the given executor, with at most the given
+   * number of workers running at the same time. The executor will not be shut down when
+   * {@link #shutdown()} is called.
+   * 
+   * @param executor
+   *          The executor
+   * @param parallelism
+   *          The maximum number of workers
+   * @throws IllegalArgumentException
+   *           If the parallelism is not positive
+   */
+  public LayouterScheduler(ExecutorService executor, int parallelism) {
+    this(executor, parallelism, false);
+  }
+
+  /**
+   * Creates a new scheduler
+   * 
+   * @param executor
+   *          The executor
+   * @param parallelism
+   *          The maximum number of workers
+   * @param ownsExecutor
+   *          Whether the executor was created by this scheduler
+   * @throws IllegalArgumentException
+   *           If the parallelism is not positive
+   */
+  private LayouterScheduler(ExecutorService executor, int parallelism, boolean ownsExecutor) {
+    Objects.requireNonNull(executor, "The executor is null");
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("The parallelism must be positive, but is " + parallelism);
+    }
+    this.executor = executor;
+    this.ownsExecutor = ownsExecutor;
+    this.parallelism = parallelism;
+    this.workers = new AtomicInteger();
+    this.queue = new ConcurrentLinkedQueue<Entry>();
+    this.entries = new ConcurrentHashMap<Layouter<?>, Entry>();
+    this.timeSliceNs = 2000000L;
+  }
+
+  /**
+   * Set the duration of the time slice of a layouter with priority 1. The default is 2
+   * milliseconds. At least one step is performed in each slice.
+   * 
+   * @param timeSliceMs
+   *          The duration of a time slice, in milliseconds
+   * @throws IllegalArgumentException
+   *           If the value is not positive
+   */
+  public void setTimeSliceMs(double timeSliceMs) {
+    if (!(timeSliceMs > 0.0)) {
+      throw new IllegalArgumentException("The time slice must be positive, but is " + timeSliceMs);
+    }
+    this.timeSliceNs = (long) Math.ceil(timeSliceMs * 1e6);
+  }
+
+  /**
+   * @return the duration of the time slice of a layouter with priority 1, in milliseconds
+   */
+  public double getTimeSliceMs() {
+    return timeSliceNs / 1e6;
+  }
+
+  /**
+   * Submit the given {@link Layouter} with priority 1
+   * 
+   * @param layouter
+   *          The {@link Layouter}
+   * @param criteria
+   *          The {@link ConvergenceCriteria}
+   * @return The future that is completed when the layouter is retired
+   * @see #submit(Layouter, ConvergenceCriteria, int)
+   */
+  public CompletableFuture<LayouterResult> submit(Layouter<?> layouter,
+      ConvergenceCriteria criteria) {
+    return submit(layouter, criteria, 1);
+  }
+
+  /**
+   * Submit the given {@link Layouter}, to be run until the given {@link ConvergenceCriteria} are
+   * met. The duration of each slice of the layouter will be the {@link #setTimeSliceMs(double)
+   * time slice} multiplied with the given priority.<br>
+   * <br>
+   * While the layouter is scheduled, it must not be stepped by any other thread. The criteria are
+   * evaluated when this method is called, and later changes do not affect the run.
+   * 
+   * @param layouter
+   *          The {@link Layouter}
+   * @param criteria
+   *          The {@link ConvergenceCriteria}
+   * @param priority
+   *          The priority
+   * @return The future that is completed with the {@link LayouterResult} when the layouter is
+   *         retired
+   * @throws IllegalArgumentException
+   *           If the priority is not positive, or the given layouter is already scheduled
+   * @throws RejectedExecutionException
+   *           If this scheduler was shut down
+   */
+  public CompletableFuture<LayouterResult> submit(Layouter<?> layouter,
+      ConvergenceCriteria criteria, int priority) {
+    Objects.requireNonNull(layouter, "The layouter is null");
+    Objects.requireNonNull(criteria, "The criteria are null");
+    if (priority <= 0) {
+      throw new IllegalArgumentException("The priority must be positive, but is " + priority);
+    }
+    if (shutdown) {
+      throw new RejectedExecutionException("The scheduler was shut down");
+    }
+    Entry entry = new Entry(new LayouterRun(layouter, criteria), priority);
+    if (entries.putIfAbsent(layouter, entry) != null) {
+      throw new IllegalArgumentException("The layouter is already scheduled");
+    }
+    queue.add(entry);
+    startWorkers();
+    return entry.future;
+  }
+
+  /**
+   * Returns the number of layouters that have been submitted and not yet been retired
+   * 
+   * @return The number of layouters
+   */
+  public int getScheduledCount() {
+    return entries.size();
+  }
+
+  /**
+   * Shut down this scheduler. No new layouters will be accepted, and the futures of all layouters
+   * that are still scheduled are cancelled. If the executor was created by this scheduler, then it
+   * will be shut down as well.
+   */
+  public void shutdown() {
+    shutdown = true;
+    for (Entry entry : entries.values()) {
+      entry.future.cancel(false);
+    }
+    if (ownsExecutor) {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Start as many workers as there are waiting entries, up to the {@link #parallelism}
+   */
+  private void startWorkers() {
+    while (!queue.isEmpty()) {
+      int current = workers.get();
+      if (current >= parallelism) {
+        return;
+      }
+      if (workers.compareAndSet(current, current + 1)) {
+        try {
+          executor.execute(this::work);
+        } catch (RejectedExecutionException e) {
+          workers.decrementAndGet();
+          logger.warning("Could not start worker: " + e);
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * The main loop of a worker: Repeatedly take the entry that waited longest from the queue, run
+   * one slice of it, and put it back if it is not finished. The worker ends when the queue is
+   * empty.
+   */
+  private void work() {
+    try {
+      Entry entry;
+      while (!shutdown && (entry = queue.poll()) != null) {
+        if (runSlice(entry)) {
+          queue.add(entry);
+        }
+      }
+    } finally {
+      workers.decrementAndGet();
+    }
+    if (!shutdown) {
+      startWorkers();
+    }
+  }
+
+  /**
+   * Run one slice of the given entry. If the run is finished, then the entry is retired and its
+   * future is completed.
+   * 
+   * @param entry
+   *          The {@link Entry}
+   * @return Whether the entry has to be scheduled again
+   */
+  private boolean runSlice(Entry entry) {
+    if (entry.future.isDone()) {
+      retire(entry);
+      return false;
+    }
+    LayouterResult result;
+    try {
+      result = entry.run.runSlice(computeSliceNs(entry.priority));
+    } catch (RuntimeException | Error e) {
+      retire(entry);
+      entry.future.completeExceptionally(e);
+      return false;
+    }
+    if (result == null) {
+      return true;
+    }
+    retire(entry);
+    entry.future.complete(result);
+    return false;
+  }
+
+  /**
+   * Compute the duration of a slice for the given priority
+   * 
+   * @param priority
+   *          The priority
+   * @return The duration, in nanoseconds
+   */
+  private long computeSliceNs(int priority) {
+    long sliceNs = timeSliceNs;
+    if (sliceNs > Long.MAX_VALUE / priority) {
+      return Long.MAX_VALUE;
+    }
+    return sliceNs * priority;
+  }
+
+  /**
+   * Remove the given entry from the scheduled entries
+   * 
+   * @param entry
+   *          The {@link Entry}
+   */
+  private void retire(Entry entry) {
+    entries.remove(entry.run.getLayouter(), entry);
+  }
+
+  /**
+   * An entry for a {@link Layouter} that was submitted to the scheduler
+   */
+  private static final class Entry {
+    /**
+     * The {@link LayouterRun}
+     */
+    final LayouterRun run;
+
+    /**
+     * The priority
+     */
+    final int priority;
+
+    /**
+     * The future that is completed when the layouter is retired
+     */
+    final CompletableFuture<LayouterResult> future;
+
+    /**
+     * Creates a new entry
+     * 
+     * @param run
+     *          The {@link LayouterRun}
+     * @param priority
+     *          The priority
+     */
+    Entry(LayouterRun run, int priority) {
+      this.run = run;
+      this.priority = priority;
+      this.future = new CompletableFuture<LayouterResult>();
+    }
+  }
+}
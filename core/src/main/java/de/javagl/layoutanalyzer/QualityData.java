@@ -43,7 +43,10 @@ import de.javagl.layoutanalyzer.objects.LayoutObject;
  * The quality values in this class are generally assumed to be <i>normalized</i>. This mainly means
  * that the quality will be 1.0 if the layout of an object is "perfect" regarding one
  * {@link Aspect}, and 0.0 if it is as bad as it can be. However, no guarantees are made by this
- * class itself.
+ * class itself.<br>
+ * <br>
+ * The {@link IndexedQualityData} stores the quality values in an array, and updates the
+ * statistics whenever a value is set.
  */
 public class QualityData {
   /**
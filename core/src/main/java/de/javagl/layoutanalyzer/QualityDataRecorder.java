@@ -34,7 +34,18 @@ import de.javagl.layoutanalyzer.utils.QueueDoubleFunction;
 /**
  * A helper class summarizing the minimum- maximum and average quality values from the
  * {@link QualityData} objects that it receives, and offers them as functions that map the range
- * [0,1] to a fixed set of recent quality values.
+ * [0,1] to a fixed set of recent quality values.<br>
+ * <br>
+ * The values are recorded in {@link QueueDoubleFunction}s. The {@link #record(QualityData)}
+ * method should only be called by one thread (usually the one that performs the layout steps),
+ * and the functions may be evaluated concurrently by other threads (for example, for painting),
+ * without locking.<br>
+ * <br>
+ * Each function on its own always reflects a consistent state of its queue. The three functions
+ * are updated one after another, however. A reader that evaluates more than one of them while a
+ * value is recorded may therefore see the new value in one function and not yet in another, for
+ * example, a new minimum together with the previous maximum. This is usually irrelevant for
+ * painting, where the next repaint shows the complete values.
  */
 public class QualityDataRecorder {
   /**
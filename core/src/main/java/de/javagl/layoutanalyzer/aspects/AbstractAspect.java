@@ -28,6 +28,7 @@ package de.javagl.layoutanalyzer.aspects;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 import de.javagl.layoutanalyzer.AspectListener;
 
@@ -50,6 +51,17 @@ abstract public class AbstractAspect implements Aspect {
    */
   private final List<AspectListener> listeners = new ArrayList<AspectListener>();
 
+  /**
+   * The thread that is currently inside a {@link #beginComputation()} block, or
+   * <code>null</code>
+   */
+  private final AtomicReference<Thread> computingThread = new AtomicReference<Thread>();
+
+  /**
+   * The nesting depth of the {@link #beginComputation()} blocks of the {@link #computingThread}
+   */
+  private int computingDepth;
+
   /**
    * Default constructor
    * 
@@ -77,6 +89,38 @@ abstract public class AbstractAspect implements Aspect {
     fireListener();
   }
 
+  /**
+   * Marks the beginning of a computation that uses state of this instance, such as buffers that
+   * are reused between calls. Each call must be followed by a call to {@link #endComputation()},
+   * in a <code>finally</code> block. The blocks may be nested in one thread.<br>
+   * <br>
+   * Such aspects may only be used by one thread at a time, and should thus not be shared between
+   * {@link de.javagl.layoutanalyzer.Layouter} instances that run concurrently. This method
+   * detects a violation of this rule, instead of letting the threads overwrite each other's data.
+   * 
+   * @throws IllegalStateException
+   *           If another thread is currently computing data with this aspect
+   */
+  protected final void beginComputation() {
+    Thread currentThread = Thread.currentThread();
+    if (!computingThread.compareAndSet(null, currentThread)
+        && computingThread.get() != currentThread) {
+      throw new IllegalStateException("The aspect " + getName()
+          + " is already used by another thread. It may only be used by one layouter at a time");
+    }
+    computingDepth++;
+  }
+
+  /**
+   * Marks the end of a computation that was started with {@link #beginComputation()}
+   */
+  protected final void endComputation() {
+    computingDepth--;
+    if (computingDepth == 0) {
+      computingThread.set(null);
+    }
+  }
+
   protected void fireListener() {
     for (AspectListener listener : listeners)
       listener.changedWeight(this);
@@ -0,0 +1,461 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.aspects;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import de.javagl.layoutanalyzer.AspectData;
+import de.javagl.layoutanalyzer.IndexedAspectData;
+import de.javagl.layoutanalyzer.objects.LayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutState;
+
+/**
+ * Abstract base implementation of an {@link Aspect} that is defined by forces between pairs of
+ * {@link LayoutObject}s.<br>
+ * <br>
+ * Subclasses only implement the {@link #pairForce(int, int, double[], double[], double[], double[])
+ * pairForce} method, which computes the force between two objects, given by their indices, and
+ * adds it to the force arrays. This class owns the iteration over the pairs: The triangular space
+ * of all pairs (i,j) with i&lt;j is divided into square tiles of a fixed size, so that the
+ * positions of the objects of one tile fit into the cache. The tiles are divided into a fixed
+ * number of chunks, each with its own force arrays, which are processed in parallel in the common
+ * {@link ForkJoinPool}. Afterwards, the force arrays of the chunks are summed up in the order of
+ * the chunks. Since the division only depends on the number of objects, the results do not
+ * depend on the number of threads.<br>
+ * <br>
+ * The force arrays of the chunks are kept between the calls, so that no arrays have to be
+ * allocated in each step. Each chunk needs two arrays of n doubles. The number of chunks is
+ * limited so that these arrays together contain at most 2<sup>23</sup> doubles, which are 64 MB.
+ * For large numbers of objects, this reduces the number of chunks, down to a single chunk that
+ * uses the given force arrays directly and needs no additional memory.<br>
+ * <br>
+ * Pairs of objects that are both sleeping (see {@link LayoutState#isSleeping(int)}) are omitted.
+ * Subclasses that can find the relevant pairs more efficiently may override
+ * {@link #computeForces(double[], double[], int, boolean[], double[], double[]) computeForces}.
+ * <br>
+ * <br>
+ * The forces may also be {@link #accumulateForces(LayoutState, double[], double[]) accumulated}
+ * directly in the force arrays of a {@link LayoutState}.<br>
+ * <br>
+ * Instances reuse their buffers between the calls. They may therefore only be used by one thread
+ * at a time. A concurrent call from another thread causes an <code>IllegalStateException</code>.
+ */
+public abstract class AbstractPairwiseAspect extends AbstractAspect
+    implements ForceAccumulatingAspect {
+  /**
+   * The number of objects along each side of a tile
+   */
+  private static final int TILE_SIZE = 256;
+
+  /**
+   * The maximum number of chunks into which the tiles are divided
+   */
+  private static final int MAX_CHUNKS = 16;
+
+  /**
+   * The maximum total number of elements of the force arrays of all chunks, for each component
+   */
+  private static final int MAX_CHUNK_ELEMENTS = 1 << 22;
+
+  /**
+   * Whether the chunks are processed in parallel
+   */
+  private boolean parallel;
+
+  /**
+   * The x-coordinates of the positions, if they are not taken from a {@link LayoutState}
+   */
+  private double[] positionX = new double[0];
+
+  /**
+   * The y-coordinates of the positions, if they are not taken from a {@link LayoutState}
+   */
+  private double[] positionY = new double[0];
+
+  /**
+   * The x-components of the forces that are accumulated with a weight that is not 1.0, before
+   * they are multiplied with the weight
+   */
+  private double[] unweightedForceX = new double[0];
+
+  /**
+   * The y-components of the forces that are accumulated with a weight that is not 1.0, before
+   * they are multiplied with the weight
+   */
+  private double[] unweightedForceY = new double[0];
+
+  /**
+   * The x-components of the forces of each chunk
+   */
+  private double[][] chunkForceX = new double[0][];
+
+  /**
+   * The y-components of the forces of each chunk
+   */
+  private double[][] chunkForceY = new double[0][];
+
+  /**
+   * Default constructor
+   * 
+   * @param name
+   *          The name of this aspect
+   */
+  protected AbstractPairwiseAspect(String name) {
+    super(name);
+    this.parallel = true;
+  }
+
+  /**
+   * Set whether the pairs of objects should be processed in parallel. The results do not depend
+   * on this flag. The default is <code>true</code>.
+   * 
+   * @param parallel
+   *          Whether the pairs should be processed in parallel
+   */
+  public void setParallel(boolean parallel) {
+    this.parallel = parallel;
+  }
+
+  /**
+   * @return whether the pairs of objects are processed in parallel
+   * @see #setParallel(boolean)
+   */
+  public boolean isParallel() {
+    return parallel;
+  }
+
+  @Override
+  public AspectData computeLayoutData(List<? extends LayoutObject> layoutObjects) {
+    return computeLayoutData(layoutObjects, (AspectData) null);
+  }
+
+  @Override
+  public AspectData computeLayoutData(List<? extends LayoutObject> layoutObjects,
+      AspectData reuse) {
+    Objects.requireNonNull(layoutObjects, "The layoutObjects are null");
+    beginComputation();
+    try {
+      int n = layoutObjects.size();
+      if (positionX.length < n) {
+        positionX = new double[n];
+        positionY = new double[n];
+      }
+      Point2D position = new Point2D.Double();
+      for (int i = 0; i < n; i++) {
+        layoutObjects.get(i).getPosition(position);
+        positionX[i] = position.getX();
+        positionY[i] = position.getY();
+      }
+      return computeLayoutData(layoutObjects, positionX, positionY, null, reuse);
+    } finally {
+      endComputation();
+    }
+  }
+
+  @Override
+  public AspectData computeLayoutData(LayoutState layoutState) {
+    return computeLayoutData(layoutState, null);
+  }
+
+  @Override
+  public void accumulateForces(LayoutState layoutState, double[] forceX, double[] forceY) {
+    Objects.requireNonNull(layoutState, "The layoutState is null");
+    beginComputation();
+    try {
+      List<LayoutObject> layoutObjects = layoutState.getLayoutObjects();
+      int n = layoutObjects.size();
+      double[] x = layoutState.getPositionsX();
+      double[] y = layoutState.getPositionsY();
+      prepare(layoutObjects, x, y, n);
+      double weight = getWeight();
+      if (weight == 1.0) {
+        computeForces(x, y, n, layoutState.getSleeping(), forceX, forceY);
+        return;
+      }
+      if (unweightedForceX.length < n) {
+        unweightedForceX = new double[n];
+        unweightedForceY = new double[n];
+      }
+      Arrays.fill(unweightedForceX, 0, n, 0.0);
+      Arrays.fill(unweightedForceY, 0, n, 0.0);
+      computeForces(x, y, n, layoutState.getSleeping(), unweightedForceX, unweightedForceY);
+      for (int i = 0; i < n; i++) {
+        forceX[i] += weight * unweightedForceX[i];
+        forceY[i] += weight * unweightedForceY[i];
+      }
+    } finally {
+      endComputation();
+    }
+  }
+
+  @Override
+  public AspectData computeLayoutData(LayoutState layoutState, AspectData reuse) {
+    Objects.requireNonNull(layoutState, "The layoutState is null");
+    beginComputation();
+    try {
+      return computeLayoutData(layoutState.getLayoutObjects(), layoutState.getPositionsX(),
+          layoutState.getPositionsY(), layoutState.getSleeping(), reuse);
+    } finally {
+      endComputation();
+    }
+  }
+
+  /**
+   * Compute the {@link AspectData} for the given {@link LayoutObject}s, which have the given
+   * positions
+   * 
+   * @param layoutObjects
+   *          The {@link LayoutObject}s
+   * @param x
+   *          The x-coordinates of the positions
+   * @param y
+   *          The y-coordinates of the positions
+   * @param sleeping
+   *          The flags indicating which objects are sleeping, or <code>null</code>
+   * @param reuse
+   *          The {@link AspectData} that may be reused, or <code>null</code>
+   * @return The {@link AspectData}
+   */
+  private AspectData computeLayoutData(List<? extends LayoutObject> layoutObjects, double[] x,
+      double[] y, boolean[] sleeping, AspectData reuse) {
+    int n = layoutObjects.size();
+    IndexedAspectData layoutData =
+        IndexedAspectData.reuseOrCreate(reuse, layoutObjects, getWeight());
+    prepare(layoutObjects, x, y, n);
+    computeForces(x, y, n, sleeping, layoutData.getForcesX(), layoutData.getForcesY());
+    return layoutData;
+  }
+
+  /**
+   * Will be called before the forces are computed for the given {@link LayoutObject}s. Subclasses
+   * may override this method to prepare the data that is required in the
+   * {@link #pairForce(int, int, double[], double[], double[], double[]) pairForce} method. The
+   * default implementation does nothing.
+   * 
+   * @param layoutObjects
+   *          The {@link LayoutObject}s
+   * @param x
+   *          The x-coordinates of the positions
+   * @param y
+   *          The y-coordinates of the positions
+   * @param n
+   *          The number of objects
+   */
+  protected void prepare(List<? extends LayoutObject> layoutObjects, double[] x, double[] y,
+      int n) {
+    // Nothing to do by default
+  }
+
+  /**
+   * Compute the forces for the objects with the given positions, and add them to the given force
+   * arrays. The default implementation calls
+   * {@link #pairForce(int, int, double[], double[], double[], double[]) pairForce} for all pairs
+   * of objects that are not both sleeping, as described in the class documentation.
+   * 
+   * @param x
+   *          The x-coordinates of the positions
+   * @param y
+   *          The y-coordinates of the positions
+   * @param n
+   *          The number of objects
+   * @param sleeping
+   *          The flags indicating which objects are sleeping, or <code>null</code>
+   * @param forceX
+   *          The x-components of the forces
+   * @param forceY
+   *          The y-components of the forces
+   */
+  protected void computeForces(double[] x, double[] y, int n, boolean[] sleeping,
+      double[] forceX, double[] forceY) {
+    int tiles = (n + TILE_SIZE - 1) / TILE_SIZE;
+    long tileCount = (long) tiles * (tiles + 1) / 2;
+    int maxChunks = Math.min(MAX_CHUNKS, MAX_CHUNK_ELEMENTS / Math.max(1, n));
+    int chunks = (int) Math.min(tileCount, maxChunks);
+    if (chunks <= 1) {
+      computeTiles(0, tileCount, tiles, x, y, n, sleeping, forceX, forceY);
+      return;
+    }
+    if (chunkForceX.length < chunks || chunkForceX[0].length < n) {
+      chunkForceX = new double[chunks][n];
+      chunkForceY = new double[chunks][n];
+    }
+    List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(chunks);
+    for (int c = 0; c < chunks; c++) {
+      long tileStart = tileCount * c / chunks;
+      long tileEnd = tileCount * (c + 1) / chunks;
+      double[] cx = chunkForceX[c];
+      double[] cy = chunkForceY[c];
+      Arrays.fill(cx, 0, n, 0.0);
+      Arrays.fill(cy, 0, n, 0.0);
+      tasks.add(new RecursiveAction() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+          computeTiles(tileStart, tileEnd, tiles, x, y, n, sleeping, cx, cy);
+        }
+      });
+    }
+    if (parallel && ForkJoinPool.getCommonPoolParallelism() > 1) {
+      ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+          invokeAll(tasks);
+        }
+      });
+    } else {
+      for (ForkJoinTask<?> task : tasks) {
+        task.invoke();
+      }
+    }
+    for (int c = 0; c < chunks; c++) {
+      double[] cx = chunkForceX[c];
+      double[] cy = chunkForceY[c];
+      for (int i = 0; i < n; i++) {
+        forceX[i] += cx[i];
+        forceY[i] += cy[i];
+      }
+    }
+  }
+
+  /**
+   * Compute the forces for the given range of tiles. The tiles are enumerated row by row, where
+   * row i contains the tiles (i,j) with i&lt;=j.
+   * 
+   * @param tileStart
+   *          The index of the first tile, inclusive
+   * @param tileEnd
+   *          The index of the last tile, exclusive
+   * @param tiles
+   *          The number of tiles along each side
+   * @param x
+   *          The x-coordinates of the positions
+   * @param y
+   *          The y-coordinates of the positions
+   * @param n
+   *          The number of objects
+   * @param sleeping
+   *          The flags indicating which objects are sleeping, or <code>null</code>
+   * @param forceX
+   *          The x-components of the forces
+   * @param forceY
+   *          The y-components of the forces
+   */
+  private void computeTiles(long tileStart, long tileEnd, int tiles, double[] x, double[] y,
+      int n, boolean[] sleeping, double[] forceX, double[] forceY) {
+    int tileRow = 0;
+    long remaining = tileStart;
+    while (remaining >= tiles - tileRow) {
+      remaining -= tiles - tileRow;
+      tileRow++;
+    }
+    int tileColumn = tileRow + (int) remaining;
+    for (long t = tileStart; t < tileEnd; t++) {
+      int iStart = tileRow * TILE_SIZE;
+      int iEnd = Math.min(n, iStart + TILE_SIZE);
+      int jStart = tileColumn * TILE_SIZE;
+      int jEnd = Math.min(n, jStart + TILE_SIZE);
+      for (int i = iStart; i < iEnd; i++) {
+        if (sleeping == null || !sleeping[i]) {
+          computeRowForces(i, Math.max(jStart, i + 1), jEnd, x, y, forceX, forceY);
+          continue;
+        }
+        for (int j = Math.max(jStart, i + 1); j < jEnd; j++) {
+          if (!sleeping[j]) {
+            pairForce(i, j, x, y, forceX, forceY);
+          }
+        }
+      }
+      tileColumn++;
+      if (tileColumn == tiles) {
+        tileRow++;
+        tileColumn = tileRow;
+      }
+    }
+  }
+
+  /**
+   * Compute the forces between the object with the given index and the objects in the given
+   * range, and add them to the given force arrays. This is called for the rows of the tiles in
+   * which the first object is not sleeping. The default implementation calls
+   * {@link #pairForce(int, int, double[], double[], double[], double[]) pairForce} for each pair.
+   * Subclasses may override this method to process a whole row at once, for example, with a
+   * {@link de.javagl.layoutanalyzer.kernels.ForceKernel}. The same constraints as for the
+   * {@link #pairForce(int, int, double[], double[], double[], double[]) pairForce} method apply.
+   * 
+   * @param i
+   *          The index of the first object
+   * @param jStart
+   *          The index of the first second object, inclusive, which is greater than i
+   * @param jEnd
+   *          The index of the last second object, exclusive
+   * @param x
+   *          The x-coordinates of the positions
+   * @param y
+   *          The y-coordinates of the positions
+   * @param forceX
+   *          The x-components of the forces
+   * @param forceY
+   *          The y-components of the forces
+   */
+  protected void computeRowForces(int i, int jStart, int jEnd, double[] x, double[] y,
+      double[] forceX, double[] forceY) {
+    for (int j = jStart; j < jEnd; j++) {
+      pairForce(i, j, x, y, forceX, forceY);
+    }
+  }
+
+  /**
+   * Compute the force between the objects with the given indices, and add it to the given force
+   * arrays. This method may be called concurrently for different pairs, but never concurrently
+   * with the same force arrays. It must thus not modify any shared state other than these arrays.
+   * 
+   * @param i
+   *          The index of the first object
+   * @param j
+   *          The index of the second object, which is greater than the first one
+   * @param x
+   *          The x-coordinates of the positions
+   * @param y
+   *          The y-coordinates of the positions
+   * @param forceX
+   *          The x-components of the forces
+   * @param forceY
+   *          The y-components of the forces
+   */
+  protected abstract void pairForce(int i, int j, double[] x, double[] y, double[] forceX,
+      double[] forceY);
+}
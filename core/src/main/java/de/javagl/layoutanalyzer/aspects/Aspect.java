@@ -31,10 +31,15 @@ import java.util.List;
 import de.javagl.layoutanalyzer.AspectListener;
 import de.javagl.layoutanalyzer.AspectData;
 import de.javagl.layoutanalyzer.objects.LayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutState;
 
 /**
  * Interface for one "aspect" of a layout. It offers methods to compute the {@link AspectData} for a
- * list of {@link LayoutObject}s.
+ * list of {@link LayoutObject}s.<br>
+ * <br>
+ * Implementations may keep state between the calls, for example, buffers that are reused in each
+ * step. Unless stated otherwise, an instance should therefore only be used by one
+ * {@link de.javagl.layoutanalyzer.Layouter} at a time, and not by multiple threads concurrently.
  */
 public interface Aspect {
   /**
@@ -73,6 +78,68 @@ public interface Aspect {
    */
   AspectData computeLayoutData(List<? extends LayoutObject> layoutObjects);
 
+  /**
+   * Compute the {@link AspectData} for the {@link LayoutObject}s of the given {@link LayoutState}.
+   * <br>
+   * <br>
+   * Objects that are {@link LayoutState#isSleeping(int) sleeping} are not moved by the simulation,
+   * and may be treated as static sources of forces: Implementations may omit the interactions
+   * between two sleeping objects, and the forces that only depend on a single sleeping object,
+   * because these do not change while the objects are sleeping. The forces on sleeping objects are
+   * only used for detecting when these objects have to be woken up.<br>
+   * <br>
+   * When this method is called by the {@link de.javagl.layoutanalyzer.Layouter}, the
+   * {@link LayoutState#updateShapeBounds() shape bounds} of the state are up to date, and may be
+   * read from the arrays of the state.<br>
+   * <br>
+   * This method is called while holding the monitor of the given state. The default
+   * implementation calls {@link #computeLayoutData(List)} with the
+   * {@link LayoutState#getLayoutObjects() objects of the state}.
+   * 
+   * @param layoutState
+   *          The {@link LayoutState}
+   * @return The {@link AspectData}
+   */
+  default AspectData computeLayoutData(LayoutState layoutState) {
+    return computeLayoutData(layoutState.getLayoutObjects());
+  }
+
+  /**
+   * Compute the {@link AspectData} for the given {@link LayoutObject}s, as in
+   * {@link #computeLayoutData(List)}, optionally reusing the given {@link AspectData}.<br>
+   * <br>
+   * The given data is one that has been returned by this aspect in an earlier call. If it is
+   * suitable for the given objects, then implementations may clear it, fill it with the new
+   * data and return it, instead of creating a new instance. The default implementation ignores
+   * the given data, and calls {@link #computeLayoutData(List)}.
+   * 
+   * @param layoutObjects
+   *          The {@link LayoutObject}s
+   * @param reuse
+   *          The {@link AspectData} that may be reused. May be <code>null</code>.
+   * @return The {@link AspectData}
+   */
+  default AspectData computeLayoutData(List<? extends LayoutObject> layoutObjects,
+      AspectData reuse) {
+    return computeLayoutData(layoutObjects);
+  }
+
+  /**
+   * Compute the {@link AspectData} for the {@link LayoutObject}s of the given {@link LayoutState},
+   * as in {@link #computeLayoutData(LayoutState)}, optionally reusing the given
+   * {@link AspectData}, as described in {@link #computeLayoutData(List, AspectData)}. The default
+   * implementation ignores the given data, and calls {@link #computeLayoutData(LayoutState)}.
+   * 
+   * @param layoutState
+   *          The {@link LayoutState}
+   * @param reuse
+   *          The {@link AspectData} that may be reused. May be <code>null</code>.
+   * @return The {@link AspectData}
+   */
+  default AspectData computeLayoutData(LayoutState layoutState, AspectData reuse) {
+    return computeLayoutData(layoutState);
+  }
+
   /**
    * Add a Listener to this aspect
    * 
@@ -0,0 +1,328 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.aspects;
+
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import de.javagl.layoutanalyzer.AspectData;
+import de.javagl.layoutanalyzer.IndexedAspectData;
+import de.javagl.layoutanalyzer.objects.LayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutState;
+import de.javagl.layoutanalyzer.spatial.QuadTree;
+
+/**
+ * Implementation of an {@link Aspect} that represents the same pairwise repulsion between
+ * {@link LayoutObject}s as the {@link PairwiseRepulsionForce}, but approximates the forces with
+ * the Barnes-Hut method, in O(n log n) instead of O(n<sup>2</sup>).<br>
+ * <br>
+ * In each step, a {@link QuadTree} is built for the positions of the objects. The force on each
+ * object is computed by traversing this tree: Nodes that are farther away than the repulsion
+ * distance are skipped. Nodes whose size, divided by the distance to their center of mass, is
+ * smaller than the opening angle &theta;, are treated as a single object that has the number of
+ * objects in the node as its weight. For all other nodes, the children are examined, and for
+ * leaves, the forces are computed exactly.<br>
+ * <br>
+ * With an opening angle of 0, the forces are the same as the ones of the
+ * {@link PairwiseRepulsionForce}, up to rounding errors. Larger values make the computation
+ * faster and less accurate. The default value is 0.5.<br>
+ * <br>
+ * Instances reuse the tree and their buffers between the calls. They may therefore only be used
+ * by one thread at a time. A concurrent call from another thread causes an
+ * <code>IllegalStateException</code>.
+ */
+public class BarnesHutRepulsionForce extends AbstractAspect implements ForceAccumulatingAspect {
+  /**
+   * An epsilon for "reasonable" distances between objects
+   */
+  private static final double EPSILON = 1e-8;
+
+  /**
+   * The maximum number of objects in a leaf of the {@link QuadTree}
+   */
+  private static final int LEAF_CAPACITY = 8;
+
+  /**
+   * The desired repulsion distance between each pair of objects
+   */
+  private double repulsionDistance = 300.0;
+
+  /**
+   * The opening angle
+   */
+  private double theta = 0.5;
+
+  /**
+   * The {@link QuadTree} that is rebuilt in each step
+   */
+  private final QuadTree quadTree;
+
+  /**
+   * The stack of nodes for the traversal of the {@link #quadTree}
+   */
+  private int[] stack;
+
+  /**
+   * The x-coordinates of the positions, if they are not taken from a {@link LayoutState}
+   */
+  private double[] positionX;
+
+  /**
+   * The y-coordinates of the positions, if they are not taken from a {@link LayoutState}
+   */
+  private double[] positionY;
+
+  /**
+   * Creates a new force that tries to keep the given distance between the {@link LayoutObject}s
+   * 
+   * @param repulsionDistance
+   *          The repulsion distance
+   */
+  public BarnesHutRepulsionForce(double repulsionDistance) {
+    super("BarnesHutRepulsionForce");
+    setRepulsionDistance(repulsionDistance);
+    this.quadTree = new QuadTree(LEAF_CAPACITY);
+    this.stack = new int[64];
+    this.positionX = new double[0];
+    this.positionY = new double[0];
+  }
+
+  /**
+   * Set the distance that this class should try to keep between the {@link LayoutObject}s
+   * 
+   * @param repulsionDistance
+   *          The repulsion distance
+   */
+  public void setRepulsionDistance(double repulsionDistance) {
+    this.repulsionDistance = repulsionDistance;
+  }
+
+  /**
+   * Set the opening angle &theta;. A node of the tree is approximated by its center of mass when
+   * its side length, divided by the distance to its center of mass, is smaller than this value.
+   * 
+   * @param theta
+   *          The opening angle
+   * @throws IllegalArgumentException
+   *           If the value is negative
+   */
+  public void setTheta(double theta) {
+    if (!(theta >= 0.0)) {
+      throw new IllegalArgumentException("The opening angle must not be negative, but is " + theta);
+    }
+    this.theta = theta;
+  }
+
+  /**
+   * @return the opening angle &theta;
+   * @see #setTheta(double)
+   */
+  public double getTheta() {
+    return theta;
+  }
+
+  @Override
+  public AspectData computeLayoutData(List<? extends LayoutObject> layoutObjects) {
+    return computeLayoutData(layoutObjects, (AspectData) null);
+  }
+
+  @Override
+  public AspectData computeLayoutData(List<? extends LayoutObject> layoutObjects,
+      AspectData reuse) {
+    Objects.requireNonNull(layoutObjects, "The layoutObjects are null");
+    beginComputation();
+    try {
+      int n = layoutObjects.size();
+      if (positionX.length < n) {
+        positionX = new double[n];
+        positionY = new double[n];
+      }
+      Point2D position = new Point2D.Double();
+      for (int i = 0; i < n; i++) {
+        layoutObjects.get(i).getPosition(position);
+        positionX[i] = position.getX();
+        positionY[i] = position.getY();
+      }
+      return computeLayoutData(layoutObjects, positionX, positionY, reuse);
+    } finally {
+      endComputation();
+    }
+  }
+
+  @Override
+  public AspectData computeLayoutData(LayoutState layoutState) {
+    return computeLayoutData(layoutState, null);
+  }
+
+  @Override
+  public AspectData computeLayoutData(LayoutState layoutState, AspectData reuse) {
+    Objects.requireNonNull(layoutState, "The layoutState is null");
+    beginComputation();
+    try {
+      return computeLayoutData(layoutState.getLayoutObjects(), layoutState.getPositionsX(),
+          layoutState.getPositionsY(), reuse);
+    } finally {
+      endComputation();
+    }
+  }
+
+  @Override
+  public void accumulateForces(LayoutState layoutState, double[] forceX, double[] forceY) {
+    Objects.requireNonNull(layoutState, "The layoutState is null");
+    beginComputation();
+    try {
+      double[] x = layoutState.getPositionsX();
+      double[] y = layoutState.getPositionsY();
+      int n = layoutState.size();
+      double weight = getWeight();
+      quadTree.build(x, y, n);
+      Point2D force = new Point2D.Double();
+      for (int i = 0; i < n; i++) {
+        computeForce(i, x, y, force);
+        forceX[i] += weight * force.getX();
+        forceY[i] += weight * force.getY();
+      }
+    } finally {
+      endComputation();
+    }
+  }
+
+  /**
+   * Compute the {@link AspectData} for the given {@link LayoutObject}s, which have the given
+   * positions
+   * 
+   * @param layoutObjects
+   *          The {@link LayoutObject}s
+   * @param x
+   *          The x-coordinates of the positions
+   * @param y
+   *          The y-coordinates of the positions
+   * @param reuse
+   *          The {@link AspectData} that may be reused, or <code>null</code>
+   * @return The {@link AspectData}
+   */
+  private AspectData computeLayoutData(List<? extends LayoutObject> layoutObjects, double[] x,
+      double[] y, AspectData reuse) {
+    IndexedAspectData layoutData =
+        IndexedAspectData.reuseOrCreate(reuse, layoutObjects, getWeight());
+    int n = layoutObjects.size();
+    quadTree.build(x, y, n);
+    Point2D force = new Point2D.Double();
+    for (int i = 0; i < n; i++) {
+      computeForce(i, x, y, force);
+      layoutData.setForce(i, force.getX(), force.getY());
+    }
+    return layoutData;
+  }
+
+  /**
+   * Compute the force on the object with the given index, by traversing the {@link #quadTree},
+   * and store it in the given point
+   * 
+   * @param i
+   *          The index of the object
+   * @param x
+   *          The x-coordinates of the positions
+   * @param y
+   *          The y-coordinates of the positions
+   * @param force
+   *          The point that will store the force
+   */
+  private void computeForce(int i, double[] x, double[] y, Point2D force) {
+    double xi = x[i];
+    double yi = y[i];
+    double r = repulsionDistance;
+    double fx = 0.0;
+    double fy = 0.0;
+    int size = 0;
+    stack[size++] = 0;
+    while (size > 0) {
+      int node = stack[--size];
+      if (quadTree.getCount(node) == 0) {
+        continue;
+      }
+
+      // Skip nodes that do not contain any point within the repulsion distance
+      double half = quadTree.getHalfSize(node);
+      double gapX = Math.max(0.0, Math.abs(xi - quadTree.getCenterX(node)) - half);
+      double gapY = Math.max(0.0, Math.abs(yi - quadTree.getCenterY(node)) - half);
+      if (gapX * gapX + gapY * gapY >= r * r) {
+        continue;
+      }
+
+      if (quadTree.isLeaf(node)) {
+        int e = quadTree.getEnd(node);
+        for (int k = quadTree.getStart(node); k < e; k++) {
+          int j = quadTree.getPoint(k);
+          if (j == i) {
+            continue;
+          }
+          double dx = x[j] - xi;
+          double dy = y[j] - yi;
+          double distance = Math.sqrt(dx * dx + dy * dy);
+          if (distance < r) {
+            if (distance < EPSILON) {
+              // Same convention as in the PairwiseRepulsionForce: The object with the
+              // smaller index is pushed in negative x-direction
+              double factor = (r - 1.0) * 0.5;
+              fx += j > i ? -factor : factor;
+            } else {
+              double factor = (r - distance) * 0.5 / distance;
+              fx -= factor * dx;
+              fy -= factor * dy;
+            }
+          }
+        }
+        continue;
+      }
+
+      double dx = quadTree.getMassCenterX(node) - xi;
+      double dy = quadTree.getMassCenterY(node) - yi;
+      double distance = Math.sqrt(dx * dx + dy * dy);
+      boolean outside = gapX > 0.0 || gapY > 0.0;
+      if (outside && 2.0 * half < theta * distance) {
+        if (distance < r) {
+          double factor = quadTree.getCount(node) * (r - distance) * 0.5 / distance;
+          fx -= factor * dx;
+          fy -= factor * dy;
+        }
+        continue;
+      }
+
+      if (size + 4 > stack.length) {
+        stack = Arrays.copyOf(stack, stack.length * 2);
+      }
+      int first = quadTree.getFirstChild(node);
+      for (int q = 0; q < 4; q++) {
+        stack[size++] = first + q;
+      }
+    }
+    force.setLocation(fx, fy);
+  }
+}
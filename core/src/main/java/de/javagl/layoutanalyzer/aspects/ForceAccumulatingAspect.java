@@ -0,0 +1,62 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.aspects;
+
+import de.javagl.layoutanalyzer.AspectData;
+import de.javagl.layoutanalyzer.Layouter;
+import de.javagl.layoutanalyzer.objects.LayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutState;
+
+/**
+ * Interface for an {@link Aspect} that can add its forces directly to the force arrays of a
+ * {@link LayoutState}, without creating {@link AspectData}.<br>
+ * <br>
+ * This is used by the {@link Layouter} in the steps where no {@link AspectData} is required,
+ * namely, when {@link Layouter#setDirectForceAccumulation(boolean) direct force accumulation} is
+ * enabled and no listener is notified about the step.
+ */
+public interface ForceAccumulatingAspect extends Aspect {
+  /**
+   * Add the forces for the {@link LayoutObject}s of the given {@link LayoutState} to the given
+   * arrays. The forces are multiplied with the {@link #getWeight() weight} of this aspect. Apart
+   * from rounding errors, the result is the same as adding the weighted forces of the
+   * {@link AspectData} that is returned by {@link #computeLayoutData(LayoutState)}.<br>
+   * <br>
+   * The arrays usually already contain the forces of other aspects, so implementations must add
+   * to them, and not overwrite them.
+   * 
+   * @param layoutState
+   *          The {@link LayoutState}
+   * @param forceX
+   *          The x-components of the forces, with a length that is at least the
+   *          {@link LayoutState#size() size} of the state
+   * @param forceY
+   *          The y-components of the forces, with a length that is at least the
+   *          {@link LayoutState#size() size} of the state
+   */
+  void accumulateForces(LayoutState layoutState, double[] forceX, double[] forceY);
+}
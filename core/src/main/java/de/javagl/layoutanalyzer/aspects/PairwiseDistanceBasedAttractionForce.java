@@ -1,25 +1,39 @@
 package de.javagl.layoutanalyzer.aspects;
 
-import java.awt.geom.Point2D;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
-import de.javagl.geom.Points;
-import de.javagl.layoutanalyzer.AspectData;
+import de.javagl.layoutanalyzer.distances.PairwiseDistances;
+import de.javagl.layoutanalyzer.distances.PivotDistances;
+import de.javagl.layoutanalyzer.distances.SparsePairwiseDistances;
 import de.javagl.layoutanalyzer.objects.LayoutObject;
 
 /**
  * @author Christian Ritter, J�rgen Bernard
  */
-public class PairwiseDistanceBasedAttractionForce extends AbstractAspect {
+public class PairwiseDistanceBasedAttractionForce extends AbstractPairwiseAspect {
   /**
    * A map containing all preferred pairwise distances of the {@link LayoutObject}s.
    */
   private Map<LayoutObject, Map<LayoutObject, Double>> pairwiseDistances;
 
+  /**
+   * The index-based pairwise distances, if they have been given instead of the map
+   */
+  private PairwiseDistances distances;
+
+  /**
+   * The distances to the pivot objects, if they have been given instead of the map
+   */
+  private PivotDistances pivotDistances;
+
+  /**
+   * The {@link LayoutObject}s for which the forces are currently computed, used for looking up
+   * the distances in the map
+   */
+  private List<? extends LayoutObject> currentLayoutObjects;
+
   /**
    * An epsilon for "reasonable" distances between objects.
    */
@@ -43,40 +57,176 @@ public class PairwiseDistanceBasedAttractionForce extends AbstractAspect {
     this.n = pairwiseDistances.size();
   }
 
+  /**
+   * Creates a new force that tries to keep the given distances between the {@link LayoutObject}s.
+   * The indices of the distances are the indices of the objects in the layout, and only the pairs
+   * for which a distance is defined are visited.
+   *
+   * @param distances
+   *          The {@link PairwiseDistances}
+   */
+  public PairwiseDistanceBasedAttractionForce(PairwiseDistances distances) {
+    super("PairwiseSpecificDistanceAttractionForce");
+    this.distances = Objects.requireNonNull(distances, "The distances are null");
+    this.n = distances.size();
+  }
+
+  /**
+   * Creates a new force that tries to keep the given distances between the {@link LayoutObject}s,
+   * approximating the interactions between all pairs with the interactions between each object
+   * and the pivot objects. The interaction with a pivot is weighted with the size of its region,
+   * so that it stands for the interactions with all objects in this region. This requires O(n*k)
+   * time for n objects and k pivots, and only affects the object, but not the pivot.<br>
+   * <br>
+   * The indices of the distances are the indices of the objects in the layout.
+   *
+   * @param pivotDistances
+   *          The {@link PivotDistances}
+   */
+  public PairwiseDistanceBasedAttractionForce(PivotDistances pivotDistances) {
+    super("PairwiseSpecificDistanceAttractionForce");
+    this.pivotDistances =
+        Objects.requireNonNull(pivotDistances, "The pivotDistances are null");
+    this.n = pivotDistances.size();
+  }
+
   @Override
-  public AspectData computeLayoutData(List<? extends LayoutObject> layoutObjects) {
-    Objects.requireNonNull(layoutObjects, "The layoutObjects are null");
-    AspectData layoutData = new AspectData(
-        Collections.unmodifiableList(new ArrayList<LayoutObject>(layoutObjects)), getWeight());
-    for (int i = 0; i < layoutObjects.size(); i++) {
-      LayoutObject layoutObject0 = layoutObjects.get(i);
-      for (int j = i + 1; j < layoutObjects.size(); j++) {
-        computeForce(layoutData, layoutObject0, layoutObjects.get(j));
+  protected void prepare(List<? extends LayoutObject> layoutObjects, double[] x, double[] y,
+      int n) {
+    if (distances != null && distances.size() != n) {
+      throw new IllegalArgumentException("The distances are defined for " + distances.size()
+          + " objects, but there are " + n + " objects");
+    }
+    if (pivotDistances != null && pivotDistances.size() != n) {
+      throw new IllegalArgumentException("The pivot distances are defined for "
+          + pivotDistances.size() + " objects, but there are " + n + " objects");
+    }
+    this.currentLayoutObjects = layoutObjects;
+  }
+
+  @Override
+  protected void computeForces(double[] x, double[] y, int n, boolean[] sleeping,
+      double[] forceX, double[] forceY) {
+    if (pivotDistances != null) {
+      computePivotForces(x, y, n, sleeping, forceX, forceY);
+      return;
+    }
+    if (!(distances instanceof SparsePairwiseDistances)) {
+      super.computeForces(x, y, n, sleeping, forceX, forceY);
+      return;
+    }
+    // Only visit the pairs for which a distance is defined
+    distances.forEachPair((i, j, distance) -> {
+      if (sleeping == null || !sleeping[i] || !sleeping[j]) {
+        pairForce(i, j, distance, x, y, forceX, forceY);
+      }
+    });
+  }
+
+  @Override
+  protected void pairForce(int i, int j, double[] x, double[] y, double[] forceX,
+      double[] forceY) {
+    double attractionDistance;
+    if (distances != null) {
+      attractionDistance = distances.getDistance(i, j);
+      if (Double.isNaN(attractionDistance)) {
+        return;
       }
+    } else {
+      Map<LayoutObject, Double> row = pairwiseDistances.get(currentLayoutObjects.get(i));
+      if (row == null) {
+        return;
+      }
+      Double distance = row.get(currentLayoutObjects.get(j));
+      if (distance == null) {
+        return;
+      }
+      attractionDistance = distance;
     }
-    return layoutData;
+    pairForce(i, j, attractionDistance, x, y, forceX, forceY);
   }
 
   /**
-   * Compute the force that is implied by this aspect, for the given {@link LayoutObject}s, and
-   * store it in the given {@link AspectData}
+   * Compute the forces between all objects and the pivot objects, weighted with the sizes of the
+   * regions of the pivots, and add them to the forces of the objects
    *
-   * @param layoutData
-   *          The {@link AspectData}
-   * @param layoutObject0
-   *          The first {@link LayoutObject}
-   * @param layoutObject1
-   *          The second {@link LayoutObject}
+   * @param x
+   *          The x-coordinates of the positions
+   * @param y
+   *          The y-coordinates of the positions
+   * @param n
+   *          The number of objects
+   * @param sleeping
+   *          Whether the objects are sleeping, or <code>null</code>
+   * @param forceX
+   *          The x-components of the forces
+   * @param forceY
+   *          The y-components of the forces
    */
-  private void computeForce(AspectData layoutData, LayoutObject layoutObject0,
-      LayoutObject layoutObject1) {
-    Point2D position0 = layoutObject0.getPosition();
-    Point2D position1 = layoutObject1.getPosition();
-    double distance = position0.distance(position1);
-    Double attractionDistance = pairwiseDistances.get(layoutObject0).get(layoutObject1);
-    if (attractionDistance == null)
-      return;
+  private void computePivotForces(double[] x, double[] y, int n, boolean[] sleeping,
+      double[] forceX, double[] forceY) {
+    int k = pivotDistances.getPivotCount();
+    for (int i = 0; i < n; i++) {
+      for (int p = 0; p < k; p++) {
+        int j = pivotDistances.getPivot(p);
+        if (j == i || (sleeping != null && sleeping[i] && sleeping[j])) {
+          continue;
+        }
+        double dx = x[j] - x[i];
+        double dy = y[j] - y[i];
+        double distance = Math.sqrt(dx * dx + dy * dy);
+        double d = computeForceFactor(distance, pivotDistances.getDistance(i, p));
+        d *= pivotDistances.getRegionSize(p);
+        forceX[i] += d * dx;
+        forceY[i] += d * dy;
+      }
+    }
+  }
 
+  /**
+   * Compute the force that is implied by this aspect, for the objects with the given indices and
+   * their preferred distance, and add it to the given force arrays
+   *
+   * @param i
+   *          The index of the first object
+   * @param j
+   *          The index of the second object
+   * @param attractionDistance
+   *          The preferred distance
+   * @param x
+   *          The x-coordinates of the positions
+   * @param y
+   *          The y-coordinates of the positions
+   * @param forceX
+   *          The x-components of the forces
+   * @param forceY
+   *          The y-components of the forces
+   */
+  private void pairForce(int i, int j, double attractionDistance, double[] x, double[] y,
+      double[] forceX, double[] forceY) {
+    double dx = x[j] - x[i];
+    double dy = y[j] - y[i];
+    double distance = Math.sqrt(dx * dx + dy * dy);
+    double d = computeForceFactor(distance, attractionDistance);
+    if (d != 0.0) {
+      forceX[i] += d * dx;
+      forceY[i] += d * dy;
+      forceX[j] -= d * dx;
+      forceY[j] -= d * dy;
+    }
+  }
+
+  /**
+   * Compute the factor that the vector from the first to the second object has to be multiplied
+   * with, in order to obtain the force for the first object
+   *
+   * @param distance
+   *          The current distance between the objects
+   * @param attractionDistance
+   *          The preferred distance
+   * @return The factor
+   */
+  private double computeForceFactor(double distance, double attractionDistance) {
     // ignore distant objects. emphasize
     double weight = calculateWeight(attractionDistance);
 
@@ -98,17 +248,11 @@ public class PairwiseDistanceBasedAttractionForce extends AbstractAspect {
           // d *= (1 / d);
 
           d *= weight;
-
-          Point2D dir = Points.sub(position1, position0, null);
-          Point2D force0 = layoutData.getForce(layoutObject0);
-          Point2D force1 = layoutData.getForce(layoutObject1);
-          Points.addScaled(force0, d, dir, force0);
-          Points.addScaled(force1, -d, dir, force1);
-          layoutData.setForce(layoutObject0, force0);
-          layoutData.setForce(layoutObject1, force1);
+          return d;
         }
       }
     }
+    return 0.0;
   }
 
   /**
@@ -26,40 +26,45 @@
  */
 package de.javagl.layoutanalyzer.aspects;
 
-import java.awt.geom.Point2D;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 import java.util.Objects;
 
-import de.javagl.geom.Points;
-import de.javagl.layoutanalyzer.AspectData;
+import de.javagl.layoutanalyzer.kernels.ForceKernel;
+import de.javagl.layoutanalyzer.kernels.ForceKernels;
 import de.javagl.layoutanalyzer.objects.LayoutObject;
+import de.javagl.layoutanalyzer.spatial.UniformGrid;
 
 /**
  * Implementation of an {@link Aspect} that represents a pairwise repulsion between
- * {@link LayoutObject}s.
+ * {@link LayoutObject}s.<br>
+ * <br>
+ * Only objects that are closer than the repulsion distance repel each other. By default, all
+ * pairs of objects are tested. When the {@link #setUseCellList(boolean) cell list} is enabled,
+ * the objects are sorted into a {@link UniformGrid} with cells of the size of the repulsion
+ * distance, and only the objects in neighboring cells are tested, which reduces the effort from
+ * O(n<sup>2</sup>) to O(n) for sparse layouts.<br>
+ * <br>
+ * The forces are computed with a {@link ForceKernel}, which may process several pairs at once.
  */
-public class PairwiseRepulsionForce extends AbstractAspect implements Aspect {
+public class PairwiseRepulsionForce extends AbstractPairwiseAspect implements Aspect {
   /**
-   * An epsilon for "reasonable" distances between objects
+   * The desired repulsion distance between each pair of objects
    */
-  private static final double EPSILON = 1e-8;
+  private double repulsionDistance = 300.0;
 
   /**
-   * A point, used internally for difference computations
+   * Whether the {@link #grid} is used for finding the pairs of objects
    */
-  private final Point2D difference = new Point2D.Double();
+  private boolean useCellList;
 
   /**
-   * A point, used internally for direction computations
+   * The grid, which is rebuilt in each step if {@link #useCellList} is enabled
    */
-  private final Point2D direction = new Point2D.Double();
+  private final UniformGrid grid = new UniformGrid();
 
   /**
-   * The desired repulsion distance between each pair of objects
+   * The {@link ForceKernel} that computes the forces
    */
-  private double repulsionDistance = 300.0;
+  private ForceKernel forceKernel = ForceKernels.getDefault();
 
   /**
    * Creates a new force that tries to keep the given distance between the {@link LayoutObject}s
@@ -82,56 +87,90 @@ public class PairwiseRepulsionForce extends AbstractAspect implements Aspect {
     this.repulsionDistance = repulsionDistance;
   }
 
-  @Override
-  public AspectData computeLayoutData(List<? extends LayoutObject> layoutObjects) {
-    Objects.requireNonNull(layoutObjects, "The layoutObjects are null");
-    AspectData layoutData = new AspectData(
-        Collections.unmodifiableList(new ArrayList<LayoutObject>(layoutObjects)), getWeight());
-    for (int i = 0; i < layoutObjects.size(); i++) {
-      for (int j = i + 1; j < layoutObjects.size(); j++) {
-        LayoutObject layoutObject0 = layoutObjects.get(i);
-        LayoutObject layoutObject1 = layoutObjects.get(j);
-        computeForce(layoutData, layoutObject0, layoutObject1);
-      }
-    }
-    return layoutData;
+  /**
+   * Set the {@link ForceKernel} that is used for computing the forces. The default is the
+   * {@link ForceKernels#getDefault() default} kernel.
+   * 
+   * @param forceKernel
+   *          The {@link ForceKernel}
+   */
+  public void setForceKernel(ForceKernel forceKernel) {
+    this.forceKernel = Objects.requireNonNull(forceKernel, "The forceKernel is null");
+  }
+
+  /**
+   * @return the {@link ForceKernel} that is used for computing the forces
+   * @see #setForceKernel(ForceKernel)
+   */
+  public ForceKernel getForceKernel() {
+    return forceKernel;
   }
 
   /**
-   * Compute the force that is implied by this aspect, for the given {@link LayoutObject}s, and
-   * store it in the given {@link AspectData}
+   * Set whether a cell list should be used for finding the pairs of objects that are closer than
+   * the repulsion distance. The resulting forces are the same as without the cell list, up to
+   * rounding errors. The default is <code>false</code>.
    * 
-   * @param layoutData
-   *          The {@link AspectData}
-   * @param layoutObject0
-   *          The first {@link LayoutObject}
-   * @param layoutObject1
-   *          The second {@link LayoutObject}
+   * @param useCellList
+   *          Whether the cell list should be used
    */
-  private void computeForce(AspectData layoutData, LayoutObject layoutObject0,
-      LayoutObject layoutObject1) {
-    Point2D position0 = layoutObject0.getPosition();
-    Point2D position1 = layoutObject1.getPosition();
-    double distance = position0.distance(position1);
-    if (distance < repulsionDistance) {
-      if (distance < EPSILON) {
-        position1.setLocation(position0.getX() + 1, position0.getY());
-        difference.setLocation(1.0, 0.0);
-        direction.setLocation(1.0, 0.0);
-        distance = 1.0;
-      } else {
-        Points.sub(position1, position0, difference);
-        Points.scale(difference, 1.0 / distance, direction);
-      }
+  public void setUseCellList(boolean useCellList) {
+    this.useCellList = useCellList;
+  }
+
+  /**
+   * @return whether a cell list is used for finding the pairs of objects
+   * @see #setUseCellList(boolean)
+   */
+  public boolean isUseCellList() {
+    return useCellList;
+  }
 
-      Point2D force0 = layoutData.getForce(layoutObject0);
-      Point2D force1 = layoutData.getForce(layoutObject1);
-      double factor = (repulsionDistance - distance) * 0.5;
-      Points.addScaled(force0, -factor, direction, force0);
-      Points.addScaled(force1, factor, direction, force1);
-      layoutData.setForce(layoutObject0, force0);
-      layoutData.setForce(layoutObject1, force1);
+  /**
+   * Returns whether the cell list should be used. This is the case when it is enabled and the
+   * repulsion distance is a valid cell size.
+   * 
+   * @return Whether the cell list should be used
+   */
+  private boolean isCellListApplicable() {
+    return useCellList && repulsionDistance > 0.0 && !Double.isInfinite(repulsionDistance);
+  }
+
+  @Override
+  protected void computeForces(double[] x, double[] y, int n, boolean[] sleeping,
+      double[] forceX, double[] forceY) {
+    if (!isCellListApplicable()) {
+      super.computeForces(x, y, n, sleeping, forceX, forceY);
+      return;
     }
+    grid.build(x, y, n, repulsionDistance);
+    for (int i = 0; i < n; i++) {
+      boolean sleeping0 = sleeping != null && sleeping[i];
+      int buckets = grid.collectNeighborBuckets(i);
+      for (int b = 0; b < buckets; b++) {
+        int bucket = grid.getNeighborBucket(b);
+        int end = grid.getBucketEnd(bucket);
+        for (int k = grid.getBucketStart(bucket); k < end; k++) {
+          int j = grid.getPoint(k);
+          if (j <= i || (sleeping0 && sleeping[j])) {
+            continue;
+          }
+          pairForce(i, j, x, y, forceX, forceY);
+        }
+      }
+    }
+  }
+
+  @Override
+  protected void computeRowForces(int i, int jStart, int jEnd, double[] x, double[] y,
+      double[] forceX, double[] forceY) {
+    forceKernel.computeRepulsionRow(i, jStart, jEnd, x, y, repulsionDistance, forceX, forceY);
+  }
+
+  @Override
+  protected void pairForce(int i, int j, double[] x, double[] y, double[] forceX,
+      double[] forceY) {
+    forceKernel.computeRepulsionRow(i, j, j + 1, x, y, repulsionDistance, forceX, forceY);
   }
 
 }
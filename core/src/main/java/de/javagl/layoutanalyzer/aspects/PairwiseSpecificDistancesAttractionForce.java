@@ -1,25 +1,38 @@
 package de.javagl.layoutanalyzer.aspects;
 
-import java.awt.geom.Point2D;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
-import de.javagl.geom.Points;
-import de.javagl.layoutanalyzer.AspectData;
+import de.javagl.layoutanalyzer.distances.DistanceMatrices;
+import de.javagl.layoutanalyzer.distances.PairwiseDistances;
+import de.javagl.layoutanalyzer.distances.SparsePairwiseDistances;
 import de.javagl.layoutanalyzer.objects.LayoutObject;
 
 /**
  * @author Christian Ritter
  */
-public class PairwiseSpecificDistancesAttractionForce extends AbstractAspect {
+public class PairwiseSpecificDistancesAttractionForce extends AbstractPairwiseAspect {
   /**
    * A map containing all preferred pairwise distances of the {@link LayoutObject}s.
    */
   private Map<LayoutObject, Map<LayoutObject, Double>> pairwiseDistances;
 
+  /**
+   * The index-based pairwise distances, if they have been given instead of the map
+   */
+  private PairwiseDistances distances;
+
+  /**
+   * The distances for the {@link LayoutObject}s for which the forces are currently computed
+   */
+  private PairwiseDistances currentDistances;
+
+  /**
+   * The optional {@link StressSampling}
+   */
+  private StressSampling sampling;
+
   /**
    * An epsilon for "reasonable" distances between objects.
    */
@@ -43,51 +56,120 @@ public class PairwiseSpecificDistancesAttractionForce extends AbstractAspect {
     this.n = pairwiseDistances.size();
   }
 
+  /**
+   * Creates a new force that tries to keep the given distances between the {@link LayoutObject}s.
+   * The indices of the distances are the indices of the objects in the layout, and only the pairs
+   * for which a distance is defined are visited.
+   *
+   * @param distances
+   *          The {@link PairwiseDistances}
+   */
+  public PairwiseSpecificDistancesAttractionForce(PairwiseDistances distances) {
+    super("PairwiseSpecificDistanceAttractionForce");
+    this.distances = Objects.requireNonNull(distances, "The distances are null");
+    this.n = distances.size();
+  }
+
+  /**
+   * Set the {@link StressSampling} that should be used for visiting only a subset of the pairs
+   * in each step. If this is <code>null</code>, then all pairs are visited in each step. The
+   * default is <code>null</code>. Note that the forces in the sampling mode are computed as
+   * described in the {@link StressSampling} documentation.
+   * 
+   * @param sampling
+   *          The {@link StressSampling}
+   */
+  public void setSampling(StressSampling sampling) {
+    this.sampling = sampling;
+  }
+
+  /**
+   * Returns the {@link StressSampling}, or <code>null</code> if all pairs are visited in each
+   * step
+   * 
+   * @return The {@link StressSampling}
+   * @see #setSampling(StressSampling)
+   */
+  public StressSampling getSampling() {
+    return sampling;
+  }
+
+  @Override
+  protected void prepare(List<? extends LayoutObject> layoutObjects, double[] x, double[] y,
+      int n) {
+    if (distances != null && distances.size() != n) {
+      throw new IllegalArgumentException("The distances are defined for " + distances.size()
+          + " objects, but there are " + n + " objects");
+    }
+    if (distances != null) {
+      this.currentDistances = distances;
+    } else {
+      this.currentDistances = DistanceMatrices.view(layoutObjects, pairwiseDistances);
+    }
+  }
+
   @Override
-  public AspectData computeLayoutData(List<? extends LayoutObject> layoutObjects) {
-    Objects.requireNonNull(layoutObjects, "The layoutObjects are null");
-    AspectData layoutData = new AspectData(
-        Collections.unmodifiableList(new ArrayList<LayoutObject>(layoutObjects)), getWeight());
-    for (int i = 0; i < layoutObjects.size(); i++) {
-      LayoutObject layoutObject0 = layoutObjects.get(i);
-      for (int j = i + 1; j < layoutObjects.size(); j++) {
-        computeForce(layoutData, layoutObject0, layoutObjects.get(j));
+  protected void computeForces(double[] x, double[] y, int n, boolean[] sleeping,
+      double[] forceX, double[] forceY) {
+    if (sampling != null) {
+      sampling.computeDisplacements(currentDistances, x, y, n, sleeping, true, forceX, forceY);
+      return;
+    }
+    if (!(distances instanceof SparsePairwiseDistances)) {
+      super.computeForces(x, y, n, sleeping, forceX, forceY);
+      return;
+    }
+    // Only visit the pairs for which a distance is defined
+    distances.forEachPair((i, j, distance) -> {
+      if (sleeping == null || !sleeping[i] || !sleeping[j]) {
+        pairForce(i, j, distance, x, y, forceX, forceY);
       }
+    });
+  }
+
+  @Override
+  protected void pairForce(int i, int j, double[] x, double[] y, double[] forceX,
+      double[] forceY) {
+    double attractionDistance = currentDistances.getDistance(i, j);
+    if (Double.isNaN(attractionDistance)) {
+      return;
     }
-    return layoutData;
+    pairForce(i, j, attractionDistance, x, y, forceX, forceY);
   }
 
   /**
-   * Compute the force that is implied by this aspect, for the given {@link LayoutObject}s, and
-   * store it in the given {@link AspectData}
+   * Compute the force that is implied by this aspect, for the objects with the given indices and
+   * their preferred distance, and add it to the given force arrays
    *
-   * @param layoutData
-   *          The {@link AspectData}
-   * @param layoutObject0
-   *          The first {@link LayoutObject}
-   * @param layoutObject1
-   *          The second {@link LayoutObject}
+   * @param i
+   *          The index of the first object
+   * @param j
+   *          The index of the second object
+   * @param attractionDistance
+   *          The preferred distance
+   * @param x
+   *          The x-coordinates of the positions
+   * @param y
+   *          The y-coordinates of the positions
+   * @param forceX
+   *          The x-components of the forces
+   * @param forceY
+   *          The y-components of the forces
    */
-  private void computeForce(AspectData layoutData, LayoutObject layoutObject0,
-      LayoutObject layoutObject1) {
-    Point2D position0 = layoutObject0.getPosition();
-    Point2D position1 = layoutObject1.getPosition();
-    double distance = position0.distance(position1);
-    Double attractionDistance = pairwiseDistances.get(layoutObject0).get(layoutObject1);
-    if (attractionDistance == null)
-      return;
+  private void pairForce(int i, int j, double attractionDistance, double[] x, double[] y,
+      double[] forceX, double[] forceY) {
+    double dx = x[j] - x[i];
+    double dy = y[j] - y[i];
+    double distance = Math.sqrt(dx * dx + dy * dy);
     if (distance > attractionDistance) {
       if (distance > EPSILON) {
         double d = distance - attractionDistance;
         d /= (n - 1.0);
         d /= distance;
-        Point2D dir = Points.sub(position1, position0, null);
-        Point2D force0 = layoutData.getForce(layoutObject0);
-        Point2D force1 = layoutData.getForce(layoutObject1);
-        Points.addScaled(force0, d, dir, force0);
-        Points.addScaled(force1, -d, dir, force1);
-        layoutData.setForce(layoutObject0, force0);
-        layoutData.setForce(layoutObject1, force1);
+        forceX[i] += d * dx;
+        forceY[i] += d * dy;
+        forceX[j] -= d * dx;
+        forceY[j] -= d * dy;
       }
     }
   }
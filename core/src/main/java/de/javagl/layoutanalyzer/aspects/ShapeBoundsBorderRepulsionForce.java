@@ -26,27 +26,21 @@
  */
 package de.javagl.layoutanalyzer.aspects;
 
-import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
-import de.javagl.geom.Points;
 import de.javagl.layoutanalyzer.AspectData;
+import de.javagl.layoutanalyzer.IndexedAspectData;
 import de.javagl.layoutanalyzer.objects.LayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutState;
 
 /**
  * Implementation of an {@link Aspect} that tries to avoid overlaps between the bounds of the shapes
  * of {@link LayoutObject}s and the border
  */
-public class ShapeBoundsBorderRepulsionForce extends AbstractAspect implements Aspect {
-  /**
-   * A point, used for internal movement computations
-   */
-  private final Point2D movement = new Point2D.Double();
-
+public class ShapeBoundsBorderRepulsionForce extends AbstractAspect
+    implements ForceAccumulatingAspect {
   /**
    * The current border
    */
@@ -78,34 +72,85 @@ public class ShapeBoundsBorderRepulsionForce extends AbstractAspect implements A
 
   @Override
   public AspectData computeLayoutData(List<? extends LayoutObject> layoutObjects) {
+    return computeLayoutData(layoutObjects, (AspectData) null);
+  }
+
+  @Override
+  public AspectData computeLayoutData(List<? extends LayoutObject> layoutObjects,
+      AspectData reuse) {
     Objects.requireNonNull(layoutObjects, "The layoutObjects are null");
-    AspectData layoutData = new AspectData(
-        Collections.unmodifiableList(new ArrayList<LayoutObject>(layoutObjects)), getWeight());
+    IndexedAspectData layoutData =
+        IndexedAspectData.reuseOrCreate(reuse, layoutObjects, getWeight());
     for (int i = 0; i < layoutObjects.size(); i++) {
       LayoutObject layoutObject = layoutObjects.get(i);
-      computeForce(layoutData, layoutObject);
+      Rectangle2D bounds = layoutObject.getShapeBounds();
+      computeForce(i, bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY(), 1.0,
+          layoutData.getForcesX(), layoutData.getForcesY());
+    }
+    return layoutData;
+  }
+
+  @Override
+  public AspectData computeLayoutData(LayoutState layoutState) {
+    return computeLayoutData(layoutState, null);
+  }
+
+  @Override
+  public AspectData computeLayoutData(LayoutState layoutState, AspectData reuse) {
+    Objects.requireNonNull(layoutState, "The layoutState is null");
+    List<LayoutObject> layoutObjects = layoutState.getLayoutObjects();
+    IndexedAspectData layoutData =
+        IndexedAspectData.reuseOrCreate(reuse, layoutObjects, getWeight());
+    double[] minX = layoutState.getShapeBoundsMinX();
+    double[] minY = layoutState.getShapeBoundsMinY();
+    double[] maxX = layoutState.getShapeBoundsMaxX();
+    double[] maxY = layoutState.getShapeBoundsMaxY();
+    for (int i = 0; i < layoutObjects.size(); i++) {
+      computeForce(i, minX[i], minY[i], maxX[i], maxY[i], 1.0, layoutData.getForcesX(),
+          layoutData.getForcesY());
     }
     return layoutData;
   }
 
+  @Override
+  public void accumulateForces(LayoutState layoutState, double[] forceX, double[] forceY) {
+    Objects.requireNonNull(layoutState, "The layoutState is null");
+    double[] minX = layoutState.getShapeBoundsMinX();
+    double[] minY = layoutState.getShapeBoundsMinY();
+    double[] maxX = layoutState.getShapeBoundsMaxX();
+    double[] maxY = layoutState.getShapeBoundsMaxY();
+    double weight = getWeight();
+    int n = layoutState.size();
+    for (int i = 0; i < n; i++) {
+      computeForce(i, minX[i], minY[i], maxX[i], maxY[i], weight, forceX, forceY);
+    }
+  }
+
   /**
-   * Compute the force that is implied by the current position and shape of the given
-   * {@link LayoutObject}, and store it in the given {@link AspectData}
+   * Compute the force that is implied by the given shape bounds of the {@link LayoutObject} with
+   * the given index, multiplied with the given weight, and add it to the given force arrays
    * 
-   * @param layoutData
-   *          The {@link AspectData}
-   * @param layoutObject
-   *          The {@link LayoutObject}
+   * @param index
+   *          The index of the {@link LayoutObject}
+   * @param minX
+   *          The minimum x-coordinate of the shape bounds
+   * @param minY
+   *          The minimum y-coordinate of the shape bounds
+   * @param maxX
+   *          The maximum x-coordinate of the shape bounds
+   * @param maxY
+   *          The maximum y-coordinate of the shape bounds
+   * @param weight
+   *          The weight
+   * @param forceX
+   *          The x-components of the forces
+   * @param forceY
+   *          The y-components of the forces
    */
-  private void computeForce(AspectData layoutData, LayoutObject layoutObject) {
-    Rectangle2D bounds = layoutObject.getShapeBounds();
-
+  private void computeForce(int index, double minX, double minY, double maxX, double maxY,
+      double weight, double[] forceX, double[] forceY) {
     double dx = 0;
     double dy = 0;
-    double minX = bounds.getMinX();
-    double maxX = bounds.getMaxX();
-    double minY = bounds.getMinY();
-    double maxY = bounds.getMaxY();
     if (minX < border.getMinX()) {
       dx = border.getMinX() - minX;
     }
@@ -118,10 +163,7 @@ public class ShapeBoundsBorderRepulsionForce extends AbstractAspect implements A
     if (maxY > border.getMaxY()) {
       dy = -(maxY - border.getMaxY());
     }
-    movement.setLocation(dx, dy);
-    Point2D force = layoutData.getForce(layoutObject);
-    // Points.add(force, movement, force);
-    Points.addScaled(force, 0.66, movement, force);
-    layoutData.setForce(layoutObject, force);
+    forceX[index] += weight * (0.66 * dx);
+    forceY[index] += weight * (0.66 * dy);
   }
 }
@@ -26,73 +26,208 @@
  */
 package de.javagl.layoutanalyzer.aspects;
 
-import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
-import de.javagl.geom.Points;
 import de.javagl.layoutanalyzer.AspectData;
+import de.javagl.layoutanalyzer.kernels.ForceKernel;
+import de.javagl.layoutanalyzer.kernels.ForceKernels;
 import de.javagl.layoutanalyzer.objects.LayoutObject;
-import de.javagl.layoutanalyzer.utils.Disjoins;
+import de.javagl.layoutanalyzer.objects.LayoutState;
+import de.javagl.layoutanalyzer.spatial.BroadPhase;
+import de.javagl.layoutanalyzer.spatial.SweepAndPrune;
 
 /**
  * Implementation of an {@link Aspect} that tries to avoid pairwise overlaps between the bounds of
- * the shapes of {@link LayoutObject}s
+ * the shapes of {@link LayoutObject}s.<br>
+ * <br>
+ * Only pairs of objects whose bounds overlap are pushed apart. The bounds of each object are
+ * computed once per step, or taken from the {@link LayoutState#updateShapeBounds() shape bounds}
+ * of the {@link LayoutState}. By default, all pairs of objects are tested. When a
+ * {@link BroadPhase} is given, for example, a {@link SweepAndPrune}, then only the candidate pairs
+ * that are reported by the broad phase are tested.<br>
+ * <br>
+ * The forces are computed with a {@link ForceKernel}, which may process several pairs at once.
  */
-public class ShapeBoundsRepulsionForce extends AbstractAspect implements Aspect {
+public class ShapeBoundsRepulsionForce extends AbstractPairwiseAspect implements Aspect {
   /**
-   * A point, used for internal computations
+   * The optional {@link BroadPhase}
    */
-  private final Point2D minDisjoinMovement = new Point2D.Double();
+  private final BroadPhase broadPhase;
 
   /**
-   * Default constructor
+   * The minimum x-coordinates of the bounds, either from the {@link LayoutState} or from the
+   * buffers
+   */
+  private double[] minX;
+
+  /**
+   * The minimum y-coordinates of the bounds
+   */
+  private double[] minY;
+
+  /**
+   * The maximum x-coordinates of the bounds
+   */
+  private double[] maxX;
+
+  /**
+   * The maximum y-coordinates of the bounds
+   */
+  private double[] maxY;
+
+  /**
+   * The buffer for the minimum x-coordinates of the bounds, when they are not taken from a
+   * {@link LayoutState}
+   */
+  private double[] bufferMinX = new double[0];
+
+  /**
+   * The buffer for the minimum y-coordinates of the bounds
+   */
+  private double[] bufferMinY = new double[0];
+
+  /**
+   * The buffer for the maximum x-coordinates of the bounds
+   */
+  private double[] bufferMaxX = new double[0];
+
+  /**
+   * The buffer for the maximum y-coordinates of the bounds
+   */
+  private double[] bufferMaxY = new double[0];
+
+  /**
+   * The {@link LayoutState} for which the forces are currently computed, if any
+   */
+  private LayoutState currentLayoutState;
+
+  /**
+   * The {@link ForceKernel} that computes the forces
+   */
+  private ForceKernel forceKernel = ForceKernels.getDefault();
+
+  /**
+   * Default constructor. The resulting aspect will test all pairs of objects.
    */
   public ShapeBoundsRepulsionForce() {
-    super("ShapeBoundsRepulsionForce");
+    this(null);
   }
 
-  @Override
-  public AspectData computeLayoutData(List<? extends LayoutObject> layoutObjects) {
-    Objects.requireNonNull(layoutObjects, "The layoutObjects are null");
-    AspectData layoutData = new AspectData(
-        Collections.unmodifiableList(new ArrayList<LayoutObject>(layoutObjects)), getWeight());
-    for (int i = 0; i < layoutObjects.size(); i++) {
-      for (int j = i + 1; j < layoutObjects.size(); j++) {
-        LayoutObject layoutObject0 = layoutObjects.get(i);
-        LayoutObject layoutObject1 = layoutObjects.get(j);
-        computeForce(layoutData, layoutObject0, layoutObject1);
-      }
-    }
-    return layoutData;
+  /**
+   * Creates a new instance that uses the given {@link BroadPhase} for finding the pairs of objects
+   * whose bounds may overlap. The same {@link BroadPhase} instance should not be used by other
+   * aspects, because it may keep information between two steps. When a
+   * {@link de.javagl.layoutanalyzer.spatial.DynamicAabbTree} is used, it should be added as a
+   * {@link de.javagl.layoutanalyzer.LayoutListener} to the layout, so that it does not have to be
+   * rebuilt when objects are removed.
+   * 
+   * @param broadPhase
+   *          The {@link BroadPhase}. If this is <code>null</code>, then all pairs of objects will
+   *          be tested.
+   */
+  public ShapeBoundsRepulsionForce(BroadPhase broadPhase) {
+    super("ShapeBoundsRepulsionForce");
+    this.broadPhase = broadPhase;
   }
 
   /**
-   * Compute the force that is implied by this aspect, for the given {@link LayoutObject}s, and
-   * store it in the given {@link AspectData}
+   * Set the {@link ForceKernel} that is used for computing the forces. The default is the
+   * {@link ForceKernels#getDefault() default} kernel.
    * 
-   * @param layoutData
-   *          The {@link AspectData}
-   * @param layoutObject0
-   *          The first {@link LayoutObject}
-   * @param layoutObject1
-   *          The second {@link LayoutObject}
+   * @param forceKernel
+   *          The {@link ForceKernel}
    */
-  private void computeForce(AspectData layoutData, LayoutObject layoutObject0,
-      LayoutObject layoutObject1) {
-
-    Rectangle2D bounds0 = layoutObject0.getShapeBounds();
-    Rectangle2D bounds1 = layoutObject1.getShapeBounds();
-    Disjoins.computeMinDisjoinMovement(bounds0, bounds1, minDisjoinMovement);
-
-    Point2D force0 = layoutData.getForce(layoutObject0);
-    Point2D force1 = layoutData.getForce(layoutObject1);
-    Points.addScaled(force0, 0.5, minDisjoinMovement, force0);
-    Points.addScaled(force1, -0.5, minDisjoinMovement, force1);
-    layoutData.setForce(layoutObject0, force0);
-    layoutData.setForce(layoutObject1, force1);
+  public void setForceKernel(ForceKernel forceKernel) {
+    this.forceKernel = Objects.requireNonNull(forceKernel, "The forceKernel is null");
+  }
+
+  /**
+   * @return the {@link ForceKernel} that is used for computing the forces
+   * @see #setForceKernel(ForceKernel)
+   */
+  public ForceKernel getForceKernel() {
+    return forceKernel;
+  }
+
+  @Override
+  public AspectData computeLayoutData(LayoutState layoutState, AspectData reuse) {
+    beginComputation();
+    currentLayoutState = layoutState;
+    try {
+      return super.computeLayoutData(layoutState, reuse);
+    } finally {
+      currentLayoutState = null;
+      endComputation();
+    }
+  }
+
+  @Override
+  public void accumulateForces(LayoutState layoutState, double[] forceX, double[] forceY) {
+    beginComputation();
+    currentLayoutState = layoutState;
+    try {
+      super.accumulateForces(layoutState, forceX, forceY);
+    } finally {
+      currentLayoutState = null;
+      endComputation();
+    }
+  }
+
+  @Override
+  protected void prepare(List<? extends LayoutObject> layoutObjects, double[] x, double[] y,
+      int n) {
+    if (currentLayoutState != null) {
+      minX = currentLayoutState.getShapeBoundsMinX();
+      minY = currentLayoutState.getShapeBoundsMinY();
+      maxX = currentLayoutState.getShapeBoundsMaxX();
+      maxY = currentLayoutState.getShapeBoundsMaxY();
+      return;
+    }
+    if (bufferMinX.length < n) {
+      bufferMinX = new double[n];
+      bufferMinY = new double[n];
+      bufferMaxX = new double[n];
+      bufferMaxY = new double[n];
+    }
+    for (int i = 0; i < n; i++) {
+      Rectangle2D bounds = layoutObjects.get(i).getShapeBounds();
+      bufferMinX[i] = bounds.getMinX();
+      bufferMinY[i] = bounds.getMinY();
+      bufferMaxX[i] = bounds.getMaxX();
+      bufferMaxY[i] = bounds.getMaxY();
+    }
+    minX = bufferMinX;
+    minY = bufferMinY;
+    maxX = bufferMaxX;
+    maxY = bufferMaxY;
+  }
+
+  @Override
+  protected void computeForces(double[] x, double[] y, int n, boolean[] sleeping,
+      double[] forceX, double[] forceY) {
+    if (broadPhase == null) {
+      super.computeForces(x, y, n, sleeping, forceX, forceY);
+      return;
+    }
+    broadPhase.computePairs(minX, minY, maxX, maxY, n, (i, j) -> {
+      if (sleeping != null && sleeping[i] && sleeping[j]) {
+        return;
+      }
+      pairForce(i, j, x, y, forceX, forceY);
+    });
+  }
+
+  @Override
+  protected void computeRowForces(int i, int jStart, int jEnd, double[] x, double[] y,
+      double[] forceX, double[] forceY) {
+    forceKernel.computeShapeBoundsRow(i, jStart, jEnd, minX, minY, maxX, maxY, forceX, forceY);
+  }
+
+  @Override
+  protected void pairForce(int i, int j, double[] x, double[] y, double[] forceX,
+      double[] forceY) {
+    forceKernel.computeShapeBoundsRow(i, j, j + 1, minX, minY, maxX, maxY, forceX, forceY);
   }
 }
@@ -1,14 +1,13 @@
 package de.javagl.layoutanalyzer.aspects;
 
 import java.awt.geom.Point2D;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
-import de.javagl.geom.Points;
 import de.javagl.layoutanalyzer.AspectData;
+import de.javagl.layoutanalyzer.IndexedAspectData;
 import de.javagl.layoutanalyzer.objects.LayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutState;
 
 /**
  * @author Christian Ritter
@@ -38,24 +37,30 @@ public class SingleObjectPositionForce extends AbstractAspect {
 
   @Override
   public AspectData computeLayoutData(List<? extends LayoutObject> layoutObjects) {
+    return computeLayoutData(layoutObjects, (AspectData) null);
+  }
+
+  @Override
+  public AspectData computeLayoutData(LayoutState layoutState, AspectData reuse) {
+    Objects.requireNonNull(layoutState, "The layoutState is null");
+    return computeLayoutData(layoutState.getLayoutObjects(), reuse);
+  }
+
+  @Override
+  public AspectData computeLayoutData(List<? extends LayoutObject> layoutObjects,
+      AspectData reuse) {
     Objects.requireNonNull(layoutObjects, "The layoutObjects are null");
-    AspectData layoutData = new AspectData(
-        Collections.unmodifiableList(new ArrayList<LayoutObject>(layoutObjects)), getWeight());
+    IndexedAspectData layoutData =
+        IndexedAspectData.reuseOrCreate(reuse, layoutObjects, getWeight());
     for (int i = 0; i < layoutObjects.size(); i++) {
       LayoutObject lo = layoutObjects.get(i);
-      Point2D position = lo.getPosition();
       if (lo.equals(singleObject)) {
-        double distanceToTarget = position.distance(targetPosition);
+        double dx = targetPosition.getX() - lo.getPositionX();
+        double dy = targetPosition.getY() - lo.getPositionY();
+        double distanceToTarget = Math.sqrt(dx * dx + dy * dy);
         if (distanceToTarget > EPSILON) {
-          Point2D dir = Points.sub(targetPosition, position, null);
-          Point2D force0 = layoutData.getForce(lo);
-          Points.add(force0, dir, force0);
-          layoutData.setForce(lo, force0);
-        } else {
-          layoutData.setForce(lo, new Point2D.Double(0.0, 0.0));
+          layoutData.addForce(i, dx, dy);
         }
-      } else {
-        layoutData.setForce(lo, new Point2D.Double(0.0, 0.0));
       }
     }
     return layoutData;
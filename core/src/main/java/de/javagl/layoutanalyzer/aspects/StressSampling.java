@@ -0,0 +1,462 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.aspects;
+
+import java.util.Random;
+
+import de.javagl.layoutanalyzer.Layouter;
+import de.javagl.layoutanalyzer.distances.PairwiseDistances;
+import de.javagl.layoutanalyzer.distances.SparsePairwiseDistances;
+
+/**
+ * A sampling mode for the aspects that try to keep specific distances between pairs of objects,
+ * based on the stochastic gradient descent (SGD) for stress majorization by Zheng, Pawar and
+ * Goodman.<br>
+ * <br>
+ * Instead of visiting all pairs of objects in each step, a fixed number of pairs is visited. The
+ * pairs are visited in a pseudo-random order, where one <i>epoch</i> visits each pair exactly
+ * once, and may be spread over several steps. For each visited pair (i,j) with the preferred
+ * distance d, the objects are moved towards or away from each other by
+ * <code>min(1, eta / d<sup>2</sup>) * (|x<sub>i</sub> - x<sub>j</sub>| - d) / 2</code>, where
+ * the step size <code>eta</code> decreases exponentially from <code>d<sub>max</sub><sup>2</sup>
+ * </code> to <code>epsilon * d<sub>min</sub><sup>2</sup></code> during the given number of
+ * epochs. The movements are applied one pair after the other, to a copy of the positions. The
+ * resulting total movement of each object is returned as its force.<br>
+ * <br>
+ * The force of each object is thus its SGD displacement for the step. The original algorithm is
+ * obtained with the default, overdamped integrator of the {@link Layouter}, a
+ * {@link Layouter#setTimeStep(double) time step} of 1.0 and objects with a mass of 1.0. The
+ * effort for each step is O(n + pairsPerStep).<br>
+ * <br>
+ * Each aspect must use its own instance of this class. The instance keeps the schedule between
+ * the steps. It is only used while the aspect computes its forces, and is thus protected against
+ * concurrent use in the same way as the aspect (see {@link AbstractAspect#beginComputation()}).
+ */
+public final class StressSampling {
+  /**
+   * An epsilon for "reasonable" distances between objects
+   */
+  private static final double EPSILON = 1e-8;
+
+  /**
+   * The number of pairs that are visited in each step
+   */
+  private final int pairsPerStep;
+
+  /**
+   * The random number generator for the permutations
+   */
+  private final Random random;
+
+  /**
+   * The number of epochs during which the step size is decreased
+   */
+  private int epochs;
+
+  /**
+   * The factor for the minimum step size
+   */
+  private double epsilon;
+
+  /**
+   * The number of pairs for which the current schedule was set up, or -1 if it has to be set up
+   */
+  private long pairCount;
+
+  /**
+   * The multiplier of the current permutation
+   */
+  private long multiplier;
+
+  /**
+   * The offset of the current permutation
+   */
+  private long offset;
+
+  /**
+   * The number of pairs that have been visited in the current epoch
+   */
+  private long position;
+
+  /**
+   * The current epoch
+   */
+  private int epoch;
+
+  /**
+   * The maximum step size
+   */
+  private double etaMax;
+
+  /**
+   * The minimum step size
+   */
+  private double etaMin;
+
+  /**
+   * The decay rate of the step size
+   */
+  private double lambda;
+
+  /**
+   * The x-coordinates of the positions that are modified during one step
+   */
+  private double[] scratchX = new double[0];
+
+  /**
+   * The y-coordinates of the positions that are modified during one step
+   */
+  private double[] scratchY = new double[0];
+
+  /**
+   * Creates a new instance that visits the given number of pairs in each step
+   * 
+   * @param pairsPerStep
+   *          The number of pairs per step
+   * @param seed
+   *          The random seed for the order of the pairs
+   * @throws IllegalArgumentException
+   *           If the number of pairs is not positive
+   */
+  public StressSampling(int pairsPerStep, long seed) {
+    if (pairsPerStep <= 0) {
+      throw new IllegalArgumentException(
+          "The number of pairs per step must be positive, but is " + pairsPerStep);
+    }
+    this.pairsPerStep = pairsPerStep;
+    this.random = new Random(seed);
+    this.epochs = 30;
+    this.epsilon = 0.1;
+    this.pairCount = -1;
+  }
+
+  /**
+   * Returns the number of pairs that are visited in each step
+   * 
+   * @return The number of pairs per step
+   */
+  public int getPairsPerStep() {
+    return pairsPerStep;
+  }
+
+  /**
+   * Set the number of epochs during which the step size is decreased from its maximum to its
+   * minimum value. Afterwards, the minimum step size is used. The default value is 30.
+   * 
+   * @param epochs
+   *          The number of epochs
+   * @throws IllegalArgumentException
+   *           If the number is not positive
+   */
+  public void setEpochs(int epochs) {
+    if (epochs <= 0) {
+      throw new IllegalArgumentException("The number of epochs must be positive, but is " + epochs);
+    }
+    this.epochs = epochs;
+    reset();
+  }
+
+  /**
+   * Returns the number of epochs during which the step size is decreased
+   * 
+   * @return The number of epochs
+   */
+  public int getEpochs() {
+    return epochs;
+  }
+
+  /**
+   * Set the factor for the minimum step size, which is <code>epsilon * d<sub>min</sub>
+   * <sup>2</sup></code>. The default value is 0.1.
+   * 
+   * @param epsilon
+   *          The factor
+   * @throws IllegalArgumentException
+   *           If the value is not positive
+   */
+  public void setEpsilon(double epsilon) {
+    if (!(epsilon > 0.0)) {
+      throw new IllegalArgumentException("The epsilon must be positive, but is " + epsilon);
+    }
+    this.epsilon = epsilon;
+    reset();
+  }
+
+  /**
+   * Returns the factor for the minimum step size
+   * 
+   * @return The factor
+   */
+  public double getEpsilon() {
+    return epsilon;
+  }
+
+  /**
+   * Returns the current epoch, starting at 0
+   * 
+   * @return The epoch
+   */
+  public int getEpoch() {
+    return epoch;
+  }
+
+  /**
+   * Restart the schedule of the step size with the next step. This should be called when the
+   * distances have been changed.
+   */
+  public void reset() {
+    pairCount = -1;
+  }
+
+  /**
+   * Visit the next pairs, as described in the class documentation, and add the resulting
+   * displacements to the given force arrays. Pairs of objects that are both sleeping are omitted.
+   * 
+   * @param distances
+   *          The {@link PairwiseDistances}
+   * @param x
+   *          The x-coordinates of the positions
+   * @param y
+   *          The y-coordinates of the positions
+   * @param n
+   *          The number of objects
+   * @param sleeping
+   *          The flags indicating which objects are sleeping, or <code>null</code>
+   * @param attraction
+   *          Whether only pairs that are too far apart should be moved towards each other. If
+   *          this is <code>false</code>, then only pairs that are too close are moved apart.
+   * @param forceX
+   *          The x-components of the forces
+   * @param forceY
+   *          The y-components of the forces
+   */
+  void computeDisplacements(PairwiseDistances distances, double[] x, double[] y, int n,
+      boolean[] sleeping, boolean attraction, double[] forceX, double[] forceY) {
+    SparsePairwiseDistances sparse = null;
+    long currentPairCount = (long) n * (n - 1) / 2;
+    if (distances instanceof SparsePairwiseDistances) {
+      sparse = (SparsePairwiseDistances) distances;
+      currentPairCount = sparse.getPairCount();
+    }
+    if (currentPairCount != pairCount) {
+      setupSchedule(distances, currentPairCount);
+    }
+    if (pairCount == 0) {
+      return;
+    }
+    if (scratchX.length < n) {
+      scratchX = new double[n];
+      scratchY = new double[n];
+    }
+    System.arraycopy(x, 0, scratchX, 0, n);
+    System.arraycopy(y, 0, scratchY, 0, n);
+    double t = epoch + (double) position / pairCount;
+    double eta = Math.max(etaMin, etaMax * Math.exp(-lambda * t));
+    for (int s = 0; s < pairsPerStep; s++) {
+      if (position == pairCount) {
+        epoch++;
+        position = 0;
+        createPermutation();
+      }
+      long k = (mulMod(multiplier, position, pairCount) + offset) % pairCount;
+      position++;
+      int i;
+      int j;
+      double d;
+      if (sparse != null) {
+        i = sparse.getPairRow((int) k);
+        j = sparse.getPairColumn((int) k);
+        d = sparse.getPairDistance((int) k);
+      } else {
+        i = computeRow(k, n);
+        j = (int) (k - computeRowStart(i, n)) + i + 1;
+        d = distances.getDistance(i, j);
+      }
+      if (Double.isNaN(d) || (sleeping != null && sleeping[i] && sleeping[j])) {
+        continue;
+      }
+      double dx = scratchX[j] - scratchX[i];
+      double dy = scratchY[j] - scratchY[i];
+      double distance = Math.sqrt(dx * dx + dy * dy);
+      if (attraction ? distance <= d : distance >= d) {
+        continue;
+      }
+      double directionX;
+      double directionY;
+      if (distance < EPSILON) {
+        directionX = 1.0;
+        directionY = 0.0;
+      } else {
+        directionX = dx / distance;
+        directionY = dy / distance;
+      }
+      double mu = d > 0.0 ? Math.min(1.0, eta / (d * d)) : 1.0;
+      double r = mu * (distance - d) * 0.5;
+      scratchX[i] += r * directionX;
+      scratchY[i] += r * directionY;
+      scratchX[j] -= r * directionX;
+      scratchY[j] -= r * directionY;
+    }
+    for (int i = 0; i < n; i++) {
+      forceX[i] += scratchX[i] - x[i];
+      forceY[i] += scratchY[i] - y[i];
+    }
+  }
+
+  /**
+   * Set up the schedule of the step size for the given distances, and start the first epoch
+   * 
+   * @param distances
+   *          The {@link PairwiseDistances}
+   * @param pairCount
+   *          The number of pairs
+   */
+  private void setupSchedule(PairwiseDistances distances, long pairCount) {
+    double[] range = { Double.POSITIVE_INFINITY, 0.0 };
+    distances.forEachPair((i, j, distance) -> {
+      if (distance > 0.0 && !Double.isInfinite(distance)) {
+        range[0] = Math.min(range[0], distance);
+        range[1] = Math.max(range[1], distance);
+      }
+    });
+    if (range[1] == 0.0) {
+      range[0] = 1.0;
+      range[1] = 1.0;
+    }
+    this.etaMax = range[1] * range[1];
+    this.etaMin = Math.min(etaMax, epsilon * range[0] * range[0]);
+    this.lambda = epochs > 1 ? Math.log(etaMax / etaMin) / (epochs - 1) : 0.0;
+    this.pairCount = pairCount;
+    this.epoch = 0;
+    this.position = 0;
+    createPermutation();
+  }
+
+  /**
+   * Create a new pseudo-random permutation of the pair indices, of the form
+   * <code>k = (multiplier * m + offset) mod pairCount</code>, where the multiplier is coprime to
+   * the number of pairs
+   */
+  private void createPermutation() {
+    if (pairCount <= 2) {
+      multiplier = 1;
+      offset = 0;
+      return;
+    }
+    offset = (random.nextLong() >>> 1) % pairCount;
+    long bound = Math.min(pairCount, 1L << 31) - 1;
+    do {
+      multiplier = 1 + (random.nextLong() >>> 1) % bound;
+    } while (gcd(multiplier, pairCount) != 1);
+  }
+
+  /**
+   * Returns the index of the row of the packed upper-triangular matrix of pairs for n objects
+   * that contains the pair with the given index
+   * 
+   * @param k
+   *          The index of the pair
+   * @param n
+   *          The number of objects
+   * @return The row
+   */
+  private static int computeRow(long k, int n) {
+    double b = 2.0 * n - 1.0;
+    int i = (int) ((b - Math.sqrt(b * b - 8.0 * k)) * 0.5);
+    i = Math.max(0, Math.min(n - 2, i));
+    while (i > 0 && computeRowStart(i, n) > k) {
+      i--;
+    }
+    while (i < n - 2 && computeRowStart(i + 1, n) <= k) {
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * Returns the index of the first pair in the given row of the packed upper-triangular matrix of
+   * pairs for n objects
+   * 
+   * @param i
+   *          The row
+   * @param n
+   *          The number of objects
+   * @return The index of the first pair
+   */
+  private static long computeRowStart(int i, int n) {
+    return (long) i * n - (long) i * (i + 1) / 2;
+  }
+
+  /**
+   * Computes <code>(a * b) mod m</code> without overflow, for a &lt; 2<sup>31</sup> and
+   * non-negative b &lt; m &lt; 2<sup>62</sup>
+   * 
+   * @param a
+   *          The first factor
+   * @param b
+   *          The second factor
+   * @param m
+   *          The modulus
+   * @return The result
+   */
+  private static long mulMod(long a, long b, long m) {
+    if (b < (1L << 32)) {
+      return (a * b) % m;
+    }
+    long result = 0;
+    long factor = a % m;
+    long remaining = b;
+    while (remaining > 0) {
+      if ((remaining & 1) != 0) {
+        result = (result + factor) % m;
+      }
+      factor = (factor << 1) % m;
+      remaining >>= 1;
+    }
+    return result;
+  }
+
+  /**
+   * Computes the greatest common divisor of the given non-negative values
+   * 
+   * @param a
+   *          The first value
+   * @param b
+   *          The second value
+   * @return The greatest common divisor
+   */
+  private static long gcd(long a, long b) {
+    long u = a;
+    long v = b;
+    while (v != 0) {
+      long r = u % v;
+      u = v;
+      v = r;
+    }
+    return u;
+  }
+}
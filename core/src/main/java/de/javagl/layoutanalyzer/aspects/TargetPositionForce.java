@@ -27,22 +27,21 @@
 package de.javagl.layoutanalyzer.aspects;
 
 import java.awt.geom.Point2D;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
-import de.javagl.geom.Points;
 import de.javagl.layoutanalyzer.AspectData;
+import de.javagl.layoutanalyzer.IndexedAspectData;
 import de.javagl.layoutanalyzer.objects.LayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutState;
 
 /**
  * Implementation of an {@link Aspect} that tries to keep the {@link LayoutObject}s at the positions
  * that they had at construction time.
  */
-public class TargetPositionForce extends AbstractAspect implements Aspect {
+public class TargetPositionForce extends AbstractAspect implements ForceAccumulatingAspect {
   /**
    * An epsilon for distance computations
    */
@@ -72,34 +71,89 @@ public class TargetPositionForce extends AbstractAspect implements Aspect {
 
   @Override
   public AspectData computeLayoutData(List<? extends LayoutObject> layoutObjects) {
-    Objects.requireNonNull(layoutObjects, "The layoutObjects are null");
-    AspectData layoutData = new AspectData(
-        Collections.unmodifiableList(new ArrayList<LayoutObject>(layoutObjects)), getWeight());
-    Point2D difference = new Point2D.Double();
-    Point2D direction = new Point2D.Double();
-    for (LayoutObject layoutObject : layoutObjects) {
-      if (!targetPositions.containsKey(layoutObject)) {
-        // special case relevant when layout is changed and no direct corespondence to target
-        // position exists anymore
-        layoutData.setForce(layoutObject, new Point2D.Double());
-        continue;
-      }
+    return computeLayoutData(layoutObjects, (AspectData) null);
+  }
+
+  @Override
+  public AspectData computeLayoutData(LayoutState layoutState, AspectData reuse) {
+    Objects.requireNonNull(layoutState, "The layoutState is null");
+    List<LayoutObject> layoutObjects = layoutState.getLayoutObjects();
+    IndexedAspectData layoutData =
+        IndexedAspectData.reuseOrCreate(reuse, layoutObjects, getWeight());
+    double[] x = layoutState.getPositionsX();
+    double[] y = layoutState.getPositionsY();
+    for (int i = 0; i < layoutObjects.size(); i++) {
+      computeForce(i, layoutObjects.get(i), x[i], y[i], 1.0, layoutData.getForcesX(),
+          layoutData.getForcesY());
+    }
+    return layoutData;
+  }
 
-      Point2D position0 = layoutObject.getPosition();
-      Point2D position1 = targetPositions.get(layoutObject);
-      double distance = position0.distance(position1);
+  @Override
+  public void accumulateForces(LayoutState layoutState, double[] forceX, double[] forceY) {
+    Objects.requireNonNull(layoutState, "The layoutState is null");
+    double[] x = layoutState.getPositionsX();
+    double[] y = layoutState.getPositionsY();
+    double weight = getWeight();
+    int n = layoutState.size();
+    for (int i = 0; i < n; i++) {
+      computeForce(i, layoutState.getLayoutObject(i), x[i], y[i], weight, forceX, forceY);
+    }
+  }
 
-      if (distance > EPSILON) {
-        Points.sub(position1, position0, difference);
-        Points.scale(difference, 1.0 / distance, direction);
-        Point2D force0 = layoutData.getForce(layoutObject);
-        Points.addScaled(force0, distance, direction, force0);
-        layoutData.setForce(layoutObject, force0);
-      }
+  @Override
+  public AspectData computeLayoutData(List<? extends LayoutObject> layoutObjects,
+      AspectData reuse) {
+    Objects.requireNonNull(layoutObjects, "The layoutObjects are null");
+    IndexedAspectData layoutData =
+        IndexedAspectData.reuseOrCreate(reuse, layoutObjects, getWeight());
+    Point2D position = new Point2D.Double();
+    for (int i = 0; i < layoutObjects.size(); i++) {
+      LayoutObject layoutObject = layoutObjects.get(i);
+      layoutObject.getPosition(position);
+      computeForce(i, layoutObject, position.getX(), position.getY(), 1.0,
+          layoutData.getForcesX(), layoutData.getForcesY());
     }
     return layoutData;
   }
 
+  /**
+   * Compute the force that pulls the given {@link LayoutObject} from the given position towards
+   * its target position, multiplied with the given weight, and add it to the given force arrays
+   * 
+   * @param index
+   *          The index of the object
+   * @param layoutObject
+   *          The {@link LayoutObject}
+   * @param x
+   *          The x-coordinate of the position of the object
+   * @param y
+   *          The y-coordinate of the position of the object
+   * @param weight
+   *          The weight
+   * @param forceX
+   *          The x-components of the forces
+   * @param forceY
+   *          The y-components of the forces
+   */
+  private void computeForce(int index, LayoutObject layoutObject, double x, double y,
+      double weight, double[] forceX, double[] forceY) {
+    Point2D targetPosition = targetPositions.get(layoutObject);
+    if (targetPosition == null) {
+      // special case relevant when layout is changed and no direct corespondence to target
+      // position exists anymore
+      return;
+    }
+    double dx = targetPosition.getX() - x;
+    double dy = targetPosition.getY() - y;
+    double distance = Math.sqrt(dx * dx + dy * dy);
+    if (distance > EPSILON) {
+      double invDistance = 1.0 / distance;
+      forceX[index] += weight * (distance * (dx * invDistance));
+      forceY[index] += weight * (distance * (dy * invDistance));
+    }
+  }
+
   public void setLayoutObjects(Iterable<? extends LayoutObject> layoutObjects) {
     Objects.requireNonNull(layoutObjects, "The layoutObjects are null");
     this.targetPositions = new LinkedHashMap<LayoutObject, Point2D>();
@@ -0,0 +1,112 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.distances;
+
+import java.util.Arrays;
+
+/**
+ * Implementation of {@link PairwiseDistances} that stores the distances for all pairs of objects
+ * in a packed upper-triangular matrix with double precision, requiring 8 bytes for each of
+ * the n*(n-1)/2 pairs. See {@link DenseFloatPairwiseDistances}.<br>
+ * <br>
+ * Initially, no distances are defined.
+ */
+public final class DenseDoublePairwiseDistances implements PairwiseDistances {
+  /**
+   * The number of objects
+   */
+  private final int n;
+
+  /**
+   * The distances, row by row, for the pairs (i,j) with i&lt;j
+   */
+  private final double[] distances;
+
+  /**
+   * Creates a new instance for the given number of objects
+   * 
+   * @param n
+   *          The number of objects
+   * @throws IllegalArgumentException
+   *           If the number is negative, or so large that the matrix can not be stored in an
+   *           array
+   */
+  public DenseDoublePairwiseDistances(int n) {
+    this.n = n;
+    this.distances = new double[DistanceMatrices.computePairCount(n)];
+    Arrays.fill(distances, Double.NaN);
+  }
+
+  /**
+   * Set the distance between the objects with the given indices. The order of the indices does
+   * not matter.
+   * 
+   * @param i
+   *          The first index
+   * @param j
+   *          The second index
+   * @param distance
+   *          The distance. A value of <code>NaN</code> means that no distance is defined.
+   * @throws IndexOutOfBoundsException
+   *           If one of the indices is negative or not smaller than the {@link #size()}
+   * @throws IllegalArgumentException
+   *           If the indices are equal
+   */
+  public void setDistance(int i, int j, double distance) {
+    if (i == j) {
+      throw new IllegalArgumentException("The indices are equal: " + i);
+    }
+    distances[DistanceMatrices.computePairIndex(n, i, j)] = distance;
+  }
+
+  @Override
+  public int size() {
+    return n;
+  }
+
+  @Override
+  public double getDistance(int i, int j) {
+    if (i == j) {
+      DistanceMatrices.validateIndices(n, i, j);
+      return Double.NaN;
+    }
+    return distances[DistanceMatrices.computePairIndex(n, i, j)];
+  }
+
+  @Override
+  public void forEachPair(PairDistanceConsumer consumer) {
+    int k = 0;
+    for (int i = 0; i < n; i++) {
+      for (int j = i + 1; j < n; j++) {
+        double distance = distances[k++];
+        if (!Double.isNaN(distance)) {
+          consumer.accept(i, j, distance);
+        }
+      }
+    }
+  }
+}
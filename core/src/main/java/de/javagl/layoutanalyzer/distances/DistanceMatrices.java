@@ -0,0 +1,307 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.distances;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+import de.javagl.layoutanalyzer.objects.LayoutObject;
+
+/**
+ * Methods to create {@link PairwiseDistances} instances
+ */
+public class DistanceMatrices {
+  /**
+   * Creates {@link PairwiseDistances} from the given map, which may contain the distance between
+   * two {@link LayoutObject}s at <code>map.get(object0).get(object1)</code>. The indices of the
+   * resulting distances are the indices of the objects in the given list. For each pair of
+   * indices i&lt;j, the distance is looked up with the object at index i as the first key.
+   * Missing or <code>null</code> entries mean that no distance is defined for the pair.<br>
+   * <br>
+   * When the distances are defined for more than half of the pairs, a
+   * {@link DenseDoublePairwiseDistances} instance is returned. Otherwise, a
+   * {@link SparsePairwiseDistances} instance is returned.
+   * 
+   * @param layoutObjects
+   *          The {@link LayoutObject}s
+   * @param map
+   *          The map
+   * @return The {@link PairwiseDistances}
+   */
+  public static PairwiseDistances fromMap(List<? extends LayoutObject> layoutObjects,
+      Map<? extends LayoutObject, ? extends Map<? extends LayoutObject, Double>> map) {
+    Objects.requireNonNull(layoutObjects, "The layoutObjects are null");
+    Objects.requireNonNull(map, "The map is null");
+    int n = layoutObjects.size();
+    int[] rowStarts = new int[n + 1];
+    for (int i = 0; i < n; i++) {
+      int count = 0;
+      Map<? extends LayoutObject, Double> row = map.get(layoutObjects.get(i));
+      if (row != null) {
+        for (int j = i + 1; j < n; j++) {
+          if (row.get(layoutObjects.get(j)) != null) {
+            count++;
+          }
+        }
+      }
+      rowStarts[i + 1] = rowStarts[i] + count;
+    }
+    int pairCount = rowStarts[n];
+    boolean dense = pairCount > computePairCount(n) / 2;
+    DenseDoublePairwiseDistances denseResult = dense ? new DenseDoublePairwiseDistances(n) : null;
+    int[] columns = dense ? null : new int[pairCount];
+    double[] distances = dense ? null : new double[pairCount];
+    int k = 0;
+    for (int i = 0; i < n; i++) {
+      Map<? extends LayoutObject, Double> row = map.get(layoutObjects.get(i));
+      if (row == null) {
+        continue;
+      }
+      for (int j = i + 1; j < n; j++) {
+        Double distance = row.get(layoutObjects.get(j));
+        if (distance != null) {
+          if (dense) {
+            denseResult.setDistance(i, j, distance);
+          } else {
+            columns[k] = j;
+            distances[k] = distance;
+            k++;
+          }
+        }
+      }
+    }
+    if (dense) {
+      return denseResult;
+    }
+    return new SparsePairwiseDistances(n, rowStarts, columns, distances);
+  }
+
+  /**
+   * Returns {@link PairwiseDistances} that are a view on the given map, which may contain the
+   * distance between two {@link LayoutObject}s at <code>map.get(object0).get(object1)</code>.
+   * The indices of the resulting distances are the indices of the objects in the given list. For
+   * each pair of indices i&lt;j, the distance is looked up with the object at index i as the first
+   * key. Missing or <code>null</code> entries mean that no distance is defined for the pair.<br>
+   * <br>
+   * Each access to the resulting distances causes two lookups in the map. Changes in the given
+   * list or map are visible in the returned view.
+   * 
+   * @param layoutObjects
+   *          The {@link LayoutObject}s
+   * @param map
+   *          The map
+   * @return The {@link PairwiseDistances}
+   */
+  public static PairwiseDistances view(List<? extends LayoutObject> layoutObjects,
+      Map<? extends LayoutObject, ? extends Map<? extends LayoutObject, Double>> map) {
+    Objects.requireNonNull(layoutObjects, "The layoutObjects are null");
+    Objects.requireNonNull(map, "The map is null");
+    return new MapPairwiseDistances(layoutObjects, map);
+  }
+
+  /**
+   * Select k pivots among the given number of objects with the max-min strategy, and compute the
+   * {@link PivotDistances}. The first pivot is chosen randomly. Each following pivot is the
+   * object whose minimum distance to the pivots that have been selected so far is maximal. This
+   * tends to spread the pivots evenly over the data. The given function is called n*k times.
+   * 
+   * @param n
+   *          The number of objects
+   * @param k
+   *          The number of pivots
+   * @param distanceFunction
+   *          The function that computes the distance between two objects
+   * @param seed
+   *          The random seed for the first pivot
+   * @return The {@link PivotDistances}
+   * @throws IllegalArgumentException
+   *           If the number of pivots is not in [1,n]
+   */
+  public static PivotDistances selectPivotsMaxMin(int n, int k,
+      IndexDistanceFunction distanceFunction, long seed) {
+    Objects.requireNonNull(distanceFunction, "The distanceFunction is null");
+    validatePivotCount(n, k);
+    int[] pivots = new int[k];
+    float[] distances = new float[n * k];
+    double[] minDistances = new double[n];
+    Arrays.fill(minDistances, Double.POSITIVE_INFINITY);
+    int pivot = new Random(seed).nextInt(n);
+    for (int p = 0; p < k; p++) {
+      pivots[p] = pivot;
+      int next = 0;
+      for (int i = 0; i < n; i++) {
+        double distance = i == pivot ? 0.0 : distanceFunction.computeDistance(i, pivot);
+        distances[i * k + p] = (float) distance;
+        minDistances[i] = Math.min(minDistances[i], distance);
+        if (minDistances[i] > minDistances[next]) {
+          next = i;
+        }
+      }
+      pivot = next;
+    }
+    return new PivotDistances(n, pivots, distances);
+  }
+
+  /**
+   * Select k random pivots among the given number of objects, and compute the
+   * {@link PivotDistances}. The given function is called n*k times.
+   * 
+   * @param n
+   *          The number of objects
+   * @param k
+   *          The number of pivots
+   * @param distanceFunction
+   *          The function that computes the distance between two objects
+   * @param seed
+   *          The random seed
+   * @return The {@link PivotDistances}
+   * @throws IllegalArgumentException
+   *           If the number of pivots is not in [1,n]
+   */
+  public static PivotDistances selectPivotsRandom(int n, int k,
+      IndexDistanceFunction distanceFunction, long seed) {
+    Objects.requireNonNull(distanceFunction, "The distanceFunction is null");
+    validatePivotCount(n, k);
+    Random random = new Random(seed);
+    int[] indices = new int[n];
+    for (int i = 0; i < n; i++) {
+      indices[i] = i;
+    }
+    int[] pivots = new int[k];
+    for (int p = 0; p < k; p++) {
+      int r = p + random.nextInt(n - p);
+      int temp = indices[p];
+      indices[p] = indices[r];
+      indices[r] = temp;
+      pivots[p] = indices[p];
+    }
+    float[] distances = new float[n * k];
+    for (int i = 0; i < n; i++) {
+      for (int p = 0; p < k; p++) {
+        int pivot = pivots[p];
+        double distance = i == pivot ? 0.0 : distanceFunction.computeDistance(i, pivot);
+        distances[i * k + p] = (float) distance;
+      }
+    }
+    return new PivotDistances(n, pivots, distances);
+  }
+
+  /**
+   * Make sure that the given number of pivots is valid for the given number of objects, and
+   * that the distances can be stored in an array
+   * 
+   * @param n
+   *          The number of objects
+   * @param k
+   *          The number of pivots
+   * @throws IllegalArgumentException
+   *           If the number of pivots is not in [1,n], or the number of distances is too large
+   */
+  private static void validatePivotCount(int n, int k) {
+    if (k < 1 || k > n) {
+      throw new IllegalArgumentException(
+          "The number of pivots must be in [1," + n + "], but is " + k);
+    }
+    if ((long) n * k > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException(
+          "The number of distances for " + n + " objects and " + k + " pivots is too large");
+    }
+  }
+
+  /**
+   * Returns the number of pairs (i,j) with i&lt;j for the given number of objects
+   * 
+   * @param n
+   *          The number of objects
+   * @return The number of pairs
+   * @throws IllegalArgumentException
+   *           If the number is negative, or the number of pairs is too large to be stored in an
+   *           array
+   */
+  static int computePairCount(int n) {
+    if (n < 0) {
+      throw new IllegalArgumentException("The number of objects is negative: " + n);
+    }
+    long pairCount = (long) n * (n - 1) / 2;
+    if (pairCount > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException(
+          "The number of pairs for " + n + " objects is too large: " + pairCount);
+    }
+    return (int) pairCount;
+  }
+
+  /**
+   * Returns the index of the pair with the given indices in a packed upper-triangular matrix
+   * 
+   * @param n
+   *          The number of objects
+   * @param i
+   *          The first index
+   * @param j
+   *          The second index
+   * @return The index of the pair
+   * @throws IndexOutOfBoundsException
+   *           If one of the indices is negative or not smaller than n
+   */
+  static int computePairIndex(int n, int i, int j) {
+    validateIndices(n, i, j);
+    long row = Math.min(i, j);
+    long column = Math.max(i, j);
+    return (int) (row * (2L * n - row - 1) / 2 + (column - row - 1));
+  }
+
+  /**
+   * Make sure that the given indices are valid for the given number of objects
+   * 
+   * @param n
+   *          The number of objects
+   * @param i
+   *          The first index
+   * @param j
+   *          The second index
+   * @throws IndexOutOfBoundsException
+   *           If one of the indices is negative or not smaller than n
+   */
+  static void validateIndices(int n, int i, int j) {
+    if (i < 0 || i >= n) {
+      throw new IndexOutOfBoundsException("Index: " + i + ", size: " + n);
+    }
+    if (j < 0 || j >= n) {
+      throw new IndexOutOfBoundsException("Index: " + j + ", size: " + n);
+    }
+  }
+
+  /**
+   * Private constructor to prevent instantiation
+   */
+  private DistanceMatrices() {
+    // Private constructor to prevent instantiation
+  }
+}
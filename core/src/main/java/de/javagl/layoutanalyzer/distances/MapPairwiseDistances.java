@@ -0,0 +1,103 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.distances;
+
+import java.util.List;
+import java.util.Map;
+
+import de.javagl.layoutanalyzer.objects.LayoutObject;
+
+/**
+ * Implementation of {@link PairwiseDistances} that is a view on a map from pairs of
+ * {@link LayoutObject}s to distances. See
+ * {@link DistanceMatrices#view(List, Map)}.
+ */
+class MapPairwiseDistances implements PairwiseDistances {
+  /**
+   * The {@link LayoutObject}s
+   */
+  private final List<? extends LayoutObject> layoutObjects;
+
+  /**
+   * The map containing the distances
+   */
+  private final Map<? extends LayoutObject, ? extends Map<? extends LayoutObject, Double>> map;
+
+  /**
+   * Creates a new instance
+   * 
+   * @param layoutObjects
+   *          The {@link LayoutObject}s
+   * @param map
+   *          The map containing the distances
+   */
+  MapPairwiseDistances(List<? extends LayoutObject> layoutObjects,
+      Map<? extends LayoutObject, ? extends Map<? extends LayoutObject, Double>> map) {
+    this.layoutObjects = layoutObjects;
+    this.map = map;
+  }
+
+  @Override
+  public int size() {
+    return layoutObjects.size();
+  }
+
+  @Override
+  public double getDistance(int i, int j) {
+    int n = layoutObjects.size();
+    DistanceMatrices.validateIndices(n, i, j);
+    if (i == j) {
+      return Double.NaN;
+    }
+    Map<? extends LayoutObject, Double> row = map.get(layoutObjects.get(Math.min(i, j)));
+    if (row == null) {
+      return Double.NaN;
+    }
+    Double distance = row.get(layoutObjects.get(Math.max(i, j)));
+    if (distance == null) {
+      return Double.NaN;
+    }
+    return distance;
+  }
+
+  @Override
+  public void forEachPair(PairDistanceConsumer consumer) {
+    int n = layoutObjects.size();
+    for (int i = 0; i < n; i++) {
+      Map<? extends LayoutObject, Double> row = map.get(layoutObjects.get(i));
+      if (row == null) {
+        continue;
+      }
+      for (int j = i + 1; j < n; j++) {
+        Double distance = row.get(layoutObjects.get(j));
+        if (distance != null) {
+          consumer.accept(i, j, distance);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.distances;
+
+/**
+ * Interface for symmetric distances that are defined between pairs of objects, which are
+ * identified by their index. The indices correspond to the indices of the objects in the layout.
+ * The distances may be defined only for some of the pairs.
+ */
+public interface PairwiseDistances {
+  /**
+   * Returns the number of objects
+   * 
+   * @return The number of objects
+   */
+  int size();
+
+  /**
+   * Returns the distance between the objects with the given indices, or <code>NaN</code> if no
+   * distance is defined for this pair. The result does not depend on the order of the indices. For
+   * equal indices, <code>NaN</code> is returned.
+   * 
+   * @param i
+   *          The first index
+   * @param j
+   *          The second index
+   * @return The distance
+   * @throws IndexOutOfBoundsException
+   *           If one of the indices is negative or not smaller than the {@link #size()}
+   */
+  double getDistance(int i, int j);
+
+  /**
+   * Pass all pairs of indices for which a distance is defined, together with the distance, to
+   * the given consumer. Each pair is passed once, with the smaller index first, ordered by the
+   * first and then by the second index.
+   * 
+   * @param consumer
+   *          The consumer
+   */
+  void forEachPair(PairDistanceConsumer consumer);
+}
@@ -0,0 +1,172 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.distances;
+
+import java.util.Objects;
+
+/**
+ * The distances between a set of objects and a small number k of <i>pivot</i> objects (also
+ * called landmarks), which are a subset of the objects. The distances are stored in a
+ * <code>float</code> array with n*k elements, and can be used for approximating the interactions
+ * between all pairs of objects, with an effort of O(n*k) instead of O(n<sup>2</sup>).<br>
+ * <br>
+ * Each pivot represents a <i>region</i>, which consists of the objects that are closer to this
+ * pivot than to all other pivots. The size of the region of a pivot can be used as a weight for
+ * the interactions with this pivot.<br>
+ * <br>
+ * Instances of this class can be created with
+ * {@link DistanceMatrices#selectPivotsMaxMin(int, int, IndexDistanceFunction, long)} or
+ * {@link DistanceMatrices#selectPivotsRandom(int, int, IndexDistanceFunction, long)}.
+ */
+public final class PivotDistances {
+  /**
+   * The number of objects
+   */
+  private final int n;
+
+  /**
+   * The indices of the pivot objects
+   */
+  private final int[] pivots;
+
+  /**
+   * The distances, where the distance between object i and pivot p is stored at index i*k+p
+   */
+  private final float[] distances;
+
+  /**
+   * The number of objects in the region of each pivot
+   */
+  private final int[] regionSizes;
+
+  /**
+   * Creates a new instance from the given arrays, which are stored by reference
+   * 
+   * @param n
+   *          The number of objects
+   * @param pivots
+   *          The indices of the k pivot objects
+   * @param distances
+   *          The distances, where the distance between object i and pivot p is stored at index
+   *          i*k+p
+   * @throws NullPointerException
+   *           If one of the arrays is <code>null</code>
+   * @throws IllegalArgumentException
+   *           If the number of objects is negative, there are no pivots, a pivot index is not in
+   *           [0,n), or the distances do not have a length of n*k
+   */
+  public PivotDistances(int n, int[] pivots, float[] distances) {
+    Objects.requireNonNull(pivots, "The pivots are null");
+    Objects.requireNonNull(distances, "The distances are null");
+    if (n < 0) {
+      throw new IllegalArgumentException("The number of objects is negative: " + n);
+    }
+    int k = pivots.length;
+    if (k == 0) {
+      throw new IllegalArgumentException("There are no pivots");
+    }
+    for (int p = 0; p < k; p++) {
+      if (pivots[p] < 0 || pivots[p] >= n) {
+        throw new IllegalArgumentException(
+            "The pivot index " + pivots[p] + " is not in [0," + n + ")");
+      }
+    }
+    if ((long) n * k != distances.length) {
+      throw new IllegalArgumentException("The distances must have a length of " + ((long) n * k)
+          + ", but have " + distances.length);
+    }
+    this.n = n;
+    this.pivots = pivots;
+    this.distances = distances;
+    this.regionSizes = new int[k];
+    for (int i = 0; i < n; i++) {
+      int closest = 0;
+      int offset = i * k;
+      for (int p = 1; p < k; p++) {
+        if (distances[offset + p] < distances[offset + closest]) {
+          closest = p;
+        }
+      }
+      regionSizes[closest]++;
+    }
+  }
+
+  /**
+   * Returns the number of objects
+   * 
+   * @return The number of objects
+   */
+  public int size() {
+    return n;
+  }
+
+  /**
+   * Returns the number of pivots
+   * 
+   * @return The number of pivots
+   */
+  public int getPivotCount() {
+    return pivots.length;
+  }
+
+  /**
+   * Returns the index of the object that is the given pivot
+   * 
+   * @param p
+   *          The index of the pivot
+   * @return The index of the object
+   */
+  public int getPivot(int p) {
+    return pivots[p];
+  }
+
+  /**
+   * Returns the distance between the given object and the given pivot
+   * 
+   * @param i
+   *          The index of the object
+   * @param p
+   *          The index of the pivot
+   * @return The distance
+   */
+  public double getDistance(int i, int p) {
+    return distances[i * pivots.length + p];
+  }
+
+  /**
+   * Returns the number of objects that are closer to the given pivot than to all other pivots.
+   * Objects with the same distance to several pivots are assigned to the one with the smallest
+   * index.
+   * 
+   * @param p
+   *          The index of the pivot
+   * @return The size of the region
+   */
+  public int getRegionSize(int p) {
+    return regionSizes[p];
+  }
+}
@@ -0,0 +1,232 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.distances;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Implementation of {@link PairwiseDistances} that only stores the pairs for which a distance is
+ * defined, in the compressed sparse row (CSR) format: For each object i, the objects j&gt;i for
+ * which a distance is defined are stored in ascending order, in a contiguous range of the
+ * column array. This requires 12 bytes for each defined pair, plus 4 bytes for each object.
+ */
+public final class SparsePairwiseDistances implements PairwiseDistances {
+  /**
+   * The number of objects
+   */
+  private final int n;
+
+  /**
+   * The start of the range of each row in the {@link #columns}. The range for row i ends at the
+   * start of row i+1.
+   */
+  private final int[] rowStarts;
+
+  /**
+   * The second index of each pair
+   */
+  private final int[] columns;
+
+  /**
+   * The distance of each pair
+   */
+  private final double[] distances;
+
+  /**
+   * Creates a new instance from the given arrays, which are stored by reference.<br>
+   * <br>
+   * The <code>rowStarts</code> array must have a length of n+1. The pairs (i,j) with i&lt;j for
+   * which a distance is defined are stored in the range between <code>rowStarts[i]</code>,
+   * inclusive, and <code>rowStarts[i+1]</code>, exclusive, of the <code>columns</code> and
+   * <code>distances</code> arrays. Within each range, the columns j must be strictly increasing.
+   * 
+   * @param n
+   *          The number of objects
+   * @param rowStarts
+   *          The start of the range of each row
+   * @param columns
+   *          The second index of each pair
+   * @param distances
+   *          The distance of each pair
+   * @throws NullPointerException
+   *           If one of the arrays is <code>null</code>
+   * @throws IllegalArgumentException
+   *           If the arrays do not have the structure described above
+   */
+  public SparsePairwiseDistances(int n, int[] rowStarts, int[] columns, double[] distances) {
+    this.n = n;
+    this.rowStarts = Objects.requireNonNull(rowStarts, "The rowStarts are null");
+    this.columns = Objects.requireNonNull(columns, "The columns are null");
+    this.distances = Objects.requireNonNull(distances, "The distances are null");
+    validate();
+  }
+
+  /**
+   * Make sure that the arrays have the structure described in the constructor
+   * 
+   * @throws IllegalArgumentException
+   *           If the arrays do not have this structure
+   */
+  private void validate() {
+    if (n < 0) {
+      throw new IllegalArgumentException("The number of objects is negative: " + n);
+    }
+    if (rowStarts.length != n + 1) {
+      throw new IllegalArgumentException(
+          "The rowStarts must have a length of " + (n + 1) + ", but have " + rowStarts.length);
+    }
+    int pairCount = rowStarts[n];
+    if (rowStarts[0] != 0 || pairCount > columns.length || pairCount > distances.length) {
+      throw new IllegalArgumentException("The rowStarts must start with 0 and end with at most "
+          + Math.min(columns.length, distances.length) + ", but range from " + rowStarts[0]
+          + " to " + pairCount);
+    }
+    for (int i = 0; i < n; i++) {
+      int start = rowStarts[i];
+      int end = rowStarts[i + 1];
+      if (end < start) {
+        throw new IllegalArgumentException(
+            "The rowStarts are decreasing at index " + i + ": " + start + ", " + end);
+      }
+      int previous = i;
+      for (int k = start; k < end; k++) {
+        int j = columns[k];
+        if (j <= previous || j >= n) {
+          throw new IllegalArgumentException("Invalid column " + j + " at index " + k
+              + " in row " + i + ", expected a value in (" + previous + "," + n + ")");
+        }
+        previous = j;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of pairs for which a distance is defined
+   * 
+   * @return The number of pairs
+   */
+  public int getPairCount() {
+    return rowStarts[n];
+  }
+
+  /**
+   * Returns the first index of the pair with the given index, where the pairs are ordered as in
+   * {@link #forEachPair(PairDistanceConsumer)}
+   * 
+   * @param k
+   *          The index of the pair
+   * @return The first index
+   * @throws IndexOutOfBoundsException
+   *           If the index is negative or not smaller than the {@link #getPairCount()}
+   */
+  public int getPairRow(int k) {
+    validatePairIndex(k);
+    int low = 0;
+    int high = n - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (rowStarts[mid] <= k) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the second index of the pair with the given index, where the pairs are ordered as in
+   * {@link #forEachPair(PairDistanceConsumer)}
+   * 
+   * @param k
+   *          The index of the pair
+   * @return The second index
+   * @throws IndexOutOfBoundsException
+   *           If the index is negative or not smaller than the {@link #getPairCount()}
+   */
+  public int getPairColumn(int k) {
+    validatePairIndex(k);
+    return columns[k];
+  }
+
+  /**
+   * Returns the distance of the pair with the given index, where the pairs are ordered as in
+   * {@link #forEachPair(PairDistanceConsumer)}
+   * 
+   * @param k
+   *          The index of the pair
+   * @return The distance
+   * @throws IndexOutOfBoundsException
+   *           If the index is negative or not smaller than the {@link #getPairCount()}
+   */
+  public double getPairDistance(int k) {
+    validatePairIndex(k);
+    return distances[k];
+  }
+
+  /**
+   * Make sure that the given pair index is valid
+   * 
+   * @param k
+   *          The index of the pair
+   * @throws IndexOutOfBoundsException
+   *           If the index is negative or not smaller than the {@link #getPairCount()}
+   */
+  private void validatePairIndex(int k) {
+    if (k < 0 || k >= rowStarts[n]) {
+      throw new IndexOutOfBoundsException("Pair index: " + k + ", pair count: " + rowStarts[n]);
+    }
+  }
+
+  @Override
+  public int size() {
+    return n;
+  }
+
+  @Override
+  public double getDistance(int i, int j) {
+    DistanceMatrices.validateIndices(n, i, j);
+    int row = Math.min(i, j);
+    int column = Math.max(i, j);
+    int k = Arrays.binarySearch(columns, rowStarts[row], rowStarts[row + 1], column);
+    if (k < 0) {
+      return Double.NaN;
+    }
+    return distances[k];
+  }
+
+  @Override
+  public void forEachPair(PairDistanceConsumer consumer) {
+    for (int i = 0; i < n; i++) {
+      int end = rowStarts[i + 1];
+      for (int k = rowStarts[i]; k < end; k++) {
+        consumer.accept(i, columns[k], distances[k]);
+      }
+    }
+  }
+}
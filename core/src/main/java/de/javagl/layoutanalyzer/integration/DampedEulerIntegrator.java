@@ -0,0 +1,74 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.integration;
+
+import de.javagl.layoutanalyzer.objects.LayoutState;
+
+/**
+ * Implementation of an {@link Integrator} using a semi-implicit (symplectic) Euler scheme with
+ * damping: The velocity is first updated based on the acceleration, and the new velocity is then
+ * used for updating the position.
+ */
+class DampedEulerIntegrator implements Integrator {
+  /**
+   * The factor that the previous velocity is multiplied with in each step
+   */
+  private final double retention;
+
+  /**
+   * Creates a new instance
+   * 
+   * @param damping
+   *          The damping, in [0,1]. A value of 0.0 means that the velocity is not damped, and a
+   *          value of 1.0 means that the previous velocity is not taken into account at all.
+   */
+  DampedEulerIntegrator(double damping) {
+    this.retention = 1.0 - damping;
+  }
+
+  @Override
+  public void integrate(LayoutState state, int index, double timeStep) {
+    double invMass = 1.0 / state.getMasses()[index];
+    double ax = state.getForcesX()[index] * invMass;
+    double ay = state.getForcesY()[index] * invMass;
+    state.getAccelerationsX()[index] = ax;
+    state.getAccelerationsY()[index] = ay;
+
+    double vx = retention * state.getVelocitiesX()[index] + ax * timeStep;
+    double vy = retention * state.getVelocitiesY()[index] + ay * timeStep;
+    state.getVelocitiesX()[index] = vx;
+    state.getVelocitiesY()[index] = vy;
+
+    state.getPositionsX()[index] += timeStep * vx;
+    state.getPositionsY()[index] += timeStep * vy;
+  }
+
+  @Override
+  public String toString() {
+    return "DampedEulerIntegrator[damping=" + (1.0 - retention) + "]";
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.integration;
+
+import de.javagl.layoutanalyzer.objects.LayoutState;
+
+/**
+ * Implementation of a {@link TimeStepController} that adjusts the time step based on the total
+ * "energy" of the layout, which is the sum of the squared force lengths.<br>
+ * <br>
+ * When the energy increases, the layout is assumed to overshoot, and the time step is decreased.
+ * When the energy decreased for a certain number of consecutive steps, the time step is
+ * increased. This is the adaptive cooling scheme that is commonly used in force-directed graph
+ * drawing. In order to avoid that the time step keeps on alternating around the largest stable
+ * value, the number of required steps is doubled each time that the energy increases directly
+ * after the time step has been increased.
+ */
+class EnergyTimeStepController implements TimeStepController {
+  /**
+   * The factor by which the time step is decreased, in (0,1)
+   */
+  private final double decrease;
+
+  /**
+   * The number of consecutive steps with decreasing energy after which the time step is
+   * increased
+   */
+  private final int progressSteps;
+
+  /**
+   * The current number of consecutive steps with decreasing energy after which the time step is
+   * increased
+   */
+  private int requiredProgress;
+
+  /**
+   * Whether the time step was increased, and the energy did not increase since then
+   */
+  private boolean increased;
+
+  /**
+   * The energy of the previous step
+   */
+  private double previousEnergy;
+
+  /**
+   * The number of consecutive steps in which the energy decreased
+   */
+  private int progress;
+
+  /**
+   * Creates a new instance
+   * 
+   * @param decrease
+   *          The factor by which the time step is decreased, in (0,1). The time step will be
+   *          increased by dividing it by this factor.
+   * @param progressSteps
+   *          The number of consecutive steps with decreasing energy after which the time step is
+   *          increased
+   */
+  EnergyTimeStepController(double decrease, int progressSteps) {
+    this.decrease = decrease;
+    this.progressSteps = progressSteps;
+    this.requiredProgress = progressSteps;
+    this.previousEnergy = Double.POSITIVE_INFINITY;
+    this.progress = 0;
+  }
+
+  @Override
+  public double computeTimeStep(LayoutState state, double timeStep) {
+    int n = state.size();
+    double[] forceX = state.getForcesX();
+    double[] forceY = state.getForcesY();
+    double energy = 0.0;
+    for (int i = 0; i < n; i++) {
+      double fx = forceX[i];
+      double fy = forceY[i];
+      energy += fx * fx + fy * fy;
+    }
+    double result = timeStep;
+    if (energy < previousEnergy) {
+      progress++;
+      if (progress >= requiredProgress) {
+        progress = 0;
+        increased = true;
+        result = timeStep / decrease;
+      }
+    } else {
+      progress = 0;
+      if (increased) {
+        requiredProgress = (int) Math.min(Integer.MAX_VALUE, 2L * requiredProgress);
+        increased = false;
+      }
+      result = timeStep * decrease;
+    }
+    previousEnergy = energy;
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "EnergyTimeStepController[decrease=" + decrease + ", progressSteps=" + progressSteps
+        + "]";
+  }
+}
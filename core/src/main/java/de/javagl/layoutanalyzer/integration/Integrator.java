@@ -0,0 +1,55 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.integration;
+
+import de.javagl.layoutanalyzer.Layouter;
+import de.javagl.layoutanalyzer.objects.LayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutState;
+
+/**
+ * Interface for a time integration scheme that is used by a {@link Layouter} to update the
+ * acceleration, velocity and position of the {@link LayoutObject}s, based on the forces that have
+ * been computed for them.<br>
+ * <br>
+ * Instances of this interface may be created with the {@link Integrators} class.
+ */
+public interface Integrator {
+  /**
+   * Perform the integration for the object with the given index in the given {@link LayoutState}.
+   * When this method is called, the force that acts on the object is already stored in the state.
+   * The acceleration that is stored in the state is the one that was computed in the previous
+   * step. Implementations have to update the acceleration, velocity and position of the object.
+   * 
+   * @param state
+   *          The {@link LayoutState}
+   * @param index
+   *          The index of the object
+   * @param timeStep
+   *          The time step size
+   */
+  void integrate(LayoutState state, int index, double timeStep);
+}
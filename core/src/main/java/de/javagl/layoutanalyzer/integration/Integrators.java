@@ -0,0 +1,145 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.integration;
+
+import de.javagl.layoutanalyzer.Layouter;
+
+/**
+ * Methods to create {@link Integrator} instances
+ */
+public class Integrators {
+  /**
+   * The shared overdamped integrator
+   */
+  private static final Integrator OVERDAMPED = new OverdampedIntegrator();
+
+  /**
+   * Returns an {@link Integrator} where the velocity in each step is only computed from the
+   * current acceleration, and the previous velocity is not taken into account. This is the
+   * default integrator of the {@link Layouter}.
+   * 
+   * @return The {@link Integrator}
+   */
+  public static Integrator overdamped() {
+    return OVERDAMPED;
+  }
+
+  /**
+   * Creates an {@link Integrator} using a semi-implicit Euler scheme with the given damping.
+   * 
+   * @param damping
+   *          The damping, in [0,1]. A value of 0.0 means that the velocity is not damped, and a
+   *          value of 1.0 means that the previous velocity is not taken into account at all.
+   * @return The {@link Integrator}
+   * @throws IllegalArgumentException
+   *           If the damping is not in [0,1]
+   */
+  public static Integrator dampedEuler(double damping) {
+    validateRange(damping, "damping");
+    return new DampedEulerIntegrator(damping);
+  }
+
+  /**
+   * Creates an {@link Integrator} using the velocity Verlet scheme with the given damping.
+   * 
+   * @param damping
+   *          The damping, in [0,1]. A value of 0.0 means that the velocity is not damped, and the
+   *          layout will usually not become stable.
+   * @return The {@link Integrator}
+   * @throws IllegalArgumentException
+   *           If the damping is not in [0,1]
+   */
+  public static Integrator velocityVerlet(double damping) {
+    validateRange(damping, "damping");
+    return new VelocityVerletIntegrator(damping);
+  }
+
+  /**
+   * Creates an {@link Integrator} that performs a gradient descent with heavy-ball momentum.
+   * 
+   * @param momentum
+   *          The momentum factor, in [0,1). Common values are between 0.5 and 0.9.
+   * @return The {@link Integrator}
+   * @throws IllegalArgumentException
+   *           If the momentum is not in [0,1)
+   */
+  public static Integrator heavyBall(double momentum) {
+    validateMomentum(momentum);
+    return new MomentumIntegrator(momentum, false);
+  }
+
+  /**
+   * Creates an {@link Integrator} that performs a gradient descent with Nesterov momentum.
+   * 
+   * @param momentum
+   *          The momentum factor, in [0,1). Common values are between 0.5 and 0.9.
+   * @return The {@link Integrator}
+   * @throws IllegalArgumentException
+   *           If the momentum is not in [0,1)
+   */
+  public static Integrator nesterov(double momentum) {
+    validateMomentum(momentum);
+    return new MomentumIntegrator(momentum, true);
+  }
+
+  /**
+   * Make sure that the given value is in [0,1]
+   * 
+   * @param value
+   *          The value
+   * @param name
+   *          The name of the value
+   * @throws IllegalArgumentException
+   *           If the value is not in [0,1]
+   */
+  private static void validateRange(double value, String name) {
+    if (!(value >= 0.0 && value <= 1.0)) {
+      throw new IllegalArgumentException("The " + name + " must be in [0,1], but is " + value);
+    }
+  }
+
+  /**
+   * Make sure that the given momentum is in [0,1)
+   * 
+   * @param momentum
+   *          The momentum
+   * @throws IllegalArgumentException
+   *           If the momentum is not in [0,1)
+   */
+  private static void validateMomentum(double momentum) {
+    if (!(momentum >= 0.0 && momentum < 1.0)) {
+      throw new IllegalArgumentException("The momentum must be in [0,1), but is " + momentum);
+    }
+  }
+
+  /**
+   * Private constructor to prevent instantiation
+   */
+  private Integrators() {
+    // Private constructor to prevent instantiation
+  }
+}
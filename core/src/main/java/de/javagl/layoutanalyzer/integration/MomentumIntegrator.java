@@ -0,0 +1,91 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.integration;
+
+import de.javagl.layoutanalyzer.objects.LayoutState;
+
+/**
+ * Implementation of an {@link Integrator} that treats the simulation as a gradient descent with
+ * momentum. The velocity accumulates the accelerations of the previous steps, decayed by a
+ * momentum factor. In the heavy-ball variant, the position is moved along the new velocity. In the
+ * Nesterov variant, the position is moved along the "look-ahead" velocity, which usually reduces
+ * the overshooting.
+ */
+class MomentumIntegrator implements Integrator {
+  /**
+   * The momentum factor
+   */
+  private final double momentum;
+
+  /**
+   * Whether the Nesterov variant should be used
+   */
+  private final boolean nesterov;
+
+  /**
+   * Creates a new instance
+   * 
+   * @param momentum
+   *          The momentum factor, in [0,1)
+   * @param nesterov
+   *          Whether the Nesterov variant should be used
+   */
+  MomentumIntegrator(double momentum, boolean nesterov) {
+    this.momentum = momentum;
+    this.nesterov = nesterov;
+  }
+
+  @Override
+  public void integrate(LayoutState state, int index, double timeStep) {
+    double invMass = 1.0 / state.getMasses()[index];
+    double ax = state.getForcesX()[index] * invMass;
+    double ay = state.getForcesY()[index] * invMass;
+    state.getAccelerationsX()[index] = ax;
+    state.getAccelerationsY()[index] = ay;
+
+    double gx = ax * timeStep;
+    double gy = ay * timeStep;
+    double vx = momentum * state.getVelocitiesX()[index] + gx;
+    double vy = momentum * state.getVelocitiesY()[index] + gy;
+    state.getVelocitiesX()[index] = vx;
+    state.getVelocitiesY()[index] = vy;
+
+    if (nesterov) {
+      state.getPositionsX()[index] += (momentum * vx + gx) * timeStep;
+      state.getPositionsY()[index] += (momentum * vy + gy) * timeStep;
+    } else {
+      state.getPositionsX()[index] += vx * timeStep;
+      state.getPositionsY()[index] += vy * timeStep;
+    }
+  }
+
+  @Override
+  public String toString() {
+    String name = nesterov ? "NesterovIntegrator" : "HeavyBallIntegrator";
+    return name + "[momentum=" + momentum + "]";
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.integration;
+
+import de.javagl.layoutanalyzer.objects.LayoutState;
+
+/**
+ * Implementation of a {@link TimeStepController} that compares the "swinging" and the "traction"
+ * of the objects, similar to the adaptive speed of ForceAtlas2.<br>
+ * <br>
+ * For each object, the swinging is the length of the difference between its current force and
+ * its force in the previous step, and the traction is half the length of their sum. An object
+ * that oscillates has a large swinging, and an object that moves consistently in one direction
+ * has a large traction. The sums of these values (weighted by the masses) are compared: When the
+ * swinging becomes larger than the traction multiplied with the tolerance, then the time step is
+ * decreased. Otherwise, it is increased. The time step changes by at most the maximum growth
+ * factor per step, in both directions.
+ */
+class SwingTractionTimeStepController implements TimeStepController {
+  /**
+   * The tolerance for the swinging, relative to the traction
+   */
+  private final double tolerance;
+
+  /**
+   * The maximum factor by which the time step may grow (or shrink) in one step
+   */
+  private final double maxGrowth;
+
+  /**
+   * The x-components of the forces of the previous step
+   */
+  private double[] previousForceX;
+
+  /**
+   * The y-components of the forces of the previous step
+   */
+  private double[] previousForceY;
+
+  /**
+   * The number of objects in the previous step
+   */
+  private int previousSize;
+
+  /**
+   * Creates a new instance
+   * 
+   * @param tolerance
+   *          The tolerance for the swinging, relative to the traction
+   * @param maxGrowth
+   *          The maximum factor by which the time step may grow (or shrink) in one step
+   */
+  SwingTractionTimeStepController(double tolerance, double maxGrowth) {
+    this.tolerance = tolerance;
+    this.maxGrowth = maxGrowth;
+    this.previousForceX = new double[0];
+    this.previousForceY = new double[0];
+    this.previousSize = -1;
+  }
+
+  @Override
+  public double computeTimeStep(LayoutState state, double timeStep) {
+    int n = state.size();
+    double[] forceX = state.getForcesX();
+    double[] forceY = state.getForcesY();
+    double[] mass = state.getMasses();
+    boolean comparable = n == previousSize;
+    if (previousForceX.length < n) {
+      previousForceX = new double[n];
+      previousForceY = new double[n];
+    }
+    double swinging = 0.0;
+    double traction = 0.0;
+    for (int i = 0; i < n; i++) {
+      double fx = forceX[i];
+      double fy = forceY[i];
+      double px = previousForceX[i];
+      double py = previousForceY[i];
+      double sx = fx - px;
+      double sy = fy - py;
+      double tx = fx + px;
+      double ty = fy + py;
+      swinging += mass[i] * Math.sqrt(sx * sx + sy * sy);
+      traction += mass[i] * 0.5 * Math.sqrt(tx * tx + ty * ty);
+      previousForceX[i] = fx;
+      previousForceY[i] = fy;
+    }
+    previousSize = n;
+    if (!comparable || traction == 0.0) {
+      return timeStep;
+    }
+    if (swinging == 0.0) {
+      return timeStep * maxGrowth;
+    }
+    double factor = tolerance * traction / swinging;
+    factor = Math.max(1.0 / maxGrowth, Math.min(maxGrowth, factor));
+    return timeStep * factor;
+  }
+
+  @Override
+  public String toString() {
+    return "SwingTractionTimeStepController[tolerance=" + tolerance + ", maxGrowth=" + maxGrowth
+        + "]";
+  }
+}
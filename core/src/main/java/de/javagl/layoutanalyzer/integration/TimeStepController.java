@@ -0,0 +1,55 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.integration;
+
+import de.javagl.layoutanalyzer.Layouter;
+import de.javagl.layoutanalyzer.objects.LayoutState;
+
+/**
+ * Interface for classes that adjust the time step size of a {@link Layouter}, based on global
+ * quantities that are measured in each step.<br>
+ * <br>
+ * Instances of this interface may be created with the {@link TimeStepControllers} class. An
+ * instance may store information about previous steps, and should therefore only be used by a
+ * single {@link Layouter}.
+ */
+public interface TimeStepController {
+  /**
+   * Compute the time step size that should be used for the current step. When this method is
+   * called, the forces for the current step are stored in the given {@link LayoutState}, and the
+   * velocities and accelerations are still the ones from the previous step.<br>
+   * <br>
+   * The {@link Layouter} will clamp the returned value to its time step bounds.
+   * 
+   * @param state
+   *          The {@link LayoutState}
+   * @param timeStep
+   *          The time step size that was used in the previous step
+   * @return The time step size for the current step
+   */
+  double computeTimeStep(LayoutState state, double timeStep);
+}
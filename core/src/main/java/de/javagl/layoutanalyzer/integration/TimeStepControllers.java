@@ -0,0 +1,92 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.integration;
+
+/**
+ * Methods to create {@link TimeStepController} instances
+ */
+public class TimeStepControllers {
+  /**
+   * Creates a {@link TimeStepController} that compares the "swinging" (the change of the forces
+   * between two steps) and the "traction" (the consistent part of the forces) of all objects,
+   * similar to the adaptive speed of ForceAtlas2. The time step is decreased when the swinging
+   * exceeds the traction multiplied with the given tolerance, and increased otherwise.
+   * 
+   * @param tolerance
+   *          The tolerance for the swinging, relative to the traction. Common values are
+   *          between 0.5 and 2.0. Larger values allow larger time steps.
+   * @param maxGrowth
+   *          The maximum factor by which the time step may grow or shrink in one step. This must
+   *          be greater than 1.0. A common value is 1.5.
+   * @return The {@link TimeStepController}
+   * @throws IllegalArgumentException
+   *           If the tolerance is not positive, or the maximum growth is not greater than 1.0
+   */
+  public static TimeStepController swingTraction(double tolerance, double maxGrowth) {
+    if (!(tolerance > 0.0)) {
+      throw new IllegalArgumentException("The tolerance must be positive, but is " + tolerance);
+    }
+    if (!(maxGrowth > 1.0)) {
+      throw new IllegalArgumentException(
+          "The maximum growth must be greater than 1.0, but is " + maxGrowth);
+    }
+    return new SwingTractionTimeStepController(tolerance, maxGrowth);
+  }
+
+  /**
+   * Creates a {@link TimeStepController} that observes the total energy of the layout, which is
+   * the sum of the squared force lengths. The time step is multiplied with the given decrease
+   * factor when the energy increases, and divided by this factor when the energy decreased in the
+   * given number of consecutive steps.
+   * 
+   * @param decrease
+   *          The decrease factor, in (0,1). A common value is 0.9.
+   * @param progressSteps
+   *          The number of steps with decreasing energy after which the time step is increased.
+   *          A common value is 5.
+   * @return The {@link TimeStepController}
+   * @throws IllegalArgumentException
+   *           If the decrease factor is not in (0,1), or the number of steps is not positive
+   */
+  public static TimeStepController energy(double decrease, int progressSteps) {
+    if (!(decrease > 0.0 && decrease < 1.0)) {
+      throw new IllegalArgumentException("The decrease must be in (0,1), but is " + decrease);
+    }
+    if (progressSteps <= 0) {
+      throw new IllegalArgumentException(
+          "The progress steps must be positive, but are " + progressSteps);
+    }
+    return new EnergyTimeStepController(decrease, progressSteps);
+  }
+
+  /**
+   * Private constructor to prevent instantiation
+   */
+  private TimeStepControllers() {
+    // Private constructor to prevent instantiation
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.integration;
+
+import de.javagl.layoutanalyzer.objects.LayoutState;
+
+/**
+ * Implementation of an {@link Integrator} using the velocity Verlet scheme with damping.<br>
+ * <br>
+ * The forces are computed once per step, for the current positions. So each step first completes
+ * the velocity update of the previous step, using the average of the previous acceleration (that
+ * is stored in the state) and the current one, and then updates the position with the current
+ * velocity and acceleration.
+ */
+class VelocityVerletIntegrator implements Integrator {
+  /**
+   * The factor that the velocity is multiplied with in each step
+   */
+  private final double retention;
+
+  /**
+   * Creates a new instance
+   * 
+   * @param damping
+   *          The damping, in [0,1]. A value of 0.0 means that the velocity is not damped, and a
+   *          value of 1.0 means that the previous velocity is not taken into account at all.
+   */
+  VelocityVerletIntegrator(double damping) {
+    this.retention = 1.0 - damping;
+  }
+
+  @Override
+  public void integrate(LayoutState state, int index, double timeStep) {
+    double invMass = 1.0 / state.getMasses()[index];
+    double ax = state.getForcesX()[index] * invMass;
+    double ay = state.getForcesY()[index] * invMass;
+    double previousAx = state.getAccelerationsX()[index];
+    double previousAy = state.getAccelerationsY()[index];
+    state.getAccelerationsX()[index] = ax;
+    state.getAccelerationsY()[index] = ay;
+
+    double halfTimeStep = 0.5 * timeStep;
+    double vx = state.getVelocitiesX()[index] + (previousAx + ax) * halfTimeStep;
+    double vy = state.getVelocitiesY()[index] + (previousAy + ay) * halfTimeStep;
+    vx *= retention;
+    vy *= retention;
+    state.getVelocitiesX()[index] = vx;
+    state.getVelocitiesY()[index] = vy;
+
+    state.getPositionsX()[index] += (vx + ax * halfTimeStep) * timeStep;
+    state.getPositionsY()[index] += (vy + ay * halfTimeStep) * timeStep;
+  }
+
+  @Override
+  public String toString() {
+    return "VelocityVerletIntegrator[damping=" + (1.0 - retention) + "]";
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.kernels;
+
+/**
+ * Interface for kernels that compute the pairwise forces between one object and a contiguous
+ * range of other objects. The objects are given by their indices in primitive arrays. The forces
+ * of all objects are added to the given force arrays, where the force of the first object is
+ * the negated sum of the forces of the others.<br>
+ * <br>
+ * The {@link ForceKernels#getScalar() scalar} implementation defines the reference results.
+ * Other implementations, for example, ones that process several objects at once with SIMD
+ * instructions, may be provided as a service (see {@link ForceKernels#getDefault()}). Their
+ * results may differ from the reference results only by rounding errors.<br>
+ * <br>
+ * Implementations must be stateless, so that they can be used concurrently with different
+ * force arrays.
+ */
+public interface ForceKernel {
+  /**
+   * Compute the repulsion forces between the object i and the objects in the given range. Two
+   * objects whose distance is smaller than the repulsion distance are each pushed away from the
+   * other by half of the difference.
+   * 
+   * @param i
+   *          The index of the first object
+   * @param jStart
+   *          The index of the first other object, inclusive. The range of the other objects
+   *          must not contain the first object.
+   * @param jEnd
+   *          The index of the last other object, exclusive
+   * @param x
+   *          The x-coordinates of the positions
+   * @param y
+   *          The y-coordinates of the positions
+   * @param repulsionDistance
+   *          The repulsion distance
+   * @param forceX
+   *          The x-components of the forces
+   * @param forceY
+   *          The y-components of the forces
+   */
+  void computeRepulsionRow(int i, int jStart, int jEnd, double[] x, double[] y,
+      double repulsionDistance, double[] forceX, double[] forceY);
+
+  /**
+   * Compute the forces that push the bounds of the object i and the bounds of the objects in the
+   * given range apart, along the axis with the smaller overlap. Each of the two objects is moved
+   * by half of the overlap.
+   * 
+   * @param i
+   *          The index of the first object
+   * @param jStart
+   *          The index of the first other object, inclusive. The range of the other objects
+   *          must not contain the first object.
+   * @param jEnd
+   *          The index of the last other object, exclusive
+   * @param minX
+   *          The minimum x-coordinates of the bounds
+   * @param minY
+   *          The minimum y-coordinates of the bounds
+   * @param maxX
+   *          The maximum x-coordinates of the bounds
+   * @param maxY
+   *          The maximum y-coordinates of the bounds
+   * @param forceX
+   *          The x-components of the forces
+   * @param forceY
+   *          The y-components of the forces
+   */
+  void computeShapeBoundsRow(int i, int jStart, int jEnd, double[] minX, double[] minY,
+      double[] maxX, double[] maxY, double[] forceX, double[] forceY);
+}
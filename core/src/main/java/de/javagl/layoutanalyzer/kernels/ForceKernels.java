@@ -0,0 +1,135 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.kernels;
+
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Methods to obtain {@link ForceKernel} instances
+ */
+public class ForceKernels {
+  /**
+   * The logger used in this class
+   */
+  private static final Logger logger = Logger.getLogger(ForceKernels.class.getName());
+
+  /**
+   * The name of the system property that, when it is set to <code>true</code>, causes the
+   * {@link #getDefault() default} kernel to be the {@link #getScalar() scalar} one
+   */
+  public static final String SCALAR_PROPERTY = "de.javagl.layoutanalyzer.kernels.scalar";
+
+  /**
+   * The scalar kernel
+   */
+  private static final ForceKernel SCALAR = new ScalarForceKernel();
+
+  /**
+   * The default kernel, which is determined lazily
+   */
+  private static volatile ForceKernel defaultKernel;
+
+  /**
+   * Returns the scalar {@link ForceKernel}, which defines the reference results, and which is
+   * available on all platforms
+   * 
+   * @return The scalar {@link ForceKernel}
+   */
+  public static ForceKernel getScalar() {
+    return SCALAR;
+  }
+
+  /**
+   * Returns the default {@link ForceKernel}. This is the first {@link ForceKernel} that is
+   * provided as a service via the {@link ServiceLoader} and that can be instantiated, for
+   * example, the vectorized kernel from the optional <code>simd</code> module. If no such kernel
+   * is available, or the {@link #SCALAR_PROPERTY} is set to <code>true</code>, then this is the
+   * {@link #getScalar() scalar} kernel.
+   * 
+   * @return The default {@link ForceKernel}
+   */
+  public static ForceKernel getDefault() {
+    ForceKernel kernel = defaultKernel;
+    if (kernel == null) {
+      kernel = loadDefault();
+      defaultKernel = kernel;
+    }
+    return kernel;
+  }
+
+  /**
+   * Determine the default {@link ForceKernel}, as described in {@link #getDefault()}
+   * 
+   * @return The default {@link ForceKernel}
+   */
+  private static ForceKernel loadDefault() {
+    if (Boolean.getBoolean(SCALAR_PROPERTY)) {
+      return SCALAR;
+    }
+    Iterator<ForceKernel> iterator = ServiceLoader.load(ForceKernel.class).iterator();
+    while (hasNext(iterator)) {
+      try {
+        ForceKernel kernel = iterator.next();
+        logger.fine("Using force kernel " + kernel.getClass().getName());
+        return kernel;
+      } catch (ServiceConfigurationError | LinkageError e) {
+        // This happens, for example, when the vectorized kernel is on the class path, but the
+        // incubator module was not added to the JVM
+        logger.log(Level.FINE, "Could not load force kernel", e);
+      }
+    }
+    return SCALAR;
+  }
+
+  /**
+   * Returns whether the given service iterator has another element, returning
+   * <code>false</code> if the service configuration is invalid
+   * 
+   * @param iterator
+   *          The iterator
+   * @return Whether there is another element
+   */
+  private static boolean hasNext(Iterator<ForceKernel> iterator) {
+    try {
+      return iterator.hasNext();
+    } catch (ServiceConfigurationError e) {
+      logger.log(Level.FINE, "Invalid force kernel configuration", e);
+      return false;
+    }
+  }
+
+  /**
+   * Private constructor to prevent instantiation
+   */
+  private ForceKernels() {
+    // Private constructor to prevent instantiation
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.kernels;
+
+import de.javagl.layoutanalyzer.utils.Disjoins;
+
+/**
+ * The scalar reference implementation of a {@link ForceKernel}
+ */
+final class ScalarForceKernel implements ForceKernel {
+  /**
+   * An epsilon for "reasonable" distances between objects
+   */
+  private static final double EPSILON = 1e-8;
+
+  @Override
+  public void computeRepulsionRow(int i, int jStart, int jEnd, double[] x, double[] y,
+      double repulsionDistance, double[] forceX, double[] forceY) {
+    double x0 = x[i];
+    double y0 = y[i];
+    for (int j = jStart; j < jEnd; j++) {
+      double dx = x[j] - x0;
+      double dy = y[j] - y0;
+      double distance = Math.sqrt(dx * dx + dy * dy);
+      if (distance < repulsionDistance) {
+        double directionX;
+        double directionY;
+        if (distance < EPSILON) {
+          directionX = 1.0;
+          directionY = 0.0;
+          distance = 1.0;
+        } else {
+          double invDistance = 1.0 / distance;
+          directionX = dx * invDistance;
+          directionY = dy * invDistance;
+        }
+        double factor = (repulsionDistance - distance) * 0.5;
+        forceX[i] -= factor * directionX;
+        forceY[i] -= factor * directionY;
+        forceX[j] += factor * directionX;
+        forceY[j] += factor * directionY;
+      }
+    }
+  }
+
+  @Override
+  public void computeShapeBoundsRow(int i, int jStart, int jEnd, double[] minX, double[] minY,
+      double[] maxX, double[] maxY, double[] forceX, double[] forceY) {
+    for (int j = jStart; j < jEnd; j++) {
+      double dx = Disjoins.computeMinDisjoinMovement(minX[i], maxX[i], minX[j], maxX[j]);
+      double dy = Disjoins.computeMinDisjoinMovement(minY[i], maxY[i], minY[j], maxY[j]);
+      if (Math.abs(dx) < Math.abs(dy)) {
+        dy = 0.0;
+      } else {
+        dx = 0.0;
+      }
+      forceX[i] += 0.5 * dx;
+      forceY[i] += 0.5 * dy;
+      forceX[j] -= 0.5 * dx;
+      forceY[j] -= 0.5 * dy;
+    }
+  }
+}
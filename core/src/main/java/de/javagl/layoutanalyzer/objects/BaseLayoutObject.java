@@ -27,27 +27,33 @@ package de.javagl.layoutanalyzer.objects;
 
 import java.awt.Shape;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 
 /**
  * An {@link LayoutObject} with default configuration.
  * 
  * Every parameter of the object is reachable by the outsite world via getter and setter methods.
+ * 
+ * The simulation values (position, velocity, acceleration, force and mass) and the local bounds
+ * of the shape are stored in a
+ * {@link LayoutState}. When the object is added to a {@link LayoutState}, it becomes a view on the
+ * respective entries of this state. Otherwise, it uses a private state for a single object.
  */
 public class BaseLayoutObject implements LayoutObject {
 
   private String label;
-  private final Point2D position = new Point2D.Double();
-  private final Point2D velocity = new Point2D.Double();
-  private final Point2D acceleration = new Point2D.Double();
-  private final Point2D force = new Point2D.Double();
-  private double mass = 1.0;
   private Shape shape;
 
+  /**
+   * The slot in the {@link LayoutState} that currently stores the values of this object
+   */
+  private Slot slot;
+
   /**
    * Creates a new object an empty label
    */
   public BaseLayoutObject() {
-    this.label = "";
+    this("");
   }
 
   /**
@@ -58,6 +64,49 @@ public class BaseLayoutObject implements LayoutObject {
    */
   public BaseLayoutObject(String label) {
     this.label = label;
+    this.slot = new Slot(LayoutState.createSingle(this), 0);
+  }
+
+  /**
+   * Let this object become a view on the given index of the given {@link LayoutState}
+   * 
+   * @param state
+   *          The {@link LayoutState}
+   * @param index
+   *          The index
+   */
+  void attach(LayoutState state, int index) {
+    this.slot = new Slot(state, index);
+  }
+
+  /**
+   * Returns whether this object is currently a view on the given {@link LayoutState}
+   * 
+   * @param state
+   *          The {@link LayoutState}
+   * @return Whether this object is backed by the given state
+   */
+  boolean isBackedBy(LayoutState state) {
+    return slot.state == state;
+  }
+
+  /**
+   * Returns whether this object is currently backed by its own, private {@link LayoutState}, which
+   * means that it is not contained in any other state
+   * 
+   * @return Whether this object is backed by a single state
+   */
+  boolean isBackedBySingle() {
+    return slot.state.isSingle();
+  }
+
+  /**
+   * Returns the index of this object in the {@link LayoutState} that it is currently backed by
+   * 
+   * @return The index
+   */
+  int getIndex() {
+    return slot.index;
   }
 
   @Override
@@ -72,71 +121,177 @@ public class BaseLayoutObject implements LayoutObject {
 
   @Override
   public void setPosition(Point2D position) {
-    this.position.setLocation(position);
+    setPosition(position.getX(), position.getY());
   }
 
+  @Override
   public void setPosition(double x, double y) {
-    this.position.setLocation(x, y);
+    Slot s = slot;
+    s.state.positionX[s.index] = x;
+    s.state.positionY[s.index] = y;
+    if (s.state.sleeping[s.index]) {
+      s.state.setSleeping(s.index, false);
+    }
   }
 
   @Override
   public Point2D getPosition() {
-    return new Point2D.Double(position.getX(), position.getY());
+    Slot s = slot;
+    return new Point2D.Double(s.state.positionX[s.index], s.state.positionY[s.index]);
+  }
+
+  @Override
+  public double getPositionX() {
+    Slot s = slot;
+    return s.state.positionX[s.index];
+  }
+
+  @Override
+  public double getPositionY() {
+    Slot s = slot;
+    return s.state.positionY[s.index];
+  }
+
+  @Override
+  public Point2D getPosition(Point2D result) {
+    if (result == null) {
+      result = new Point2D.Double();
+    }
+    Slot s = slot;
+    result.setLocation(s.state.positionX[s.index], s.state.positionY[s.index]);
+    return result;
   }
 
   @Override
   public void setVelocity(Point2D velocity) {
-    this.velocity.setLocation(velocity);
+    setVelocity(velocity.getX(), velocity.getY());
   }
 
   @Override
   public void setVelocity(double x, double y) {
-    this.velocity.setLocation(x, y);
+    Slot s = slot;
+    s.state.velocityX[s.index] = x;
+    s.state.velocityY[s.index] = y;
   }
 
   @Override
   public Point2D getVelocity() {
-    return new Point2D.Double(velocity.getX(), velocity.getY());
+    Slot s = slot;
+    return new Point2D.Double(s.state.velocityX[s.index], s.state.velocityY[s.index]);
+  }
+
+  @Override
+  public double getVelocityX() {
+    Slot s = slot;
+    return s.state.velocityX[s.index];
+  }
+
+  @Override
+  public double getVelocityY() {
+    Slot s = slot;
+    return s.state.velocityY[s.index];
+  }
+
+  @Override
+  public Point2D getVelocity(Point2D result) {
+    if (result == null) {
+      result = new Point2D.Double();
+    }
+    Slot s = slot;
+    result.setLocation(s.state.velocityX[s.index], s.state.velocityY[s.index]);
+    return result;
   }
 
   @Override
   public void setAcceleration(Point2D acceleration) {
-    this.acceleration.setLocation(acceleration);
+    setAcceleration(acceleration.getX(), acceleration.getY());
   }
 
   @Override
   public void setAcceleration(double x, double y) {
-    this.acceleration.setLocation(x, y);
+    Slot s = slot;
+    s.state.accelerationX[s.index] = x;
+    s.state.accelerationY[s.index] = y;
   }
 
   @Override
   public Point2D getAcceleration() {
-    return new Point2D.Double(acceleration.getX(), acceleration.getY());
+    Slot s = slot;
+    return new Point2D.Double(s.state.accelerationX[s.index], s.state.accelerationY[s.index]);
+  }
+
+  @Override
+  public double getAccelerationX() {
+    Slot s = slot;
+    return s.state.accelerationX[s.index];
+  }
+
+  @Override
+  public double getAccelerationY() {
+    Slot s = slot;
+    return s.state.accelerationY[s.index];
+  }
+
+  @Override
+  public Point2D getAcceleration(Point2D result) {
+    if (result == null) {
+      result = new Point2D.Double();
+    }
+    Slot s = slot;
+    result.setLocation(s.state.accelerationX[s.index], s.state.accelerationY[s.index]);
+    return result;
   }
 
   @Override
   public void setForce(Point2D force) {
-    this.force.setLocation(force);
+    setForce(force.getX(), force.getY());
   }
 
   @Override
   public void setForce(double x, double y) {
-    this.force.setLocation(x, y);
+    Slot s = slot;
+    s.state.forceX[s.index] = x;
+    s.state.forceY[s.index] = y;
   }
 
   @Override
   public Point2D getForce() {
-    return new Point2D.Double(force.getX(), force.getY());
+    Slot s = slot;
+    return new Point2D.Double(s.state.forceX[s.index], s.state.forceY[s.index]);
+  }
+
+  @Override
+  public double getForceX() {
+    Slot s = slot;
+    return s.state.forceX[s.index];
+  }
+
+  @Override
+  public double getForceY() {
+    Slot s = slot;
+    return s.state.forceY[s.index];
+  }
+
+  @Override
+  public Point2D getForce(Point2D result) {
+    if (result == null) {
+      result = new Point2D.Double();
+    }
+    Slot s = slot;
+    result.setLocation(s.state.forceX[s.index], s.state.forceY[s.index]);
+    return result;
   }
 
   @Override
   public double getMass() {
-    return mass;
+    Slot s = slot;
+    return s.state.mass[s.index];
   }
 
   @Override
   public void setMass(double mass) {
-    this.mass = mass;
+    Slot s = slot;
+    s.state.mass[s.index] = mass;
   }
 
   @Override
@@ -144,8 +299,58 @@ public class BaseLayoutObject implements LayoutObject {
     return shape;
   }
 
+  /**
+   * {@inheritDoc}<br>
+   * <br>
+   * The bounds of the shape are computed once and stored in the {@link LayoutState}, where they
+   * are available as primitive values. When the shape object is modified afterwards, then this
+   * method has to be called again, in order to update the bounds.
+   */
   @Override
   public void setShape(Shape shape) {
     this.shape = shape;
+    Slot s = slot;
+    s.state.setLocalShapeBounds(s.index, shape);
+  }
+
+  @Override
+  public Rectangle2D getShapeBounds() {
+    Slot s = slot;
+    LayoutState state = s.state;
+    int index = s.index;
+    double minX = state.positionX[index] + state.localMinX[index];
+    double minY = state.positionY[index] + state.localMinY[index];
+    double maxX = state.positionX[index] + state.localMaxX[index];
+    double maxY = state.positionY[index] + state.localMaxY[index];
+    return new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY);
+  }
+
+  /**
+   * The combination of a {@link LayoutState} and an index. This is replaced as a whole, so that
+   * concurrent readers never see a state together with an index that belongs to another state.
+   */
+  private static final class Slot {
+    /**
+     * The {@link LayoutState}
+     */
+    private final LayoutState state;
+
+    /**
+     * The index in the state
+     */
+    private final int index;
+
+    /**
+     * Creates a new slot
+     * 
+     * @param state
+     *          The {@link LayoutState}
+     * @param index
+     *          The index
+     */
+    Slot(LayoutState state, int index) {
+      this.state = state;
+      this.index = index;
+    }
   }
 }
@@ -26,7 +26,6 @@
 package de.javagl.layoutanalyzer.objects;
 
 import java.awt.Shape;
-import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 
@@ -75,6 +74,50 @@ public interface LayoutObject {
    */
   public Point2D getPosition();
 
+  /**
+   * Returns the x-component of the position of this object.<br>
+   * <br>
+   * The default implementation returns the x-component of {@link #getPosition()}. Implementations
+   * should override this method to return the value without creating a new object.
+   *
+   * @return The x-component of the position
+   */
+  public default double getPositionX() {
+    return getPosition().getX();
+  }
+
+  /**
+   * Returns the y-component of the position of this object.<br>
+   * <br>
+   * The default implementation returns the y-component of {@link #getPosition()}. Implementations
+   * should override this method to return the value without creating a new object.
+   *
+   * @return The y-component of the position
+   */
+  public default double getPositionY() {
+    return getPosition().getY();
+  }
+
+  /**
+   * Store the position of this object in the given point. If the given point is <code>null</code>,
+   * then a new point will be created and returned.<br>
+   * <br>
+   * The default implementation uses {@link #getPosition()}. Implementations should override this
+   * method to store the value without creating a new object.
+   *
+   * @param result
+   *          The point that will store the result
+   * @return The result point
+   */
+  public default Point2D getPosition(Point2D result) {
+    Point2D position = getPosition();
+    if (result == null) {
+      return position;
+    }
+    result.setLocation(position);
+    return result;
+  }
+
   /**
    * Set the velocity of this object to be the same as the given velocity
    *
@@ -100,6 +143,50 @@ public interface LayoutObject {
    */
   public Point2D getVelocity();
 
+  /**
+   * Returns the x-component of the velocity of this object.<br>
+   * <br>
+   * The default implementation returns the x-component of {@link #getVelocity()}. Implementations
+   * should override this method to return the value without creating a new object.
+   *
+   * @return The x-component of the velocity
+   */
+  public default double getVelocityX() {
+    return getVelocity().getX();
+  }
+
+  /**
+   * Returns the y-component of the velocity of this object.<br>
+   * <br>
+   * The default implementation returns the y-component of {@link #getVelocity()}. Implementations
+   * should override this method to return the value without creating a new object.
+   *
+   * @return The y-component of the velocity
+   */
+  public default double getVelocityY() {
+    return getVelocity().getY();
+  }
+
+  /**
+   * Store the velocity of this object in the given point. If the given point is <code>null</code>,
+   * then a new point will be created and returned.<br>
+   * <br>
+   * The default implementation uses {@link #getVelocity()}. Implementations should override this
+   * method to store the value without creating a new object.
+   *
+   * @param result
+   *          The point that will store the result
+   * @return The result point
+   */
+  public default Point2D getVelocity(Point2D result) {
+    Point2D velocity = getVelocity();
+    if (result == null) {
+      return velocity;
+    }
+    result.setLocation(velocity);
+    return result;
+  }
+
   /**
    * Set the acceleration of this object to be the same as the given acceleration
    *
@@ -125,6 +212,52 @@ public interface LayoutObject {
    */
   public Point2D getAcceleration();
 
+  /**
+   * Returns the x-component of the acceleration of this object.<br>
+   * <br>
+   * The default implementation returns the x-component of {@link #getAcceleration()}.
+   * Implementations should override this method to return the value without creating a new
+   * object.
+   *
+   * @return The x-component of the acceleration
+   */
+  public default double getAccelerationX() {
+    return getAcceleration().getX();
+  }
+
+  /**
+   * Returns the y-component of the acceleration of this object.<br>
+   * <br>
+   * The default implementation returns the y-component of {@link #getAcceleration()}.
+   * Implementations should override this method to return the value without creating a new
+   * object.
+   *
+   * @return The y-component of the acceleration
+   */
+  public default double getAccelerationY() {
+    return getAcceleration().getY();
+  }
+
+  /**
+   * Store the acceleration of this object in the given point. If the given point is
+   * <code>null</code>, then a new point will be created and returned.<br>
+   * <br>
+   * The default implementation uses {@link #getAcceleration()}. Implementations should override
+   * this method to store the value without creating a new object.
+   *
+   * @param result
+   *          The point that will store the result
+   * @return The result point
+   */
+  public default Point2D getAcceleration(Point2D result) {
+    Point2D acceleration = getAcceleration();
+    if (result == null) {
+      return acceleration;
+    }
+    result.setLocation(acceleration);
+    return result;
+  }
+
   /**
    * Set the force of this object to be the same as the given force
    *
@@ -150,6 +283,50 @@ public interface LayoutObject {
    */
   public Point2D getForce();
 
+  /**
+   * Returns the x-component of the force of this object.<br>
+   * <br>
+   * The default implementation returns the x-component of {@link #getForce()}. Implementations
+   * should override this method to return the value without creating a new object.
+   *
+   * @return The x-component of the force
+   */
+  public default double getForceX() {
+    return getForce().getX();
+  }
+
+  /**
+   * Returns the y-component of the force of this object.<br>
+   * <br>
+   * The default implementation returns the y-component of {@link #getForce()}. Implementations
+   * should override this method to return the value without creating a new object.
+   *
+   * @return The y-component of the force
+   */
+  public default double getForceY() {
+    return getForce().getY();
+  }
+
+  /**
+   * Store the force of this object in the given point. If the given point is <code>null</code>,
+   * then a new point will be created and returned.<br>
+   * <br>
+   * The default implementation uses {@link #getForce()}. Implementations should override this
+   * method to store the value without creating a new object.
+   *
+   * @param result
+   *          The point that will store the result
+   * @return The result point
+   */
+  public default Point2D getForce(Point2D result) {
+    Point2D force = getForce();
+    if (result == null) {
+      return force;
+    }
+    result.setLocation(force);
+    return result;
+  }
+
   /**
    * Returns the mass of this object
    * 
@@ -180,6 +357,25 @@ public interface LayoutObject {
    */
   public void setShape(Shape shape);
 
+  /**
+   * Returns the bounds of the {@link #getShape() shape} of this object, in the local coordinate
+   * system of the object, meaning that they are not translated based on the
+   * {@link #getPosition() position}. If the shape is <code>null</code>, then the bounds are an
+   * empty rectangle at the origin.<br>
+   * <br>
+   * Implementations may cache these bounds, and only update them when {@link #setShape(Shape)} is
+   * called.
+   * 
+   * @return The local shape bounds
+   */
+  public default Rectangle2D getLocalShapeBounds() {
+    Shape shape = getShape();
+    if (shape == null) {
+      return new Rectangle2D.Double();
+    }
+    return shape.getBounds2D();
+  }
+
   /**
    * Returns the bounds of the {@link #getShape() shape} of this object, translated based on the
    * current {@link #getPosition() position}
@@ -188,8 +384,11 @@ public interface LayoutObject {
    */
   public default Rectangle2D getShapeBounds() {
     Point2D position = getPosition();
-    AffineTransform at = AffineTransform.getTranslateInstance(position.getX(), position.getY());
-    Shape paintedShape0 = at.createTransformedShape(getShape());
-    return paintedShape0.getBounds2D();
+    Rectangle2D localBounds = getLocalShapeBounds();
+    double minX = position.getX() + localBounds.getMinX();
+    double minY = position.getY() + localBounds.getMinY();
+    double maxX = position.getX() + localBounds.getMaxX();
+    double maxY = position.getY() + localBounds.getMaxY();
+    return new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY);
   }
 }
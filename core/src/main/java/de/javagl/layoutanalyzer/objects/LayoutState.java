@@ -0,0 +1,924 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.objects;
+
+import java.awt.Shape;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A packed store for the simulation state of a set of {@link LayoutObject}s.<br>
+ * <br>
+ * The position, velocity, acceleration, force and mass of the objects are stored in primitive
+ * arrays ("columns"), where each object is identified by a dense index in [0, {@link #size()}).
+ * The order of the indices is the order in which the objects have been added. A
+ * {@link #setMaxSpeed(int, double) maximum speed} may be stored for each object, which limits
+ * its movement in the simulation.<br>
+ * <br>
+ * {@link BaseLayoutObject} instances that are added to a state become <i>views</i> on the
+ * respective entries of the arrays: Their getters and setters directly read and write the
+ * columns. A {@link BaseLayoutObject} is backed by at most one state at a time. When it is
+ * removed, it receives a private copy of its current values.<br>
+ * <br>
+ * The local bounds of the shapes of the objects (see {@link LayoutObject#getLocalShapeBounds()})
+ * are stored as well. The bounds of the shapes at the current positions can be computed for all
+ * objects at once with {@link #updateShapeBounds()}, which is done once per step by the
+ * simulation, so that aspects can read them from primitive arrays.<br>
+ * <br>
+ * Other {@link LayoutObject} implementations are supported as well. Their values are copied
+ * into the columns with {@link #pull()}, and written back with {@link #push()}. The same applies
+ * to a {@link BaseLayoutObject} that is already backed by another state when it is added, and to
+ * the further entries of a {@link BaseLayoutObject} that is added to the same state more than
+ * once. Such objects may thus be shared between several states.<br>
+ * <br>
+ * Objects may be put to <i>sleep</i> with {@link #setSleeping(int, boolean)}. A sleeping object
+ * is not moved by the simulation, and aspects may treat it as a static source of forces: The
+ * interactions between two sleeping objects do not change, and do not have to be computed
+ * again. Sleeping {@link BaseLayoutObject}s are woken up when they are moved with
+ * {@link BaseLayoutObject#setPosition(double, double)}, and all objects are woken up when an
+ * object is added or removed.
+ * <br>
+ * <br>
+ * The arrays that are returned by the <code>get...s</code> methods are the live arrays. Only
+ * the first {@link #size()} elements are valid, and the arrays may be replaced by larger ones
+ * when objects are added. Structural modifications and bulk updates of the arrays should be
+ * performed while holding the monitor of this object.
+ */
+public final class LayoutState {
+  /**
+   * The default initial capacity
+   */
+  private static final int DEFAULT_CAPACITY = 16;
+
+  /**
+   * The {@link LayoutObject}s, indexed by their dense index
+   */
+  private LayoutObject[] layoutObjects;
+
+  /**
+   * The number of objects in this state
+   */
+  private int size;
+
+  /**
+   * The number of objects that are not backed by this state
+   */
+  private int foreignCount;
+
+  /**
+   * Whether this is a state that was created with {@link #createSingle(LayoutObject)}, which only
+   * stores the values of a {@link BaseLayoutObject} that is not contained in any other state
+   */
+  private boolean single;
+
+  /**
+   * The number of sleeping objects
+   */
+  private int sleepingCount;
+
+  /**
+   * A counter that is incremented whenever the set of sleeping objects or the set of objects
+   * changes
+   */
+  private int sleepVersion;
+
+  /**
+   * The x-components of the positions
+   */
+  double[] positionX;
+
+  /**
+   * The y-components of the positions
+   */
+  double[] positionY;
+
+  /**
+   * The x-components of the velocities
+   */
+  double[] velocityX;
+
+  /**
+   * The y-components of the velocities
+   */
+  double[] velocityY;
+
+  /**
+   * The x-components of the accelerations
+   */
+  double[] accelerationX;
+
+  /**
+   * The y-components of the accelerations
+   */
+  double[] accelerationY;
+
+  /**
+   * The x-components of the forces
+   */
+  double[] forceX;
+
+  /**
+   * The y-components of the forces
+   */
+  double[] forceY;
+
+  /**
+   * The masses
+   */
+  double[] mass;
+
+  /**
+   * The maximum speeds
+   */
+  private double[] maxSpeed;
+
+  /**
+   * The minimum x-coordinates of the local shape bounds
+   */
+  double[] localMinX;
+
+  /**
+   * The minimum y-coordinates of the local shape bounds
+   */
+  double[] localMinY;
+
+  /**
+   * The maximum x-coordinates of the local shape bounds
+   */
+  double[] localMaxX;
+
+  /**
+   * The maximum y-coordinates of the local shape bounds
+   */
+  double[] localMaxY;
+
+  /**
+   * The minimum x-coordinates of the shape bounds, as of the last {@link #updateShapeBounds()}
+   */
+  private double[] shapeMinX;
+
+  /**
+   * The minimum y-coordinates of the shape bounds, as of the last {@link #updateShapeBounds()}
+   */
+  private double[] shapeMinY;
+
+  /**
+   * The maximum x-coordinates of the shape bounds, as of the last {@link #updateShapeBounds()}
+   */
+  private double[] shapeMaxX;
+
+  /**
+   * The maximum y-coordinates of the shape bounds, as of the last {@link #updateShapeBounds()}
+   */
+  private double[] shapeMaxY;
+
+  /**
+   * The point that receives the values of a {@link LayoutObject} in
+   * {@link #load(int, LayoutObject)}, which is only called while holding the monitor of this state
+   */
+  private final Point2D loadPoint = new Point2D.Double();
+
+  /**
+   * The flags indicating whether the objects are sleeping
+   */
+  boolean[] sleeping;
+
+  /**
+   * The number of consecutive steps in which the objects have been calm
+   */
+  int[] calmSteps;
+
+  /**
+   * The x-components of the reference forces of sleeping objects
+   */
+  double[] referenceForceX;
+
+  /**
+   * The y-components of the reference forces of sleeping objects
+   */
+  double[] referenceForceY;
+
+  /**
+   * Creates a new, empty state
+   */
+  public LayoutState() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Creates a new, empty state with the given initial capacity
+   * 
+   * @param capacity
+   *          The initial capacity
+   */
+  LayoutState(int capacity) {
+    layoutObjects = new LayoutObject[capacity];
+    positionX = new double[capacity];
+    positionY = new double[capacity];
+    velocityX = new double[capacity];
+    velocityY = new double[capacity];
+    accelerationX = new double[capacity];
+    accelerationY = new double[capacity];
+    forceX = new double[capacity];
+    forceY = new double[capacity];
+    mass = new double[capacity];
+    maxSpeed = new double[capacity];
+    localMinX = new double[capacity];
+    localMinY = new double[capacity];
+    localMaxX = new double[capacity];
+    localMaxY = new double[capacity];
+    shapeMinX = new double[capacity];
+    shapeMinY = new double[capacity];
+    shapeMaxX = new double[capacity];
+    shapeMaxY = new double[capacity];
+    sleeping = new boolean[capacity];
+    calmSteps = new int[capacity];
+    referenceForceX = new double[capacity];
+    referenceForceY = new double[capacity];
+  }
+
+  /**
+   * Creates a state with a single entry for the given object, which is not yet attached to it.
+   * The mass will be 1.0, the maximum speed will be infinite, and all other values will be 0.0.
+   * 
+   * @param layoutObject
+   *          The {@link LayoutObject}
+   * @return The state
+   */
+  static LayoutState createSingle(LayoutObject layoutObject) {
+    LayoutState state = new LayoutState(1);
+    state.layoutObjects[0] = layoutObject;
+    state.mass[0] = 1.0;
+    state.maxSpeed[0] = Double.POSITIVE_INFINITY;
+    state.size = 1;
+    state.single = true;
+    return state;
+  }
+
+  /**
+   * Returns whether this state was created with {@link #createSingle(LayoutObject)}
+   * 
+   * @return Whether this is a single state
+   */
+  boolean isSingle() {
+    return single;
+  }
+
+  /**
+   * Returns the number of {@link LayoutObject}s in this state
+   * 
+   * @return The number of objects
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the {@link LayoutObject} with the given index
+   * 
+   * @param index
+   *          The index
+   * @return The {@link LayoutObject}
+   * @throws IndexOutOfBoundsException
+   *           If the index is negative or not smaller than {@link #size()}
+   */
+  public LayoutObject getLayoutObject(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+    }
+    return layoutObjects[index];
+  }
+
+  /**
+   * Returns an unmodifiable list containing the {@link LayoutObject}s of this state, in the order
+   * of their indices. The list is a view that reflects later structural modifications, and should
+   * only be used while holding the monitor of this object.
+   * 
+   * @return The {@link LayoutObject}s
+   */
+  public List<LayoutObject> getLayoutObjects() {
+    return Collections.unmodifiableList(Arrays.asList(layoutObjects).subList(0, size));
+  }
+
+  /**
+   * Returns the index of the first occurrence of the given {@link LayoutObject} in this state, or
+   * -1 if it is not contained in this state
+   * 
+   * @param layoutObject
+   *          The {@link LayoutObject}
+   * @return The index
+   */
+  public int indexOf(LayoutObject layoutObject) {
+    if (foreignCount == 0 && layoutObject instanceof BaseLayoutObject) {
+      BaseLayoutObject baseLayoutObject = (BaseLayoutObject) layoutObject;
+      if (baseLayoutObject.isBackedBy(this)) {
+        return baseLayoutObject.getIndex();
+      }
+    }
+    for (int i = 0; i < size; i++) {
+      if (layoutObjects[i] == layoutObject) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Add the given {@link LayoutObject} to this state. Its current values will be copied into this
+   * state. If it is a {@link BaseLayoutObject} that is not contained in any other state, then it
+   * will become a view on this state. A {@link BaseLayoutObject} can only be a view on one state.
+   * When it is already contained in this or another state, then it is treated like any other
+   * {@link LayoutObject} implementation, and synchronized with {@link #pull()} and
+   * {@link #push()}.
+   * 
+   * @param layoutObject
+   *          The {@link LayoutObject}
+   * @return The index of the object
+   */
+  public synchronized int add(LayoutObject layoutObject) {
+    Objects.requireNonNull(layoutObject, "The layoutObject is null");
+    ensureCapacity(size + 1);
+    wakeAll();
+    int index = size;
+    layoutObjects[index] = layoutObject;
+    size++;
+    load(index, layoutObject);
+    calmSteps[index] = 0;
+    maxSpeed[index] = Double.POSITIVE_INFINITY;
+    if (layoutObject instanceof BaseLayoutObject
+        && ((BaseLayoutObject) layoutObject).isBackedBySingle()) {
+      ((BaseLayoutObject) layoutObject).attach(this, index);
+    } else {
+      foreignCount++;
+    }
+    return index;
+  }
+
+  /**
+   * Remove the first occurrence of the given {@link LayoutObject} from this state. The indices of
+   * all subsequent objects will be decreased by one. If the object is a {@link BaseLayoutObject}
+   * that was backed by this entry, then it will receive a private copy of its current values.
+   * 
+   * @param layoutObject
+   *          The {@link LayoutObject}
+   * @return Whether the object was contained in this state
+   */
+  public synchronized boolean remove(LayoutObject layoutObject) {
+    int index = indexOf(layoutObject);
+    if (index == -1) {
+      return false;
+    }
+    wakeAll();
+    detach(index);
+    int tail = size - index - 1;
+    System.arraycopy(layoutObjects, index + 1, layoutObjects, index, tail);
+    System.arraycopy(positionX, index + 1, positionX, index, tail);
+    System.arraycopy(positionY, index + 1, positionY, index, tail);
+    System.arraycopy(velocityX, index + 1, velocityX, index, tail);
+    System.arraycopy(velocityY, index + 1, velocityY, index, tail);
+    System.arraycopy(accelerationX, index + 1, accelerationX, index, tail);
+    System.arraycopy(accelerationY, index + 1, accelerationY, index, tail);
+    System.arraycopy(forceX, index + 1, forceX, index, tail);
+    System.arraycopy(forceY, index + 1, forceY, index, tail);
+    System.arraycopy(mass, index + 1, mass, index, tail);
+    System.arraycopy(maxSpeed, index + 1, maxSpeed, index, tail);
+    System.arraycopy(localMinX, index + 1, localMinX, index, tail);
+    System.arraycopy(localMinY, index + 1, localMinY, index, tail);
+    System.arraycopy(localMaxX, index + 1, localMaxX, index, tail);
+    System.arraycopy(localMaxY, index + 1, localMaxY, index, tail);
+    System.arraycopy(calmSteps, index + 1, calmSteps, index, tail);
+    size--;
+    layoutObjects[size] = null;
+    for (int i = index; i < size; i++) {
+      if (isBacking(i, i + 1)) {
+        ((BaseLayoutObject) layoutObjects[i]).attach(this, i);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Remove all {@link LayoutObject}s from this state
+   */
+  public synchronized void clear() {
+    wakeAll();
+    for (int i = 0; i < size; i++) {
+      detach(i);
+      layoutObjects[i] = null;
+    }
+    size = 0;
+    foreignCount = 0;
+  }
+
+  /**
+   * Returns whether the object with the given index is sleeping
+   * 
+   * @param index
+   *          The index
+   * @return Whether the object is sleeping
+   */
+  public boolean isSleeping(int index) {
+    return sleeping[index];
+  }
+
+  /**
+   * Set whether the object with the given index is sleeping. When an object is put to sleep,
+   * its velocity and acceleration are set to zero. When it is woken up, its number of
+   * {@link #getCalmSteps() calm steps} is reset to zero.
+   * 
+   * @param index
+   *          The index
+   * @param sleeping
+   *          Whether the object should be sleeping
+   * @throws IndexOutOfBoundsException
+   *           If the index is negative or not smaller than {@link #size()}
+   */
+  public synchronized void setSleeping(int index, boolean sleeping) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+    }
+    if (this.sleeping[index] == sleeping) {
+      return;
+    }
+    this.sleeping[index] = sleeping;
+    if (sleeping) {
+      velocityX[index] = 0.0;
+      velocityY[index] = 0.0;
+      accelerationX[index] = 0.0;
+      accelerationY[index] = 0.0;
+      sleepingCount++;
+    } else {
+      calmSteps[index] = 0;
+      sleepingCount--;
+    }
+    sleepVersion++;
+  }
+
+  /**
+   * Wake up all sleeping objects
+   */
+  public synchronized void wakeAll() {
+    if (sleepingCount == 0) {
+      return;
+    }
+    for (int i = 0; i < size; i++) {
+      if (sleeping[i]) {
+        sleeping[i] = false;
+        calmSteps[i] = 0;
+      }
+    }
+    sleepingCount = 0;
+    sleepVersion++;
+  }
+
+  /**
+   * Returns the number of sleeping objects
+   * 
+   * @return The number of sleeping objects
+   */
+  public int getSleepingCount() {
+    return sleepingCount;
+  }
+
+  /**
+   * Returns a counter that is incremented whenever the set of sleeping objects changes. This may
+   * be used to detect whether values that have been computed for the sleeping objects are still
+   * valid.
+   * 
+   * @return The counter
+   */
+  public int getSleepVersion() {
+    return sleepVersion;
+  }
+
+  /**
+   * Copy the current values of all {@link LayoutObject}s that are not backed by this state into
+   * the arrays of this state. Sleeping objects whose position has been changed are woken up.
+   */
+  public synchronized void pull() {
+    if (foreignCount == 0) {
+      return;
+    }
+    for (int i = 0; i < size; i++) {
+      if (!isBacking(i)) {
+        double oldPositionX = positionX[i];
+        double oldPositionY = positionY[i];
+        load(i, layoutObjects[i]);
+        if (sleeping[i] && (positionX[i] != oldPositionX || positionY[i] != oldPositionY)) {
+          setSleeping(i, false);
+        }
+      }
+    }
+  }
+
+  /**
+   * Write the values from the arrays of this state back into all {@link LayoutObject}s that are
+   * not backed by this state.
+   */
+  public synchronized void push() {
+    if (foreignCount == 0) {
+      return;
+    }
+    for (int i = 0; i < size; i++) {
+      if (!isBacking(i)) {
+        LayoutObject layoutObject = layoutObjects[i];
+        layoutObject.setPosition(positionX[i], positionY[i]);
+        layoutObject.setVelocity(velocityX[i], velocityY[i]);
+        layoutObject.setAcceleration(accelerationX[i], accelerationY[i]);
+        layoutObject.setForce(forceX[i], forceY[i]);
+        layoutObject.setMass(mass[i]);
+      }
+    }
+  }
+
+  /**
+   * Compute the bounds of the shapes of all objects at their current positions, by translating
+   * the local shape bounds. The results can be obtained with {@link #getShapeBoundsMinX()},
+   * {@link #getShapeBoundsMinY()}, {@link #getShapeBoundsMaxX()} and
+   * {@link #getShapeBoundsMaxY()}.
+   */
+  public synchronized void updateShapeBounds() {
+    for (int i = 0; i < size; i++) {
+      shapeMinX[i] = positionX[i] + localMinX[i];
+      shapeMinY[i] = positionY[i] + localMinY[i];
+      shapeMaxX[i] = positionX[i] + localMaxX[i];
+      shapeMaxY[i] = positionY[i] + localMaxY[i];
+    }
+  }
+
+  /**
+   * Returns the live array containing the minimum x-coordinates of the shape bounds, as computed
+   * by the last call to {@link #updateShapeBounds()}. This array should not be modified.
+   * 
+   * @return The array
+   */
+  public double[] getShapeBoundsMinX() {
+    return shapeMinX;
+  }
+
+  /**
+   * Returns the live array containing the minimum y-coordinates of the shape bounds, as computed
+   * by the last call to {@link #updateShapeBounds()}. This array should not be modified.
+   * 
+   * @return The array
+   */
+  public double[] getShapeBoundsMinY() {
+    return shapeMinY;
+  }
+
+  /**
+   * Returns the live array containing the maximum x-coordinates of the shape bounds, as computed
+   * by the last call to {@link #updateShapeBounds()}. This array should not be modified.
+   * 
+   * @return The array
+   */
+  public double[] getShapeBoundsMaxX() {
+    return shapeMaxX;
+  }
+
+  /**
+   * Returns the live array containing the maximum y-coordinates of the shape bounds, as computed
+   * by the last call to {@link #updateShapeBounds()}. This array should not be modified.
+   * 
+   * @return The array
+   */
+  public double[] getShapeBoundsMaxY() {
+    return shapeMaxY;
+  }
+
+  /**
+   * Returns the live array containing the x-components of the positions
+   * 
+   * @return The array
+   */
+  public double[] getPositionsX() {
+    return positionX;
+  }
+
+  /**
+   * Returns the live array containing the y-components of the positions
+   * 
+   * @return The array
+   */
+  public double[] getPositionsY() {
+    return positionY;
+  }
+
+  /**
+   * Returns the live array containing the x-components of the velocities
+   * 
+   * @return The array
+   */
+  public double[] getVelocitiesX() {
+    return velocityX;
+  }
+
+  /**
+   * Returns the live array containing the y-components of the velocities
+   * 
+   * @return The array
+   */
+  public double[] getVelocitiesY() {
+    return velocityY;
+  }
+
+  /**
+   * Returns the live array containing the x-components of the accelerations
+   * 
+   * @return The array
+   */
+  public double[] getAccelerationsX() {
+    return accelerationX;
+  }
+
+  /**
+   * Returns the live array containing the y-components of the accelerations
+   * 
+   * @return The array
+   */
+  public double[] getAccelerationsY() {
+    return accelerationY;
+  }
+
+  /**
+   * Returns the live array containing the x-components of the forces
+   * 
+   * @return The array
+   */
+  public double[] getForcesX() {
+    return forceX;
+  }
+
+  /**
+   * Returns the live array containing the y-components of the forces
+   * 
+   * @return The array
+   */
+  public double[] getForcesY() {
+    return forceY;
+  }
+
+  /**
+   * Returns the live array containing the masses
+   * 
+   * @return The array
+   */
+  public double[] getMasses() {
+    return mass;
+  }
+
+  /**
+   * Set the maximum speed of the object with the given index. The simulation limits the length
+   * of the velocity of the object to this value, and its movement in one step to this value
+   * multiplied with the time step. The default value, which is also used when the object is
+   * added, is <code>Double.POSITIVE_INFINITY</code>.
+   * 
+   * @param index
+   *          The index
+   * @param maxSpeed
+   *          The maximum speed
+   * @throws IndexOutOfBoundsException
+   *           If the index is negative or not smaller than {@link #size()}
+   * @throws IllegalArgumentException
+   *           If the maximum speed is not positive
+   */
+  public void setMaxSpeed(int index, double maxSpeed) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+    }
+    if (!(maxSpeed > 0.0)) {
+      throw new IllegalArgumentException("The maximum speed must be positive, but is " + maxSpeed);
+    }
+    this.maxSpeed[index] = maxSpeed;
+  }
+
+  /**
+   * Returns the live array containing the maximum speeds of the objects. This array should not be
+   * modified. Use {@link #setMaxSpeed(int, double)} instead.
+   * 
+   * @return The array
+   * @see #setMaxSpeed(int, double)
+   */
+  public double[] getMaxSpeeds() {
+    return maxSpeed;
+  }
+
+  /**
+   * Returns the live array containing the flags indicating whether the objects are sleeping. This
+   * array should not be modified. Use {@link #setSleeping(int, boolean)} instead.
+   * 
+   * @return The array
+   */
+  public boolean[] getSleeping() {
+    return sleeping;
+  }
+
+  /**
+   * Returns the live array containing the number of consecutive steps in which each object has
+   * been calm, as counted by the simulation
+   * 
+   * @return The array
+   */
+  public int[] getCalmSteps() {
+    return calmSteps;
+  }
+
+  /**
+   * Returns the live array containing the x-components of the reference forces of sleeping
+   * objects, as recorded by the simulation
+   * 
+   * @return The array
+   */
+  public double[] getReferenceForcesX() {
+    return referenceForceX;
+  }
+
+  /**
+   * Returns the live array containing the y-components of the reference forces of sleeping
+   * objects, as recorded by the simulation
+   * 
+   * @return The array
+   */
+  public double[] getReferenceForcesY() {
+    return referenceForceY;
+  }
+
+  /**
+   * Returns whether the object at the given index is a view on this entry of this state
+   * 
+   * @param index
+   *          The index
+   * @return Whether the object is backed by this entry
+   */
+  private boolean isBacking(int index) {
+    return isBacking(index, index);
+  }
+
+  /**
+   * Returns whether the object at the given index is a view on the entry of this state with the
+   * given backing index. The backing index may differ from the index while the entries are
+   * shifted during {@link #remove(LayoutObject)}.
+   * 
+   * @param index
+   *          The index
+   * @param backingIndex
+   *          The backing index
+   * @return Whether the object is backed by the given entry
+   */
+  private boolean isBacking(int index, int backingIndex) {
+    LayoutObject layoutObject = layoutObjects[index];
+    if (layoutObject instanceof BaseLayoutObject) {
+      BaseLayoutObject baseLayoutObject = (BaseLayoutObject) layoutObject;
+      return baseLayoutObject.isBackedBy(this) && baseLayoutObject.getIndex() == backingIndex;
+    }
+    return false;
+  }
+
+  /**
+   * Copy the values of the given {@link LayoutObject} into the given index
+   * 
+   * @param index
+   *          The index
+   * @param layoutObject
+   *          The {@link LayoutObject}
+   */
+  private void load(int index, LayoutObject layoutObject) {
+    Point2D point = loadPoint;
+    layoutObject.getPosition(point);
+    positionX[index] = point.getX();
+    positionY[index] = point.getY();
+    layoutObject.getVelocity(point);
+    velocityX[index] = point.getX();
+    velocityY[index] = point.getY();
+    layoutObject.getAcceleration(point);
+    accelerationX[index] = point.getX();
+    accelerationY[index] = point.getY();
+    layoutObject.getForce(point);
+    forceX[index] = point.getX();
+    forceY[index] = point.getY();
+    mass[index] = layoutObject.getMass();
+    Rectangle2D localBounds = layoutObject.getLocalShapeBounds();
+    localMinX[index] = localBounds.getMinX();
+    localMinY[index] = localBounds.getMinY();
+    localMaxX[index] = localBounds.getMaxX();
+    localMaxY[index] = localBounds.getMaxY();
+  }
+
+  /**
+   * Set the local shape bounds at the given index to be the bounds of the given shape, or an
+   * empty rectangle at the origin if the shape is <code>null</code>
+   * 
+   * @param index
+   *          The index
+   * @param shape
+   *          The shape
+   */
+  void setLocalShapeBounds(int index, Shape shape) {
+    if (shape == null) {
+      localMinX[index] = 0.0;
+      localMinY[index] = 0.0;
+      localMaxX[index] = 0.0;
+      localMaxY[index] = 0.0;
+      return;
+    }
+    Rectangle2D localBounds = shape.getBounds2D();
+    localMinX[index] = localBounds.getMinX();
+    localMinY[index] = localBounds.getMinY();
+    localMaxX[index] = localBounds.getMaxX();
+    localMaxY[index] = localBounds.getMaxY();
+  }
+
+  /**
+   * If the object at the given index is backed by this state, then give it a private copy of its
+   * current values. Otherwise, decrease the number of foreign objects.
+   * 
+   * @param index
+   *          The index
+   */
+  private void detach(int index) {
+    if (!isBacking(index)) {
+      foreignCount--;
+      return;
+    }
+    BaseLayoutObject baseLayoutObject = (BaseLayoutObject) layoutObjects[index];
+    LayoutState single = createSingle(baseLayoutObject);
+    single.positionX[0] = positionX[index];
+    single.positionY[0] = positionY[index];
+    single.velocityX[0] = velocityX[index];
+    single.velocityY[0] = velocityY[index];
+    single.accelerationX[0] = accelerationX[index];
+    single.accelerationY[0] = accelerationY[index];
+    single.forceX[0] = forceX[index];
+    single.forceY[0] = forceY[index];
+    single.mass[0] = mass[index];
+    single.localMinX[0] = localMinX[index];
+    single.localMinY[0] = localMinY[index];
+    single.localMaxX[0] = localMaxX[index];
+    single.localMaxY[0] = localMaxY[index];
+    baseLayoutObject.attach(single, 0);
+  }
+
+  /**
+   * Make sure that the arrays can store the given number of objects
+   * 
+   * @param capacity
+   *          The minimum capacity
+   */
+  private void ensureCapacity(int capacity) {
+    if (capacity <= layoutObjects.length) {
+      return;
+    }
+    int newCapacity = Math.max(capacity, layoutObjects.length + (layoutObjects.length >> 1));
+    layoutObjects = Arrays.copyOf(layoutObjects, newCapacity);
+    positionX = Arrays.copyOf(positionX, newCapacity);
+    positionY = Arrays.copyOf(positionY, newCapacity);
+    velocityX = Arrays.copyOf(velocityX, newCapacity);
+    velocityY = Arrays.copyOf(velocityY, newCapacity);
+    accelerationX = Arrays.copyOf(accelerationX, newCapacity);
+    accelerationY = Arrays.copyOf(accelerationY, newCapacity);
+    forceX = Arrays.copyOf(forceX, newCapacity);
+    forceY = Arrays.copyOf(forceY, newCapacity);
+    mass = Arrays.copyOf(mass, newCapacity);
+    maxSpeed = Arrays.copyOf(maxSpeed, newCapacity);
+    localMinX = Arrays.copyOf(localMinX, newCapacity);
+    localMinY = Arrays.copyOf(localMinY, newCapacity);
+    localMaxX = Arrays.copyOf(localMaxX, newCapacity);
+    localMaxY = Arrays.copyOf(localMaxY, newCapacity);
+    shapeMinX = Arrays.copyOf(shapeMinX, newCapacity);
+    shapeMinY = Arrays.copyOf(shapeMinY, newCapacity);
+    shapeMaxX = Arrays.copyOf(shapeMaxX, newCapacity);
+    shapeMaxY = Arrays.copyOf(shapeMaxY, newCapacity);
+    sleeping = Arrays.copyOf(sleeping, newCapacity);
+    calmSteps = Arrays.copyOf(calmSteps, newCapacity);
+    referenceForceX = Arrays.copyOf(referenceForceX, newCapacity);
+    referenceForceY = Arrays.copyOf(referenceForceY, newCapacity);
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.spatial;
+
+/**
+ * Interface for a broad phase of a collision detection: It finds the pairs of axis-aligned
+ * bounding boxes that may overlap, so that the more expensive computations only have to be
+ * performed for these pairs.<br>
+ * <br>
+ * The bounding boxes are given as arrays of their minimum and maximum coordinates, where the
+ * index in these arrays identifies the box. Implementations may keep information between two
+ * calls, in order to exploit the coherence between subsequent steps of a simulation. When the
+ * number of boxes changes, implementations assume that the boxes have been re-indexed.
+ */
+public interface BroadPhase {
+  /**
+   * Compute all pairs of the given bounding boxes that overlap, and pass them to the given
+   * consumer. Boxes that only touch at their borders are considered to be overlapping. Each
+   * pair is reported once, with the smaller index first. Implementations may report additional
+   * pairs that do not overlap.
+   * 
+   * @param minX
+   *          The minimum x-coordinates of the boxes
+   * @param minY
+   *          The minimum y-coordinates of the boxes
+   * @param maxX
+   *          The maximum x-coordinates of the boxes
+   * @param maxY
+   *          The maximum y-coordinates of the boxes
+   * @param n
+   *          The number of boxes
+   * @param consumer
+   *          The {@link PairConsumer}
+   */
+  void computePairs(double[] minX, double[] minY, double[] maxX, double[] maxY, int n,
+      PairConsumer consumer);
+}
@@ -0,0 +1,954 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.spatial;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import de.javagl.layoutanalyzer.Layout;
+import de.javagl.layoutanalyzer.LayoutListener;
+import de.javagl.layoutanalyzer.objects.LayoutObject;
+
+/**
+ * A dynamic tree of axis-aligned bounding boxes that is maintained incrementally between the
+ * steps of a simulation.<br>
+ * <br>
+ * Each box is stored in a leaf of the tree, with <i>fattened</i> bounds: The bounds of the leaf
+ * are the bounds of the box, enlarged by a {@link #setFatteningFactor(double) margin}. As long as
+ * a box stays inside the fattened bounds of its leaf, the tree does not have to be modified.
+ * Only when a box leaves these bounds, its leaf is removed and re-inserted. The insertion
+ * chooses the position that causes the least increase of the perimeters of the internal nodes,
+ * and the path to the root is re-balanced with tree rotations. In addition, the whole tree may
+ * be {@link #setRebuildInterval(int) rebuilt periodically}.<br>
+ * <br>
+ * When used as a {@link BroadPhase}, the tree additionally keeps the pairs of leaves whose
+ * fattened bounds overlap. These pairs only change when one of the leaves was re-inserted, so
+ * only the re-inserted leaves have to be queried in each step.<br>
+ * <br>
+ * The boxes are identified by their index. Boxes that are added at the end are inserted lazily,
+ * with the next call to {@link #computePairs}. When boxes are removed, the tree has to be
+ * informed about this via {@link #remove(int)}, to preserve its structure. For this purpose,
+ * it may be added as a {@link LayoutListener} to a {@link Layout}. When the number of boxes
+ * decreases without such a notification, the tree is built from scratch.<br>
+ * <br>
+ * This class is not thread-safe.
+ */
+public final class DynamicAabbTree implements BroadPhase, LayoutListener {
+  /**
+   * The value for a node index that indicates that there is no node
+   */
+  private static final int NONE = -1;
+
+  /**
+   * The maximum recursion depth for the top-down build, after which the leaves are split at the
+   * middle of the range
+   */
+  private static final int MAX_BUILD_DEPTH = 64;
+
+  /**
+   * The minimum coordinates of the (fattened) bounds of the nodes
+   */
+  private double[] nodeMinX;
+
+  /**
+   * The minimum coordinates of the (fattened) bounds of the nodes
+   */
+  private double[] nodeMinY;
+
+  /**
+   * The maximum coordinates of the (fattened) bounds of the nodes
+   */
+  private double[] nodeMaxX;
+
+  /**
+   * The maximum coordinates of the (fattened) bounds of the nodes
+   */
+  private double[] nodeMaxY;
+
+  /**
+   * The parent of each node. For free nodes, this is the next free node.
+   */
+  private int[] parent;
+
+  /**
+   * The first child of each node, or {@link #NONE} for leaves
+   */
+  private int[] child0;
+
+  /**
+   * The second child of each node, or {@link #NONE} for leaves
+   */
+  private int[] child1;
+
+  /**
+   * The height of each node. This is 0 for leaves, and -1 for free nodes.
+   */
+  private int[] height;
+
+  /**
+   * The index of the box of each leaf
+   */
+  private int[] boxIndex;
+
+  /**
+   * Whether a leaf was re-inserted since the last update of the pairs
+   */
+  private boolean[] moved;
+
+  /**
+   * The number of nodes that have been allocated so far
+   */
+  private int nodeCount;
+
+  /**
+   * The first free node
+   */
+  private int freeList;
+
+  /**
+   * The root node
+   */
+  private int root;
+
+  /**
+   * The leaf for each box index
+   */
+  private int[] leafOfBox;
+
+  /**
+   * The number of boxes that are contained in the tree
+   */
+  private int size;
+
+  /**
+   * The leaves that have been removed, but are not yet freed
+   */
+  private int[] removedLeaves;
+
+  /**
+   * The number of {@link #removedLeaves}
+   */
+  private int removedCount;
+
+  /**
+   * The leaves that have been re-inserted since the last update of the pairs
+   */
+  private int[] movedLeaves;
+
+  /**
+   * The number of {@link #movedLeaves}
+   */
+  private int movedCount;
+
+  /**
+   * The pairs of leaves whose fattened bounds overlap, each encoded as a long value
+   */
+  private long[] pairs;
+
+  /**
+   * The number of {@link #pairs}
+   */
+  private int pairCount;
+
+  /**
+   * The stack for the traversal of the tree
+   */
+  private int[] stack;
+
+  /**
+   * The factor by which the bounds of the leaves are enlarged
+   */
+  private double fatteningFactor;
+
+  /**
+   * The number of calls to {@link #computePairs} after which the tree is rebuilt
+   */
+  private int rebuildInterval;
+
+  /**
+   * The number of calls to {@link #computePairs} since the last rebuild
+   */
+  private int updatesSinceRebuild;
+
+  /**
+   * Creates a new, empty tree
+   */
+  public DynamicAabbTree() {
+    this.nodeMinX = new double[16];
+    this.nodeMinY = new double[16];
+    this.nodeMaxX = new double[16];
+    this.nodeMaxY = new double[16];
+    this.parent = new int[16];
+    this.child0 = new int[16];
+    this.child1 = new int[16];
+    this.height = new int[16];
+    this.boxIndex = new int[16];
+    this.moved = new boolean[16];
+    this.leafOfBox = new int[8];
+    this.removedLeaves = new int[8];
+    this.movedLeaves = new int[8];
+    this.pairs = new long[16];
+    this.stack = new int[64];
+    this.freeList = NONE;
+    this.root = NONE;
+    this.fatteningFactor = 0.1;
+    this.rebuildInterval = 100;
+  }
+
+  /**
+   * Set the factor by which the bounds of the boxes are enlarged when they are stored in the
+   * tree. Each side of a box is moved outwards by this factor, multiplied with the larger
+   * extent of the box. Larger values cause fewer updates of the tree, but more candidate pairs.
+   * The default value is 0.1. Changing the value only affects boxes that are inserted afterwards.
+   * 
+   * @param fatteningFactor
+   *          The fattening factor
+   * @throws IllegalArgumentException
+   *           If the value is negative
+   */
+  public void setFatteningFactor(double fatteningFactor) {
+    if (!(fatteningFactor >= 0)) {
+      throw new IllegalArgumentException("The fattening factor must be non-negative, but is "
+          + fatteningFactor);
+    }
+    this.fatteningFactor = fatteningFactor;
+  }
+
+  /**
+   * Returns the factor by which the bounds of the boxes are enlarged
+   * 
+   * @return The fattening factor
+   */
+  public double getFatteningFactor() {
+    return fatteningFactor;
+  }
+
+  /**
+   * Set the number of calls to {@link #computePairs} after which the whole tree is rebuilt, in
+   * order to restore a good structure after many incremental updates. A value of 0 means that
+   * the tree is never rebuilt. The default value is 100.
+   * 
+   * @param rebuildInterval
+   *          The rebuild interval
+   * @throws IllegalArgumentException
+   *           If the value is negative
+   */
+  public void setRebuildInterval(int rebuildInterval) {
+    if (rebuildInterval < 0) {
+      throw new IllegalArgumentException("The rebuild interval must be non-negative, but is "
+          + rebuildInterval);
+    }
+    this.rebuildInterval = rebuildInterval;
+  }
+
+  /**
+   * Returns the number of calls to {@link #computePairs} after which the tree is rebuilt
+   * 
+   * @return The rebuild interval
+   */
+  public int getRebuildInterval() {
+    return rebuildInterval;
+  }
+
+  /**
+   * Returns the number of boxes that are contained in this tree
+   * 
+   * @return The number of boxes
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the height of this tree. This is 0 for a tree with a single box, and -1 for an empty
+   * tree.
+   * 
+   * @return The height
+   */
+  public int getHeight() {
+    return root == NONE ? -1 : height[root];
+  }
+
+  @Override
+  public void layoutObjectAdded(LayoutObject layoutObject, int index) {
+    if (index < size) {
+      clear();
+    }
+  }
+
+  @Override
+  public void layoutObjectRemoved(LayoutObject layoutObject, int index) {
+    if (index < size) {
+      remove(index);
+    }
+  }
+
+  /**
+   * Remove all boxes from this tree
+   */
+  public void clear() {
+    nodeCount = 0;
+    freeList = NONE;
+    root = NONE;
+    size = 0;
+    removedCount = 0;
+    movedCount = 0;
+    pairCount = 0;
+    updatesSinceRebuild = 0;
+    Arrays.fill(moved, false);
+  }
+
+  /**
+   * Remove the box with the given index from this tree. The indices of all subsequent boxes
+   * are decreased by one.
+   * 
+   * @param index
+   *          The index
+   * @throws IndexOutOfBoundsException
+   *           If the index is negative or not smaller than the {@link #size()}
+   */
+  public void remove(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+    }
+    int leaf = leafOfBox[index];
+    removeLeaf(leaf);
+    if (moved[leaf]) {
+      moved[leaf] = false;
+      for (int k = 0; k < movedCount; k++) {
+        if (movedLeaves[k] == leaf) {
+          movedLeaves[k] = movedLeaves[--movedCount];
+          break;
+        }
+      }
+    }
+    // The leaf is not freed before the pairs have been updated,
+    // so that its index is not re-used in the meantime
+    if (removedCount == removedLeaves.length) {
+      removedLeaves = Arrays.copyOf(removedLeaves, removedCount * 2);
+    }
+    removedLeaves[removedCount++] = leaf;
+    size--;
+    System.arraycopy(leafOfBox, index + 1, leafOfBox, index, size - index);
+    for (int i = index; i < size; i++) {
+      boxIndex[leafOfBox[i]] = i;
+    }
+  }
+
+  /**
+   * Pass the indices of all boxes whose fattened bounds overlap the given box to the given
+   * consumer. The result may contain boxes that do not overlap the given box, but no box that
+   * overlaps it will be omitted.
+   * 
+   * @param minX
+   *          The minimum x-coordinate of the box
+   * @param minY
+   *          The minimum y-coordinate of the box
+   * @param maxX
+   *          The maximum x-coordinate of the box
+   * @param maxY
+   *          The maximum y-coordinate of the box
+   * @param consumer
+   *          The consumer for the box indices
+   */
+  public void query(double minX, double minY, double maxX, double maxY, IntConsumer consumer) {
+    if (root == NONE) {
+      return;
+    }
+    int top = 0;
+    stack[top++] = root;
+    while (top > 0) {
+      int node = stack[--top];
+      if (nodeMinX[node] > maxX || minX > nodeMaxX[node] || nodeMinY[node] > maxY
+          || minY > nodeMaxY[node]) {
+        continue;
+      }
+      if (height[node] == 0) {
+        consumer.accept(boxIndex[node]);
+      } else {
+        if (top + 2 > stack.length) {
+          stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[top++] = child0[node];
+        stack[top++] = child1[node];
+      }
+    }
+  }
+
+  @Override
+  public void computePairs(double[] minX, double[] minY, double[] maxX, double[] maxY, int n,
+      PairConsumer consumer) {
+    freeRemovedLeaves();
+    if (n < size) {
+      clear();
+    }
+    while (size < n) {
+      insertBox(minX, minY, maxX, maxY);
+    }
+    for (int i = 0; i < n; i++) {
+      int leaf = leafOfBox[i];
+      if (nodeMinX[leaf] <= minX[i] && nodeMinY[leaf] <= minY[i] && maxX[i] <= nodeMaxX[leaf]
+          && maxY[i] <= nodeMaxY[leaf]) {
+        continue;
+      }
+      removeLeaf(leaf);
+      setFattenedBounds(leaf, minX[i], minY[i], maxX[i], maxY[i]);
+      insertLeaf(leaf);
+      markMoved(leaf);
+    }
+    if (rebuildInterval > 0 && ++updatesSinceRebuild >= rebuildInterval) {
+      rebuild();
+    }
+    updatePairs();
+    for (int p = 0; p < pairCount; p++) {
+      long pair = pairs[p];
+      int i = boxIndex[(int) (pair >>> 32)];
+      int j = boxIndex[(int) pair];
+      if (minX[j] <= maxX[i] && minX[i] <= maxX[j] && minY[j] <= maxY[i] && minY[i] <= maxY[j]) {
+        if (i < j) {
+          consumer.accept(i, j);
+        } else {
+          consumer.accept(j, i);
+        }
+      }
+    }
+  }
+
+  /**
+   * Rebuild the whole tree from its leaves, with a top-down construction that splits the
+   * leaves at the center of their bounds along the longer axis. The bounds of the leaves are
+   * not changed.
+   */
+  public void rebuild() {
+    updatesSinceRebuild = 0;
+    if (size < 3) {
+      return;
+    }
+    // Free all internal nodes. The leaves of the removed boxes remain
+    // allocated until the pairs have been updated
+    int[] leaves = Arrays.copyOf(leafOfBox, size);
+    for (int node = 0; node < nodeCount; node++) {
+      if (height[node] > 0) {
+        freeNode(node);
+      }
+    }
+    root = buildTopDown(leaves, 0, size, 0);
+    parent[root] = NONE;
+  }
+
+  /**
+   * Recursively build a subtree for the given range of leaves
+   * 
+   * @param leaves
+   *          The leaves
+   * @param from
+   *          The start of the range, inclusive
+   * @param to
+   *          The end of the range, exclusive
+   * @param depth
+   *          The recursion depth
+   * @return The root node of the subtree
+   */
+  private int buildTopDown(int[] leaves, int from, int to, int depth) {
+    if (to - from == 1) {
+      return leaves[from];
+    }
+    double cMinX = Double.POSITIVE_INFINITY;
+    double cMinY = Double.POSITIVE_INFINITY;
+    double cMaxX = Double.NEGATIVE_INFINITY;
+    double cMaxY = Double.NEGATIVE_INFINITY;
+    for (int k = from; k < to; k++) {
+      int leaf = leaves[k];
+      double cx = nodeMinX[leaf] + nodeMaxX[leaf];
+      double cy = nodeMinY[leaf] + nodeMaxY[leaf];
+      cMinX = Math.min(cMinX, cx);
+      cMinY = Math.min(cMinY, cy);
+      cMaxX = Math.max(cMaxX, cx);
+      cMaxY = Math.max(cMaxY, cy);
+    }
+    int mid = from;
+    if (depth < MAX_BUILD_DEPTH) {
+      boolean alongX = cMaxX - cMinX >= cMaxY - cMinY;
+      double split = alongX ? (cMinX + cMaxX) * 0.5 : (cMinY + cMaxY) * 0.5;
+      int b = to - 1;
+      while (mid <= b) {
+        int leaf = leaves[mid];
+        double c = alongX ? nodeMinX[leaf] + nodeMaxX[leaf] : nodeMinY[leaf] + nodeMaxY[leaf];
+        if (c < split) {
+          mid++;
+        } else {
+          leaves[mid] = leaves[b];
+          leaves[b] = leaf;
+          b--;
+        }
+      }
+    }
+    if (mid == from || mid == to) {
+      mid = (from + to) >>> 1;
+    }
+    int c0 = buildTopDown(leaves, from, mid, depth + 1);
+    int c1 = buildTopDown(leaves, mid, to, depth + 1);
+    int node = allocateNode();
+    child0[node] = c0;
+    child1[node] = c1;
+    parent[c0] = node;
+    parent[c1] = node;
+    height[node] = 1 + Math.max(height[c0], height[c1]);
+    setUnion(node, c0, c1);
+    return node;
+  }
+
+  /**
+   * Free the leaves of the boxes that have been removed, after removing all pairs that refer to
+   * them
+   */
+  private void freeRemovedLeaves() {
+    if (removedCount == 0) {
+      return;
+    }
+    for (int k = 0; k < removedCount; k++) {
+      moved[removedLeaves[k]] = true;
+    }
+    int w = 0;
+    for (int p = 0; p < pairCount; p++) {
+      long pair = pairs[p];
+      if (!moved[(int) (pair >>> 32)] && !moved[(int) pair]) {
+        pairs[w++] = pair;
+      }
+    }
+    pairCount = w;
+    for (int k = 0; k < removedCount; k++) {
+      moved[removedLeaves[k]] = false;
+      freeNode(removedLeaves[k]);
+    }
+    removedCount = 0;
+  }
+
+  /**
+   * Update the {@link #pairs}: The pairs that contain a leaf that was re-inserted are removed,
+   * and the re-inserted leaves are queried for new pairs
+   */
+  private void updatePairs() {
+    if (movedCount == 0) {
+      return;
+    }
+    int w = 0;
+    for (int p = 0; p < pairCount; p++) {
+      long pair = pairs[p];
+      if (!moved[(int) (pair >>> 32)] && !moved[(int) pair]) {
+        pairs[w++] = pair;
+      }
+    }
+    pairCount = w;
+    for (int k = 0; k < movedCount; k++) {
+      int leaf = movedLeaves[k];
+      double minX = nodeMinX[leaf];
+      double minY = nodeMinY[leaf];
+      double maxX = nodeMaxX[leaf];
+      double maxY = nodeMaxY[leaf];
+      int top = 0;
+      stack[top++] = root;
+      while (top > 0) {
+        int node = stack[--top];
+        if (nodeMinX[node] > maxX || minX > nodeMaxX[node] || nodeMinY[node] > maxY
+            || minY > nodeMaxY[node]) {
+          continue;
+        }
+        if (height[node] == 0) {
+          // Pairs of two re-inserted leaves are only added once
+          if (node != leaf && (!moved[node] || leaf < node)) {
+            if (pairCount == pairs.length) {
+              pairs = Arrays.copyOf(pairs, pairCount * 2);
+            }
+            pairs[pairCount++] = ((long) leaf << 32) | node;
+          }
+        } else {
+          if (top + 2 > stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+          }
+          stack[top++] = child0[node];
+          stack[top++] = child1[node];
+        }
+      }
+    }
+    for (int k = 0; k < movedCount; k++) {
+      moved[movedLeaves[k]] = false;
+    }
+    movedCount = 0;
+  }
+
+  /**
+   * Insert a leaf for the next box, with the given bounds
+   * 
+   * @param minX
+   *          The minimum x-coordinates of the boxes
+   * @param minY
+   *          The minimum y-coordinates of the boxes
+   * @param maxX
+   *          The maximum x-coordinates of the boxes
+   * @param maxY
+   *          The maximum y-coordinates of the boxes
+   */
+  private void insertBox(double[] minX, double[] minY, double[] maxX, double[] maxY) {
+    int index = size;
+    int leaf = allocateNode();
+    child0[leaf] = NONE;
+    child1[leaf] = NONE;
+    height[leaf] = 0;
+    boxIndex[leaf] = index;
+    setFattenedBounds(leaf, minX[index], minY[index], maxX[index], maxY[index]);
+    insertLeaf(leaf);
+    markMoved(leaf);
+    if (size == leafOfBox.length) {
+      leafOfBox = Arrays.copyOf(leafOfBox, size * 2);
+    }
+    leafOfBox[size++] = leaf;
+  }
+
+  /**
+   * Mark the given leaf as having been re-inserted
+   * 
+   * @param leaf
+   *          The leaf
+   */
+  private void markMoved(int leaf) {
+    if (moved[leaf]) {
+      return;
+    }
+    moved[leaf] = true;
+    if (movedCount == movedLeaves.length) {
+      movedLeaves = Arrays.copyOf(movedLeaves, movedCount * 2);
+    }
+    movedLeaves[movedCount++] = leaf;
+  }
+
+  /**
+   * Set the bounds of the given leaf to the given bounds, enlarged by the fattening margin
+   * 
+   * @param leaf
+   *          The leaf
+   * @param minX
+   *          The minimum x-coordinate
+   * @param minY
+   *          The minimum y-coordinate
+   * @param maxX
+   *          The maximum x-coordinate
+   * @param maxY
+   *          The maximum y-coordinate
+   */
+  private void setFattenedBounds(int leaf, double minX, double minY, double maxX, double maxY) {
+    double margin = fatteningFactor * Math.max(maxX - minX, maxY - minY);
+    nodeMinX[leaf] = minX - margin;
+    nodeMinY[leaf] = minY - margin;
+    nodeMaxX[leaf] = maxX + margin;
+    nodeMaxY[leaf] = maxY + margin;
+  }
+
+  /**
+   * Insert the given leaf into the tree
+   * 
+   * @param leaf
+   *          The leaf
+   */
+  private void insertLeaf(int leaf) {
+    if (root == NONE) {
+      root = leaf;
+      parent[leaf] = NONE;
+      return;
+    }
+
+    // Find the best sibling, based on the increase of the perimeters
+    double leafMinX = nodeMinX[leaf];
+    double leafMinY = nodeMinY[leaf];
+    double leafMaxX = nodeMaxX[leaf];
+    double leafMaxY = nodeMaxY[leaf];
+    int index = root;
+    while (height[index] > 0) {
+      int c0 = child0[index];
+      int c1 = child1[index];
+      double perimeter = perimeter(index);
+      double combinedPerimeter = combinedPerimeter(index, leafMinX, leafMinY, leafMaxX, leafMaxY);
+      double cost = 2.0 * combinedPerimeter;
+      double inheritanceCost = 2.0 * (combinedPerimeter - perimeter);
+      double cost0 = childCost(c0, leafMinX, leafMinY, leafMaxX, leafMaxY) + inheritanceCost;
+      double cost1 = childCost(c1, leafMinX, leafMinY, leafMaxX, leafMaxY) + inheritanceCost;
+      if (cost < cost0 && cost < cost1) {
+        break;
+      }
+      index = cost0 < cost1 ? c0 : c1;
+    }
+    int sibling = index;
+
+    // Create a new parent for the leaf and the sibling
+    int oldParent = parent[sibling];
+    int newParent = allocateNode();
+    parent[newParent] = oldParent;
+    child0[newParent] = sibling;
+    child1[newParent] = leaf;
+    height[newParent] = height[sibling] + 1;
+    setUnion(newParent, sibling, leaf);
+    parent[sibling] = newParent;
+    parent[leaf] = newParent;
+    if (oldParent == NONE) {
+      root = newParent;
+    } else if (child0[oldParent] == sibling) {
+      child0[oldParent] = newParent;
+    } else {
+      child1[oldParent] = newParent;
+    }
+    refitUpwards(parent[leaf]);
+  }
+
+  /**
+   * Remove the given leaf from the tree. The node itself is not freed.
+   * 
+   * @param leaf
+   *          The leaf
+   */
+  private void removeLeaf(int leaf) {
+    if (leaf == root) {
+      root = NONE;
+      return;
+    }
+    int p = parent[leaf];
+    int grandParent = parent[p];
+    int sibling = child0[p] == leaf ? child1[p] : child0[p];
+    freeNode(p);
+    if (grandParent == NONE) {
+      root = sibling;
+      parent[sibling] = NONE;
+      return;
+    }
+    if (child0[grandParent] == p) {
+      child0[grandParent] = sibling;
+    } else {
+      child1[grandParent] = sibling;
+    }
+    parent[sibling] = grandParent;
+    refitUpwards(grandParent);
+  }
+
+  /**
+   * Walk from the given node to the root, balancing the nodes and updating their heights and
+   * bounds
+   * 
+   * @param node
+   *          The node
+   */
+  private void refitUpwards(int node) {
+    int index = node;
+    while (index != NONE) {
+      index = balance(index);
+      int c0 = child0[index];
+      int c1 = child1[index];
+      height[index] = 1 + Math.max(height[c0], height[c1]);
+      setUnion(index, c0, c1);
+      index = parent[index];
+    }
+  }
+
+  /**
+   * Perform a rotation at the given node if its subtrees are imbalanced
+   * 
+   * @param a
+   *          The node
+   * @return The node that is now at the position of the given node
+   */
+  private int balance(int a) {
+    if (height[a] < 2) {
+      return a;
+    }
+    int b = child0[a];
+    int c = child1[a];
+    int balance = height[c] - height[b];
+    if (balance > 1) {
+      rotateUp(a, c, b, true);
+      return c;
+    }
+    if (balance < -1) {
+      rotateUp(a, b, c, false);
+      return b;
+    }
+    return a;
+  }
+
+  /**
+   * Rotate the given child of the given node upwards
+   * 
+   * @param a
+   *          The node
+   * @param up
+   *          The child that is rotated upwards
+   * @param other
+   *          The other child of the node
+   * @param upIsSecond Whether the child that is rotated upwards is the second child
+   */
+  private void rotateUp(int a, int up, int other, boolean upIsSecond) {
+    int f = child0[up];
+    int g = child1[up];
+
+    // The node becomes the first child of the rotated node
+    child0[up] = a;
+    parent[up] = parent[a];
+    parent[a] = up;
+    int upParent = parent[up];
+    if (upParent == NONE) {
+      root = up;
+    } else if (child0[upParent] == a) {
+      child0[upParent] = up;
+    } else {
+      child1[upParent] = up;
+    }
+
+    // The higher grandchild stays at the rotated node,
+    // the lower one replaces the rotated node as a child
+    int stay = height[f] > height[g] ? f : g;
+    int move = stay == f ? g : f;
+    child1[up] = stay;
+    if (upIsSecond) {
+      child1[a] = move;
+    } else {
+      child0[a] = move;
+    }
+    parent[move] = a;
+    setUnion(a, other, move);
+    height[a] = 1 + Math.max(height[other], height[move]);
+    setUnion(up, a, stay);
+    height[up] = 1 + Math.max(height[a], height[stay]);
+  }
+
+  /**
+   * Returns the cost for descending into the given child during an insertion
+   * 
+   * @param child
+   *          The child
+   * @param minX
+   *          The minimum x-coordinate of the inserted leaf
+   * @param minY
+   *          The minimum y-coordinate of the inserted leaf
+   * @param maxX
+   *          The maximum x-coordinate of the inserted leaf
+   * @param maxY
+   *          The maximum y-coordinate of the inserted leaf
+   * @return The cost
+   */
+  private double childCost(int child, double minX, double minY, double maxX, double maxY) {
+    double combinedPerimeter = combinedPerimeter(child, minX, minY, maxX, maxY);
+    if (height[child] == 0) {
+      return combinedPerimeter;
+    }
+    return combinedPerimeter - perimeter(child);
+  }
+
+  /**
+   * Returns the perimeter of the bounds of the given node
+   * 
+   * @param node
+   *          The node
+   * @return The perimeter
+   */
+  private double perimeter(int node) {
+    return 2.0 * ((nodeMaxX[node] - nodeMinX[node]) + (nodeMaxY[node] - nodeMinY[node]));
+  }
+
+  /**
+   * Returns the perimeter of the union of the bounds of the given node and the given box
+   * 
+   * @param node
+   *          The node
+   * @param minX
+   *          The minimum x-coordinate of the box
+   * @param minY
+   *          The minimum y-coordinate of the box
+   * @param maxX
+   *          The maximum x-coordinate of the box
+   * @param maxY
+   *          The maximum y-coordinate of the box
+   * @return The perimeter
+   */
+  private double combinedPerimeter(int node, double minX, double minY, double maxX, double maxY) {
+    double w = Math.max(nodeMaxX[node], maxX) - Math.min(nodeMinX[node], minX);
+    double h = Math.max(nodeMaxY[node], maxY) - Math.min(nodeMinY[node], minY);
+    return 2.0 * (w + h);
+  }
+
+  /**
+   * Set the bounds of the given node to the union of the bounds of the other nodes
+   * 
+   * @param node
+   *          The node
+   * @param n0
+   *          The first node
+   * @param n1
+   *          The second node
+   */
+  private void setUnion(int node, int n0, int n1) {
+    nodeMinX[node] = Math.min(nodeMinX[n0], nodeMinX[n1]);
+    nodeMinY[node] = Math.min(nodeMinY[n0], nodeMinY[n1]);
+    nodeMaxX[node] = Math.max(nodeMaxX[n0], nodeMaxX[n1]);
+    nodeMaxY[node] = Math.max(nodeMaxY[n0], nodeMaxY[n1]);
+  }
+
+  /**
+   * Allocate a new node, either from the free list or by growing the node arrays
+   * 
+   * @return The node
+   */
+  private int allocateNode() {
+    if (freeList != NONE) {
+      int node = freeList;
+      freeList = parent[node];
+      return node;
+    }
+    if (nodeCount == parent.length) {
+      int capacity = nodeCount * 2;
+      nodeMinX = Arrays.copyOf(nodeMinX, capacity);
+      nodeMinY = Arrays.copyOf(nodeMinY, capacity);
+      nodeMaxX = Arrays.copyOf(nodeMaxX, capacity);
+      nodeMaxY = Arrays.copyOf(nodeMaxY, capacity);
+      parent = Arrays.copyOf(parent, capacity);
+      child0 = Arrays.copyOf(child0, capacity);
+      child1 = Arrays.copyOf(child1, capacity);
+      height = Arrays.copyOf(height, capacity);
+      boxIndex = Arrays.copyOf(boxIndex, capacity);
+      moved = Arrays.copyOf(moved, capacity);
+    }
+    return nodeCount++;
+  }
+
+  /**
+   * Put the given node into the free list
+   * 
+   * @param node
+   *          The node
+   */
+  private void freeNode(int node) {
+    height[node] = -1;
+    parent[node] = freeList;
+    freeList = node;
+  }
+}
@@ -0,0 +1,452 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.spatial;
+
+import java.util.Arrays;
+
+/**
+ * A point quadtree that is built from arrays of coordinates, as they are stored in a
+ * {@link de.javagl.layoutanalyzer.objects.LayoutState}.<br>
+ * <br>
+ * The tree is stored in flat arrays, so that it can be rebuilt in each step of a simulation
+ * without allocating new objects. The nodes are identified by indices, where the root has the
+ * index 0. Each inner node has four children with consecutive indices, which may be empty. Each
+ * node covers a contiguous range of the {@link #getPoint(int) points}, so that the points of a
+ * leaf can be iterated with a simple loop from {@link #getStart(int)} to {@link #getEnd(int)}.
+ * Each node also stores the number of points that it contains, and their center of mass.
+ */
+public final class QuadTree {
+  /**
+   * The maximum depth of the tree. Nodes at this depth are always leaves, regardless of the
+   * number of points that they contain. This avoids an unbounded subdivision for points that
+   * are (nearly) equal.
+   */
+  private static final int MAX_DEPTH = 40;
+
+  /**
+   * The maximum number of points in a leaf
+   */
+  private final int leafCapacity;
+
+  /**
+   * The indices of the points, ordered so that each node covers a contiguous range
+   */
+  private int[] points;
+
+  /**
+   * A scratch array for partitioning the points
+   */
+  private int[] scratch;
+
+  /**
+   * The number of points in each quadrant, used during the partitioning
+   */
+  private final int[] counts = new int[4];
+
+  /**
+   * The start of the range of each quadrant, used during the partitioning
+   */
+  private final int[] offsets = new int[4];
+
+  /**
+   * The next free position in each quadrant, used during the partitioning
+   */
+  private final int[] positions = new int[4];
+
+  /**
+   * The number of nodes
+   */
+  private int nodeCount;
+
+  /**
+   * The x-coordinates of the centers of the nodes
+   */
+  private double[] centerX;
+
+  /**
+   * The y-coordinates of the centers of the nodes
+   */
+  private double[] centerY;
+
+  /**
+   * Half of the side length of the nodes
+   */
+  private double[] halfSize;
+
+  /**
+   * The x-coordinates of the centers of mass of the nodes
+   */
+  private double[] massX;
+
+  /**
+   * The y-coordinates of the centers of mass of the nodes
+   */
+  private double[] massY;
+
+  /**
+   * The start of the range of points of the nodes, inclusive
+   */
+  private int[] start;
+
+  /**
+   * The end of the range of points of the nodes, exclusive
+   */
+  private int[] end;
+
+  /**
+   * The index of the first child of the nodes, or -1 for leaves
+   */
+  private int[] firstChild;
+
+  /**
+   * Creates a new, empty quadtree
+   * 
+   * @param leafCapacity
+   *          The maximum number of points in a leaf
+   * @throws IllegalArgumentException
+   *           If the leaf capacity is not positive
+   */
+  public QuadTree(int leafCapacity) {
+    if (leafCapacity <= 0) {
+      throw new IllegalArgumentException(
+          "The leaf capacity must be positive, but is " + leafCapacity);
+    }
+    this.leafCapacity = leafCapacity;
+    this.points = new int[0];
+    this.scratch = new int[0];
+    allocateNodes(16);
+  }
+
+  /**
+   * Rebuild this tree for the given points
+   * 
+   * @param x
+   *          The x-coordinates of the points
+   * @param y
+   *          The y-coordinates of the points
+   * @param n
+   *          The number of points
+   */
+  public void build(double[] x, double[] y, int n) {
+    if (points.length < n) {
+      points = new int[n];
+      scratch = new int[n];
+    }
+    nodeCount = 0;
+    if (n == 0) {
+      return;
+    }
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < n; i++) {
+      points[i] = i;
+      minX = Math.min(minX, x[i]);
+      minY = Math.min(minY, y[i]);
+      maxX = Math.max(maxX, x[i]);
+      maxY = Math.max(maxY, y[i]);
+    }
+    double size = Math.max(maxX - minX, maxY - minY);
+    double half = size > 0.0 ? size * 0.5 * (1.0 + 1e-9) : 1.0;
+    int root = createNode((minX + maxX) * 0.5, (minY + maxY) * 0.5, half, 0, n);
+    subdivide(root, x, y, 0);
+  }
+
+  /**
+   * Returns the number of nodes. This is 0 if the tree was built for 0 points.
+   * 
+   * @return The number of nodes
+   */
+  public int getNodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * Returns whether the given node is a leaf
+   * 
+   * @param node
+   *          The node
+   * @return Whether the node is a leaf
+   */
+  public boolean isLeaf(int node) {
+    return firstChild[node] == -1;
+  }
+
+  /**
+   * Returns the index of the first of the four children of the given node, or -1 if the node is a
+   * leaf. The other children have the subsequent indices.
+   * 
+   * @param node
+   *          The node
+   * @return The index of the first child
+   */
+  public int getFirstChild(int node) {
+    return firstChild[node];
+  }
+
+  /**
+   * Returns the number of points in the given node
+   * 
+   * @param node
+   *          The node
+   * @return The number of points
+   */
+  public int getCount(int node) {
+    return end[node] - start[node];
+  }
+
+  /**
+   * Returns the start of the range of {@link #getPoint(int) points} of the given node, inclusive
+   * 
+   * @param node
+   *          The node
+   * @return The start of the range
+   */
+  public int getStart(int node) {
+    return start[node];
+  }
+
+  /**
+   * Returns the end of the range of {@link #getPoint(int) points} of the given node, exclusive
+   * 
+   * @param node
+   *          The node
+   * @return The end of the range
+   */
+  public int getEnd(int node) {
+    return end[node];
+  }
+
+  /**
+   * Returns the index of the point at the given position in the order of this tree
+   * 
+   * @param k
+   *          The position
+   * @return The index of the point
+   */
+  public int getPoint(int k) {
+    return points[k];
+  }
+
+  /**
+   * Returns the x-coordinate of the center of the given node
+   * 
+   * @param node
+   *          The node
+   * @return The coordinate
+   */
+  public double getCenterX(int node) {
+    return centerX[node];
+  }
+
+  /**
+   * Returns the y-coordinate of the center of the given node
+   * 
+   * @param node
+   *          The node
+   * @return The coordinate
+   */
+  public double getCenterY(int node) {
+    return centerY[node];
+  }
+
+  /**
+   * Returns half of the side length of the given node
+   * 
+   * @param node
+   *          The node
+   * @return The half size
+   */
+  public double getHalfSize(int node) {
+    return halfSize[node];
+  }
+
+  /**
+   * Returns the x-coordinate of the center of mass of the points in the given node
+   * 
+   * @param node
+   *          The node
+   * @return The coordinate
+   */
+  public double getMassCenterX(int node) {
+    return massX[node];
+  }
+
+  /**
+   * Returns the y-coordinate of the center of mass of the points in the given node
+   * 
+   * @param node
+   *          The node
+   * @return The coordinate
+   */
+  public double getMassCenterY(int node) {
+    return massY[node];
+  }
+
+  /**
+   * Compute the center of mass of the given node, and subdivide it if it contains too many
+   * points
+   * 
+   * @param node
+   *          The node
+   * @param x
+   *          The x-coordinates of the points
+   * @param y
+   *          The y-coordinates of the points
+   * @param depth
+   *          The depth of the node
+   */
+  private void subdivide(int node, double[] x, double[] y, int depth) {
+    int s = start[node];
+    int e = end[node];
+    double sumX = 0.0;
+    double sumY = 0.0;
+    for (int k = s; k < e; k++) {
+      int p = points[k];
+      sumX += x[p];
+      sumY += y[p];
+    }
+    int count = e - s;
+    if (count > 0) {
+      massX[node] = sumX / count;
+      massY[node] = sumY / count;
+    } else {
+      massX[node] = centerX[node];
+      massY[node] = centerY[node];
+    }
+    if (count <= leafCapacity || depth >= MAX_DEPTH) {
+      return;
+    }
+
+    // Stable partition of the range into the four quadrants
+    double cx = centerX[node];
+    double cy = centerY[node];
+    Arrays.fill(counts, 0);
+    for (int k = s; k < e; k++) {
+      int p = points[k];
+      counts[quadrant(x[p], y[p], cx, cy)]++;
+    }
+    offsets[0] = s;
+    for (int q = 1; q < 4; q++) {
+      offsets[q] = offsets[q - 1] + counts[q - 1];
+    }
+    System.arraycopy(offsets, 0, positions, 0, 4);
+    for (int k = s; k < e; k++) {
+      int p = points[k];
+      scratch[positions[quadrant(x[p], y[p], cx, cy)]++] = p;
+    }
+    System.arraycopy(scratch, s, points, s, count);
+
+    double h = halfSize[node] * 0.5;
+    int first = nodeCount;
+    firstChild[node] = first;
+    for (int q = 0; q < 4; q++) {
+      double childX = (q & 1) == 0 ? cx - h : cx + h;
+      double childY = (q & 2) == 0 ? cy - h : cy + h;
+      createNode(childX, childY, h, offsets[q], offsets[q] + counts[q]);
+    }
+    for (int q = 0; q < 4; q++) {
+      subdivide(first + q, x, y, depth + 1);
+    }
+  }
+
+  /**
+   * Returns the quadrant of the given point relative to the given center
+   * 
+   * @param x
+   *          The x-coordinate of the point
+   * @param y
+   *          The y-coordinate of the point
+   * @param cx
+   *          The x-coordinate of the center
+   * @param cy
+   *          The y-coordinate of the center
+   * @return The quadrant, in [0,4)
+   */
+  private static int quadrant(double x, double y, double cx, double cy) {
+    return (x >= cx ? 1 : 0) | (y >= cy ? 2 : 0);
+  }
+
+  /**
+   * Create a new leaf node
+   * 
+   * @param cx
+   *          The x-coordinate of the center
+   * @param cy
+   *          The y-coordinate of the center
+   * @param half
+   *          Half of the side length
+   * @param s
+   *          The start of the range of points
+   * @param e
+   *          The end of the range of points
+   * @return The index of the node
+   */
+  private int createNode(double cx, double cy, double half, int s, int e) {
+    if (nodeCount == centerX.length) {
+      allocateNodes(nodeCount + (nodeCount >> 1));
+    }
+    int node = nodeCount;
+    centerX[node] = cx;
+    centerY[node] = cy;
+    halfSize[node] = half;
+    start[node] = s;
+    end[node] = e;
+    firstChild[node] = -1;
+    nodeCount++;
+    return node;
+  }
+
+  /**
+   * Make sure that the node arrays have the given capacity
+   * 
+   * @param capacity
+   *          The capacity
+   */
+  private void allocateNodes(int capacity) {
+    if (centerX == null) {
+      centerX = new double[capacity];
+      centerY = new double[capacity];
+      halfSize = new double[capacity];
+      massX = new double[capacity];
+      massY = new double[capacity];
+      start = new int[capacity];
+      end = new int[capacity];
+      firstChild = new int[capacity];
+      return;
+    }
+    centerX = Arrays.copyOf(centerX, capacity);
+    centerY = Arrays.copyOf(centerY, capacity);
+    halfSize = Arrays.copyOf(halfSize, capacity);
+    massX = Arrays.copyOf(massX, capacity);
+    massY = Arrays.copyOf(massY, capacity);
+    start = Arrays.copyOf(start, capacity);
+    end = Arrays.copyOf(end, capacity);
+    firstChild = Arrays.copyOf(firstChild, capacity);
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.spatial;
+
+/**
+ * Implementation of a {@link BroadPhase} that uses the sort-and-sweep (or sweep-and-prune)
+ * method along the x-axis.<br>
+ * <br>
+ * The boxes are kept in an array that is sorted by their minimum x-coordinate. The array is
+ * kept between two calls, and re-sorted with an insertion sort. Since the boxes usually move
+ * only slightly between two steps of a simulation, the array is nearly sorted, and the insertion
+ * sort takes linear time. When the boxes have changed too much, or their number has changed, the
+ * array is sorted from scratch with a merge sort.<br>
+ * <br>
+ * The sweep visits the boxes in this order. For each box, the subsequent boxes are visited until
+ * their minimum x-coordinate is larger than the maximum x-coordinate of the box. Among these,
+ * the ones that also overlap along the y-axis are reported.
+ */
+public final class SweepAndPrune implements BroadPhase {
+  /**
+   * The maximum number of element moves of the insertion sort, relative to the number of boxes,
+   * before it falls back to a merge sort
+   */
+  private static final int MAX_RELATIVE_MOVES = 8;
+
+  /**
+   * The indices of the boxes, sorted by their minimum x-coordinate
+   */
+  private int[] order;
+
+  /**
+   * The number of valid elements in the {@link #order}
+   */
+  private int size;
+
+  /**
+   * A scratch array for the merge sort
+   */
+  private int[] scratch;
+
+  /**
+   * Creates a new instance
+   */
+  public SweepAndPrune() {
+    this.order = new int[0];
+    this.scratch = new int[0];
+    this.size = -1;
+  }
+
+  @Override
+  public void computePairs(double[] minX, double[] minY, double[] maxX, double[] maxY, int n,
+      PairConsumer consumer) {
+    sort(minX, n);
+    for (int a = 0; a < n; a++) {
+      int i = order[a];
+      double maxXi = maxX[i];
+      double minYi = minY[i];
+      double maxYi = maxY[i];
+      for (int b = a + 1; b < n; b++) {
+        int j = order[b];
+        if (minX[j] > maxXi) {
+          break;
+        }
+        if (minY[j] <= maxYi && minYi <= maxY[j]) {
+          if (i < j) {
+            consumer.accept(i, j);
+          } else {
+            consumer.accept(j, i);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Bring the {@link #order} into a state where it is sorted by the given keys
+   * 
+   * @param keys
+   *          The keys
+   * @param n
+   *          The number of keys
+   */
+  private void sort(double[] keys, int n) {
+    if (n != size) {
+      if (order.length < n) {
+        order = new int[n];
+        scratch = new int[n];
+      }
+      for (int i = 0; i < n; i++) {
+        order[i] = i;
+      }
+      size = n;
+      mergeSort(keys, 0, n);
+      return;
+    }
+    if (!insertionSort(keys, n, (long) MAX_RELATIVE_MOVES * n)) {
+      mergeSort(keys, 0, n);
+    }
+  }
+
+  /**
+   * Sort the {@link #order} by the given keys with an insertion sort, as long as the number of
+   * moves does not exceed the given limit
+   * 
+   * @param keys
+   *          The keys
+   * @param n
+   *          The number of keys
+   * @param maxMoves
+   *          The maximum number of moves
+   * @return Whether the sort was completed
+   */
+  private boolean insertionSort(double[] keys, int n, long maxMoves) {
+    long moves = 0;
+    for (int a = 1; a < n; a++) {
+      int index = order[a];
+      double key = keys[index];
+      int b = a - 1;
+      while (b >= 0 && keys[order[b]] > key) {
+        order[b + 1] = order[b];
+        b--;
+        moves++;
+      }
+      order[b + 1] = index;
+      if (moves > maxMoves) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Sort the given range of the {@link #order} by the given keys with a stable merge sort
+   * 
+   * @param keys
+   *          The keys
+   * @param from
+   *          The start of the range, inclusive
+   * @param to
+   *          The end of the range, exclusive
+   */
+  private void mergeSort(double[] keys, int from, int to) {
+    if (to - from < 2) {
+      return;
+    }
+    int mid = (from + to) >>> 1;
+    mergeSort(keys, from, mid);
+    mergeSort(keys, mid, to);
+    if (!(keys[order[mid - 1]] > keys[order[mid]])) {
+      return;
+    }
+    System.arraycopy(order, from, scratch, from, to - from);
+    int a = from;
+    int b = mid;
+    int k = from;
+    while (a < mid && b < to) {
+      if (keys[scratch[b]] < keys[scratch[a]]) {
+        order[k++] = scratch[b++];
+      } else {
+        order[k++] = scratch[a++];
+      }
+    }
+    while (a < mid) {
+      order[k++] = scratch[a++];
+    }
+    while (b < to) {
+      order[k++] = scratch[b++];
+    }
+  }
+}
@@ -0,0 +1,276 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.spatial;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid of square cells for finding the points that are close to a given point, also
+ * known as a cell list.<br>
+ * <br>
+ * The grid is built from arrays of coordinates, as they are stored in a
+ * {@link de.javagl.layoutanalyzer.objects.LayoutState}. The cells are not stored explicitly.
+ * Instead, the integer coordinates of each cell are mapped to one of a fixed number of buckets
+ * with a hash function, so that the grid covers the whole plane: Its memory requirements only
+ * depend on the number of points, and not on the area that they occupy, and points may move
+ * arbitrarily far between two builds. Different cells may share a bucket, so the points that are
+ * returned for a cell have to be filtered by their actual distance.<br>
+ * <br>
+ * The buffers of the grid are reused when it is rebuilt, as long as the number of points does
+ * not grow.
+ */
+public final class UniformGrid {
+  /**
+   * The side length of the cells
+   */
+  private double cellSize;
+
+  /**
+   * The bit mask for computing the bucket from a hash code. The number of buckets is a power of
+   * two, and this mask is the number of buckets minus one.
+   */
+  private int mask;
+
+  /**
+   * The start of the range of {@link #points} for each bucket. The range of bucket b is
+   * [bucketStart[b], bucketStart[b+1]).
+   */
+  private int[] bucketStart;
+
+  /**
+   * The indices of the points, ordered by their bucket
+   */
+  private int[] points;
+
+  /**
+   * The x-coordinates of the cells of the points
+   */
+  private int[] cellX;
+
+  /**
+   * The y-coordinates of the cells of the points
+   */
+  private int[] cellY;
+
+  /**
+   * The buckets that have been collected in {@link #collectNeighborBuckets(int, int)}
+   */
+  private final int[] neighborBuckets = new int[9];
+
+  /**
+   * Creates a new, empty grid
+   */
+  public UniformGrid() {
+    this.cellSize = 1.0;
+    this.mask = 0;
+    this.bucketStart = new int[2];
+    this.points = new int[0];
+    this.cellX = new int[0];
+    this.cellY = new int[0];
+  }
+
+  /**
+   * Rebuild this grid for the given points
+   * 
+   * @param x
+   *          The x-coordinates of the points
+   * @param y
+   *          The y-coordinates of the points
+   * @param n
+   *          The number of points
+   * @param cellSize
+   *          The side length of the cells
+   * @throws IllegalArgumentException
+   *           If the cell size is not positive
+   */
+  public void build(double[] x, double[] y, int n, double cellSize) {
+    if (!(cellSize > 0.0)) {
+      throw new IllegalArgumentException("The cell size must be positive, but is " + cellSize);
+    }
+    this.cellSize = cellSize;
+    int buckets = Integer.highestOneBit(Math.max(1, 2 * n - 1)) << 1;
+    mask = buckets - 1;
+    if (bucketStart.length < buckets + 1) {
+      bucketStart = new int[buckets + 1];
+    } else {
+      Arrays.fill(bucketStart, 0, buckets + 1, 0);
+    }
+    if (points.length < n) {
+      points = new int[n];
+      cellX = new int[n];
+      cellY = new int[n];
+    }
+
+    // Counting sort of the points by their bucket
+    for (int i = 0; i < n; i++) {
+      cellX[i] = toCell(x[i]);
+      cellY[i] = toCell(y[i]);
+      bucketStart[bucket(cellX[i], cellY[i]) + 1]++;
+    }
+    for (int b = 0; b < buckets; b++) {
+      bucketStart[b + 1] += bucketStart[b];
+    }
+    for (int i = 0; i < n; i++) {
+      int b = bucket(cellX[i], cellY[i]);
+      points[bucketStart[b]++] = i;
+    }
+    for (int b = buckets; b > 0; b--) {
+      bucketStart[b] = bucketStart[b - 1];
+    }
+    bucketStart[0] = 0;
+  }
+
+  /**
+   * Returns the side length of the cells that was used for the last build
+   * 
+   * @return The cell size
+   */
+  public double getCellSize() {
+    return cellSize;
+  }
+
+  /**
+   * Collect the distinct buckets of the 3x3 cells around the cell of the given point. The buckets
+   * can then be obtained with {@link #getNeighborBucket(int)}.
+   * 
+   * @param i
+   *          The index of the point
+   * @return The number of distinct buckets
+   */
+  public int collectNeighborBuckets(int i) {
+    return collectNeighborBuckets(cellX[i], cellY[i]);
+  }
+
+  /**
+   * Returns the bucket with the given index, from the last call to
+   * {@link #collectNeighborBuckets(int)}
+   * 
+   * @param k
+   *          The index, smaller than the number of collected buckets
+   * @return The bucket
+   */
+  public int getNeighborBucket(int k) {
+    return neighborBuckets[k];
+  }
+
+  /**
+   * Returns the start of the range of {@link #getPoint(int) points} in the given bucket,
+   * inclusive
+   * 
+   * @param bucket
+   *          The bucket
+   * @return The start of the range
+   */
+  public int getBucketStart(int bucket) {
+    return bucketStart[bucket];
+  }
+
+  /**
+   * Returns the end of the range of {@link #getPoint(int) points} in the given bucket, exclusive
+   * 
+   * @param bucket
+   *          The bucket
+   * @return The end of the range
+   */
+  public int getBucketEnd(int bucket) {
+    return bucketStart[bucket + 1];
+  }
+
+  /**
+   * Returns the index of the point at the given position in the order of this grid
+   * 
+   * @param k
+   *          The position
+   * @return The index of the point
+   */
+  public int getPoint(int k) {
+    return points[k];
+  }
+
+  /**
+   * Collect the distinct buckets of the 3x3 cells around the given cell
+   * 
+   * @param cx
+   *          The x-coordinate of the cell
+   * @param cy
+   *          The y-coordinate of the cell
+   * @return The number of distinct buckets
+   */
+  private int collectNeighborBuckets(int cx, int cy) {
+    int count = 0;
+    for (int dy = -1; dy <= 1; dy++) {
+      for (int dx = -1; dx <= 1; dx++) {
+        int b = bucket(cx + dx, cy + dy);
+        boolean contained = false;
+        for (int k = 0; k < count; k++) {
+          if (neighborBuckets[k] == b) {
+            contained = true;
+            break;
+          }
+        }
+        if (!contained) {
+          neighborBuckets[count++] = b;
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns the integer cell coordinate for the given coordinate. Coordinates that are outside of
+   * the range that can be represented are clamped.
+   * 
+   * @param value
+   *          The coordinate
+   * @return The cell coordinate
+   */
+  private int toCell(double value) {
+    double cell = Math.floor(value / cellSize);
+    if (cell >= Integer.MAX_VALUE - 1) {
+      return Integer.MAX_VALUE - 1;
+    }
+    if (cell <= Integer.MIN_VALUE + 1) {
+      return Integer.MIN_VALUE + 1;
+    }
+    return (int) cell;
+  }
+
+  /**
+   * Returns the bucket for the cell with the given coordinates
+   * 
+   * @param cx
+   *          The x-coordinate of the cell
+   * @param cy
+   *          The y-coordinate of the cell
+   * @return The bucket
+   */
+  private int bucket(int cx, int cy) {
+    int h = cx * 0x9E3779B1 + cy * 0x85EBCA77;
+    h ^= h >>> 15;
+    return h & mask;
+  }
+}
@@ -30,6 +30,8 @@ import java.awt.geom.Point2D;
 import java.util.List;
 
 import de.javagl.layoutanalyzer.AspectData;
+import de.javagl.layoutanalyzer.IndexedAspectData;
+import de.javagl.layoutanalyzer.IndexedQualityData;
 import de.javagl.layoutanalyzer.QualityData;
 import de.javagl.layoutanalyzer.objects.LayoutObject;
 
@@ -43,7 +45,10 @@ public class QualityDatas {
    * {@link AspectData#getForce(LayoutObject) force} for a certain {@link LayoutObject} is smaller
    * than or equal to the given minimum length, then the quality will be 1.0. When the length of the
    * {@link AspectData#getForce(LayoutObject) force} for a certain {@link LayoutObject} is greater
-   * than or equal to the given maximum length, then the quality will be 0.0.
+   * than or equal to the given maximum length, then the quality will be 0.0.<br>
+   * <br>
+   * The result is an {@link IndexedQualityData}. If the given data is an
+   * {@link IndexedAspectData}, then the forces are read from its arrays.
    * 
    * @param layoutData
    *          The {@link AspectData}
@@ -55,18 +60,33 @@ public class QualityDatas {
    */
   public static QualityData computeFromForceLengths(AspectData layoutData, double minForceLength,
       double maxForceLength) {
-    QualityData qualityData = new QualityData(layoutData.getLayoutObjects());
     List<LayoutObject> layoutObjects = layoutData.getLayoutObjects();
+    IndexedQualityData qualityData = new IndexedQualityData(layoutObjects);
+    double[] forceX = null;
+    double[] forceY = null;
+    if (layoutData instanceof IndexedAspectData) {
+      IndexedAspectData indexedData = (IndexedAspectData) layoutData;
+      forceX = indexedData.getForcesX();
+      forceY = indexedData.getForcesY();
+    }
+    Point2D force = new Point2D.Double();
     double invDelta = 1.0 / (maxForceLength - minForceLength);
-    for (LayoutObject layoutObject : layoutObjects) {
-      Point2D force = layoutData.getForce(layoutObject);
-      double x = force.getX();
-      double y = force.getY();
+    for (int i = 0; i < layoutObjects.size(); i++) {
+      double x;
+      double y;
+      if (forceX != null) {
+        x = forceX[i];
+        y = forceY[i];
+      } else {
+        layoutData.getForce(layoutObjects.get(i), force);
+        x = force.getX();
+        y = force.getY();
+      }
       double length = Math.sqrt(x * x + y * y);
 
       double alpha = (length - minForceLength) * invDelta;
       double quality = Math.max(0.0, Math.min(1.0, 1.0 - alpha));
-      qualityData.setQuality(layoutObject, quality);
+      qualityData.setQuality(i, quality);
     }
     return qualityData;
   }
@@ -26,16 +26,23 @@
  */
 package de.javagl.layoutanalyzer.utils;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.function.DoubleFunction;
 
 /**
  * Implementation of a <code>DoubleFunction</code> that internally maintains a queue of
- * <code>Double</code> values, and offers access to the elements of this queue via the
+ * <code>double</code> values, and offers access to the elements of this queue via the
  * {@link #apply(double)} method. The argument that is passed to this method is assumed to be in
  * [0,1), and will be mapped to the index of the respective queue element. If the resulting index is
- * out of bounds, <code>null</code> will be returned.
+ * out of bounds, <code>null</code> will be returned.<br>
+ * <br>
+ * The values are stored in a ring buffer of primitive values, so that {@link #add(double)} takes
+ * constant time and does not allocate any objects. The queue may be written by a single thread
+ * (via {@link #add(double)} and {@link #clear()}), and read concurrently by any number of other
+ * threads, without locking: Each modification increments a sequence counter before and after the
+ * buffer is changed. A reader retries when the counter was odd or changed while it was reading,
+ * so that it always sees a consistent state of this queue. A consistent copy of all values can be
+ * obtained with {@link #snapshot(double[])}.
  */
 final public class QueueDoubleFunction implements DoubleFunction<Double> {
   /**
@@ -44,47 +51,134 @@ final public class QueueDoubleFunction implements DoubleFunction<Double> {
   private final int size;
 
   /**
-   * The values of the queue
+   * The values of the queue, as the raw long bits of the double values. Element
+   * <code>k % size</code> contains the k-th value that was added.
    */
-  private final List<Double> values;
+  private final AtomicLongArray values;
+
+  /**
+   * The total number of values that have been added since the queue was created or cleared
+   */
+  private volatile long added;
+
+  /**
+   * The sequence counter, which is odd while the queue is modified
+   */
+  private volatile long sequence;
 
   /**
    * Creates a new function with the given queue size
    * 
    * @param size
    *          The size of the queue
+   * @throws IllegalArgumentException
+   *           If the size is negative
    */
   public QueueDoubleFunction(int size) {
+    if (size < 0) {
+      throw new IllegalArgumentException("The size may not be negative, but is " + size);
+    }
     this.size = size;
-    this.values = new ArrayList<Double>();
+    this.values = new AtomicLongArray(size);
   }
 
   /**
-   * Add the given value to the internal queue, maintaining the maximum size of the queue
+   * Add the given value to the internal queue, maintaining the maximum size of the queue. This
+   * may only be called by the single thread that writes the queue.
    * 
    * @param value
    *          The value to add
    */
   public void add(double value) {
-    values.add(value);
-    while (values.size() > size) {
-      values.remove(0);
+    if (size == 0) {
+      return;
     }
+    long s = sequence;
+    sequence = s + 1;
+    long n = added;
+    values.set((int) (n % size), Double.doubleToRawLongBits(value));
+    added = n + 1;
+    sequence = s + 2;
   }
 
   /**
-   * Removes all elements from the internal queue
+   * Removes all elements from the internal queue. This may only be called by the single thread
+   * that writes the queue.
    */
   public void clear() {
-    values.clear();
+    long s = sequence;
+    sequence = s + 1;
+    added = 0;
+    sequence = s + 2;
+  }
+
+  /**
+   * Returns the number of elements that are currently contained in the queue
+   * 
+   * @return The number of elements
+   */
+  public int getCount() {
+    return (int) Math.min(added, size);
+  }
+
+  /**
+   * Copy the elements of the queue into the given array, from the oldest to the most recent one,
+   * and return the number of elements. The elements are a consistent snapshot of the queue: When
+   * the queue is modified while the elements are copied, then the copy is repeated.
+   * 
+   * @param target
+   *          The target array, whose length must be at least the size of the queue
+   * @return The number of elements that have been copied
+   * @throws IllegalArgumentException
+   *           If the target array is too small
+   */
+  public int snapshot(double[] target) {
+    if (target.length < size) {
+      throw new IllegalArgumentException(
+          "The target length is " + target.length + ", but must be at least " + size);
+    }
+    while (true) {
+      long s = sequence;
+      if ((s & 1) != 0) {
+        Thread.yield();
+        continue;
+      }
+      long n = added;
+      int count = (int) Math.min(n, size);
+      long first = n - count;
+      for (int i = 0; i < count; i++) {
+        target[i] = Double.longBitsToDouble(values.get((int) ((first + i) % size)));
+      }
+      if (sequence == s) {
+        return count;
+      }
+    }
   }
 
   @Override
   public Double apply(double value) {
     int index = (int) (value * size);
-    if (index < 0 || index >= values.size()) {
+    if (index < 0 || index >= size) {
       return null;
     }
-    return values.get(index);
+    while (true) {
+      long s = sequence;
+      if ((s & 1) != 0) {
+        Thread.yield();
+        continue;
+      }
+      long n = added;
+      int count = (int) Math.min(n, size);
+      long bits = 0;
+      if (index < count) {
+        bits = values.get((int) ((n - count + index) % size));
+      }
+      if (sequence == s) {
+        if (index >= count) {
+          return null;
+        }
+        return Double.longBitsToDouble(bits);
+      }
+    }
   }
-}
\ No newline at end of file
+}
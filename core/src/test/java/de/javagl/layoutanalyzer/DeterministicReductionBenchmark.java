@@ -0,0 +1,228 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import de.javagl.layoutanalyzer.aspects.AbstractAspect;
+import de.javagl.layoutanalyzer.aspects.Aspect;
+import de.javagl.layoutanalyzer.aspects.PairwiseRepulsionForce;
+import de.javagl.layoutanalyzer.aspects.ShapeBoundsBorderRepulsionForce;
+import de.javagl.layoutanalyzer.aspects.ShapeBoundsRepulsionForce;
+import de.javagl.layoutanalyzer.aspects.TargetPositionForce;
+import de.javagl.layoutanalyzer.objects.BaseLayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutState;
+
+/**
+ * A benchmark for the {@link Layouter#setDeterministic(boolean) deterministic} mode of the
+ * {@link Layouter}.<br>
+ * <br>
+ * The first part runs the same layout with different numbers of threads for the
+ * {@link Layouter#setAspectExecutor(java.util.concurrent.ExecutorService) aspect executor}, in
+ * the default and in the deterministic mode, and prints the time per step and a checksum of the
+ * resulting positions. In the deterministic mode, all checksums must be equal.<br>
+ * <br>
+ * The second part measures the additional cost of the compensated summation in isolation, with
+ * {@link Aspect}s that always return the same precomputed {@link AspectData}.
+ */
+public class DeterministicReductionBenchmark {
+  /**
+   * The entry point of this benchmark
+   * 
+   * @param args
+   *          Not used
+   */
+  public static void main(String[] args) {
+    int[] threadCounts = { 0, 1, 2, 4, Runtime.getRuntime().availableProcessors() };
+    for (boolean deterministic : new boolean[] { false, true }) {
+      long expectedChecksum = 0;
+      boolean identical = true;
+      for (int t = 0; t < threadCounts.length; t++) {
+        long checksum = runLayout(800, 40, threadCounts[t], deterministic);
+        if (t == 0) {
+          expectedChecksum = checksum;
+        } else if (checksum != expectedChecksum) {
+          identical = false;
+        }
+      }
+      System.out.println("deterministic=" + deterministic + ", identical for all thread counts: "
+          + identical);
+    }
+    runSummationBenchmark(100000, 8, 50);
+  }
+
+  /**
+   * Run a layout with the given number of objects and steps
+   * 
+   * @param n
+   *          The number of objects
+   * @param steps
+   *          The number of steps
+   * @param threads
+   *          The number of threads for the aspect executor, or 0 if no executor should be used
+   * @param deterministic
+   *          Whether the deterministic mode should be used
+   * @return A checksum of the resulting positions
+   */
+  private static long runLayout(int n, int steps, int threads, boolean deterministic) {
+    Random random = new Random(0);
+    Layout<LayoutObject> layout = new Layout<LayoutObject>();
+    for (int i = 0; i < n; i++) {
+      BaseLayoutObject layoutObject = new BaseLayoutObject();
+      layoutObject.setPosition(random.nextDouble(), random.nextDouble());
+      layoutObject.setShape(new Rectangle2D.Double(-0.01, -0.005, 0.02, 0.01));
+      layout.addLayoutObject(layoutObject);
+    }
+    Layouter<LayoutObject> layouter = new Layouter<LayoutObject>(layout);
+    layouter.addAspect(new TargetPositionForce(layout.getLayoutObjects()));
+    layouter.addAspect(new PairwiseRepulsionForce(0.05));
+    layouter.addAspect(new ShapeBoundsRepulsionForce());
+    layouter.addAspect(
+        new ShapeBoundsBorderRepulsionForce(new Rectangle2D.Double(0.1, 0.1, 0.8, 0.8)));
+    layouter.setDeterministic(deterministic);
+    ExecutorService executor = null;
+    if (threads > 0) {
+      executor = Executors.newFixedThreadPool(threads);
+      layouter.setAspectExecutor(executor);
+    }
+    long before = System.nanoTime();
+    for (int s = 0; s < steps; s++) {
+      layouter.performStep(false);
+    }
+    double ms = (System.nanoTime() - before) / 1e6 / steps;
+    if (executor != null) {
+      executor.shutdown();
+    }
+    long checksum = computeChecksum(layout.getLayoutState());
+    System.out.printf(Locale.ENGLISH,
+        "deterministic=%5b, threads=%2d: %9.3f ms/step, checksum %016x%n", deterministic,
+        threads, ms, checksum);
+    return checksum;
+  }
+
+  /**
+   * Compute a checksum of the bit patterns of all positions in the given state
+   * 
+   * @param state
+   *          The {@link LayoutState}
+   * @return The checksum
+   */
+  private static long computeChecksum(LayoutState state) {
+    double[] positionX = state.getPositionsX();
+    double[] positionY = state.getPositionsY();
+    long checksum = 17;
+    for (int i = 0; i < state.size(); i++) {
+      checksum = checksum * 31 + Double.doubleToLongBits(positionX[i]);
+      checksum = checksum * 31 + Double.doubleToLongBits(positionY[i]);
+    }
+    return checksum;
+  }
+
+  /**
+   * Measure the time for steps with the given number of objects and constant aspects, in the
+   * default and in the deterministic mode
+   * 
+   * @param n
+   *          The number of objects
+   * @param numAspects
+   *          The number of aspects
+   * @param steps
+   *          The number of steps to measure
+   */
+  private static void runSummationBenchmark(int n, int numAspects, int steps) {
+    Random random = new Random(0);
+    Layout<LayoutObject> layout = new Layout<LayoutObject>();
+    for (int i = 0; i < n; i++) {
+      BaseLayoutObject layoutObject = new BaseLayoutObject();
+      layoutObject.setPosition(random.nextDouble(), random.nextDouble());
+      layout.addLayoutObject(layoutObject);
+    }
+    List<Aspect> aspects = new ArrayList<Aspect>();
+    for (int a = 0; a < numAspects; a++) {
+      aspects.add(new ConstantForce("C" + a, layout.getLayoutObjects(), a));
+    }
+    Layouter<LayoutObject> layouter = new Layouter<LayoutObject>(layout, aspects);
+    double[] ms = new double[2];
+    for (int run = 0; run < 3; run++) {
+      for (int mode = 0; mode < 2; mode++) {
+        layouter.setDeterministic(mode == 1);
+        long before = System.nanoTime();
+        for (int s = 0; s < steps; s++) {
+          layouter.performStep(false);
+        }
+        ms[mode] = (System.nanoTime() - before) / 1e6 / steps;
+      }
+    }
+    System.out.printf(Locale.ENGLISH,
+        "n=%d, %d aspects: default %9.3f ms/step, deterministic %9.3f ms/step, overhead %5.1f%%%n",
+        n, numAspects, ms[0], ms[1], (ms[1] / ms[0] - 1.0) * 100.0);
+  }
+
+  /**
+   * An {@link Aspect} that always returns the same {@link AspectData}
+   */
+  private static class ConstantForce extends AbstractAspect {
+    /**
+     * The {@link AspectData}
+     */
+    private final AspectData layoutData;
+
+    /**
+     * Creates a new instance that assigns a small random force to each of the given objects
+     * 
+     * @param name
+     *          The name
+     * @param layoutObjects
+     *          The {@link LayoutObject}s
+     * @param seed
+     *          The random seed
+     */
+    ConstantForce(String name, List<LayoutObject> layoutObjects, long seed) {
+      super(name);
+      Random random = new Random(seed);
+      layoutData = new AspectData(Collections.unmodifiableList(layoutObjects), getWeight());
+      for (LayoutObject layoutObject : layoutObjects) {
+        layoutData.setForce(layoutObject,
+            new Point2D.Double(random.nextDouble() - 0.5, random.nextDouble() - 0.5));
+      }
+    }
+
+    @Override
+    public AspectData computeLayoutData(List<? extends LayoutObject> layoutObjects) {
+      return layoutData;
+    }
+  }
+}
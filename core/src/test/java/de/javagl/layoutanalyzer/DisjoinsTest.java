@@ -1,5 +1,7 @@
 package de.javagl.layoutanalyzer;
 
+import static org.junit.Assert.assertEquals;
+
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Graphics;
@@ -13,9 +15,42 @@ import javax.swing.JFrame;
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
 
+import org.junit.Test;
+
 import de.javagl.layoutanalyzer.utils.Disjoins;
 
 public class DisjoinsTest {
+  @Test
+  public void testDisjointIntervals() {
+    assertEquals(0.0, Disjoins.computeMinDisjoinMovement(0, 1, 2, 3), 0.0);
+    assertEquals(0.0, Disjoins.computeMinDisjoinMovement(2, 3, 0, 1), 0.0);
+  }
+
+  @Test
+  public void testOverlappingIntervals() {
+    // Moving interval 0 to the left by 0.5 is shorter than moving it to the right by 2.5
+    assertEquals(-0.5, Disjoins.computeMinDisjoinMovement(0, 1, 0.5, 2), 0.0);
+    assertEquals(0.5, Disjoins.computeMinDisjoinMovement(1.5, 3, 0, 2), 0.0);
+    // For equal intervals, the movement to the right is chosen
+    assertEquals(1.0, Disjoins.computeMinDisjoinMovement(1, 2, 1, 2), 0.0);
+  }
+
+  @Test
+  public void testRectangles() {
+    Rectangle2D rectangle0 = new Rectangle2D.Double(300, 300, 200, 100);
+    Rectangle2D rectangle1 = new Rectangle2D.Double(200, 200, 150, 200);
+    Point2D disjoin = Disjoins.computeMinDisjoinMovement(rectangle0, rectangle1, null);
+    assertEquals(new Point2D.Double(50, 0), disjoin);
+
+    Rectangle2D moved = new Rectangle2D.Double(rectangle0.getX() + disjoin.getX(),
+        rectangle0.getY() + disjoin.getY(), rectangle0.getWidth(), rectangle0.getHeight());
+    assertEquals(rectangle1.getMaxX(), moved.getMinX(), 0.0);
+
+    Rectangle2D separate = new Rectangle2D.Double(600, 600, 10, 10);
+    assertEquals(new Point2D.Double(0, 0),
+        Disjoins.computeMinDisjoinMovement(rectangle0, separate, new Point2D.Double(1, 1)));
+  }
+
   public static void main(String[] args) {
     SwingUtilities.invokeLater(() -> createAndShowGUI());
   }
@@ -0,0 +1,253 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+import java.util.Locale;
+import java.util.Random;
+
+import de.javagl.layoutanalyzer.spatial.BroadPhase;
+import de.javagl.layoutanalyzer.spatial.DynamicAabbTree;
+import de.javagl.layoutanalyzer.spatial.SweepAndPrune;
+
+/**
+ * A benchmark for the {@link DynamicAabbTree}.<br>
+ * <br>
+ * A set of boxes is moved by small random amounts in each step, with an amplitude that
+ * decreases over time, similar to the objects of a converging layout. The overlapping pairs are
+ * computed in each step with a persistent {@link DynamicAabbTree}, with a tree that is built from
+ * scratch in each step, and with a persistent {@link SweepAndPrune}. The time per step and a
+ * checksum of the reported overlapping pairs are printed. The checksums must be equal.<br>
+ * <br>
+ * Afterwards, some boxes are removed, and the persistent tree is informed about this, to check
+ * that its results are still equal to the ones of a new tree.
+ */
+public class DynamicAabbTreeBenchmark {
+  /**
+   * The entry point of this benchmark
+   * 
+   * @param args
+   *          Not used
+   */
+  public static void main(String[] args) {
+    for (int n : new int[] { 100000, 200000 }) {
+      runBenchmark(n, 50);
+    }
+    runRemovalCheck(20000, 20);
+  }
+
+  /**
+   * Run the benchmark with the given number of boxes and steps
+   * 
+   * @param n
+   *          The number of boxes
+   * @param steps
+   *          The number of steps
+   */
+  private static void runBenchmark(int n, int steps) {
+    Boxes boxes = new Boxes(n, 0);
+    Boxes rebuildBoxes = new Boxes(n, 0);
+    Boxes sweepBoxes = new Boxes(n, 0);
+    DynamicAabbTree tree = new DynamicAabbTree();
+    SweepAndPrune sweepAndPrune = new SweepAndPrune();
+    long treeNs = 0;
+    long rebuildNs = 0;
+    long sweepNs = 0;
+    boolean identical = true;
+    for (int s = 0; s < steps; s++) {
+      double amplitude = 0.2 / (1 + s);
+      boxes.move(amplitude);
+      rebuildBoxes.move(amplitude);
+      sweepBoxes.move(amplitude);
+
+      long t0 = System.nanoTime();
+      long treeChecksum = boxes.computeChecksum(tree);
+      long t1 = System.nanoTime();
+      long rebuildChecksum = rebuildBoxes.computeChecksum(new DynamicAabbTree());
+      long t2 = System.nanoTime();
+      long sweepChecksum = sweepBoxes.computeChecksum(sweepAndPrune);
+      long t3 = System.nanoTime();
+
+      // Skip the first step, where all structures are built from scratch
+      if (s > 0) {
+        treeNs += t1 - t0;
+        rebuildNs += t2 - t1;
+        sweepNs += t3 - t2;
+      }
+      if (treeChecksum != rebuildChecksum || treeChecksum != sweepChecksum) {
+        identical = false;
+      }
+    }
+    System.out.printf(Locale.ENGLISH,
+        "n=%7d: persistent tree %8.3f ms/step, rebuilt tree %8.3f ms/step, "
+            + "sweep and prune %8.3f ms/step, height %d, identical: %b%n",
+        n, treeNs * 1e-6 / (steps - 1), rebuildNs * 1e-6 / (steps - 1),
+        sweepNs * 1e-6 / (steps - 1), tree.getHeight(), identical);
+  }
+
+  /**
+   * Check that the results of a tree that is informed about removed boxes are equal to the
+   * results of a new tree
+   * 
+   * @param n
+   *          The number of boxes
+   * @param removals
+   *          The number of removals
+   */
+  private static void runRemovalCheck(int n, int removals) {
+    Boxes boxes = new Boxes(n, 1);
+    DynamicAabbTree tree = new DynamicAabbTree();
+    boxes.computeChecksum(tree);
+    Random random = new Random(2);
+    boolean identical = true;
+    for (int r = 0; r < removals; r++) {
+      int index = random.nextInt(boxes.n);
+      boxes.remove(index);
+      tree.remove(index);
+      boxes.move(0.01);
+      long treeChecksum = boxes.computeChecksum(tree);
+      long newChecksum = boxes.computeChecksum(new DynamicAabbTree());
+      if (treeChecksum != newChecksum) {
+        identical = false;
+      }
+    }
+    System.out.println("After " + removals + " removals, identical: " + identical);
+  }
+
+  /**
+   * A set of boxes in a unit square, with a size that causes a few overlaps per box
+   */
+  private static class Boxes {
+    /**
+     * The number of boxes
+     */
+    int n;
+
+    /**
+     * The minimum x-coordinates
+     */
+    final double[] minX;
+
+    /**
+     * The minimum y-coordinates
+     */
+    final double[] minY;
+
+    /**
+     * The maximum x-coordinates
+     */
+    final double[] maxX;
+
+    /**
+     * The maximum y-coordinates
+     */
+    final double[] maxY;
+
+    /**
+     * The random number generator for the movements
+     */
+    final Random random;
+
+    /**
+     * Creates the given number of boxes
+     * 
+     * @param n
+     *          The number of boxes
+     * @param seed
+     *          The random seed
+     */
+    Boxes(int n, long seed) {
+      this.n = n;
+      this.minX = new double[n];
+      this.minY = new double[n];
+      this.maxX = new double[n];
+      this.maxY = new double[n];
+      this.random = new Random(seed);
+      double size = 1.0 / Math.sqrt(n);
+      for (int i = 0; i < n; i++) {
+        double w = size * (0.5 + random.nextDouble());
+        double h = size * (0.5 + random.nextDouble());
+        minX[i] = random.nextDouble();
+        minY[i] = random.nextDouble();
+        maxX[i] = minX[i] + w;
+        maxY[i] = minY[i] + h;
+      }
+    }
+
+    /**
+     * Move each box by a random amount, relative to its size
+     * 
+     * @param amplitude
+     *          The maximum movement, relative to the size of the box
+     */
+    void move(double amplitude) {
+      for (int i = 0; i < n; i++) {
+        double dx = (random.nextDouble() - 0.5) * amplitude * (maxX[i] - minX[i]);
+        double dy = (random.nextDouble() - 0.5) * amplitude * (maxY[i] - minY[i]);
+        minX[i] += dx;
+        maxX[i] += dx;
+        minY[i] += dy;
+        maxY[i] += dy;
+      }
+    }
+
+    /**
+     * Remove the box with the given index, shifting all subsequent boxes
+     * 
+     * @param index
+     *          The index
+     */
+    void remove(int index) {
+      int tail = n - index - 1;
+      System.arraycopy(minX, index + 1, minX, index, tail);
+      System.arraycopy(minY, index + 1, minY, index, tail);
+      System.arraycopy(maxX, index + 1, maxX, index, tail);
+      System.arraycopy(maxY, index + 1, maxY, index, tail);
+      n--;
+    }
+
+    /**
+     * Compute a checksum of the pairs of overlapping boxes that are found by the given
+     * {@link BroadPhase}. Only the pairs that actually overlap are taken into account, and the
+     * checksum does not depend on the order of the pairs.
+     * 
+     * @param broadPhase
+     *          The {@link BroadPhase}
+     * @return The checksum
+     */
+    long computeChecksum(BroadPhase broadPhase) {
+      long[] checksum = new long[1];
+      broadPhase.computePairs(minX, minY, maxX, maxY, n, (i, j) -> {
+        if (minX[j] <= maxX[i] && minX[i] <= maxX[j] && minY[j] <= maxY[i]
+            && minY[i] <= maxY[j]) {
+          long h = (i * 0x9E3779B97F4A7C15L) ^ (j * 0xC2B2AE3D27D4EB4FL);
+          checksum[0] += h ^ (h >>> 29);
+        }
+      });
+      return checksum[0];
+    }
+  }
+}
@@ -0,0 +1,363 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import de.javagl.layoutanalyzer.spatial.DynamicAabbTree;
+
+/**
+ * Tests for the {@link DynamicAabbTree}, comparing the overlapping pairs that it reports after
+ * inserting, removing and moving boxes with the pairs that are found by a brute-force check of
+ * all pairs
+ */
+public class DynamicAabbTreeTest {
+  /**
+   * The size of the area in which the boxes are placed
+   */
+  private static final double EXTENT = 400.0;
+
+  @Test
+  public void testInsert() {
+    Boxes boxes = new Boxes(300, 0);
+    DynamicAabbTree tree = new DynamicAabbTree();
+    assertEquals(-1, tree.getHeight());
+
+    // Insert the boxes in several batches, which are added at the end
+    for (int n = 1; n <= boxes.n; n += 37) {
+      assertPairs(boxes, n, tree);
+      assertEquals(n, tree.size());
+    }
+    assertPairs(boxes, boxes.n, tree);
+    assertEquals(boxes.n, tree.size());
+
+    // The insertion keeps the tree balanced
+    assertTrue("Height " + tree.getHeight(), tree.getHeight() <= 4 * log2(boxes.n));
+  }
+
+  @Test
+  public void testRemove() {
+    Boxes boxes = new Boxes(300, 1);
+    DynamicAabbTree tree = new DynamicAabbTree();
+    tree.setRebuildInterval(0);
+    assertPairs(boxes, boxes.n, tree);
+
+    // Remove single boxes at the start, in the middle and at the end, and several boxes
+    // before the next update
+    int[][] removals = { { 0 }, { 150 }, { boxes.n - 4 }, { 10, 10, 200, 3 } };
+    for (int[] indices : removals) {
+      for (int index : indices) {
+        tree.remove(index);
+        boxes.remove(index);
+      }
+      assertEquals(boxes.n, tree.size());
+      assertPairs(boxes, boxes.n, tree);
+    }
+
+    // Boxes that are added after a removal get the next indices
+    boxes.add(new Random(2), 20);
+    assertPairs(boxes, boxes.n, tree);
+    assertEquals(boxes.n, tree.size());
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testRemoveInvalidIndex() {
+    Boxes boxes = new Boxes(10, 3);
+    DynamicAabbTree tree = new DynamicAabbTree();
+    assertPairs(boxes, boxes.n, tree);
+    tree.remove(10);
+  }
+
+  @Test
+  public void testMoveWithFattenedBounds() {
+    Boxes boxes = new Boxes(100, 4);
+    DynamicAabbTree tree = new DynamicAabbTree();
+    tree.setRebuildInterval(0);
+    assertPairs(boxes, boxes.n, tree);
+
+    // A box of size 10 has a margin of 1.0 with the default fattening factor
+    int index = 5;
+    boxes.set(index, 100.0, 100.0, 10.0);
+    assertPairs(boxes, boxes.n, tree);
+    assertTrue(queryContains(tree, 100.0, 100.0, 110.0, 110.0, index));
+
+    // Moving the box inside its fattened bounds does not re-insert it. A query for a region
+    // that only touches the old fattened bounds still finds it.
+    boxes.set(index, 100.5, 100.5, 10.0);
+    assertPairs(boxes, boxes.n, tree);
+    assertTrue(queryContains(tree, 98.0, 98.0, 99.0, 99.0, index));
+
+    // Moving the box outside its fattened bounds re-inserts it at the new position
+    boxes.set(index, 300.0, 300.0, 10.0);
+    assertPairs(boxes, boxes.n, tree);
+    assertFalse(queryContains(tree, 98.0, 98.0, 99.0, 99.0, index));
+    assertTrue(queryContains(tree, 300.0, 300.0, 310.0, 310.0, index));
+  }
+
+  @Test
+  public void testRandomMovement() {
+    for (int rebuildInterval : new int[] { 0, 1, 10 }) {
+      Boxes boxes = new Boxes(300, 5);
+      DynamicAabbTree tree = new DynamicAabbTree();
+      tree.setRebuildInterval(rebuildInterval);
+      Random random = new Random(6);
+      for (int s = 0; s < 30; s++) {
+        // Most boxes move by small amounts, some of them jump to a new position
+        for (int i = 0; i < boxes.n; i++) {
+          double size = boxes.maxX[i] - boxes.minX[i];
+          if (random.nextInt(20) == 0) {
+            boxes.set(i, random.nextDouble() * EXTENT, random.nextDouble() * EXTENT, size);
+          } else {
+            boxes.set(i, boxes.minX[i] + random.nextGaussian(),
+                boxes.minY[i] + random.nextGaussian(), size);
+          }
+        }
+        if (s % 5 == 4) {
+          int index = random.nextInt(boxes.n);
+          tree.remove(index);
+          boxes.remove(index);
+          boxes.add(random, 1);
+        }
+        assertPairs(boxes, boxes.n, tree);
+      }
+    }
+  }
+
+  /**
+   * Assert that the pairs that are reported by the given tree for the first n of the given boxes
+   * are the overlapping pairs, as found by a brute-force check, and that each pair is reported
+   * once, with the smaller index first. Also check that a query for each box finds all
+   * overlapping boxes.
+   * 
+   * @param boxes
+   *          The {@link Boxes}
+   * @param n
+   *          The number of boxes
+   * @param tree
+   *          The {@link DynamicAabbTree}
+   */
+  private static void assertPairs(Boxes boxes, int n, DynamicAabbTree tree) {
+    Set<Long> expected = new HashSet<Long>();
+    for (int i = 0; i < n; i++) {
+      for (int j = i + 1; j < n; j++) {
+        if (boxes.overlap(i, j)) {
+          expected.add(encode(i, j));
+        }
+      }
+    }
+    Set<Long> actual = new HashSet<Long>();
+    tree.computePairs(boxes.minX, boxes.minY, boxes.maxX, boxes.maxY, n, (i, j) -> {
+      assertTrue("Pair " + i + ", " + j + " not ordered", i < j);
+      assertTrue("Pair " + i + ", " + j + " reported twice", actual.add(encode(i, j)));
+    });
+    assertEquals(expected, actual);
+
+    for (int i = 0; i < n; i++) {
+      Set<Integer> found = new HashSet<Integer>();
+      tree.query(boxes.minX[i], boxes.minY[i], boxes.maxX[i], boxes.maxY[i], found::add);
+      for (int j = 0; j < n; j++) {
+        if (i == j || boxes.overlap(i, j)) {
+          assertTrue("Query for " + i + " did not find " + j, found.contains(j));
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns whether a query of the given tree for the given region reports the given box
+   * 
+   * @param tree
+   *          The {@link DynamicAabbTree}
+   * @param minX
+   *          The minimum x-coordinate of the region
+   * @param minY
+   *          The minimum y-coordinate of the region
+   * @param maxX
+   *          The maximum x-coordinate of the region
+   * @param maxY
+   *          The maximum y-coordinate of the region
+   * @param index
+   *          The index of the box
+   * @return Whether the box was reported
+   */
+  private static boolean queryContains(DynamicAabbTree tree, double minX, double minY,
+      double maxX, double maxY, int index) {
+    Set<Integer> found = new HashSet<Integer>();
+    tree.query(minX, minY, maxX, maxY, found::add);
+    return found.contains(index);
+  }
+
+  /**
+   * Encode the given pair of indices as a single value
+   * 
+   * @param i
+   *          The first index
+   * @param j
+   *          The second index
+   * @return The encoded pair
+   */
+  private static long encode(int i, int j) {
+    return ((long) i << 32) | j;
+  }
+
+  /**
+   * Returns the base-2 logarithm of the given value, rounded up
+   * 
+   * @param n
+   *          The value
+   * @return The logarithm
+   */
+  private static int log2(int n) {
+    return 32 - Integer.numberOfLeadingZeros(n - 1);
+  }
+
+  /**
+   * A set of square boxes that are stored in arrays, as they are passed to the tree
+   */
+  private static class Boxes {
+    /**
+     * The number of boxes
+     */
+    int n;
+
+    /**
+     * The minimum x-coordinates
+     */
+    double[] minX;
+
+    /**
+     * The minimum y-coordinates
+     */
+    double[] minY;
+
+    /**
+     * The maximum x-coordinates
+     */
+    double[] maxX;
+
+    /**
+     * The maximum y-coordinates
+     */
+    double[] maxY;
+
+    /**
+     * Creates the given number of boxes with random positions and sizes
+     * 
+     * @param n
+     *          The number of boxes
+     * @param seed
+     *          The random seed
+     */
+    Boxes(int n, long seed) {
+      this.minX = new double[0];
+      this.minY = new double[0];
+      this.maxX = new double[0];
+      this.maxY = new double[0];
+      add(new Random(seed), n);
+    }
+
+    /**
+     * Add the given number of boxes with random positions and sizes at the end
+     * 
+     * @param random
+     *          The random number generator
+     * @param count
+     *          The number of boxes
+     */
+    void add(Random random, int count) {
+      int newN = n + count;
+      minX = Arrays.copyOf(minX, newN);
+      minY = Arrays.copyOf(minY, newN);
+      maxX = Arrays.copyOf(maxX, newN);
+      maxY = Arrays.copyOf(maxY, newN);
+      int oldN = n;
+      n = newN;
+      for (int i = oldN; i < newN; i++) {
+        set(i, random.nextDouble() * EXTENT, random.nextDouble() * EXTENT,
+            5.0 + random.nextDouble() * 25.0);
+      }
+    }
+
+    /**
+     * Set the box with the given index
+     * 
+     * @param index
+     *          The index
+     * @param x
+     *          The minimum x-coordinate
+     * @param y
+     *          The minimum y-coordinate
+     * @param size
+     *          The size
+     */
+    void set(int index, double x, double y, double size) {
+      minX[index] = x;
+      minY[index] = y;
+      maxX[index] = x + size;
+      maxY[index] = y + size;
+    }
+
+    /**
+     * Remove the box with the given index, shifting all subsequent boxes
+     * 
+     * @param index
+     *          The index
+     */
+    void remove(int index) {
+      int tail = n - index - 1;
+      System.arraycopy(minX, index + 1, minX, index, tail);
+      System.arraycopy(minY, index + 1, minY, index, tail);
+      System.arraycopy(maxX, index + 1, maxX, index, tail);
+      System.arraycopy(maxY, index + 1, maxY, index, tail);
+      n--;
+    }
+
+    /**
+     * Returns whether the boxes with the given indices overlap, including the case that they
+     * only touch at their borders
+     * 
+     * @param i
+     *          The first index
+     * @param j
+     *          The second index
+     * @return Whether the boxes overlap
+     */
+    boolean overlap(int i, int j) {
+      return minX[j] <= maxX[i] && minX[i] <= maxX[j] && minY[j] <= maxY[i]
+          && minY[i] <= maxY[j];
+    }
+  }
+}
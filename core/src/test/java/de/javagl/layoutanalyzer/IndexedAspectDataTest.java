@@ -0,0 +1,154 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.javagl.layoutanalyzer.objects.BaseLayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutObject;
+
+/**
+ * Tests comparing the {@link IndexedAspectData} with the map-based {@link AspectData}
+ */
+public class IndexedAspectDataTest {
+  /**
+   * The number of objects
+   */
+  private static final int N = 100;
+
+  @Test
+  public void testForcesAreTheSameAsInAspectData() {
+    List<LayoutObject> layoutObjects = createLayoutObjects();
+    AspectData expected = new AspectData(layoutObjects, 0.5);
+    IndexedAspectData actual = new IndexedAspectData(layoutObjects, 0.5);
+    assertEquals(expected.getWeight(), actual.getWeight(), 0.0);
+    assertForces(expected, actual);
+
+    Random random = new Random(0);
+    for (int s = 0; s < 1000; s++) {
+      int index = random.nextInt(N);
+      LayoutObject layoutObject = layoutObjects.get(index);
+      double fx = random.nextGaussian();
+      double fy = random.nextGaussian();
+      switch (s % 3) {
+        case 0:
+          expected.setForce(layoutObject, new Point2D.Double(fx, fy));
+          actual.setForce(layoutObject, new Point2D.Double(fx, fy));
+          break;
+        case 1:
+          expected.setForce(layoutObject, new Point2D.Double(fx, fy));
+          actual.setForce(index, fx, fy);
+          break;
+        default:
+          Point2D force = expected.getForce(layoutObject);
+          expected.setForce(layoutObject,
+              new Point2D.Double(force.getX() + fx, force.getY() + fy));
+          actual.addForce(index, fx, fy);
+          break;
+      }
+    }
+    assertForces(expected, actual);
+  }
+
+  @Test
+  public void testForceOfUnknownObject() {
+    IndexedAspectData layoutData = new IndexedAspectData(createLayoutObjects(), 1.0);
+    Point2D force = layoutData.getForce(new BaseLayoutObject(), new Point2D.Double(1.0, 2.0));
+    assertEquals(new Point2D.Double(), force);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetForceOfUnknownObject() {
+    IndexedAspectData layoutData = new IndexedAspectData(createLayoutObjects(), 1.0);
+    layoutData.setForce(new BaseLayoutObject(), new Point2D.Double(1.0, 2.0));
+  }
+
+  @Test
+  public void testReuseOrCreate() {
+    List<LayoutObject> layoutObjects = createLayoutObjects();
+    IndexedAspectData layoutData = IndexedAspectData.reuseOrCreate(null, layoutObjects, 1.0);
+    layoutData.setForce(3, 1.0, 2.0);
+
+    List<LayoutObject> sameLayoutObjects = new ArrayList<LayoutObject>(layoutObjects);
+    IndexedAspectData reused = IndexedAspectData.reuseOrCreate(layoutData, sameLayoutObjects, 0.5);
+    assertSame(layoutData, reused);
+    assertEquals(0.5, reused.getWeight(), 0.0);
+    assertEquals(0.0, reused.getForceX(3), 0.0);
+    assertEquals(0.0, reused.getForceY(3), 0.0);
+
+    List<LayoutObject> otherLayoutObjects = new ArrayList<LayoutObject>(layoutObjects);
+    Collections.swap(otherLayoutObjects, 0, 1);
+    assertNotSame(layoutData, IndexedAspectData.reuseOrCreate(layoutData, otherLayoutObjects, 1.0));
+
+    AspectData plainData = new AspectData(layoutObjects, 1.0);
+    assertNotSame(plainData, IndexedAspectData.reuseOrCreate(plainData, layoutObjects, 1.0));
+  }
+
+  /**
+   * Create an unmodifiable list of {@link LayoutObject}s
+   * 
+   * @return The {@link LayoutObject}s
+   */
+  private static List<LayoutObject> createLayoutObjects() {
+    List<LayoutObject> layoutObjects = new ArrayList<LayoutObject>();
+    for (int i = 0; i < N; i++) {
+      layoutObjects.add(new BaseLayoutObject());
+    }
+    return Collections.unmodifiableList(layoutObjects);
+  }
+
+  /**
+   * Assert that the given {@link AspectData} contain the same forces for all objects
+   * 
+   * @param expected
+   *          The expected {@link AspectData}
+   * @param actual
+   *          The actual {@link AspectData}
+   */
+  private static void assertForces(AspectData expected, IndexedAspectData actual) {
+    List<LayoutObject> layoutObjects = expected.getLayoutObjects();
+    assertEquals(layoutObjects, actual.getLayoutObjects());
+    for (int i = 0; i < layoutObjects.size(); i++) {
+      Point2D expectedForce = expected.getForce(layoutObjects.get(i));
+      assertEquals(expectedForce, actual.getForce(layoutObjects.get(i)));
+      assertEquals(expectedForce.getX(), actual.getForceX(i), 0.0);
+      assertEquals(expectedForce.getY(), actual.getForceY(i), 0.0);
+      assertEquals(expectedForce.getX(), actual.getForcesX()[i], 0.0);
+      assertEquals(expectedForce.getY(), actual.getForcesY()[i], 0.0);
+    }
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.DoubleSummaryStatistics;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.javagl.layoutanalyzer.objects.BaseLayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutObject;
+
+/**
+ * Tests comparing the statistics that are maintained by the {@link IndexedQualityData} with the
+ * statistics that are computed from all quality values with a <code>DoubleSummaryStatistics</code>,
+ * as it is done in the {@link QualityData}
+ */
+public class IndexedQualityDataTest {
+  /**
+   * The number of objects
+   */
+  private static final int N = 200;
+
+  /**
+   * The tolerance for the comparison of the statistics
+   */
+  private static final double EPSILON = 1e-12;
+
+  @Test
+  public void testStatisticsWhileSettingAndReplacingValues() {
+    List<LayoutObject> layoutObjects = PairwiseAspectsTest.createLayout(N, 0).getLayoutObjects();
+    IndexedQualityData qualityData = new IndexedQualityData(layoutObjects, 10);
+    assertStatistics(qualityData);
+
+    Random random = new Random(0);
+    for (int s = 0; s < 5000; s++) {
+      int index = random.nextInt(N);
+      double quality = random.nextDouble();
+      if (s % 2 == 0) {
+        qualityData.setQuality(index, quality);
+      } else {
+        qualityData.setQuality(layoutObjects.get(index), quality);
+      }
+      if (s % 97 == 0) {
+        assertStatistics(qualityData);
+      }
+    }
+    assertStatistics(qualityData);
+  }
+
+  @Test
+  public void testStatisticsWhenReplacingExtrema() {
+    List<LayoutObject> layoutObjects = PairwiseAspectsTest.createLayout(N, 1).getLayoutObjects();
+    IndexedQualityData qualityData = new IndexedQualityData(layoutObjects, 4, -1.0, 1.0);
+    for (int i = 0; i < N; i++) {
+      qualityData.setQuality(i, Math.sin(i));
+    }
+    assertStatistics(qualityData);
+    for (int s = 0; s < 20; s++) {
+      int minIndex = 0;
+      int maxIndex = 0;
+      for (int i = 0; i < N; i++) {
+        if (qualityData.getQuality(i) < qualityData.getQuality(minIndex)) {
+          minIndex = i;
+        }
+        if (qualityData.getQuality(i) > qualityData.getQuality(maxIndex)) {
+          maxIndex = i;
+        }
+      }
+      qualityData.setQuality(minIndex, 0.0);
+      qualityData.setQuality(maxIndex, 0.5);
+      assertStatistics(qualityData);
+    }
+  }
+
+  @Test
+  public void testStatisticsWithNaN() {
+    List<LayoutObject> layoutObjects = PairwiseAspectsTest.createLayout(N, 4).getLayoutObjects();
+    IndexedQualityData qualityData = new IndexedQualityData(layoutObjects, 10);
+    Random random = new Random(4);
+    for (int i = 0; i < N; i++) {
+      qualityData.setQuality(i, random.nextDouble());
+    }
+    qualityData.setQuality(3, Double.NaN);
+    qualityData.setQuality(5, Double.NaN);
+    assertEquals(N, qualityData.getCount());
+    assertEquals(Double.NaN, qualityData.getMin(), 0.0);
+    assertEquals(Double.NaN, qualityData.getMax(), 0.0);
+    assertEquals(Double.NaN, qualityData.getAverage(), 0.0);
+    assertEquals(Double.NaN, qualityData.getVariance(), 0.0);
+
+    // Replacing the NaN values restores the statistics of the remaining values
+    qualityData.setQuality(3, 0.25);
+    assertEquals(Double.NaN, qualityData.getAverage(), 0.0);
+    qualityData.setQuality(5, 0.75);
+    assertStatistics(qualityData);
+  }
+
+  @Test
+  public void testQualityOfUnknownObject() {
+    List<LayoutObject> layoutObjects = PairwiseAspectsTest.createLayout(N, 2).getLayoutObjects();
+    IndexedQualityData qualityData = new IndexedQualityData(layoutObjects);
+    assertEquals(Double.NaN, qualityData.getQuality(new BaseLayoutObject()), 0.0);
+    assertEquals(Double.NaN, qualityData.getQuality(0), 0.0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetQualityOfUnknownObject() {
+    List<LayoutObject> layoutObjects = PairwiseAspectsTest.createLayout(N, 3).getLayoutObjects();
+    IndexedQualityData qualityData = new IndexedQualityData(layoutObjects);
+    qualityData.setQuality(new BaseLayoutObject(), 0.5);
+  }
+
+  /**
+   * Assert that the statistics of the given {@link IndexedQualityData} are the same as the ones
+   * that are computed from all quality values that have been set
+   * 
+   * @param qualityData
+   *          The {@link IndexedQualityData}
+   */
+  private static void assertStatistics(IndexedQualityData qualityData) {
+    DoubleSummaryStatistics statistics = new DoubleSummaryStatistics();
+    int[] histogram = new int[qualityData.getHistogramBinCount()];
+    double range = qualityData.getHistogramMax() - qualityData.getHistogramMin();
+    for (int i = 0; i < qualityData.size(); i++) {
+      double quality = qualityData.getQuality(i);
+      if (!Double.isNaN(quality)) {
+        statistics.accept(quality);
+        if (histogram.length > 0) {
+          int bin = (int) ((quality - qualityData.getHistogramMin()) / range * histogram.length);
+          histogram[Math.max(0, Math.min(histogram.length - 1, bin))]++;
+        }
+      }
+    }
+    double average = statistics.getAverage();
+    double sumOfSquares = 0.0;
+    for (int i = 0; i < qualityData.size(); i++) {
+      double quality = qualityData.getQuality(i);
+      if (!Double.isNaN(quality)) {
+        sumOfSquares += (quality - average) * (quality - average);
+      }
+    }
+    double variance = statistics.getCount() == 0 ? 0.0 : sumOfSquares / statistics.getCount();
+
+    assertEquals(statistics.getCount(), qualityData.getCount());
+    assertEquals(statistics.getMin(), qualityData.getMin(), 0.0);
+    assertEquals(statistics.getMax(), qualityData.getMax(), 0.0);
+    assertEquals(average, qualityData.getAverage(), EPSILON);
+    assertEquals(variance, qualityData.getVariance(), EPSILON);
+    for (int b = 0; b < histogram.length; b++) {
+      assertEquals("Histogram bin " + b, histogram[b], qualityData.getHistogramCount(b));
+    }
+  }
+}
@@ -0,0 +1,258 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import de.javagl.layoutanalyzer.integration.Integrator;
+import de.javagl.layoutanalyzer.integration.Integrators;
+import de.javagl.layoutanalyzer.objects.BaseLayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutState;
+
+/**
+ * Tests for the {@link Integrator} implementations that are created by the {@link Integrators}.
+ * Each integrator performs one or two steps for a single object with a constant force, and the
+ * results are compared with the closed-form update rules.
+ */
+public class IntegratorsTest {
+  /**
+   * The mass of the object
+   */
+  private static final double MASS = 2.0;
+
+  /**
+   * The x-component of the constant force
+   */
+  private static final double FORCE_X = 3.0;
+
+  /**
+   * The y-component of the constant force
+   */
+  private static final double FORCE_Y = -1.0;
+
+  /**
+   * The initial x-component of the velocity
+   */
+  private static final double VELOCITY_X = 0.5;
+
+  /**
+   * The initial y-component of the velocity
+   */
+  private static final double VELOCITY_Y = 0.25;
+
+  /**
+   * The initial x-coordinate of the position
+   */
+  private static final double POSITION_X = 10.0;
+
+  /**
+   * The initial y-coordinate of the position
+   */
+  private static final double POSITION_Y = 20.0;
+
+  /**
+   * The time step
+   */
+  private static final double DT = 0.5;
+
+  /**
+   * The tolerance for the comparison with the closed-form results
+   */
+  private static final double EPSILON = 1e-12;
+
+  @Test
+  public void testOverdampedIsTheDefault() {
+    Layouter<?> layouter = new Layouter<>(PairwiseAspectsTest.createLayout(1, 0));
+    assertSame(Integrators.overdamped(), layouter.getIntegrator());
+  }
+
+  @Test
+  public void testOverdampedMatchesSeparatePasses() {
+    LayouterTest.assertSameAsSeparatePasses(
+        layouter -> layouter.setIntegrator(Integrators.overdamped()));
+  }
+
+  @Test
+  public void testOverdamped() {
+    LayoutState state = createState();
+    Integrators.overdamped().integrate(state, 0, DT);
+    double ax = FORCE_X / MASS;
+    double ay = FORCE_Y / MASS;
+    double vx = ax * DT;
+    double vy = ay * DT;
+    assertState(state, ax, ay, vx, vy, POSITION_X + vx * DT, POSITION_Y + vy * DT);
+  }
+
+  @Test
+  public void testDampedEuler() {
+    double damping = 0.2;
+    LayoutState state = createState();
+    Integrators.dampedEuler(damping).integrate(state, 0, DT);
+    double ax = FORCE_X / MASS;
+    double ay = FORCE_Y / MASS;
+    double vx = (1.0 - damping) * VELOCITY_X + ax * DT;
+    double vy = (1.0 - damping) * VELOCITY_Y + ay * DT;
+    assertState(state, ax, ay, vx, vy, POSITION_X + vx * DT, POSITION_Y + vy * DT);
+  }
+
+  @Test
+  public void testVelocityVerlet() {
+    double damping = 0.2;
+    double retention = 1.0 - damping;
+    Integrator integrator = Integrators.velocityVerlet(damping);
+    LayoutState state = createState();
+    double ax = FORCE_X / MASS;
+    double ay = FORCE_Y / MASS;
+
+    // In the first step, the previous acceleration that is stored in the state is zero, so only
+    // half of the current acceleration contributes to the velocity
+    integrator.integrate(state, 0, DT);
+    double vx1 = retention * (VELOCITY_X + 0.5 * ax * DT);
+    double vy1 = retention * (VELOCITY_Y + 0.5 * ay * DT);
+    double px1 = POSITION_X + (vx1 + 0.5 * ax * DT) * DT;
+    double py1 = POSITION_Y + (vy1 + 0.5 * ay * DT) * DT;
+    assertState(state, ax, ay, vx1, vy1, px1, py1);
+
+    // In the second step, the previous and the current acceleration are averaged
+    integrator.integrate(state, 0, DT);
+    double vx2 = retention * (vx1 + ax * DT);
+    double vy2 = retention * (vy1 + ay * DT);
+    double px2 = px1 + (vx2 + 0.5 * ax * DT) * DT;
+    double py2 = py1 + (vy2 + 0.5 * ay * DT) * DT;
+    assertState(state, ax, ay, vx2, vy2, px2, py2);
+  }
+
+  @Test
+  public void testHeavyBall() {
+    double momentum = 0.75;
+    LayoutState state = createState();
+    Integrators.heavyBall(momentum).integrate(state, 0, DT);
+    double ax = FORCE_X / MASS;
+    double ay = FORCE_Y / MASS;
+    double vx = momentum * VELOCITY_X + ax * DT;
+    double vy = momentum * VELOCITY_Y + ay * DT;
+    assertState(state, ax, ay, vx, vy, POSITION_X + vx * DT, POSITION_Y + vy * DT);
+  }
+
+  @Test
+  public void testNesterov() {
+    double momentum = 0.75;
+    LayoutState state = createState();
+    Integrators.nesterov(momentum).integrate(state, 0, DT);
+    double ax = FORCE_X / MASS;
+    double ay = FORCE_Y / MASS;
+    double vx = momentum * VELOCITY_X + ax * DT;
+    double vy = momentum * VELOCITY_Y + ay * DT;
+    double px = POSITION_X + (momentum * vx + ax * DT) * DT;
+    double py = POSITION_Y + (momentum * vy + ay * DT) * DT;
+    assertState(state, ax, ay, vx, vy, px, py);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDampedEulerWithNegativeDamping() {
+    Integrators.dampedEuler(-0.1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDampedEulerWithTooLargeDamping() {
+    Integrators.dampedEuler(1.1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testVelocityVerletWithInvalidDamping() {
+    Integrators.velocityVerlet(Double.NaN);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testHeavyBallWithMomentumOne() {
+    Integrators.heavyBall(1.0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNesterovWithNegativeMomentum() {
+    Integrators.nesterov(-0.5);
+  }
+
+  @Test
+  public void testValidBoundaryValues() {
+    Integrators.dampedEuler(0.0);
+    Integrators.dampedEuler(1.0);
+    Integrators.velocityVerlet(0.0);
+    Integrators.velocityVerlet(1.0);
+    Integrators.heavyBall(0.0);
+    Integrators.nesterov(0.0);
+  }
+
+  /**
+   * Create a {@link LayoutState} with a single object that has the initial position, velocity
+   * and mass, and the constant force
+   * 
+   * @return The {@link LayoutState}
+   */
+  private static LayoutState createState() {
+    BaseLayoutObject layoutObject = new BaseLayoutObject();
+    layoutObject.setPosition(POSITION_X, POSITION_Y);
+    layoutObject.setVelocity(VELOCITY_X, VELOCITY_Y);
+    layoutObject.setMass(MASS);
+    layoutObject.setForce(FORCE_X, FORCE_Y);
+    LayoutState state = new LayoutState();
+    state.add(layoutObject);
+    return state;
+  }
+
+  /**
+   * Assert that the object in the given {@link LayoutState} has the given acceleration,
+   * velocity and position
+   * 
+   * @param state
+   *          The {@link LayoutState}
+   * @param ax
+   *          The x-component of the acceleration
+   * @param ay
+   *          The y-component of the acceleration
+   * @param vx
+   *          The x-component of the velocity
+   * @param vy
+   *          The y-component of the velocity
+   * @param px
+   *          The x-coordinate of the position
+   * @param py
+   *          The y-coordinate of the position
+   */
+  private static void assertState(LayoutState state, double ax, double ay, double vx, double vy,
+      double px, double py) {
+    assertEquals("Acceleration x", ax, state.getAccelerationsX()[0], EPSILON);
+    assertEquals("Acceleration y", ay, state.getAccelerationsY()[0], EPSILON);
+    assertEquals("Velocity x", vx, state.getVelocitiesX()[0], EPSILON);
+    assertEquals("Velocity y", vy, state.getVelocitiesY()[0], EPSILON);
+    assertEquals("Position x", px, state.getPositionsX()[0], EPSILON);
+    assertEquals("Position y", py, state.getPositionsY()[0], EPSILON);
+  }
+}
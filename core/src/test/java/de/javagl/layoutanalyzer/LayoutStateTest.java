@@ -0,0 +1,151 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Point2D;
+
+import org.junit.Test;
+
+import de.javagl.layoutanalyzer.objects.BaseLayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutState;
+
+/**
+ * Tests for the ownership of {@link BaseLayoutObject}s by a {@link LayoutState}, and for the
+ * synchronization of objects that are contained in more than one state
+ */
+public class LayoutStateTest {
+  @Test
+  public void testAddingTwice() {
+    Layout<LayoutObject> layout = new Layout<LayoutObject>();
+    BaseLayoutObject layoutObject = new BaseLayoutObject();
+    layout.addLayoutObject(layoutObject);
+    layout.addLayoutObject(layoutObject);
+    LayoutState layoutState = layout.getLayoutState();
+    assertEquals(2, layout.getLayoutObjects().size());
+    assertEquals(2, layoutState.size());
+    assertSame(layoutObject, layoutState.getLayoutObject(1));
+
+    // The first entry is the backing entry, and the second one is synchronized
+    layoutObject.setPosition(1.0, 2.0);
+    assertEquals(1.0, layoutState.getPositionsX()[0], 0.0);
+    layoutState.pull();
+    assertEquals(1.0, layoutState.getPositionsX()[1], 0.0);
+    assertEquals(2.0, layoutState.getPositionsY()[1], 0.0);
+    layoutState.getPositionsX()[1] = 3.0;
+    layoutState.push();
+    assertEquals(3.0, layoutObject.getPositionX(), 0.0);
+
+    // Removing the object once keeps the other entry
+    layout.removeLayoutObject(layoutObject);
+    assertEquals(1, layout.getLayoutObjects().size());
+    assertEquals(1, layoutState.size());
+    assertSame(layoutObject, layoutState.getLayoutObject(0));
+    layoutObject.setPosition(4.0, 5.0);
+    layoutState.pull();
+    assertEquals(4.0, layoutState.getPositionsX()[0], 0.0);
+    layout.removeLayoutObject(layoutObject);
+    assertEquals(0, layoutState.size());
+    assertEquals(new Point2D.Double(4.0, 5.0), layoutObject.getPosition());
+  }
+
+  @Test
+  public void testSharingBetweenLayouts() {
+    Layout<LayoutObject> layout0 = new Layout<LayoutObject>();
+    Layout<LayoutObject> layout1 = new Layout<LayoutObject>();
+    BaseLayoutObject layoutObject = new BaseLayoutObject();
+    layoutObject.setPosition(1.0, 2.0);
+    layout0.addLayoutObject(layoutObject);
+    layout1.addLayoutObject(layoutObject);
+    assertEquals(1, layout1.getLayoutObjects().size());
+    LayoutState layoutState0 = layout0.getLayoutState();
+    LayoutState layoutState1 = layout1.getLayoutState();
+    assertEquals(1.0, layoutState1.getPositionsX()[0], 0.0);
+
+    // The object is a view on the first state, and synchronized with the second one
+    layoutState1.getPositionsX()[0] = 3.0;
+    layoutState1.push();
+    assertEquals(3.0, layoutObject.getPositionX(), 0.0);
+    assertEquals(3.0, layoutState0.getPositionsX()[0], 0.0);
+    layoutState0.getPositionsY()[0] = 4.0;
+    layoutState1.pull();
+    assertEquals(4.0, layoutState1.getPositionsY()[0], 0.0);
+
+    // After being removed from the first layout, the object keeps its values, and is still
+    // synchronized with the second one
+    layout0.removeLayoutObject(layoutObject);
+    assertEquals(new Point2D.Double(3.0, 4.0), layoutObject.getPosition());
+    layoutObject.setPosition(5.0, 6.0);
+    layoutState1.pull();
+    assertEquals(5.0, layoutState1.getPositionsX()[0], 0.0);
+  }
+
+  @Test
+  public void testRemovingKeepsSharedObjectsInTheirState() {
+    Layout<LayoutObject> layout0 = new Layout<LayoutObject>();
+    Layout<LayoutObject> layout1 = new Layout<LayoutObject>();
+    BaseLayoutObject shared = new BaseLayoutObject();
+    layout0.addLayoutObject(shared);
+    BaseLayoutObject first = new BaseLayoutObject();
+    BaseLayoutObject last = new BaseLayoutObject();
+    layout1.addLayoutObject(first);
+    layout1.addLayoutObject(shared);
+    layout1.addLayoutObject(last);
+
+    // Removing the first object shifts the entries of the others. The shared object must remain
+    // a view on the first state, and the last object a view on its new entry
+    layout1.removeLayoutObject(first);
+    LayoutState layoutState1 = layout1.getLayoutState();
+    assertEquals(1, layoutState1.indexOf(last));
+    shared.setPosition(1.0, 2.0);
+    assertEquals(1.0, layout0.getLayoutState().getPositionsX()[0], 0.0);
+    assertEquals(0.0, layoutState1.getPositionsX()[0], 0.0);
+    last.setPosition(3.0, 4.0);
+    assertEquals(3.0, layoutState1.getPositionsX()[1], 0.0);
+  }
+
+  @Test
+  public void testPullWakesMovedSharedObjects() {
+    Layout<LayoutObject> layout0 = new Layout<LayoutObject>();
+    Layout<LayoutObject> layout1 = new Layout<LayoutObject>();
+    BaseLayoutObject layoutObject = new BaseLayoutObject();
+    layout0.addLayoutObject(layoutObject);
+    layout1.addLayoutObject(layoutObject);
+    LayoutState layoutState1 = layout1.getLayoutState();
+    layoutState1.setSleeping(0, true);
+    layoutState1.pull();
+    assertTrue(layoutState1.isSleeping(0));
+    layoutObject.setPosition(1.0, 0.0);
+    layoutState1.pull();
+    assertFalse(layoutState1.isSleeping(0));
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import de.javagl.geom.Points;
+import de.javagl.layoutanalyzer.aspects.AbstractAspect;
+import de.javagl.layoutanalyzer.aspects.Aspect;
+import de.javagl.layoutanalyzer.objects.BaseLayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutObject;
+
+/**
+ * A simple benchmark comparing the fused integration pass of the {@link Layouter} with the
+ * previous implementation, which used one loop over the {@link LayoutObject}s (and temporary
+ * <code>Point2D</code> objects) for each of applying the forces, updating the accelerations,
+ * velocities and positions, and checking the stability.<br>
+ * <br>
+ * The forces are provided by an {@link Aspect} that always returns the same, precomputed
+ * {@link AspectData}, so that only the integration is measured. Run with a sufficiently large
+ * heap, e.g. <code>-Xmx4g</code>.<br>
+ * <br>
+ * The {@link LayouterTest} verifies that both variants compute the same positions.
+ */
+public class LayouterIntegrationBenchmark {
+  /**
+   * The entry point of this benchmark
+   * 
+   * @param args
+   *          Not used
+   */
+  public static void main(String[] args) {
+    int[] sizes = { 10000, 100000, 1000000 };
+    int[] steps = { 200, 50, 10 };
+    for (int i = 0; i < sizes.length; i++) {
+      runBenchmark(sizes[i], steps[i]);
+    }
+  }
+
+  /**
+   * Run the benchmark for the given number of objects
+   * 
+   * @param n
+   *          The number of objects
+   * @param steps
+   *          The number of steps to measure
+   */
+  private static void runBenchmark(int n, int steps) {
+    Layout<LayoutObject> layout = createLayout(n);
+    List<Aspect> aspects = new ArrayList<Aspect>();
+    aspects.add(new ConstantForce("A", layout.getLayoutObjects(), 1));
+    aspects.add(new ConstantForce("B", layout.getLayoutObjects(), 2));
+    Layouter<LayoutObject> layouter = new Layouter<LayoutObject>(layout, aspects);
+
+    LayoutAspects layouterData = new LayoutAspects();
+    for (Aspect aspect : aspects) {
+      layouterData.add(aspect, aspect.computeLayoutData(layout.getLayoutObjects()));
+    }
+
+    // Warmup
+    for (int s = 0; s < steps; s++) {
+      layouter.performStep(false);
+      performLegacyStep(layout.getLayoutObjects(), layouterData, layouter.getTimeStep());
+    }
+
+    long before = System.nanoTime();
+    for (int s = 0; s < steps; s++) {
+      performLegacyStep(layout.getLayoutObjects(), layouterData, layouter.getTimeStep());
+    }
+    double legacyMs = (System.nanoTime() - before) / 1e6 / steps;
+
+    before = System.nanoTime();
+    for (int s = 0; s < steps; s++) {
+      layouter.performStep(false);
+    }
+    double fusedMs = (System.nanoTime() - before) / 1e6 / steps;
+
+    System.out.printf(Locale.ENGLISH,
+        "n=%8d: separate passes %9.3f ms/step, fused pass %9.3f ms/step, speedup %5.2f%n", n,
+        legacyMs, fusedMs, legacyMs / fusedMs);
+  }
+
+  /**
+   * Create a {@link Layout} with the given number of randomly placed objects
+   * 
+   * @param n
+   *          The number of objects
+   * @return The {@link Layout}
+   */
+  static Layout<LayoutObject> createLayout(int n) {
+    Random random = new Random(0);
+    List<LayoutObject> layoutObjects = new ArrayList<LayoutObject>(n);
+    for (int i = 0; i < n; i++) {
+      BaseLayoutObject layoutObject = new BaseLayoutObject();
+      layoutObject.setPosition(random.nextDouble(), random.nextDouble());
+      layoutObjects.add(layoutObject);
+    }
+    Layout<LayoutObject> layout = new Layout<LayoutObject>();
+    layout.addAll(layoutObjects);
+    return layout;
+  }
+
+  /**
+   * The implementation of a step as it was done before the passes have been fused into one
+   * 
+   * @param layoutObjects
+   *          The {@link LayoutObject}s
+   * @param layouterData
+   *          The {@link LayoutAspects}
+   * @param timeStep
+   *          The time step
+   * @return Whether the layout is stable
+   */
+  static boolean performLegacyStep(List<LayoutObject> layoutObjects,
+      LayoutAspects layouterData, double timeStep) {
+    for (LayoutObject layoutObject : layoutObjects) {
+      Point2D totalForce = new Point2D.Double();
+      for (Aspect aspect : layouterData.getAspects()) {
+        AspectData layoutData = layouterData.getLayoutData(aspect);
+        Point2D contributedForce = layoutData.getForce(layoutObject);
+        Points.addScaled(totalForce, aspect.getWeight(), contributedForce, totalForce);
+      }
+      layoutObject.setForce(totalForce);
+    }
+    for (LayoutObject layoutObject : layoutObjects) {
+      Point2D acceleration = new Point2D.Double();
+      Points.scale(layoutObject.getForce(), 1.0 / layoutObject.getMass(), acceleration);
+      layoutObject.setAcceleration(acceleration);
+    }
+    for (LayoutObject layoutObject : layoutObjects) {
+      Point2D velocity = layoutObject.getVelocity();
+      Points.scale(layoutObject.getAcceleration(), timeStep, velocity);
+      layoutObject.setVelocity(velocity);
+    }
+    for (LayoutObject layoutObject : layoutObjects) {
+      Point2D position = layoutObject.getPosition();
+      Points.addScaled(position, timeStep, layoutObject.getVelocity(), position);
+      layoutObject.setPosition(position);
+    }
+    boolean stillMoving = false;
+    for (LayoutObject layoutObject : layoutObjects) {
+      if (layoutObject.getVelocity().distance(new Point2D.Double()) > 1e-4) {
+        stillMoving = true;
+      }
+    }
+    return !stillMoving;
+  }
+
+  /**
+   * An {@link Aspect} that always returns the same {@link AspectData}
+   */
+  static class ConstantForce extends AbstractAspect {
+    /**
+     * The {@link AspectData}
+     */
+    private final AspectData layoutData;
+
+    /**
+     * Creates a new instance that assigns a small random force to each of the given objects
+     * 
+     * @param name
+     *          The name
+     * @param layoutObjects
+     *          The {@link LayoutObject}s
+     * @param seed
+     *          The random seed
+     */
+    ConstantForce(String name, List<LayoutObject> layoutObjects, long seed) {
+      super(name);
+      Random random = new Random(seed);
+      layoutData = new AspectData(Collections.unmodifiableList(layoutObjects), getWeight());
+      for (LayoutObject layoutObject : layoutObjects) {
+        layoutData.setForce(layoutObject,
+            new Point2D.Double(random.nextDouble() - 0.5, random.nextDouble() - 0.5));
+      }
+    }
+
+    @Override
+    public AspectData computeLayoutData(List<? extends LayoutObject> layoutObjects) {
+      return layoutData;
+    }
+  }
+}
@@ -0,0 +1,248 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.javagl.layoutanalyzer.aspects.Aspect;
+import de.javagl.layoutanalyzer.aspects.TargetPositionForce;
+import de.javagl.layoutanalyzer.objects.BaseLayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutObject;
+
+/**
+ * Tests for {@link Layouter#run(ConvergenceCriteria)}, checking the {@link LayouterResult} for
+ * each of the reasons why a run may be stopped, and the validation of the
+ * {@link ConvergenceCriteria}
+ */
+public class LayouterRunTest {
+  @Test
+  public void testStopsAtFirstStableStep() {
+    // Perform single steps on one layouter, to find the first step where the layout is stable
+    Layouter<LayoutObject> reference = createConvergingLayouter();
+    int expectedSteps = 0;
+    while (!reference.isStable()) {
+      reference.performStep(false);
+      expectedSteps++;
+    }
+    assertTrue(expectedSteps > 1);
+
+    Layouter<LayoutObject> layouter = createConvergingLayouter();
+    LayouterResult result = layouter.run(new ConvergenceCriteria());
+    assertEquals(LayouterResult.Termination.STABLE, result.getTermination());
+    assertTrue(result.isStable());
+    assertEquals(expectedSteps, result.getSteps());
+    assertEquals(expectedSteps, layouter.getStep());
+
+    // The first stable step is counted from 0, because the step counter is incremented after
+    // the step was performed
+    assertEquals(expectedSteps - 1, layouter.getFirstStableStep());
+    assertEquals(layouter.getResidual(), result.getResidual(), 0.0);
+    assertTrue(result.getResidual() <= layouter.getEpsilonStable());
+    assertEquals(reference.getLayout().getLayoutObjects().get(0).getPosition(),
+        layouter.getLayout().getLayoutObjects().get(0).getPosition());
+  }
+
+  @Test
+  public void testMaxSteps() {
+    Layouter<LayoutObject> layouter = createMovingLayouter();
+    ConvergenceCriteria criteria = new ConvergenceCriteria();
+    criteria.setMaxSteps(25);
+    LayouterResult result = layouter.run(criteria);
+    assertEquals(LayouterResult.Termination.MAX_STEPS, result.getTermination());
+    assertFalse(result.isStable());
+    assertEquals(25, result.getSteps());
+    assertEquals(25, layouter.getStep());
+  }
+
+  @Test
+  public void testMaxStepsBeforeStable() {
+    Layouter<LayoutObject> layouter = createConvergingLayouter();
+    ConvergenceCriteria criteria = new ConvergenceCriteria();
+    criteria.setMaxSteps(3);
+    LayouterResult result = layouter.run(criteria);
+    assertEquals(LayouterResult.Termination.MAX_STEPS, result.getTermination());
+    assertEquals(3, result.getSteps());
+    assertFalse(layouter.isStable());
+  }
+
+  @Test
+  public void testZeroMaxSteps() {
+    Layouter<LayoutObject> layouter = createMovingLayouter();
+    ConvergenceCriteria criteria = new ConvergenceCriteria();
+    criteria.setMaxSteps(0);
+    LayouterResult result = layouter.run(criteria);
+    assertEquals(LayouterResult.Termination.MAX_STEPS, result.getTermination());
+    assertEquals(0, result.getSteps());
+    assertEquals(0, layouter.getStep());
+  }
+
+  @Test
+  public void testTimeout() {
+    Layouter<LayoutObject> layouter = createMovingLayouter();
+    ConvergenceCriteria criteria = new ConvergenceCriteria();
+    criteria.setTimeoutMs(20);
+    LayouterResult result = layouter.run(criteria);
+    assertEquals(LayouterResult.Termination.TIMEOUT, result.getTermination());
+    assertTrue(result.getSteps() > 0);
+    assertEquals(result.getSteps(), layouter.getStep());
+    assertTrue(result.getElapsedMs() >= 20.0);
+  }
+
+  @Test
+  public void testZeroTimeout() {
+    Layouter<LayoutObject> layouter = createMovingLayouter();
+    ConvergenceCriteria criteria = new ConvergenceCriteria();
+    criteria.setTimeoutMs(0);
+    LayouterResult result = layouter.run(criteria);
+    assertEquals(LayouterResult.Termination.TIMEOUT, result.getTermination());
+    assertEquals(0, result.getSteps());
+    assertEquals(0, layouter.getStep());
+  }
+
+  @Test
+  public void testMaxStepsAreCheckedBeforeTimeout() {
+    Layouter<LayoutObject> layouter = createMovingLayouter();
+    ConvergenceCriteria criteria = new ConvergenceCriteria();
+    criteria.setMaxSteps(0);
+    criteria.setTimeoutMs(0);
+    assertEquals(LayouterResult.Termination.MAX_STEPS, layouter.run(criteria).getTermination());
+  }
+
+  @Test
+  public void testInterrupted() {
+    Layouter<LayoutObject> layouter = createMovingLayouter();
+    Thread.currentThread().interrupt();
+    try {
+      LayouterResult result = layouter.run(new ConvergenceCriteria());
+      assertEquals(LayouterResult.Termination.INTERRUPTED, result.getTermination());
+      assertEquals(0, result.getSteps());
+
+      // The interrupted flag remains set
+      assertTrue(Thread.currentThread().isInterrupted());
+    } finally {
+      Thread.interrupted();
+    }
+  }
+
+  @Test
+  public void testNotificationInterval() {
+    Layouter<LayoutObject> layouter = createMovingLayouter();
+    List<Integer> notifiedSteps = new ArrayList<Integer>();
+    layouter.addLayouterListener(layoutAspects -> notifiedSteps.add(layouter.getStep()));
+    ConvergenceCriteria criteria = new ConvergenceCriteria();
+    criteria.setMaxSteps(25);
+    criteria.setNotificationInterval(10);
+    layouter.run(criteria);
+
+    // The listeners are notified after every 10th step, and after the last step
+    assertEquals(3, notifiedSteps.size());
+    assertEquals(10, notifiedSteps.get(0).intValue());
+    assertEquals(20, notifiedSteps.get(1).intValue());
+    assertEquals(25, notifiedSteps.get(2).intValue());
+  }
+
+  @Test
+  public void testNoNotificationByDefault() {
+    Layouter<LayoutObject> layouter = createMovingLayouter();
+    List<LayoutAspects> notified = new ArrayList<LayoutAspects>();
+    layouter.addLayouterListener(notified::add);
+    ConvergenceCriteria criteria = new ConvergenceCriteria();
+    criteria.setMaxSteps(25);
+    layouter.run(criteria);
+    assertTrue(notified.isEmpty());
+  }
+
+  @Test
+  public void testDefaultCriteria() {
+    ConvergenceCriteria criteria = new ConvergenceCriteria();
+    assertEquals(Integer.MAX_VALUE, criteria.getMaxSteps());
+    assertEquals(Long.MAX_VALUE, criteria.getTimeoutMs());
+    assertEquals(0, criteria.getNotificationInterval());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeMaxSteps() {
+    new ConvergenceCriteria().setMaxSteps(-1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeTimeout() {
+    new ConvergenceCriteria().setTimeoutMs(-1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeNotificationInterval() {
+    new ConvergenceCriteria().setNotificationInterval(-1);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testNullCriteria() {
+    createMovingLayouter().run(null);
+  }
+
+  /**
+   * Create a {@link Layouter} for a single object that is pulled towards a target position by a
+   * {@link TargetPositionForce}, and thus becomes stable after a number of steps
+   * 
+   * @return The {@link Layouter}
+   */
+  static Layouter<LayoutObject> createConvergingLayouter() {
+    BaseLayoutObject layoutObject = new BaseLayoutObject();
+    layoutObject.setPosition(0.0, 0.0);
+    List<LayoutObject> layoutObjects = new ArrayList<LayoutObject>();
+    layoutObjects.add(layoutObject);
+    Layout<LayoutObject> layout = new Layout<LayoutObject>();
+    layout.addAll(layoutObjects);
+    TargetPositionForce targetPositionForce = new TargetPositionForce(layoutObjects);
+    targetPositionForce.setLayoutObjectPosition(layoutObject, new Point2D.Double(10.0, 5.0));
+    List<Aspect> aspects = new ArrayList<Aspect>();
+    aspects.add(targetPositionForce);
+    return new Layouter<LayoutObject>(layout, aspects);
+  }
+
+  /**
+   * Create a {@link Layouter} for a single object that is moved by a constant force, and thus
+   * never becomes stable
+   * 
+   * @return The {@link Layouter}
+   */
+  static Layouter<LayoutObject> createMovingLayouter() {
+    Layout<LayoutObject> layout = LayouterIntegrationBenchmark.createLayout(1);
+    List<Aspect> aspects = new ArrayList<Aspect>();
+    aspects.add(new LayouterIntegrationBenchmark.ConstantForce("Constant",
+        layout.getLayoutObjects(), 0));
+    return new Layouter<LayoutObject>(layout, aspects);
+  }
+}
@@ -0,0 +1,313 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import de.javagl.layoutanalyzer.aspects.AbstractAspect;
+import de.javagl.layoutanalyzer.aspects.Aspect;
+import de.javagl.layoutanalyzer.objects.LayoutObject;
+
+/**
+ * Tests for the {@link LayouterScheduler}. The tests that check the order of the operations use
+ * an executor that only runs the workers when the test asks for it.
+ */
+public class LayouterSchedulerTest {
+  /**
+   * The time that the tests wait for a future, in seconds
+   */
+  private static final long TIMEOUT_S = 30;
+
+  @Test
+  public void testCompletesWhenStable() throws Exception {
+    LayouterResult expected = LayouterRunTest.createConvergingLayouter().run(
+        new ConvergenceCriteria());
+
+    LayouterScheduler scheduler = new LayouterScheduler();
+    try {
+      Layouter<LayoutObject> layouter = LayouterRunTest.createConvergingLayouter();
+      LayouterResult result =
+          scheduler.submit(layouter, new ConvergenceCriteria()).get(TIMEOUT_S, TimeUnit.SECONDS);
+      assertEquals(LayouterResult.Termination.STABLE, result.getTermination());
+      assertEquals(expected.getSteps(), result.getSteps());
+      assertEquals(expected.getResidual(), result.getResidual(), 0.0);
+      assertTrue(layouter.isStable());
+      assertEquals(0, scheduler.getScheduledCount());
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+
+  @Test
+  public void testRetiresOnMaxSteps() throws Exception {
+    LayouterScheduler scheduler = new LayouterScheduler();
+    scheduler.setTimeSliceMs(0.01);
+    try {
+      Layouter<LayoutObject> layouter = LayouterRunTest.createMovingLayouter();
+      ConvergenceCriteria criteria = new ConvergenceCriteria();
+      criteria.setMaxSteps(500);
+      LayouterResult result = scheduler.submit(layouter, criteria).get(TIMEOUT_S, TimeUnit.SECONDS);
+      assertEquals(LayouterResult.Termination.MAX_STEPS, result.getTermination());
+      assertEquals(500, result.getSteps());
+      assertEquals(500, layouter.getStep());
+      assertEquals(0, scheduler.getScheduledCount());
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+
+  @Test
+  public void testRetiresOnTimeout() throws Exception {
+    LayouterScheduler scheduler = new LayouterScheduler();
+    scheduler.setTimeSliceMs(1.0);
+    try {
+      Layouter<LayoutObject> layouter = LayouterRunTest.createMovingLayouter();
+      ConvergenceCriteria criteria = new ConvergenceCriteria();
+      criteria.setTimeoutMs(50);
+      LayouterResult result = scheduler.submit(layouter, criteria).get(TIMEOUT_S, TimeUnit.SECONDS);
+      assertEquals(LayouterResult.Termination.TIMEOUT, result.getTermination());
+      assertTrue(result.getElapsedMs() >= 50.0);
+      assertEquals(result.getSteps(), layouter.getStep());
+      assertEquals(0, scheduler.getScheduledCount());
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+
+  @Test
+  public void testCancelRemovesEntryBeforeNextSlice() {
+    ManualExecutor executor = new ManualExecutor();
+    LayouterScheduler scheduler = new LayouterScheduler(executor, 1);
+    Layouter<LayoutObject> layouter = LayouterRunTest.createMovingLayouter();
+    CompletableFuture<LayouterResult> future =
+        scheduler.submit(layouter, new ConvergenceCriteria());
+    assertEquals(1, scheduler.getScheduledCount());
+
+    future.cancel(false);
+    executor.runAll();
+    assertEquals(0, layouter.getStep());
+    assertEquals(0, scheduler.getScheduledCount());
+    assertTrue(future.isCancelled());
+
+    // After it was retired, the layouter may be submitted again
+    ConvergenceCriteria criteria = new ConvergenceCriteria();
+    criteria.setMaxSteps(3);
+    future = scheduler.submit(layouter, criteria);
+    executor.runAll();
+    assertEquals(3, future.join().getSteps());
+  }
+
+  @Test
+  public void testSubmittingTwice() {
+    ManualExecutor executor = new ManualExecutor();
+    LayouterScheduler scheduler = new LayouterScheduler(executor, 1);
+    Layouter<LayoutObject> layouter = LayouterRunTest.createMovingLayouter();
+    scheduler.submit(layouter, new ConvergenceCriteria());
+    try {
+      scheduler.submit(layouter, new ConvergenceCriteria());
+      fail("Expected an IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+    assertEquals(1, scheduler.getScheduledCount());
+  }
+
+  @Test
+  public void testShutdown() {
+    ManualExecutor executor = new ManualExecutor();
+    LayouterScheduler scheduler = new LayouterScheduler(executor, 1);
+    Layouter<LayoutObject> layouter = LayouterRunTest.createMovingLayouter();
+    CompletableFuture<LayouterResult> future =
+        scheduler.submit(layouter, new ConvergenceCriteria());
+
+    scheduler.shutdown();
+    assertTrue(future.isCancelled());
+
+    // The workers that have already been started do not perform any further steps
+    executor.runAll();
+    assertEquals(0, layouter.getStep());
+
+    // An executor that was given at construction time is not shut down
+    assertFalse(executor.isShutdown());
+    try {
+      scheduler.submit(LayouterRunTest.createMovingLayouter(), new ConvergenceCriteria());
+      fail("Expected a RejectedExecutionException");
+    } catch (RejectedExecutionException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testExceptionCompletesExceptionally() throws Exception {
+    IllegalStateException exception = new IllegalStateException("Failing aspect");
+    Layout<LayoutObject> layout = LayouterIntegrationBenchmark.createLayout(1);
+    List<Aspect> aspects = new ArrayList<Aspect>();
+    aspects.add(new AbstractAspect("Failing") {
+      @Override
+      public AspectData computeLayoutData(List<? extends LayoutObject> layoutObjects) {
+        throw exception;
+      }
+    });
+    Layouter<LayoutObject> layouter = new Layouter<LayoutObject>(layout, aspects);
+
+    LayouterScheduler scheduler = new LayouterScheduler();
+    try {
+      CompletableFuture<LayouterResult> future =
+          scheduler.submit(layouter, new ConvergenceCriteria());
+      try {
+        future.get(TIMEOUT_S, TimeUnit.SECONDS);
+        fail("Expected an ExecutionException");
+      } catch (ExecutionException e) {
+        assertSame(exception, e.getCause());
+      }
+      assertTrue(future.isCompletedExceptionally());
+      assertEquals(0, scheduler.getScheduledCount());
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+
+  @Test
+  public void testMoreLayoutersThanWorkers() throws Exception {
+    int count = 12;
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    LayouterScheduler scheduler = new LayouterScheduler(executor, 2);
+    scheduler.setTimeSliceMs(0.01);
+    try {
+      List<Layouter<LayoutObject>> layouters = new ArrayList<Layouter<LayoutObject>>();
+      List<CompletableFuture<LayouterResult>> futures =
+          new ArrayList<CompletableFuture<LayouterResult>>();
+      for (int i = 0; i < count; i++) {
+        Layouter<LayoutObject> layouter = LayouterRunTest.createMovingLayouter();
+        ConvergenceCriteria criteria = new ConvergenceCriteria();
+        criteria.setMaxSteps(100 + 10 * i);
+        layouters.add(layouter);
+        futures.add(scheduler.submit(layouter, criteria, 1 + i % 3));
+      }
+      for (int i = 0; i < count; i++) {
+        LayouterResult result = futures.get(i).get(TIMEOUT_S, TimeUnit.SECONDS);
+        assertEquals(LayouterResult.Termination.MAX_STEPS, result.getTermination());
+        assertEquals(100 + 10 * i, result.getSteps());
+        assertEquals(100 + 10 * i, layouters.get(i).getStep());
+      }
+      assertEquals(0, scheduler.getScheduledCount());
+    } finally {
+      scheduler.shutdown();
+      executor.shutdown();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPriority() {
+    LayouterScheduler scheduler = new LayouterScheduler(new ManualExecutor(), 1);
+    scheduler.submit(LayouterRunTest.createMovingLayouter(), new ConvergenceCriteria(), 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidParallelism() {
+    new LayouterScheduler(new ManualExecutor(), 0);
+  }
+
+  /**
+   * An executor that collects the tasks, and only runs them in {@link #runAll()}
+   */
+  private static class ManualExecutor extends AbstractExecutorService {
+    /**
+     * The tasks that have not been run yet
+     */
+    private final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+
+    /**
+     * Whether this executor was shut down
+     */
+    private boolean shutdown;
+
+    /**
+     * Run all tasks, including the ones that are added while the tasks are run
+     */
+    void runAll() {
+      Runnable task;
+      while ((task = tasks.poll()) != null) {
+        task.run();
+      }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      if (shutdown) {
+        throw new RejectedExecutionException("The executor was shut down");
+      }
+      tasks.add(command);
+    }
+
+    @Override
+    public void shutdown() {
+      shutdown = true;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      shutdown = true;
+      List<Runnable> remaining = new ArrayList<Runnable>(tasks);
+      tasks.clear();
+      return remaining;
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return shutdown && tasks.isEmpty();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+      return isTerminated();
+    }
+  }
+}
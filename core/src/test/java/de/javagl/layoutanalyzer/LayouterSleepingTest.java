@@ -0,0 +1,274 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.javagl.layoutanalyzer.aspects.Aspect;
+import de.javagl.layoutanalyzer.aspects.TargetPositionForce;
+import de.javagl.layoutanalyzer.objects.BaseLayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutState;
+
+/**
+ * Tests for putting {@link LayoutObject}s to sleep in the {@link Layouter}, and waking them up
+ */
+public class LayouterSleepingTest {
+  /**
+   * The number of calm steps after which an object is put to sleep
+   */
+  private static final int SLEEP_STEPS = 3;
+
+  /**
+   * The {@link LayoutObject}s
+   */
+  private final List<LayoutObject> layoutObjects = new ArrayList<LayoutObject>();
+
+  /**
+   * The {@link TargetPositionForce} that pulls the objects towards their targets. Initially,
+   * the target of each object is its position.
+   */
+  private TargetPositionForce targetPositionForce;
+
+  /**
+   * The {@link Layouter}
+   */
+  private Layouter<LayoutObject> layouter;
+
+  @Test
+  public void testFallsAsleepAfterSleepSteps() {
+    createLayouter(1);
+    LayoutObject layoutObject = layoutObjects.get(0);
+
+    // The object is so close to its target that its velocity is below the stability threshold,
+    // but not zero
+    setTarget(0, 1e-4, 0.0);
+    LayoutState state = layouter.getLayout().getLayoutState();
+    for (int s = 0; s < SLEEP_STEPS - 1; s++) {
+      layouter.performStep(false);
+      assertFalse(state.isSleeping(0));
+      assertEquals(s + 1, state.getCalmSteps()[0]);
+      assertTrue(layoutObject.getVelocityX() > 0.0);
+      assertTrue(layoutObject.getVelocityX() <= layouter.getEpsilonStable());
+    }
+    layouter.performStep(false);
+    assertTrue(state.isSleeping(0));
+    assertEquals(1, state.getSleepingCount());
+    assertEquals(0.0, layoutObject.getVelocityX(), 0.0);
+    assertEquals(0.0, layoutObject.getVelocityY(), 0.0);
+
+    // A sleeping object is not moved any more
+    Point2D position = layoutObject.getPosition();
+    for (int s = 0; s < 5; s++) {
+      layouter.performStep(false);
+    }
+    assertTrue(state.isSleeping(0));
+    assertEquals(position, layoutObject.getPosition());
+  }
+
+  @Test
+  public void testMovingObjectDoesNotFallAsleep() {
+    createLayouter(1);
+    setTarget(0, 1000.0, 0.0);
+    for (int s = 0; s < 2 * SLEEP_STEPS; s++) {
+      layouter.performStep(false);
+    }
+    LayoutState state = layouter.getLayout().getLayoutState();
+    assertFalse(state.isSleeping(0));
+    assertEquals(0, state.getCalmSteps()[0]);
+  }
+
+  @Test
+  public void testWakesWhenForceChangesRelativeToReference() {
+    createLayouter(1);
+    LayoutState state = layouter.getLayout().getLayoutState();
+    putAllToSleep();
+
+    // Record the reference force in the first step after the object fell asleep
+    layouter.performStep(false);
+    assertTrue(state.isSleeping(0));
+    double referenceForceX = state.getReferenceForcesX()[0];
+
+    // Each change of the force is below the threshold, but the change relative to the
+    // reference force exceeds it in the third step
+    double delta = 0.4 * layouter.getWakeThreshold();
+    for (int s = 1; s <= 3; s++) {
+      setTarget(0, s * delta, 0.0);
+      layouter.performStep(false);
+      assertEquals(referenceForceX, state.getReferenceForcesX()[0], 0.0);
+      assertEquals(s == 3, !state.isSleeping(0));
+    }
+    assertEquals(0, state.getSleepingCount());
+
+    // The woken object is integrated in the next step
+    Point2D position = layoutObjects.get(0).getPosition();
+    layouter.performStep(false);
+    assertNotEquals(position, layoutObjects.get(0).getPosition());
+  }
+
+  @Test
+  public void testSetPositionWakes() {
+    createLayouter(1);
+    LayoutState state = layouter.getLayout().getLayoutState();
+    putAllToSleep();
+    layoutObjects.get(0).setPosition(5.0, 5.0);
+    assertFalse(state.isSleeping(0));
+    assertEquals(0, state.getSleepingCount());
+  }
+
+  @Test
+  public void testRemovingKeepsSleepingArraysConsistent() {
+    // The objects 0 and 2 are calm, the objects 1 and 3 are moving
+    createLayouter(4);
+    setTarget(1, 1000.0, 0.0);
+    setTarget(3, 1000.0, 1000.0);
+    for (int s = 0; s < SLEEP_STEPS; s++) {
+      layouter.performStep(false);
+    }
+    LayoutState state = layouter.getLayout().getLayoutState();
+    assertSleeping(state, true, false, true, false);
+
+    // Removing a sleeping object wakes all objects, and shifts the arrays
+    LayoutObject removed = layoutObjects.remove(0);
+    layouter.getLayout().removeLayoutObject(removed);
+    assertEquals(3, state.size());
+    for (int i = 0; i < state.size(); i++) {
+      assertSame(layoutObjects.get(i), state.getLayoutObject(i));
+    }
+    assertSleeping(state, false, false, false);
+    assertEquals(0, state.getSleepingCount());
+
+    // The calm object falls asleep again at its new index, and the moving objects keep moving
+    Point2D position0 = layoutObjects.get(0).getPosition();
+    Point2D position2 = layoutObjects.get(2).getPosition();
+    for (int s = 0; s < SLEEP_STEPS; s++) {
+      layouter.performStep(false);
+    }
+    assertSleeping(state, false, true, false);
+    assertNotEquals(position0, layoutObjects.get(0).getPosition());
+    assertNotEquals(position2, layoutObjects.get(2).getPosition());
+
+    // The reference force of the sleeping object is recorded at its new index
+    layouter.performStep(false);
+    assertSleeping(state, false, true, false);
+    assertEquals(state.getForcesX()[1], state.getReferenceForcesX()[1], 0.0);
+    assertEquals(state.getForcesY()[1], state.getReferenceForcesY()[1], 0.0);
+  }
+
+  @Test
+  public void testDisablingWakesAll() {
+    createLayouter(2);
+    putAllToSleep();
+    layouter.setSleepSteps(0);
+    assertEquals(0, layouter.getLayout().getLayoutState().getSleepingCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeSleepSteps() {
+    createLayouter(1);
+    layouter.setSleepSteps(-1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeWakeThreshold() {
+    createLayouter(1);
+    layouter.setWakeThreshold(-1.0);
+  }
+
+  /**
+   * Create the {@link #layouter} for the given number of objects, which are placed along the
+   * y-axis, and pulled towards their targets by the {@link #targetPositionForce}
+   * 
+   * @param n
+   *          The number of objects
+   */
+  private void createLayouter(int n) {
+    for (int i = 0; i < n; i++) {
+      BaseLayoutObject layoutObject = new BaseLayoutObject();
+      layoutObject.setPosition(0.0, i * 10.0);
+      layoutObjects.add(layoutObject);
+    }
+    Layout<LayoutObject> layout = new Layout<LayoutObject>();
+    layout.addAll(layoutObjects);
+    targetPositionForce = new TargetPositionForce(layoutObjects);
+    List<Aspect> aspects = new ArrayList<Aspect>();
+    aspects.add(targetPositionForce);
+    layouter = new Layouter<LayoutObject>(layout, aspects);
+    layouter.setSleepSteps(SLEEP_STEPS);
+  }
+
+  /**
+   * Set the target of the object with the given index, relative to its initial position
+   * 
+   * @param index
+   *          The index of the object
+   * @param dx
+   *          The x-offset of the target
+   * @param dy
+   *          The y-offset of the target
+   */
+  private void setTarget(int index, double dx, double dy) {
+    targetPositionForce.setLayoutObjectPosition(layoutObjects.get(index),
+        new Point2D.Double(dx, index * 10.0 + dy));
+  }
+
+  /**
+   * Perform steps until all objects, which are assumed to be calm, are sleeping
+   */
+  private void putAllToSleep() {
+    for (int s = 0; s < SLEEP_STEPS; s++) {
+      layouter.performStep(false);
+    }
+    assertEquals(layoutObjects.size(),
+        layouter.getLayout().getLayoutState().getSleepingCount());
+  }
+
+  /**
+   * Assert that the objects in the given state are sleeping as expected
+   * 
+   * @param state
+   *          The {@link LayoutState}
+   * @param expected
+   *          Whether the objects are expected to be sleeping
+   */
+  private static void assertSleeping(LayoutState state, boolean... expected) {
+    assertEquals(expected.length, state.size());
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals("Sleeping of object " + i, expected[i], state.isSleeping(i));
+    }
+  }
+}
@@ -0,0 +1,357 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+import de.javagl.layoutanalyzer.aspects.Aspect;
+import de.javagl.layoutanalyzer.aspects.PairwiseRepulsionForce;
+import de.javagl.layoutanalyzer.aspects.ShapeBoundsRepulsionForce;
+import de.javagl.layoutanalyzer.aspects.TargetPositionForce;
+import de.javagl.layoutanalyzer.objects.BaseLayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutObject;
+import de.javagl.layoutanalyzer.spatial.SweepAndPrune;
+
+/**
+ * Tests comparing the results of the {@link Layouter} in its different modes with the results of
+ * the default mode, and the fused integration pass with the separate passes that have been used
+ * originally
+ */
+public class LayouterTest {
+  /**
+   * The number of objects
+   */
+  private static final int N = 300;
+
+  /**
+   * The number of steps
+   */
+  private static final int STEPS = 30;
+
+  /**
+   * The tolerance for the comparison of positions that result from forces that are summed up in
+   * a different order
+   */
+  private static final double EPSILON = 1e-8;
+
+  @Test
+  public void testDirectForceAccumulation() {
+    List<Point2D> expected = run(layouter -> {
+      // Default mode
+    });
+    List<Point2D> actual = run(layouter -> layouter.setDirectForceAccumulation(true));
+    assertPositions(expected, actual, EPSILON);
+  }
+
+  @Test
+  public void testCurrentAspectForcesWithDirectForceAccumulation() {
+    Layout<LayoutObject> layout = PairwiseAspectsTest.createLayout(N, 0);
+    PairwiseRepulsionForce aspect = new PairwiseRepulsionForce(100);
+    List<Aspect> aspects = new ArrayList<Aspect>();
+    aspects.add(aspect);
+    Layouter<LayoutObject> layouter = new Layouter<LayoutObject>(layout, aspects);
+    layouter.setDirectForceAccumulation(true);
+
+    // The getter does not compute the aspects
+    LayoutAspects initialAspectForces = layouter.getCurrentAspectForces();
+    layouter.performStep(false);
+    assertSame(initialAspectForces, layouter.getCurrentAspectForces());
+    assertNull(layouter.getCurrentAspectForces().getLayoutData(aspect));
+
+    // When a listener is notified, the aspects are computed in the step
+    List<LayoutAspects> notified = new ArrayList<LayoutAspects>();
+    layouter.addLayouterListener(notified::add);
+    layouter.performStep(true);
+    assertEquals(1, notified.size());
+    assertSame(notified.get(0), layouter.getCurrentAspectForces());
+    assertNotNull(notified.get(0).getLayoutData(aspect));
+  }
+
+  @Test
+  public void testTimeStepIsClampedDespiteHysteresis() {
+    Layout<LayoutObject> layout = PairwiseAspectsTest.createLayout(N, 0);
+    List<Aspect> aspects = new ArrayList<Aspect>();
+    aspects.add(new PairwiseRepulsionForce(100));
+    Layouter<LayoutObject> layouter = new Layouter<LayoutObject>(layout, aspects);
+    layouter.setTimeStep(0.26);
+    layouter.setTimeStepController((state, timeStep) -> timeStep * 1.01);
+    layouter.setTimeStepHysteresis(0.1);
+
+    // The proposed time step is within the hysteresis, but the current one is out of bounds
+    layouter.setTimeStepBounds(0.1, 0.25);
+    layouter.performStep(false);
+    assertEquals(0.25, layouter.getTimeStep(), 0.0);
+
+    layouter.setTimeStepBounds(0.26, 2.0);
+    layouter.performStep(false);
+    assertEquals(0.26, layouter.getTimeStep(), 0.0);
+  }
+
+  @Test
+  public void testMaxSpeedPerObject() {
+    Layout<LayoutObject> layout = new Layout<LayoutObject>();
+    List<LayoutObject> layoutObjects = new ArrayList<LayoutObject>();
+    for (int i = 0; i < 4; i++) {
+      BaseLayoutObject layoutObject = new BaseLayoutObject();
+      layoutObject.setPosition(0.0, i * 10.0);
+      layoutObjects.add(layoutObject);
+    }
+    layout.addAll(layoutObjects);
+    TargetPositionForce targetPositionForce = new TargetPositionForce(layoutObjects);
+    for (LayoutObject layoutObject : layoutObjects) {
+      targetPositionForce.setLayoutObjectPosition(layoutObject,
+          new Point2D.Double(100.0, layoutObject.getPositionY()));
+    }
+    List<Aspect> aspects = new ArrayList<Aspect>();
+    aspects.add(targetPositionForce);
+    Layouter<LayoutObject> layouter = new Layouter<LayoutObject>(layout, aspects);
+    layouter.setTimeStep(0.5);
+    layouter.setMaxSpeed(5.0);
+    layouter.setMaxSpeed(layoutObjects.get(1), 2.0);
+    layouter.setMaxSpeed(layoutObjects.get(2), 20.0);
+    layouter.setMaxSpeed(layoutObjects.get(3), 3.0);
+
+    // Removing the first object must keep the limits of the others
+    layout.removeLayoutObject(layoutObjects.get(0));
+    layouter.performStep(false);
+
+    // The limit of each object and the limit for all objects apply, whichever is smaller
+    assertEquals(2.0, layoutObjects.get(1).getVelocityX(), 0.0);
+    assertEquals(1.0, layoutObjects.get(1).getPositionX(), 0.0);
+    assertEquals(5.0, layoutObjects.get(2).getVelocityX(), 0.0);
+    assertEquals(2.5, layoutObjects.get(2).getPositionX(), 0.0);
+    assertEquals(3.0, layoutObjects.get(3).getVelocityX(), 0.0);
+    assertEquals(1.5, layoutObjects.get(3).getPositionX(), 0.0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMaxSpeedOfUnknownObject() {
+    Layout<LayoutObject> layout = PairwiseAspectsTest.createLayout(1, 0);
+    Layouter<LayoutObject> layouter = new Layouter<LayoutObject>(layout);
+    layouter.setMaxSpeed(new BaseLayoutObject(), 1.0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMaxSpeedMustBePositive() {
+    Layout<LayoutObject> layout = PairwiseAspectsTest.createLayout(1, 0);
+    Layouter<LayoutObject> layouter = new Layouter<LayoutObject>(layout);
+    layouter.setMaxSpeed(layout.getLayoutObjects().get(0), 0.0);
+  }
+
+  @Test
+  public void testReuseLayoutAspects() {
+    List<Point2D> expected = run(layouter -> {
+      // Default mode
+    });
+    assertPositions(expected, run(layouter -> layouter.setReuseLayoutAspects(true)), EPSILON);
+    assertPositions(expected, run(layouter -> {
+      layouter.setReuseLayoutAspects(true);
+      layouter.setDirectForceAccumulation(true);
+    }), EPSILON);
+  }
+
+  @Test
+  public void testDeterministicWithAspectExecutor() {
+    List<Point2D> expected = run(layouter -> {
+      // Default mode
+    });
+    List<Point2D> deterministic = run(layouter -> layouter.setDeterministic(true));
+    assertPositions(expected, deterministic, EPSILON);
+
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      assertPositions(expected, run(layouter -> layouter.setAspectExecutor(executor)), EPSILON);
+      assertPositions(deterministic, run(layouter -> {
+        layouter.setDeterministic(true);
+        layouter.setAspectExecutor(executor);
+      }), 0.0);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testFusedIntegrationMatchesSeparatePasses() {
+    assertSameAsSeparatePasses(layouter -> {
+      // Default mode
+    });
+  }
+
+  /**
+   * Run a {@link Layouter} that is configured with the given consumer, and the separate passes
+   * that have been used originally, on two identical layouts with the same constant forces, and
+   * assert that the resulting positions and velocities are exactly equal
+   * 
+   * @param configuration
+   *          The consumer that configures the {@link Layouter}
+   */
+  static void assertSameAsSeparatePasses(Consumer<Layouter<LayoutObject>> configuration) {
+    Layout<LayoutObject> fusedLayout = LayouterIntegrationBenchmark.createLayout(N);
+    Layout<LayoutObject> legacyLayout = LayouterIntegrationBenchmark.createLayout(N);
+    List<Aspect> aspects = new ArrayList<Aspect>();
+    aspects.add(new LayouterIntegrationBenchmark.ConstantForce("A",
+        fusedLayout.getLayoutObjects(), 1));
+    aspects.add(new LayouterIntegrationBenchmark.ConstantForce("B",
+        fusedLayout.getLayoutObjects(), 2));
+    Layouter<LayoutObject> layouter = new Layouter<LayoutObject>(fusedLayout, aspects);
+    configuration.accept(layouter);
+
+    // The constant forces are defined for the objects of the fused layout. Transfer them to the
+    // corresponding objects of the legacy layout
+    LayoutAspects layouterData = new LayoutAspects();
+    for (Aspect aspect : aspects) {
+      AspectData fusedData = aspect.computeLayoutData(fusedLayout.getLayoutObjects());
+      AspectData legacyData = new AspectData(legacyLayout.getLayoutObjects(), aspect.getWeight());
+      for (int i = 0; i < N; i++) {
+        legacyData.setForce(legacyLayout.getLayoutObjects().get(i),
+            fusedData.getForce(fusedLayout.getLayoutObjects().get(i)));
+      }
+      layouterData.add(aspect, legacyData);
+    }
+
+    for (int s = 0; s < STEPS; s++) {
+      double timeStep = layouter.getTimeStep();
+      layouter.performStep(false);
+      LayouterIntegrationBenchmark.performLegacyStep(legacyLayout.getLayoutObjects(),
+          layouterData, timeStep);
+    }
+    // The fused pass performs the same operations in the same order, so the results must be
+    // exactly equal
+    assertPositions(positionsOf(legacyLayout), positionsOf(fusedLayout), 0.0);
+    assertPoints("Velocity", velocitiesOf(legacyLayout), velocitiesOf(fusedLayout), 0.0);
+  }
+
+  /**
+   * Create a layout and a {@link Layouter} with several aspects, configure the layouter with the
+   * given consumer, perform a fixed number of steps, and return the resulting positions
+   * 
+   * @param configuration
+   *          The consumer that configures the {@link Layouter}
+   * @return The positions
+   */
+  private static List<Point2D> run(Consumer<Layouter<LayoutObject>> configuration) {
+    Layout<LayoutObject> layout = PairwiseAspectsTest.createLayout(N, 0);
+    List<LayoutObject> layoutObjects = layout.getLayoutObjects();
+    TargetPositionForce targetPositionForce = new TargetPositionForce(layoutObjects);
+    for (int i = 0; i < N; i += 10) {
+      targetPositionForce.setLayoutObjectPosition(layoutObjects.get(i),
+          new Point2D.Double(500, 500));
+    }
+    targetPositionForce.setWeight(0.5);
+    List<Aspect> aspects = new ArrayList<Aspect>();
+    aspects.add(new PairwiseRepulsionForce(100));
+    aspects.add(new ShapeBoundsRepulsionForce(new SweepAndPrune()));
+    aspects.add(targetPositionForce);
+    aspects.add(new LayouterIntegrationBenchmark.ConstantForce("Constant", layoutObjects, 0));
+    Layouter<LayoutObject> layouter = new Layouter<LayoutObject>(layout, aspects);
+    configuration.accept(layouter);
+    for (int s = 0; s < STEPS; s++) {
+      layouter.performStep(false);
+    }
+    return positionsOf(layout);
+  }
+
+  /**
+   * Returns the positions of all objects in the given {@link Layout}
+   * 
+   * @param layout
+   *          The {@link Layout}
+   * @return The positions
+   */
+  private static List<Point2D> positionsOf(Layout<LayoutObject> layout) {
+    List<Point2D> positions = new ArrayList<Point2D>();
+    for (LayoutObject layoutObject : layout.getLayoutObjects()) {
+      positions.add(layoutObject.getPosition());
+    }
+    return positions;
+  }
+
+  /**
+   * Returns the velocities of all objects in the given {@link Layout}
+   * 
+   * @param layout
+   *          The {@link Layout}
+   * @return The velocities
+   */
+  private static List<Point2D> velocitiesOf(Layout<LayoutObject> layout) {
+    List<Point2D> velocities = new ArrayList<Point2D>();
+    for (LayoutObject layoutObject : layout.getLayoutObjects()) {
+      velocities.add(layoutObject.getVelocity());
+    }
+    return velocities;
+  }
+
+  /**
+   * Assert that the given positions are equal, up to the given tolerance
+   * 
+   * @param expected
+   *          The expected positions
+   * @param actual
+   *          The actual positions
+   * @param epsilon
+   *          The tolerance
+   */
+  private static void assertPositions(List<Point2D> expected, List<Point2D> actual,
+      double epsilon) {
+    assertPoints("Position", expected, actual, epsilon);
+  }
+
+  /**
+   * Assert that the given points are equal, up to the given tolerance
+   * 
+   * @param name
+   *          The name of the points, for the failure message
+   * @param expected
+   *          The expected points
+   * @param actual
+   *          The actual points
+   * @param epsilon
+   *          The tolerance
+   */
+  private static void assertPoints(String name, List<Point2D> expected, List<Point2D> actual,
+      double epsilon) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(name + " x of object " + i, expected.get(i).getX(), actual.get(i).getX(),
+          epsilon);
+      assertEquals(name + " y of object " + i, expected.get(i).getY(), actual.get(i).getY(),
+          epsilon);
+    }
+  }
+}
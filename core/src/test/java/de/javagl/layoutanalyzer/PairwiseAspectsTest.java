@@ -0,0 +1,466 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.javagl.layoutanalyzer.aspects.AbstractPairwiseAspect;
+import de.javagl.layoutanalyzer.aspects.BarnesHutRepulsionForce;
+import de.javagl.layoutanalyzer.aspects.ForceAccumulatingAspect;
+import de.javagl.layoutanalyzer.aspects.PairwiseRepulsionForce;
+import de.javagl.layoutanalyzer.aspects.ShapeBoundsRepulsionForce;
+import de.javagl.layoutanalyzer.kernels.ForceKernels;
+import de.javagl.layoutanalyzer.objects.BaseLayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutState;
+import de.javagl.layoutanalyzer.spatial.DynamicAabbTree;
+import de.javagl.layoutanalyzer.spatial.SweepAndPrune;
+import de.javagl.layoutanalyzer.utils.Disjoins;
+
+/**
+ * Tests comparing the forces of the pairwise aspects, for all their ways of finding the pairs
+ * and accumulating the forces, with a plain O(n<sup>2</sup>) loop over all pairs of objects, as
+ * it was done in the original implementation
+ */
+public class PairwiseAspectsTest {
+  /**
+   * The number of objects, which is large enough to cause several tiles in the
+   * {@link AbstractPairwiseAspect}
+   */
+  private static final int N = 600;
+
+  /**
+   * The size of the area in which the objects are placed
+   */
+  private static final double EXTENT = 1000.0;
+
+  /**
+   * The repulsion distance
+   */
+  private static final double REPULSION_DISTANCE = 100.0;
+
+  /**
+   * The tolerance for the comparison of forces that are summed up in a different order
+   */
+  private static final double EPSILON = 1e-9;
+
+  /**
+   * The maximum relative error of the forces of the {@link BarnesHutRepulsionForce} with the
+   * default opening angle, compared to the exact forces. The error that is observed for the
+   * random layouts of the tests is about 0.03.
+   */
+  private static final double BARNES_HUT_MAX_ERROR = 0.05;
+
+  @Test
+  public void testPairwiseRepulsionForceTiled() {
+    Layout<LayoutObject> layout = createLayout(N, 0);
+    double[][] expected = computeRepulsionReference(layout.getLayoutObjects());
+
+    PairwiseRepulsionForce serial = new PairwiseRepulsionForce(REPULSION_DISTANCE);
+    serial.setParallel(false);
+    assertForces(expected, serial.computeLayoutData(layout.getLayoutObjects()));
+
+    PairwiseRepulsionForce parallel = new PairwiseRepulsionForce(REPULSION_DISTANCE);
+    parallel.setParallel(true);
+    assertForces(expected, parallel.computeLayoutData(layout.getLayoutObjects()));
+  }
+
+  @Test
+  public void testPairwiseRepulsionForceCellList() {
+    Layout<LayoutObject> layout = createLayout(N, 1);
+    double[][] expected = computeRepulsionReference(layout.getLayoutObjects());
+
+    PairwiseRepulsionForce aspect = new PairwiseRepulsionForce(REPULSION_DISTANCE);
+    aspect.setUseCellList(true);
+    assertForces(expected, aspect.computeLayoutData(layout.getLayoutObjects()));
+    assertForces(expected, aspect.computeLayoutData(layout.getLayoutState()));
+  }
+
+  @Test
+  public void testPairwiseRepulsionForceKernels() {
+    Layout<LayoutObject> layout = createLayout(N, 2);
+    double[][] expected = computeRepulsionReference(layout.getLayoutObjects());
+
+    PairwiseRepulsionForce scalar = new PairwiseRepulsionForce(REPULSION_DISTANCE);
+    scalar.setForceKernel(ForceKernels.getScalar());
+    assertForces(expected, scalar.computeLayoutData(layout.getLayoutObjects()));
+
+    PairwiseRepulsionForce defaultKernel = new PairwiseRepulsionForce(REPULSION_DISTANCE);
+    defaultKernel.setForceKernel(ForceKernels.getDefault());
+    assertForces(expected, defaultKernel.computeLayoutData(layout.getLayoutObjects()));
+  }
+
+  @Test
+  public void testPairwiseRepulsionForceLayoutState() {
+    Layout<LayoutObject> layout = createLayout(N, 3);
+    double[][] expected = computeRepulsionReference(layout.getLayoutObjects());
+
+    PairwiseRepulsionForce aspect = new PairwiseRepulsionForce(REPULSION_DISTANCE);
+    AspectData layoutData = aspect.computeLayoutData(layout.getLayoutState());
+    assertForces(expected, layoutData);
+
+    // Reusing the data must not keep the forces of the previous call
+    AspectData reused = aspect.computeLayoutData(layout.getLayoutState(), layoutData);
+    assertEquals(layoutData, reused);
+    assertForces(expected, reused);
+
+    assertForces(expected, accumulate(aspect, layout.getLayoutState(), 1.0), 1.0);
+    assertForces(expected, accumulate(aspect, layout.getLayoutState(), 0.25), 0.25);
+  }
+
+  @Test
+  public void testBarnesHutRepulsionForceWithoutApproximation() {
+    Layout<LayoutObject> layout = createLayout(N, 4);
+    double[][] expected = computeRepulsionReference(layout.getLayoutObjects());
+
+    BarnesHutRepulsionForce aspect = new BarnesHutRepulsionForce(REPULSION_DISTANCE);
+    aspect.setTheta(0.0);
+    assertForces(expected, aspect.computeLayoutData(layout.getLayoutObjects()));
+    assertForces(expected, aspect.computeLayoutData(layout.getLayoutState()));
+    assertForces(expected, accumulate(aspect, layout.getLayoutState(), 1.0), 1.0);
+  }
+
+  @Test
+  public void testBarnesHutRepulsionForceWithDefaultTheta() {
+    // With a larger repulsion distance, many nodes of the tree are approximated
+    double repulsionDistance = 4 * REPULSION_DISTANCE;
+    for (long seed = 7; seed < 10; seed++) {
+      Layout<LayoutObject> layout = createLayout(N, seed);
+      double[][] expected =
+          computeRepulsionReference(layout.getLayoutObjects(), repulsionDistance);
+      BarnesHutRepulsionForce aspect = new BarnesHutRepulsionForce(repulsionDistance);
+      assertEquals(0.5, aspect.getTheta(), 0.0);
+      double[][] actual = forcesOf(aspect.computeLayoutData(layout.getLayoutState()));
+      double relativeError = computeRelativeError(expected, actual);
+      assertTrue("Relative error " + relativeError, relativeError > 0.0);
+      assertTrue("Relative error " + relativeError, relativeError < BARNES_HUT_MAX_ERROR);
+
+      // Accumulating the forces uses the same approximation
+      assertForces(actual, accumulate(aspect, layout.getLayoutState(), 1.0), 1.0);
+    }
+  }
+
+  @Test
+  public void testBarnesHutRepulsionForceWithCoincidentPoints() {
+    // More objects than fit into a leaf of the tree are placed at the same position, and two
+    // further objects at another position
+    Layout<LayoutObject> layout = createLayout(N, 10);
+    List<LayoutObject> layoutObjects = layout.getLayoutObjects();
+    for (int i = 0; i < 20; i++) {
+      layoutObjects.get(i * 3).setPosition(500.0, 500.0);
+    }
+    layoutObjects.get(1).setPosition(200.0, 300.0);
+    layoutObjects.get(100).setPosition(200.0, 300.0);
+    double[][] expected = computeRepulsionReference(layoutObjects);
+
+    BarnesHutRepulsionForce exact = new BarnesHutRepulsionForce(REPULSION_DISTANCE);
+    exact.setTheta(0.0);
+    assertForces(expected, exact.computeLayoutData(layout.getLayoutState()));
+
+    BarnesHutRepulsionForce approximated = new BarnesHutRepulsionForce(REPULSION_DISTANCE);
+    double[][] actual = forcesOf(approximated.computeLayoutData(layout.getLayoutState()));
+    assertTrue(computeRelativeError(expected, actual) < BARNES_HUT_MAX_ERROR);
+  }
+
+  @Test
+  public void testBarnesHutRepulsionForceWithDegenerateBounds() {
+    BarnesHutRepulsionForce aspect = new BarnesHutRepulsionForce(REPULSION_DISTANCE);
+
+    // No objects
+    Layout<LayoutObject> empty = new Layout<LayoutObject>();
+    assertEquals(0, forcesOf(aspect.computeLayoutData(empty.getLayoutState()))[0].length);
+
+    // A single object
+    Layout<LayoutObject> single = createLayout(1, 11);
+    assertForces(new double[2][1], aspect.computeLayoutData(single.getLayoutState()));
+
+    // All objects at the same position, so that the bounds have a size of zero
+    Layout<LayoutObject> point = createLayout(30, 12);
+    for (LayoutObject layoutObject : point.getLayoutObjects()) {
+      layoutObject.setPosition(100.0, 100.0);
+    }
+    assertForces(computeRepulsionReference(point.getLayoutObjects()),
+        aspect.computeLayoutData(point.getLayoutState()));
+
+    // All objects on a horizontal line, so that the bounds have a height of zero
+    Layout<LayoutObject> line = createLayout(30, 13);
+    for (int i = 0; i < 30; i++) {
+      line.getLayoutObjects().get(i).setPosition(i * 7.0, 100.0);
+    }
+    assertForces(computeRepulsionReference(line.getLayoutObjects()),
+        aspect.computeLayoutData(line.getLayoutState()));
+  }
+
+  @Test
+  public void testShapeBoundsRepulsionForceBroadPhases() {
+    Layout<LayoutObject> layout = createLayout(N, 5);
+    layout.getLayoutState().updateShapeBounds();
+    double[][] expected = computeShapeBoundsReference(layout.getLayoutObjects());
+
+    ShapeBoundsRepulsionForce allPairs = new ShapeBoundsRepulsionForce();
+    assertForces(expected, allPairs.computeLayoutData(layout.getLayoutObjects()));
+    assertForces(expected, allPairs.computeLayoutData(layout.getLayoutState()));
+
+    ShapeBoundsRepulsionForce sweepAndPrune = new ShapeBoundsRepulsionForce(new SweepAndPrune());
+    assertForces(expected, sweepAndPrune.computeLayoutData(layout.getLayoutObjects()));
+    assertForces(expected, sweepAndPrune.computeLayoutData(layout.getLayoutState()));
+
+    ShapeBoundsRepulsionForce tree = new ShapeBoundsRepulsionForce(new DynamicAabbTree());
+    assertForces(expected, tree.computeLayoutData(layout.getLayoutObjects()));
+    assertForces(expected, tree.computeLayoutData(layout.getLayoutState()));
+    assertForces(expected, accumulate(tree, layout.getLayoutState(), 1.0), 1.0);
+  }
+
+  @Test
+  public void testShapeBoundsRepulsionForceDynamicAabbTreeAfterMovement() {
+    Layout<LayoutObject> layout = createLayout(N, 6);
+    DynamicAabbTree dynamicAabbTree = new DynamicAabbTree();
+    ShapeBoundsRepulsionForce aspect = new ShapeBoundsRepulsionForce(dynamicAabbTree);
+    layout.addLayoutListener(dynamicAabbTree);
+    Random random = new Random(6);
+    for (int s = 0; s < 5; s++) {
+      for (LayoutObject layoutObject : layout.getLayoutObjects()) {
+        layoutObject.setPosition(layoutObject.getPositionX() + random.nextGaussian() * 20,
+            layoutObject.getPositionY() + random.nextGaussian() * 20);
+      }
+      layout.removeLayoutObject(layout.getLayoutObjects().get(s * 7));
+      layout.getLayoutState().updateShapeBounds();
+      double[][] expected = computeShapeBoundsReference(layout.getLayoutObjects());
+      assertForces(expected, aspect.computeLayoutData(layout.getLayoutState()));
+    }
+  }
+
+  /**
+   * Create a {@link Layout} with the given number of randomly placed objects that have
+   * rectangular shapes of random sizes
+   * 
+   * @param n
+   *          The number of objects
+   * @param seed
+   *          The random seed
+   * @return The {@link Layout}
+   */
+  static Layout<LayoutObject> createLayout(int n, long seed) {
+    Random random = new Random(seed);
+    List<LayoutObject> layoutObjects = new ArrayList<LayoutObject>(n);
+    for (int i = 0; i < n; i++) {
+      BaseLayoutObject layoutObject = new BaseLayoutObject();
+      layoutObject.setPosition(random.nextDouble() * EXTENT, random.nextDouble() * EXTENT);
+      double w = 5 + random.nextDouble() * 30;
+      double h = 5 + random.nextDouble() * 30;
+      layoutObject.setShape(new Rectangle2D.Double(-w * 0.5, -h * 0.5, w, h));
+      layoutObjects.add(layoutObject);
+    }
+    Layout<LayoutObject> layout = new Layout<LayoutObject>();
+    layout.addAll(layoutObjects);
+    return layout;
+  }
+
+  /**
+   * Compute the forces of a {@link PairwiseRepulsionForce} with a plain loop over all pairs
+   * 
+   * @param layoutObjects
+   *          The {@link LayoutObject}s
+   * @return The x- and y-components of the forces
+   */
+  private static double[][] computeRepulsionReference(List<LayoutObject> layoutObjects) {
+    return computeRepulsionReference(layoutObjects, REPULSION_DISTANCE);
+  }
+
+  /**
+   * Compute the forces of a {@link PairwiseRepulsionForce} with the given repulsion distance,
+   * with a plain loop over all pairs. Objects at the same position are treated as if they had a
+   * distance of 1.0 in x-direction, as in the original implementation.
+   * 
+   * @param layoutObjects
+   *          The {@link LayoutObject}s
+   * @param repulsionDistance
+   *          The repulsion distance
+   * @return The x- and y-components of the forces
+   */
+  private static double[][] computeRepulsionReference(List<LayoutObject> layoutObjects,
+      double repulsionDistance) {
+    int n = layoutObjects.size();
+    double[][] forces = new double[2][n];
+    for (int i = 0; i < n; i++) {
+      for (int j = i + 1; j < n; j++) {
+        LayoutObject layoutObject0 = layoutObjects.get(i);
+        LayoutObject layoutObject1 = layoutObjects.get(j);
+        double distance = layoutObject0.getPosition().distance(layoutObject1.getPosition());
+        if (distance < repulsionDistance) {
+          double directionX = 1.0;
+          double directionY = 0.0;
+          if (distance < 1e-8) {
+            distance = 1.0;
+          } else {
+            directionX = (layoutObject1.getPositionX() - layoutObject0.getPositionX()) / distance;
+            directionY = (layoutObject1.getPositionY() - layoutObject0.getPositionY()) / distance;
+          }
+          double factor = (repulsionDistance - distance) * 0.5;
+          forces[0][i] -= factor * directionX;
+          forces[1][i] -= factor * directionY;
+          forces[0][j] += factor * directionX;
+          forces[1][j] += factor * directionY;
+        }
+      }
+    }
+    return forces;
+  }
+
+  /**
+   * Compute the forces of a {@link ShapeBoundsRepulsionForce} with a plain loop over all pairs
+   * 
+   * @param layoutObjects
+   *          The {@link LayoutObject}s
+   * @return The x- and y-components of the forces
+   */
+  private static double[][] computeShapeBoundsReference(List<LayoutObject> layoutObjects) {
+    int n = layoutObjects.size();
+    double[][] forces = new double[2][n];
+    for (int i = 0; i < n; i++) {
+      for (int j = i + 1; j < n; j++) {
+        Rectangle2D bounds0 = layoutObjects.get(i).getShapeBounds();
+        Rectangle2D bounds1 = layoutObjects.get(j).getShapeBounds();
+        Point2D movement = Disjoins.computeMinDisjoinMovement(bounds0, bounds1, null);
+        forces[0][i] += 0.5 * movement.getX();
+        forces[1][i] += 0.5 * movement.getY();
+        forces[0][j] -= 0.5 * movement.getX();
+        forces[1][j] -= 0.5 * movement.getY();
+      }
+    }
+    return forces;
+  }
+
+  /**
+   * Let the given aspect accumulate its forces, with the given weight, into force arrays that
+   * initially contain a marker value
+   * 
+   * @param aspect
+   *          The {@link ForceAccumulatingAspect}
+   * @param layoutState
+   *          The {@link LayoutState}
+   * @param weight
+   *          The weight of the aspect
+   * @return The accumulated x- and y-components of the forces, minus the marker value
+   */
+  private static double[][] accumulate(ForceAccumulatingAspect aspect, LayoutState layoutState,
+      double weight) {
+    int n = layoutState.size();
+    double[][] forces = new double[2][n];
+    Arrays.fill(forces[0], 1.0);
+    Arrays.fill(forces[1], 1.0);
+    double oldWeight = aspect.getWeight();
+    aspect.setWeight(weight);
+    aspect.accumulateForces(layoutState, forces[0], forces[1]);
+    aspect.setWeight(oldWeight);
+    for (int i = 0; i < n; i++) {
+      forces[0][i] -= 1.0;
+      forces[1][i] -= 1.0;
+    }
+    return forces;
+  }
+
+  /**
+   * Assert that the given {@link AspectData} contains the expected forces
+   * 
+   * @param expected
+   *          The expected x- and y-components of the forces
+   * @param layoutData
+   *          The {@link AspectData}
+   */
+  private static void assertForces(double[][] expected, AspectData layoutData) {
+    assertForces(expected, forcesOf(layoutData), 1.0);
+  }
+
+  /**
+   * Returns the forces that are contained in the given {@link AspectData}
+   * 
+   * @param layoutData
+   *          The {@link AspectData}
+   * @return The x- and y-components of the forces
+   */
+  static double[][] forcesOf(AspectData layoutData) {
+    List<LayoutObject> layoutObjects = layoutData.getLayoutObjects();
+    double[][] forces = new double[2][layoutObjects.size()];
+    for (int i = 0; i < layoutObjects.size(); i++) {
+      forces[0][i] = layoutData.getForce(layoutObjects.get(i)).getX();
+      forces[1][i] = layoutData.getForce(layoutObjects.get(i)).getY();
+    }
+    return forces;
+  }
+
+  /**
+   * Compute the relative error of the given forces: The root of the sum of the squared lengths
+   * of the differences between the actual and the expected forces, divided by the root of the
+   * sum of the squared lengths of the expected forces
+   * 
+   * @param expected
+   *          The expected x- and y-components of the forces
+   * @param actual
+   *          The actual x- and y-components of the forces
+   * @return The relative error
+   */
+  static double computeRelativeError(double[][] expected, double[][] actual) {
+    double errorSquared = 0.0;
+    double normSquared = 0.0;
+    for (int i = 0; i < expected[0].length; i++) {
+      double dx = actual[0][i] - expected[0][i];
+      double dy = actual[1][i] - expected[1][i];
+      errorSquared += dx * dx + dy * dy;
+      normSquared += expected[0][i] * expected[0][i] + expected[1][i] * expected[1][i];
+    }
+    return Math.sqrt(errorSquared / normSquared);
+  }
+
+  /**
+   * Assert that the given forces are the expected ones, scaled with the given weight
+   * 
+   * @param expected
+   *          The expected x- and y-components of the forces
+   * @param actual
+   *          The actual x- and y-components of the forces
+   * @param weight
+   *          The weight
+   */
+  private static void assertForces(double[][] expected, double[][] actual, double weight) {
+    assertEquals(expected[0].length, actual[0].length);
+    for (int i = 0; i < expected[0].length; i++) {
+      assertEquals("Force x of object " + i, weight * expected[0][i], actual[0][i], EPSILON);
+      assertEquals("Force y of object " + i, weight * expected[1][i], actual[1][i], EPSILON);
+    }
+  }
+}
@@ -0,0 +1,245 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import de.javagl.layoutanalyzer.aspects.Aspect;
+import de.javagl.layoutanalyzer.aspects.PairwiseDistanceBasedAttractionForce;
+import de.javagl.layoutanalyzer.aspects.PairwiseDistanceBasedRepulsionForce;
+import de.javagl.layoutanalyzer.aspects.PairwiseSpecificDistancesAttractionForce;
+import de.javagl.layoutanalyzer.aspects.PairwiseSpecificDistancesRepulsionForce;
+import de.javagl.layoutanalyzer.distances.DenseDoublePairwiseDistances;
+import de.javagl.layoutanalyzer.distances.DenseFloatPairwiseDistances;
+import de.javagl.layoutanalyzer.distances.DistanceMatrices;
+import de.javagl.layoutanalyzer.distances.PairwiseDistances;
+import de.javagl.layoutanalyzer.distances.SparsePairwiseDistances;
+import de.javagl.layoutanalyzer.objects.LayoutObject;
+
+/**
+ * Tests comparing the {@link PairwiseDistances} implementations, and the aspects that use them,
+ * with the original representation of the distances as a map of maps
+ */
+public class PairwiseDistancesTest {
+  /**
+   * The number of objects
+   */
+  private static final int N = 40;
+
+  /**
+   * The tolerance for the comparison of forces that are summed up in a different order
+   */
+  private static final double EPSILON = 1e-9;
+
+  @Test
+  public void testDistancesDense() {
+    List<LayoutObject> layoutObjects = createLayout(0).getLayoutObjects();
+    Map<LayoutObject, Map<LayoutObject, Double>> map = createDistances(layoutObjects, 1.0, 0);
+    PairwiseDistances distances = DistanceMatrices.fromMap(layoutObjects, map);
+    assertTrue(distances instanceof DenseDoublePairwiseDistances);
+    assertDistances(layoutObjects, map, distances, 0.0);
+    assertDistances(layoutObjects, map, DistanceMatrices.view(layoutObjects, map), 0.0);
+
+    DenseFloatPairwiseDistances floatDistances = new DenseFloatPairwiseDistances(N);
+    distances.forEachPair((i, j, distance) -> floatDistances.setDistance(i, j, distance));
+    assertDistances(layoutObjects, map, floatDistances, 1e-4);
+  }
+
+  @Test
+  public void testDistancesSparse() {
+    List<LayoutObject> layoutObjects = createLayout(1).getLayoutObjects();
+    Map<LayoutObject, Map<LayoutObject, Double>> map = createDistances(layoutObjects, 0.2, 1);
+    PairwiseDistances distances = DistanceMatrices.fromMap(layoutObjects, map);
+    assertTrue(distances instanceof SparsePairwiseDistances);
+    assertDistances(layoutObjects, map, distances, 0.0);
+    assertDistances(layoutObjects, map, DistanceMatrices.view(layoutObjects, map), 0.0);
+  }
+
+  @Test
+  public void testAspectsDense() {
+    assertAspects(1.0, 2);
+  }
+
+  @Test
+  public void testAspectsSparse() {
+    assertAspects(0.2, 3);
+  }
+
+  /**
+   * Assert that each of the aspects that are based on pairwise distances computes the same
+   * forces for the distances that are given as a map and as {@link PairwiseDistances}
+   * 
+   * @param density
+   *          The probability for a distance to be defined for a pair
+   * @param seed
+   *          The random seed
+   */
+  private static void assertAspects(double density, long seed) {
+    Layout<LayoutObject> layout = createLayout(seed);
+    List<LayoutObject> layoutObjects = layout.getLayoutObjects();
+    Map<LayoutObject, Map<LayoutObject, Double>> map =
+        createDistances(layoutObjects, density, seed);
+    PairwiseDistances converted = DistanceMatrices.fromMap(layoutObjects, map);
+    PairwiseDistances view = DistanceMatrices.view(layoutObjects, map);
+
+    List<Function<Map<LayoutObject, Map<LayoutObject, Double>>, Aspect>> mapFactories =
+        new ArrayList<Function<Map<LayoutObject, Map<LayoutObject, Double>>, Aspect>>();
+    List<Function<PairwiseDistances, Aspect>> factories =
+        new ArrayList<Function<PairwiseDistances, Aspect>>();
+    mapFactories.add(PairwiseDistanceBasedAttractionForce::new);
+    factories.add(PairwiseDistanceBasedAttractionForce::new);
+    mapFactories.add(PairwiseDistanceBasedRepulsionForce::new);
+    factories.add(PairwiseDistanceBasedRepulsionForce::new);
+    mapFactories.add(PairwiseSpecificDistancesAttractionForce::new);
+    factories.add(PairwiseSpecificDistancesAttractionForce::new);
+    mapFactories.add(PairwiseSpecificDistancesRepulsionForce::new);
+    factories.add(PairwiseSpecificDistancesRepulsionForce::new);
+
+    for (int a = 0; a < factories.size(); a++) {
+      AspectData expected = mapFactories.get(a).apply(map).computeLayoutData(layoutObjects);
+      Aspect aspect = factories.get(a).apply(converted);
+      assertForces(expected, aspect.computeLayoutData(layoutObjects));
+      assertForces(expected, aspect.computeLayoutData(layout.getLayoutState()));
+      assertForces(expected, factories.get(a).apply(view).computeLayoutData(layoutObjects));
+    }
+  }
+
+  /**
+   * Create a {@link Layout} with randomly placed objects
+   * 
+   * @param seed
+   *          The random seed
+   * @return The {@link Layout}
+   */
+  private static Layout<LayoutObject> createLayout(long seed) {
+    return PairwiseAspectsTest.createLayout(N, seed);
+  }
+
+  /**
+   * Create random distances between the given objects, as a map where the distance for each pair
+   * (i,j) with i&lt;j is stored at <code>map.get(object_i).get(object_j)</code>
+   * 
+   * @param layoutObjects
+   *          The {@link LayoutObject}s
+   * @param density
+   *          The probability for a distance to be defined for a pair
+   * @param seed
+   *          The random seed
+   * @return The distances
+   */
+  private static Map<LayoutObject, Map<LayoutObject, Double>> createDistances(
+      List<LayoutObject> layoutObjects, double density, long seed) {
+    Random random = new Random(seed);
+    Map<LayoutObject, Map<LayoutObject, Double>> map =
+        new HashMap<LayoutObject, Map<LayoutObject, Double>>();
+    for (int i = 0; i < layoutObjects.size(); i++) {
+      Map<LayoutObject, Double> row = new HashMap<LayoutObject, Double>();
+      for (int j = i + 1; j < layoutObjects.size(); j++) {
+        if (random.nextDouble() < density) {
+          row.put(layoutObjects.get(j), 50 + random.nextDouble() * 500);
+        }
+      }
+      map.put(layoutObjects.get(i), row);
+    }
+    return map;
+  }
+
+  /**
+   * Assert that the given {@link PairwiseDistances} contain the distances from the given map
+   * 
+   * @param layoutObjects
+   *          The {@link LayoutObject}s
+   * @param map
+   *          The map containing the distances
+   * @param distances
+   *          The {@link PairwiseDistances}
+   * @param epsilon
+   *          The tolerance
+   */
+  private static void assertDistances(List<LayoutObject> layoutObjects,
+      Map<LayoutObject, Map<LayoutObject, Double>> map, PairwiseDistances distances,
+      double epsilon) {
+    int n = layoutObjects.size();
+    assertEquals(n, distances.size());
+    int count = 0;
+    for (int i = 0; i < n; i++) {
+      assertTrue(Double.isNaN(distances.getDistance(i, i)));
+      for (int j = i + 1; j < n; j++) {
+        Double expected = map.get(layoutObjects.get(i)).get(layoutObjects.get(j));
+        if (expected == null) {
+          assertTrue(Double.isNaN(distances.getDistance(i, j)));
+          assertTrue(Double.isNaN(distances.getDistance(j, i)));
+        } else {
+          assertEquals(expected, distances.getDistance(i, j), epsilon);
+          assertEquals(expected, distances.getDistance(j, i), epsilon);
+          count++;
+        }
+      }
+    }
+    // The pairs must be passed in ascending order of their linear index i*n+j
+    int[] visited = { 0, -1 };
+    distances.forEachPair((i, j, distance) -> {
+      assertTrue(i < j);
+      assertTrue(i * n + j > visited[1]);
+      Double expected = map.get(layoutObjects.get(i)).get(layoutObjects.get(j));
+      assertEquals(expected, distance, epsilon);
+      visited[0]++;
+      visited[1] = i * n + j;
+    });
+    assertEquals(count, visited[0]);
+  }
+
+  /**
+   * Assert that the given {@link AspectData} contain the same forces
+   * 
+   * @param expected
+   *          The expected {@link AspectData}
+   * @param actual
+   *          The actual {@link AspectData}
+   */
+  private static void assertForces(AspectData expected, AspectData actual) {
+    List<LayoutObject> layoutObjects = expected.getLayoutObjects();
+    assertEquals(layoutObjects, actual.getLayoutObjects());
+    for (LayoutObject layoutObject : layoutObjects) {
+      Point2D expectedForce = expected.getForce(layoutObject);
+      Point2D actualForce = actual.getForce(layoutObject);
+      assertEquals(expectedForce.getX(), actualForce.getX(), EPSILON);
+      assertEquals(expectedForce.getY(), actualForce.getY(), EPSILON);
+    }
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+import java.util.Locale;
+import java.util.Random;
+
+import de.javagl.layoutanalyzer.aspects.Aspect;
+import de.javagl.layoutanalyzer.aspects.PairwiseDistanceBasedAttractionForce;
+import de.javagl.layoutanalyzer.aspects.PairwiseDistanceBasedRepulsionForce;
+import de.javagl.layoutanalyzer.distances.DenseFloatPairwiseDistances;
+import de.javagl.layoutanalyzer.distances.DistanceMatrices;
+import de.javagl.layoutanalyzer.distances.IndexDistanceFunction;
+import de.javagl.layoutanalyzer.distances.PivotDistances;
+import de.javagl.layoutanalyzer.objects.BaseLayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutObject;
+
+/**
+ * A benchmark for the {@link PivotDistances}.<br>
+ * <br>
+ * The distances between the objects are taken from a random reference layout. The
+ * {@link PairwiseDistanceBasedAttractionForce} and the {@link PairwiseDistanceBasedRepulsionForce}
+ * are applied, once with the distances of all pairs, and with {@link PivotDistances} for
+ * different numbers of objects. The time for selecting the pivots, the memory for the distances
+ * and the average time for a step are printed.
+ */
+public class PivotDistancesBenchmark {
+  /**
+   * The entry point of this benchmark
+   * 
+   * @param args
+   *          Not used
+   */
+  public static void main(String[] args) {
+    int k = 32;
+    int steps = 10;
+    for (int n : new int[] { 2000, 8000 }) {
+      double[] reference = createReferencePositions(n);
+      IndexDistanceFunction distanceFunction = createDistanceFunction(reference);
+      DenseFloatPairwiseDistances distances = new DenseFloatPairwiseDistances(n);
+      for (int i = 0; i < n; i++) {
+        for (int j = i + 1; j < n; j++) {
+          distances.setDistance(i, j, distanceFunction.computeDistance(i, j));
+        }
+      }
+      long bytes = (long) n * (n - 1) / 2 * Float.BYTES;
+      runLayout("all pairs", n, bytes, 0,
+          new PairwiseDistanceBasedAttractionForce(distances),
+          new PairwiseDistanceBasedRepulsionForce(distances), steps);
+      runPivots(n, k, distanceFunction, steps);
+    }
+    for (int n : new int[] { 50000, 200000 }) {
+      IndexDistanceFunction distanceFunction =
+          createDistanceFunction(createReferencePositions(n));
+      runPivots(n, k, distanceFunction, steps);
+    }
+  }
+
+  /**
+   * Select the pivots with the max-min strategy, and run the layout with the resulting
+   * {@link PivotDistances}
+   * 
+   * @param n
+   *          The number of objects
+   * @param k
+   *          The number of pivots
+   * @param distanceFunction
+   *          The distance function
+   * @param steps
+   *          The number of steps
+   */
+  private static void runPivots(int n, int k, IndexDistanceFunction distanceFunction,
+      int steps) {
+    long before = System.nanoTime();
+    PivotDistances pivotDistances = DistanceMatrices.selectPivotsMaxMin(n, k, distanceFunction, 0);
+    long selectionNs = System.nanoTime() - before;
+    long bytes = (long) n * k * Float.BYTES;
+    runLayout(k + " pivots", n, bytes, selectionNs,
+        new PairwiseDistanceBasedAttractionForce(pivotDistances),
+        new PairwiseDistanceBasedRepulsionForce(pivotDistances), steps);
+  }
+
+  /**
+   * Run the layout with the given aspects, and print the timing information
+   * 
+   * @param name
+   *          The name of the configuration
+   * @param n
+   *          The number of objects
+   * @param bytes
+   *          The number of bytes for the distances
+   * @param preparationNs
+   *          The time for preparing the distances, in nanoseconds
+   * @param attraction
+   *          The attraction aspect
+   * @param repulsion
+   *          The repulsion aspect
+   * @param steps
+   *          The number of steps
+   */
+  private static void runLayout(String name, int n, long bytes, long preparationNs,
+      Aspect attraction, Aspect repulsion, int steps) {
+    Random random = new Random(1);
+    Layout<LayoutObject> layout = new Layout<LayoutObject>();
+    for (int i = 0; i < n; i++) {
+      BaseLayoutObject layoutObject = new BaseLayoutObject("o" + i);
+      layoutObject.setPosition(random.nextDouble(), random.nextDouble());
+      layout.addLayoutObject(layoutObject);
+    }
+    Layouter<LayoutObject> layouter = new Layouter<LayoutObject>(layout);
+    layouter.addAspect(attraction);
+    layouter.addAspect(repulsion);
+
+    // Warm up
+    layouter.performStep();
+    long before = System.nanoTime();
+    for (int s = 0; s < steps; s++) {
+      layouter.performStep();
+    }
+    long stepNs = (System.nanoTime() - before) / steps;
+    System.out.printf(Locale.ENGLISH,
+        "n=%7d, %-10s: distances %8.1f MB, preparation %8.1f ms, %9.1f ms per step%n", n, name,
+        bytes / 1e6, preparationNs / 1e6, stepNs / 1e6);
+  }
+
+  /**
+   * Create random reference positions in the unit square, as an array that contains the
+   * interleaved x- and y-coordinates
+   * 
+   * @param n
+   *          The number of objects
+   * @return The positions
+   */
+  private static double[] createReferencePositions(int n) {
+    Random random = new Random(0);
+    double[] reference = new double[n * 2];
+    for (int i = 0; i < n * 2; i++) {
+      reference[i] = random.nextDouble();
+    }
+    return reference;
+  }
+
+  /**
+   * Create a distance function that computes the Euclidean distance between the given reference
+   * positions, scaled to the range [0,1]
+   * 
+   * @param reference
+   *          The interleaved x- and y-coordinates of the reference positions
+   * @return The distance function
+   */
+  private static IndexDistanceFunction createDistanceFunction(double[] reference) {
+    double scale = 1.0 / Math.sqrt(2.0);
+    return (i, j) -> {
+      double dx = reference[j * 2] - reference[i * 2];
+      double dy = reference[j * 2 + 1] - reference[i * 2 + 1];
+      return Math.sqrt(dx * dx + dy * dy) * scale;
+    };
+  }
+}
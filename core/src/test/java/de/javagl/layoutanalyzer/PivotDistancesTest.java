@@ -0,0 +1,253 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.javagl.layoutanalyzer.aspects.Aspect;
+import de.javagl.layoutanalyzer.aspects.PairwiseDistanceBasedAttractionForce;
+import de.javagl.layoutanalyzer.aspects.PairwiseDistanceBasedRepulsionForce;
+import de.javagl.layoutanalyzer.distances.DenseFloatPairwiseDistances;
+import de.javagl.layoutanalyzer.distances.DistanceMatrices;
+import de.javagl.layoutanalyzer.distances.IndexDistanceFunction;
+import de.javagl.layoutanalyzer.distances.PivotDistances;
+import de.javagl.layoutanalyzer.objects.BaseLayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutObject;
+
+/**
+ * Tests comparing the forces of the {@link PairwiseDistanceBasedAttractionForce} and the
+ * {@link PairwiseDistanceBasedRepulsionForce} with {@link PivotDistances} to the forces with the
+ * distances of all pairs
+ */
+public class PivotDistancesTest {
+  /**
+   * The number of objects
+   */
+  private static final int N = 400;
+
+  /**
+   * The tolerance for the relative error of forces that are summed up in a different order
+   */
+  private static final double EPSILON = 1e-12;
+
+  @Test
+  public void testAllObjectsAsPivots() {
+    IndexDistanceFunction distanceFunction = createDistanceFunction(N, 0);
+    DenseFloatPairwiseDistances distances = createDistances(N, distanceFunction);
+    Layout<LayoutObject> layout = createLayout(N, 1);
+    double[][] expectedAttraction =
+        computeForces(new PairwiseDistanceBasedAttractionForce(distances), layout);
+    double[][] expectedRepulsion =
+        computeForces(new PairwiseDistanceBasedRepulsionForce(distances), layout);
+
+    // When all objects are pivots, each region only contains the pivot itself, and the forces
+    // are the same as for all pairs
+    PivotDistances maxMin = DistanceMatrices.selectPivotsMaxMin(N, N, distanceFunction, 2);
+    PivotDistances random = DistanceMatrices.selectPivotsRandom(N, N, distanceFunction, 3);
+    for (PivotDistances pivotDistances : new PivotDistances[] { maxMin, random }) {
+      for (int p = 0; p < N; p++) {
+        assertEquals(1, pivotDistances.getRegionSize(p));
+      }
+      assertExact(expectedAttraction,
+          computeForces(new PairwiseDistanceBasedAttractionForce(pivotDistances), layout));
+      assertExact(expectedRepulsion,
+          computeForces(new PairwiseDistanceBasedRepulsionForce(pivotDistances), layout));
+    }
+  }
+
+  @Test
+  public void testFewerPivots() {
+    IndexDistanceFunction distanceFunction = createDistanceFunction(N, 4);
+    DenseFloatPairwiseDistances distances = createDistances(N, distanceFunction);
+    for (long seed = 5; seed < 8; seed++) {
+      Layout<LayoutObject> layout = createLayout(N, seed);
+      double[][] expectedAttraction =
+          computeForces(new PairwiseDistanceBasedAttractionForce(distances), layout);
+      double[][] expectedRepulsion =
+          computeForces(new PairwiseDistanceBasedRepulsionForce(distances), layout);
+      double[][] expected = add(expectedAttraction, expectedRepulsion);
+      assertFewerPivots(64, 0.3, distanceFunction, seed, layout, expectedAttraction, expected);
+      assertFewerPivots(32, 0.4, distanceFunction, seed, layout, expectedAttraction, expected);
+    }
+  }
+
+  /**
+   * Assert that the relative error of the forces with the given number of pivots, selected with
+   * the max-min strategy, is below the given bound, for the attraction and for the sum of the
+   * attraction and the repulsion.<br>
+   * <br>
+   * The relative errors that are observed for the random layouts of this test are between 0.15
+   * and 0.26 for 64 pivots, and between 0.23 and 0.32 for 32 pivots. The repulsion alone is not
+   * checked: It only acts between objects that are closer than their preferred distance, and is
+   * not approximated well by a few distant pivots. Its relative error is between 1.1 and 1.5 for
+   * 64 pivots, but its forces are about 6 orders of magnitude smaller than the ones of the
+   * attraction.
+   * 
+   * @param k
+   *          The number of pivots
+   * @param maxError
+   *          The maximum relative error
+   * @param distanceFunction
+   *          The distance function
+   * @param seed
+   *          The random seed for the pivot selection
+   * @param layout
+   *          The {@link Layout}
+   * @param expectedAttraction
+   *          The forces of the attraction for all pairs
+   * @param expected
+   *          The sum of the forces of the attraction and the repulsion for all pairs
+   */
+  private static void assertFewerPivots(int k, double maxError,
+      IndexDistanceFunction distanceFunction, long seed, Layout<LayoutObject> layout,
+      double[][] expectedAttraction, double[][] expected) {
+    PivotDistances pivotDistances =
+        DistanceMatrices.selectPivotsMaxMin(N, k, distanceFunction, seed);
+    double[][] attraction =
+        computeForces(new PairwiseDistanceBasedAttractionForce(pivotDistances), layout);
+    double[][] repulsion =
+        computeForces(new PairwiseDistanceBasedRepulsionForce(pivotDistances), layout);
+    double attractionError = PairwiseAspectsTest.computeRelativeError(expectedAttraction,
+        attraction);
+    assertTrue(k + " pivots, attraction error " + attractionError, attractionError < maxError);
+    double error = PairwiseAspectsTest.computeRelativeError(expected, add(attraction, repulsion));
+    assertTrue(k + " pivots, error " + error, error < maxError);
+  }
+
+  /**
+   * Assert that the given forces are equal, up to rounding errors
+   * 
+   * @param expected
+   *          The expected forces
+   * @param actual
+   *          The actual forces
+   */
+  private static void assertExact(double[][] expected, double[][] actual) {
+    double error = PairwiseAspectsTest.computeRelativeError(expected, actual);
+    assertTrue("Relative error " + error, error < EPSILON);
+  }
+
+  /**
+   * Compute the forces of the given aspect for the given layout
+   * 
+   * @param aspect
+   *          The {@link Aspect}
+   * @param layout
+   *          The {@link Layout}
+   * @return The x- and y-components of the forces
+   */
+  private static double[][] computeForces(Aspect aspect, Layout<LayoutObject> layout) {
+    return PairwiseAspectsTest.forcesOf(aspect.computeLayoutData(layout.getLayoutState()));
+  }
+
+  /**
+   * Returns the sum of the given forces
+   * 
+   * @param forces0
+   *          The first forces
+   * @param forces1
+   *          The second forces
+   * @return The sum
+   */
+  private static double[][] add(double[][] forces0, double[][] forces1) {
+    int n = forces0[0].length;
+    double[][] sum = new double[2][n];
+    for (int i = 0; i < n; i++) {
+      sum[0][i] = forces0[0][i] + forces1[0][i];
+      sum[1][i] = forces0[1][i] + forces1[1][i];
+    }
+    return sum;
+  }
+
+  /**
+   * Create a distance function that computes the Euclidean distance between random reference
+   * positions in the unit square, scaled to the range [0,1]
+   * 
+   * @param n
+   *          The number of objects
+   * @param seed
+   *          The random seed
+   * @return The distance function
+   */
+  private static IndexDistanceFunction createDistanceFunction(int n, long seed) {
+    Random random = new Random(seed);
+    double[] x = new double[n];
+    double[] y = new double[n];
+    for (int i = 0; i < n; i++) {
+      x[i] = random.nextDouble();
+      y[i] = random.nextDouble();
+    }
+    double scale = 1.0 / Math.sqrt(2.0);
+    return (i, j) -> Math.hypot(x[j] - x[i], y[j] - y[i]) * scale;
+  }
+
+  /**
+   * Create the distances of all pairs from the given function
+   * 
+   * @param n
+   *          The number of objects
+   * @param distanceFunction
+   *          The distance function
+   * @return The distances
+   */
+  private static DenseFloatPairwiseDistances createDistances(int n,
+      IndexDistanceFunction distanceFunction) {
+    DenseFloatPairwiseDistances distances = new DenseFloatPairwiseDistances(n);
+    for (int i = 0; i < n; i++) {
+      for (int j = i + 1; j < n; j++) {
+        distances.setDistance(i, j, distanceFunction.computeDistance(i, j));
+      }
+    }
+    return distances;
+  }
+
+  /**
+   * Create a {@link Layout} with the given number of objects at random positions in the unit
+   * square
+   * 
+   * @param n
+   *          The number of objects
+   * @param seed
+   *          The random seed
+   * @return The {@link Layout}
+   */
+  private static Layout<LayoutObject> createLayout(int n, long seed) {
+    Random random = new Random(seed);
+    Layout<LayoutObject> layout = new Layout<LayoutObject>();
+    for (int i = 0; i < n; i++) {
+      BaseLayoutObject layoutObject = new BaseLayoutObject();
+      layoutObject.setPosition(random.nextDouble(), random.nextDouble());
+      layout.addLayoutObject(layoutObject);
+    }
+    return layout;
+  }
+}
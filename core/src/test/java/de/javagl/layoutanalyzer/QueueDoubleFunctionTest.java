@@ -0,0 +1,145 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import de.javagl.layoutanalyzer.utils.QueueDoubleFunction;
+
+/**
+ * Tests comparing the ring buffer of the {@link QueueDoubleFunction} with the original
+ * implementation, which stored the values in a list and removed the oldest ones
+ */
+public class QueueDoubleFunctionTest {
+  @Test
+  public void testSameValuesAsList() {
+    int[] sizes = { 0, 1, 2, 7, 16 };
+    Random random = new Random(0);
+    for (int size : sizes) {
+      QueueDoubleFunction function = new QueueDoubleFunction(size);
+      List<Double> expected = new ArrayList<Double>();
+      for (int s = 0; s < 200; s++) {
+        if (s % 50 == 49) {
+          function.clear();
+          expected.clear();
+        } else {
+          double value = random.nextDouble();
+          function.add(value);
+          expected.add(value);
+          while (expected.size() > size) {
+            expected.remove(0);
+          }
+        }
+        assertValues(expected, size, function);
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeSize() {
+    new QueueDoubleFunction(-1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSnapshotTargetTooSmall() {
+    new QueueDoubleFunction(4).snapshot(new double[3]);
+  }
+
+  @Test
+  public void testConcurrentReadersSeeConsistentState() throws InterruptedException {
+    int size = 64;
+    int steps = 200000;
+    QueueDoubleFunction function = new QueueDoubleFunction(size);
+    AtomicReference<String> failure = new AtomicReference<String>();
+    Thread writer = new Thread(() -> {
+      for (int s = 0; s < steps; s++) {
+        function.add(s);
+      }
+    });
+    Thread reader = new Thread(() -> {
+      double[] snapshot = new double[size];
+      while (writer.isAlive()) {
+        // The values in a snapshot must always be consecutive
+        int count = function.snapshot(snapshot);
+        for (int i = 1; i < count; i++) {
+          if (snapshot[i] != snapshot[i - 1] + 1) {
+            failure.compareAndSet(null, "Snapshot contains " + snapshot[i - 1] + " followed by "
+                + snapshot[i]);
+          }
+        }
+      }
+    });
+    writer.start();
+    reader.start();
+    writer.join();
+    reader.join();
+    assertNull(failure.get(), failure.get());
+    assertEquals(size, function.getCount());
+    assertEquals(steps - size, function.apply(0.0), 0.0);
+  }
+
+  /**
+   * Assert that the given function contains the expected values
+   * 
+   * @param expected
+   *          The expected values
+   * @param size
+   *          The size of the queue
+   * @param function
+   *          The {@link QueueDoubleFunction}
+   */
+  private static void assertValues(List<Double> expected, int size,
+      QueueDoubleFunction function) {
+    assertEquals(expected.size(), function.getCount());
+    for (int i = 0; i < size; i++) {
+      double argument = (i + 0.5) / size;
+      if (i < expected.size()) {
+        assertEquals(expected.get(i), function.apply(argument));
+      } else {
+        assertNull(function.apply(argument));
+      }
+    }
+    assertNull(function.apply(-1.0));
+    assertNull(function.apply(1.0));
+    double[] snapshot = new double[size];
+    int count = function.snapshot(snapshot);
+    assertEquals(expected.size(), count);
+    for (int i = 0; i < count; i++) {
+      assertEquals(expected.get(i), snapshot[i], 0.0);
+    }
+    assertTrue(count <= size);
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import de.javagl.layoutanalyzer.aspects.PairwiseSpecificDistancesAttractionForce;
+import de.javagl.layoutanalyzer.aspects.PairwiseSpecificDistancesRepulsionForce;
+import de.javagl.layoutanalyzer.aspects.StressSampling;
+import de.javagl.layoutanalyzer.distances.DenseFloatPairwiseDistances;
+import de.javagl.layoutanalyzer.distances.PairwiseDistances;
+import de.javagl.layoutanalyzer.objects.BaseLayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutObject;
+
+/**
+ * A benchmark for the {@link StressSampling}.<br>
+ * <br>
+ * The distances between the objects are taken from a random reference layout, and the objects
+ * start at random positions. The layout is computed with the
+ * {@link PairwiseSpecificDistancesAttractionForce} and the
+ * {@link PairwiseSpecificDistancesRepulsionForce}, once visiting all pairs in each step, and once
+ * with a {@link StressSampling}. The normalized stress of the layout is printed after certain
+ * amounts of time.
+ */
+public class StressSamplingBenchmark {
+  /**
+   * The entry point of this benchmark
+   * 
+   * @param args
+   *          Not used
+   */
+  public static void main(String[] args) {
+    int n = 1000;
+    Random random = new Random(0);
+    double[] referenceX = new double[n];
+    double[] referenceY = new double[n];
+    for (int i = 0; i < n; i++) {
+      referenceX[i] = random.nextDouble() * 10.0;
+      referenceY[i] = random.nextDouble() * 10.0;
+    }
+    DenseFloatPairwiseDistances distances = new DenseFloatPairwiseDistances(n);
+    for (int i = 0; i < n; i++) {
+      for (int j = i + 1; j < n; j++) {
+        double dx = referenceX[j] - referenceX[i];
+        double dy = referenceY[j] - referenceY[i];
+        distances.setDistance(i, j, Math.sqrt(dx * dx + dy * dy));
+      }
+    }
+    long pairCount = (long) n * (n - 1) / 2;
+    runLayout("all pairs", distances, 0, 0.5);
+    runLayout("sampling, 1/8 epoch per step", distances, (int) (pairCount / 8), 1.0);
+    runLayout("sampling, 1/2 epoch per step", distances, (int) (pairCount / 2), 1.0);
+  }
+
+  /**
+   * Run the layout and print the stress after certain amounts of time
+   * 
+   * @param name
+   *          The name of the configuration
+   * @param distances
+   *          The distances
+   * @param pairsPerStep
+   *          The number of pairs per step for the sampling, or 0 to visit all pairs
+   * @param timeStep
+   *          The time step
+   */
+  private static void runLayout(String name, PairwiseDistances distances, int pairsPerStep,
+      double timeStep) {
+    int n = distances.size();
+    Random random = new Random(1);
+    Layout<LayoutObject> layout = new Layout<LayoutObject>();
+    for (int i = 0; i < n; i++) {
+      BaseLayoutObject layoutObject = new BaseLayoutObject("o" + i);
+      layoutObject.setPosition(random.nextDouble() * 10.0, random.nextDouble() * 10.0);
+      layout.addLayoutObject(layoutObject);
+    }
+    PairwiseSpecificDistancesAttractionForce attraction =
+        new PairwiseSpecificDistancesAttractionForce(distances);
+    PairwiseSpecificDistancesRepulsionForce repulsion =
+        new PairwiseSpecificDistancesRepulsionForce(distances);
+    if (pairsPerStep > 0) {
+      attraction.setSampling(new StressSampling(pairsPerStep, 0));
+      repulsion.setSampling(new StressSampling(pairsPerStep, 1));
+    }
+    Layouter<LayoutObject> layouter = new Layouter<LayoutObject>(layout);
+    layouter.setTimeStep(timeStep);
+    layouter.addAspect(attraction);
+    layouter.addAspect(repulsion);
+
+    System.out.println(name + ":");
+    long[] checkpointsMs = { 250, 1000, 2000, 4000 };
+    long elapsedNs = 0;
+    int steps = 0;
+    for (long checkpointMs : checkpointsMs) {
+      while (elapsedNs < checkpointMs * 1000000L) {
+        long before = System.nanoTime();
+        layouter.performStep();
+        elapsedNs += System.nanoTime() - before;
+        steps++;
+      }
+      System.out.printf(Locale.ENGLISH, "  after %5d ms, %5d steps: stress %.3e%n", checkpointMs,
+          steps, computeStress(layout.getLayoutObjects(), distances));
+    }
+  }
+
+  /**
+   * Compute the normalized stress of the given objects, which is the average of
+   * <code>((|x<sub>i</sub> - x<sub>j</sub>| - d<sub>ij</sub>) / d<sub>ij</sub>)<sup>2</sup></code>
+   * over all pairs
+   * 
+   * @param layoutObjects
+   *          The {@link LayoutObject}s
+   * @param distances
+   *          The distances
+   * @return The stress
+   */
+  private static double computeStress(List<LayoutObject> layoutObjects,
+      PairwiseDistances distances) {
+    int n = layoutObjects.size();
+    double[] x = new double[n];
+    double[] y = new double[n];
+    for (int i = 0; i < n; i++) {
+      x[i] = layoutObjects.get(i).getPosition().getX();
+      y[i] = layoutObjects.get(i).getPosition().getY();
+    }
+    double[] sum = new double[2];
+    distances.forEachPair((i, j, d) -> {
+      if (d > 0.0) {
+        double dx = x[j] - x[i];
+        double dy = y[j] - y[i];
+        double relative = (Math.sqrt(dx * dx + dy * dy) - d) / d;
+        sum[0] += relative * relative;
+        sum[1]++;
+      }
+    });
+    return sum[0] / sum[1];
+  }
+}
@@ -0,0 +1,283 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.javagl.layoutanalyzer.aspects.Aspect;
+import de.javagl.layoutanalyzer.aspects.PairwiseSpecificDistancesAttractionForce;
+import de.javagl.layoutanalyzer.aspects.PairwiseSpecificDistancesRepulsionForce;
+import de.javagl.layoutanalyzer.aspects.StressSampling;
+import de.javagl.layoutanalyzer.distances.DenseFloatPairwiseDistances;
+import de.javagl.layoutanalyzer.objects.LayoutObject;
+
+/**
+ * Tests for the {@link StressSampling} in the {@link PairwiseSpecificDistancesAttractionForce}
+ * and the {@link PairwiseSpecificDistancesRepulsionForce}
+ */
+public class StressSamplingTest {
+  /**
+   * The number of objects
+   */
+  private static final int N = 40;
+
+  /**
+   * The tolerance for the comparison of distances that have been computed from moved positions
+   */
+  private static final double EPSILON = 1e-9;
+
+  @Test
+  public void testDeterministicWithFixedSeed() {
+    DenseFloatPairwiseDistances distances = createDistances(N, 0);
+    Layout<LayoutObject> layout0 = PairwiseAspectsTest.createLayout(N, 1);
+    Layout<LayoutObject> layout1 = PairwiseAspectsTest.createLayout(N, 1);
+    Layout<LayoutObject> layout2 = PairwiseAspectsTest.createLayout(N, 1);
+    PairwiseSpecificDistancesRepulsionForce aspect0 =
+        new PairwiseSpecificDistancesRepulsionForce(distances);
+    aspect0.setSampling(new StressSampling(100, 2));
+    PairwiseSpecificDistancesRepulsionForce aspect1 =
+        new PairwiseSpecificDistancesRepulsionForce(distances);
+    aspect1.setSampling(new StressSampling(100, 2));
+    PairwiseSpecificDistancesRepulsionForce aspect2 =
+        new PairwiseSpecificDistancesRepulsionForce(distances);
+    aspect2.setSampling(new StressSampling(100, 3));
+
+    // The steps cover several epochs, so that several permutations are created
+    boolean differentSeedDiffers = false;
+    for (int s = 0; s < 50; s++) {
+      double[][] forces0 = computeForces(aspect0, layout0);
+      double[][] forces1 = computeForces(aspect1, layout1);
+      double[][] forces2 = computeForces(aspect2, layout2);
+      assertArrayEquals(forces0[0], forces1[0], 0.0);
+      assertArrayEquals(forces0[1], forces1[1], 0.0);
+      differentSeedDiffers |= !Arrays.equals(forces0[0], forces2[0]);
+      move(layout0, forces0);
+      move(layout1, forces1);
+      move(layout2, forces2);
+    }
+    assertTrue(aspect0.getSampling().getEpoch() > 1);
+    assertTrue(differentSeedDiffers);
+  }
+
+  @Test
+  public void testSampledPairsMoveTowardsTargetDistance() {
+    DenseFloatPairwiseDistances distances = createDistances(N, 4);
+    Layout<LayoutObject> layout = PairwiseAspectsTest.createLayout(N, 5);
+    List<LayoutObject> layoutObjects = layout.getLayoutObjects();
+
+    // The attraction and the repulsion visit the same pair in each step. One of them moves the
+    // objects towards each other if they are too far apart, and the other one moves them apart
+    // if they are too close.
+    PairwiseSpecificDistancesAttractionForce attraction =
+        new PairwiseSpecificDistancesAttractionForce(distances);
+    attraction.setSampling(new StressSampling(1, 6));
+    PairwiseSpecificDistancesRepulsionForce repulsion =
+        new PairwiseSpecificDistancesRepulsionForce(distances);
+    repulsion.setSampling(new StressSampling(1, 6));
+
+    // In one epoch, each pair is visited exactly once
+    int pairCount = N * (N - 1) / 2;
+    boolean[][] visited = new boolean[N][N];
+    for (int s = 0; s < pairCount; s++) {
+      double[][] attractionForces = computeForces(attraction, layout);
+      double[][] repulsionForces = computeForces(repulsion, layout);
+      int[] pair = findMovedPair(attractionForces, repulsionForces);
+      int i = pair[0];
+      int j = pair[1];
+      assertFalse("Pair " + i + ", " + j + " visited twice", visited[i][j]);
+      visited[i][j] = true;
+
+      double d = distances.getDistance(i, j);
+      double before = layoutObjects.get(i).getPosition().distance(layoutObjects.get(j)
+          .getPosition());
+      move(layout, attractionForces);
+      move(layout, repulsionForces);
+      double after = layoutObjects.get(i).getPosition().distance(layoutObjects.get(j)
+          .getPosition());
+
+      // The distance moves towards the target distance, without overshooting it
+      assertTrue(Math.abs(after - d) <= Math.abs(before - d) + EPSILON);
+      assertTrue((after - d) * (before - d) >= -EPSILON);
+      if (Math.abs(before - d) > EPSILON) {
+        assertTrue(Math.abs(after - d) < Math.abs(before - d));
+      }
+    }
+    for (int i = 0; i < N; i++) {
+      for (int j = i + 1; j < N; j++) {
+        assertTrue("Pair " + i + ", " + j + " not visited", visited[i][j]);
+      }
+    }
+    assertEquals(0, attraction.getSampling().getEpoch());
+  }
+
+  @Test
+  public void testDisablingRestoresAllPairs() {
+    DenseFloatPairwiseDistances distances = createDistances(N, 7);
+    Layout<LayoutObject> layout = PairwiseAspectsTest.createLayout(N, 8);
+
+    PairwiseSpecificDistancesAttractionForce reference =
+        new PairwiseSpecificDistancesAttractionForce(distances);
+    double[][] expected = computeForces(reference, layout);
+
+    PairwiseSpecificDistancesAttractionForce aspect =
+        new PairwiseSpecificDistancesAttractionForce(distances);
+    aspect.setSampling(new StressSampling(10, 9));
+    double[][] sampled = computeForces(aspect, layout);
+    assertFalse(Arrays.equals(expected[0], sampled[0]));
+
+    aspect.setSampling(null);
+    double[][] actual = computeForces(aspect, layout);
+    assertArrayEquals(expected[0], actual[0], 0.0);
+    assertArrayEquals(expected[1], actual[1], 0.0);
+
+    PairwiseSpecificDistancesRepulsionForce repulsionReference =
+        new PairwiseSpecificDistancesRepulsionForce(distances);
+    double[][] repulsionExpected = computeForces(repulsionReference, layout);
+    PairwiseSpecificDistancesRepulsionForce repulsion =
+        new PairwiseSpecificDistancesRepulsionForce(distances);
+    repulsion.setSampling(new StressSampling(10, 9));
+    computeForces(repulsion, layout);
+    repulsion.setSampling(null);
+    double[][] repulsionActual = computeForces(repulsion, layout);
+    assertArrayEquals(repulsionExpected[0], repulsionActual[0], 0.0);
+    assertArrayEquals(repulsionExpected[1], repulsionActual[1], 0.0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPairsPerStep() {
+    new StressSampling(0, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidEpochs() {
+    new StressSampling(1, 0).setEpochs(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidEpsilon() {
+    new StressSampling(1, 0).setEpsilon(0.0);
+  }
+
+  /**
+   * Create the distances between the given number of objects at random positions
+   * 
+   * @param n
+   *          The number of objects
+   * @param seed
+   *          The random seed
+   * @return The distances
+   */
+  private static DenseFloatPairwiseDistances createDistances(int n, long seed) {
+    Random random = new Random(seed);
+    double[] x = new double[n];
+    double[] y = new double[n];
+    for (int i = 0; i < n; i++) {
+      x[i] = random.nextDouble() * 500.0;
+      y[i] = random.nextDouble() * 500.0;
+    }
+    DenseFloatPairwiseDistances distances = new DenseFloatPairwiseDistances(n);
+    for (int i = 0; i < n; i++) {
+      for (int j = i + 1; j < n; j++) {
+        distances.setDistance(i, j, Math.hypot(x[j] - x[i], y[j] - y[i]));
+      }
+    }
+    return distances;
+  }
+
+  /**
+   * Compute the forces of the given aspect for the given layout
+   * 
+   * @param aspect
+   *          The {@link Aspect}
+   * @param layout
+   *          The {@link Layout}
+   * @return The x- and y-components of the forces
+   */
+  private static double[][] computeForces(Aspect aspect, Layout<LayoutObject> layout) {
+    AspectData layoutData = aspect.computeLayoutData(layout.getLayoutState());
+    List<LayoutObject> layoutObjects = layout.getLayoutObjects();
+    double[][] forces = new double[2][layoutObjects.size()];
+    for (int i = 0; i < layoutObjects.size(); i++) {
+      forces[0][i] = layoutData.getForce(layoutObjects.get(i)).getX();
+      forces[1][i] = layoutData.getForce(layoutObjects.get(i)).getY();
+    }
+    return forces;
+  }
+
+  /**
+   * Move the objects of the given layout by the given forces, as it is done by the
+   * {@link Layouter} with a time step of 1.0
+   * 
+   * @param layout
+   *          The {@link Layout}
+   * @param forces
+   *          The x- and y-components of the forces
+   */
+  private static void move(Layout<LayoutObject> layout, double[][] forces) {
+    List<LayoutObject> layoutObjects = layout.getLayoutObjects();
+    for (int i = 0; i < layoutObjects.size(); i++) {
+      LayoutObject layoutObject = layoutObjects.get(i);
+      layoutObject.setPosition(layoutObject.getPositionX() + forces[0][i],
+          layoutObject.getPositionY() + forces[1][i]);
+    }
+  }
+
+  /**
+   * Returns the indices of the pair of objects that have been moved by the given forces, and
+   * assert that exactly two objects have been moved, each by only one of the forces
+   * 
+   * @param forces0
+   *          The first forces
+   * @param forces1
+   *          The second forces
+   * @return The indices of the objects
+   */
+  private static int[] findMovedPair(double[][] forces0, double[][] forces1) {
+    int[] pair = { -1, -1 };
+    int count = 0;
+    for (int i = 0; i < forces0[0].length; i++) {
+      boolean moved0 = forces0[0][i] != 0.0 || forces0[1][i] != 0.0;
+      boolean moved1 = forces1[0][i] != 0.0 || forces1[1][i] != 0.0;
+      assertFalse("Object " + i + " moved by both forces", moved0 && moved1);
+      if (moved0 || moved1) {
+        assertTrue("More than two objects moved", count < 2);
+        pair[count++] = i;
+      }
+    }
+    assertEquals("Number of moved objects", 2, count);
+    return pair;
+  }
+}
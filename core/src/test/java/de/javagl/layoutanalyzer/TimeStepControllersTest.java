@@ -0,0 +1,182 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import de.javagl.layoutanalyzer.integration.TimeStepController;
+import de.javagl.layoutanalyzer.integration.TimeStepControllers;
+import de.javagl.layoutanalyzer.objects.BaseLayoutObject;
+import de.javagl.layoutanalyzer.objects.LayoutState;
+
+/**
+ * Tests for the {@link TimeStepController} implementations that are created by the
+ * {@link TimeStepControllers}
+ */
+public class TimeStepControllersTest {
+  /**
+   * The tolerance for the comparison of time steps
+   */
+  private static final double EPSILON = 1e-12;
+
+  @Test
+  public void testEnergyDecreasesTimeStepWhenEnergyIncreases() {
+    TimeStepController controller = TimeStepControllers.energy(0.5, 3);
+    LayoutState state = createState(2);
+    setForces(state, 1.0, 0.0);
+    assertEquals(1.0, controller.computeTimeStep(state, 1.0), EPSILON);
+    setForces(state, 2.0, 0.0);
+    assertEquals(0.5, controller.computeTimeStep(state, 1.0), EPSILON);
+    assertEquals(0.5, controller.computeTimeStep(state, 1.0), EPSILON);
+  }
+
+  @Test
+  public void testEnergyIncreasesTimeStepAfterProgressSteps() {
+    TimeStepController controller = TimeStepControllers.energy(0.5, 3);
+    LayoutState state = createState(2);
+    double timeStep = 1.0;
+    double force = 10.0;
+    for (int s = 0; s < 2; s++) {
+      setForces(state, force, 0.0);
+      timeStep = controller.computeTimeStep(state, timeStep);
+      assertEquals(1.0, timeStep, EPSILON);
+      force *= 0.9;
+    }
+    setForces(state, force, 0.0);
+    timeStep = controller.computeTimeStep(state, timeStep);
+    assertEquals(2.0, timeStep, EPSILON);
+
+    // An increase of the energy directly after the time step was increased doubles the number
+    // of steps that are required for the next increase
+    setForces(state, force * 2.0, 0.0);
+    timeStep = controller.computeTimeStep(state, timeStep);
+    assertEquals(1.0, timeStep, EPSILON);
+    force *= 2.0;
+    for (int s = 0; s < 5; s++) {
+      force *= 0.9;
+      setForces(state, force, 0.0);
+      timeStep = controller.computeTimeStep(state, timeStep);
+      assertEquals(1.0, timeStep, EPSILON);
+    }
+    force *= 0.9;
+    setForces(state, force, 0.0);
+    assertEquals(2.0, controller.computeTimeStep(state, timeStep), EPSILON);
+  }
+
+  @Test
+  public void testSwingTractionGrowsTimeStepForConsistentForces() {
+    TimeStepController controller = TimeStepControllers.swingTraction(1.0, 1.5);
+    LayoutState state = createState(2);
+    setForces(state, 1.0, 0.0);
+
+    // The first step has no previous forces to compare with
+    assertEquals(1.0, controller.computeTimeStep(state, 1.0), EPSILON);
+    assertEquals(1.5, controller.computeTimeStep(state, 1.0), EPSILON);
+  }
+
+  @Test
+  public void testSwingTractionShrinksTimeStepWhenSwinging() {
+    double tolerance = 0.4;
+    TimeStepController controller = TimeStepControllers.swingTraction(tolerance, 1.5);
+    LayoutState state = createState(2);
+    setForces(state, 1.0, 0.0);
+    controller.computeTimeStep(state, 1.0);
+
+    // The swinging is 0.5 and the traction is |(2.0, 0.5)|/2 for each object. The swinging
+    // is larger than the tolerance multiplied with the traction, which shrinks the time step by
+    // their ratio
+    setForces(state, 1.0, 0.5);
+    double swinging = 0.5;
+    double traction = 0.5 * Math.hypot(2.0, 0.5);
+    double expected = tolerance * traction / swinging;
+    assertEquals(expected, controller.computeTimeStep(state, 1.0), EPSILON);
+  }
+
+  @Test
+  public void testSwingTractionShrinksTimeStepByAtMostMaxGrowth() {
+    TimeStepController controller = TimeStepControllers.swingTraction(1.0, 1.5);
+    LayoutState state = createState(2);
+    setForces(state, 1.0, 0.0);
+    controller.computeTimeStep(state, 1.0);
+    setForces(state, -0.5, 0.0);
+    assertEquals(1.0 / 1.5, controller.computeTimeStep(state, 1.0), EPSILON);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEnergyWithInvalidDecrease() {
+    TimeStepControllers.energy(1.0, 5);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEnergyWithInvalidProgressSteps() {
+    TimeStepControllers.energy(0.5, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSwingTractionWithInvalidTolerance() {
+    TimeStepControllers.swingTraction(0.0, 1.5);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSwingTractionWithInvalidMaxGrowth() {
+    TimeStepControllers.swingTraction(1.0, 1.0);
+  }
+
+  /**
+   * Create a {@link LayoutState} with the given number of objects
+   * 
+   * @param n
+   *          The number of objects
+   * @return The {@link LayoutState}
+   */
+  private static LayoutState createState(int n) {
+    LayoutState state = new LayoutState();
+    for (int i = 0; i < n; i++) {
+      state.add(new BaseLayoutObject());
+    }
+    return state;
+  }
+
+  /**
+   * Set the force of all objects in the given {@link LayoutState} to the given value
+   * 
+   * @param state
+   *          The {@link LayoutState}
+   * @param forceX
+   *          The x-component of the force
+   * @param forceY
+   *          The y-component of the force
+   */
+  private static void setForces(LayoutState state, double forceX, double forceY) {
+    Arrays.fill(state.getForcesX(), 0, state.size(), forceX);
+    Arrays.fill(state.getForcesY(), 0, state.size(), forceY);
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.simd;
+
+import de.javagl.layoutanalyzer.kernels.ForceKernel;
+import de.javagl.layoutanalyzer.kernels.ForceKernels;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Implementation of a {@link ForceKernel} that uses the Vector API, in order to compute the
+ * forces between one object and as many other objects at once as there are lanes in the
+ * preferred vector species (for example, 4 for AVX2, and 8 for AVX-512). The remaining objects
+ * of each row are processed with the {@link ForceKernels#getScalar() scalar} kernel.<br>
+ * <br>
+ * The forces of the other objects are the same as for the scalar kernel. The force of the first
+ * object is summed up in a different order, and may thus differ by rounding errors. This order
+ * only depends on the number of lanes, so that the results are the same for every run on one
+ * platform, but may differ between platforms with different vector sizes.<br>
+ * <br>
+ * This class is registered as a service, so that it is returned by
+ * {@link ForceKernels#getDefault()} when the JVM is started with
+ * <code>--add-modules jdk.incubator.vector</code>.
+ */
+public final class VectorForceKernel implements ForceKernel {
+  /**
+   * The vector species
+   */
+  private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+  /**
+   * An epsilon for "reasonable" distances between objects
+   */
+  private static final double EPSILON = 1e-8;
+
+  /**
+   * The kernel for the remaining objects of each row
+   */
+  private final ForceKernel scalar = ForceKernels.getScalar();
+
+  /**
+   * Default constructor
+   */
+  public VectorForceKernel() {
+    // Default constructor
+  }
+
+  @Override
+  public void computeRepulsionRow(int i, int jStart, int jEnd, double[] x, double[] y,
+      double repulsionDistance, double[] forceX, double[] forceY) {
+    int jVectorEnd = jStart + SPECIES.loopBound(jEnd - jStart);
+    DoubleVector x0 = DoubleVector.broadcast(SPECIES, x[i]);
+    DoubleVector y0 = DoubleVector.broadcast(SPECIES, y[i]);
+    DoubleVector zero = DoubleVector.zero(SPECIES);
+    DoubleVector one = DoubleVector.broadcast(SPECIES, 1.0);
+    // A bound for the squared distance, which is slightly larger than the squared repulsion
+    // distance, so that rounding errors do not cause pairs to be skipped
+    double squaredDistanceBound = repulsionDistance * repulsionDistance * (1.0 + 1e-9);
+    DoubleVector sumX = zero;
+    DoubleVector sumY = zero;
+    for (int j = jStart; j < jVectorEnd; j += SPECIES.length()) {
+      DoubleVector dx = DoubleVector.fromArray(SPECIES, x, j).sub(x0);
+      DoubleVector dy = DoubleVector.fromArray(SPECIES, y, j).sub(y0);
+      DoubleVector squaredDistance = dx.mul(dx).add(dy.mul(dy));
+      if (!squaredDistance.lt(squaredDistanceBound).anyTrue()) {
+        continue;
+      }
+      DoubleVector distance = squaredDistance.sqrt();
+      VectorMask<Double> inside = distance.lt(repulsionDistance);
+      VectorMask<Double> coincident = distance.lt(EPSILON);
+      distance = distance.blend(1.0, coincident);
+      DoubleVector invDistance = one.div(distance);
+      DoubleVector directionX = dx.mul(invDistance).blend(1.0, coincident);
+      DoubleVector directionY = dy.mul(invDistance).blend(0.0, coincident);
+      DoubleVector factor = distance.neg().add(repulsionDistance).mul(0.5);
+      DoubleVector fx = zero.blend(factor.mul(directionX), inside);
+      DoubleVector fy = zero.blend(factor.mul(directionY), inside);
+      sumX = sumX.add(fx);
+      sumY = sumY.add(fy);
+      DoubleVector.fromArray(SPECIES, forceX, j).add(fx).intoArray(forceX, j);
+      DoubleVector.fromArray(SPECIES, forceY, j).add(fy).intoArray(forceY, j);
+    }
+    forceX[i] -= sumLanes(sumX);
+    forceY[i] -= sumLanes(sumY);
+    scalar.computeRepulsionRow(i, jVectorEnd, jEnd, x, y, repulsionDistance, forceX, forceY);
+  }
+
+  @Override
+  public void computeShapeBoundsRow(int i, int jStart, int jEnd, double[] minX, double[] minY,
+      double[] maxX, double[] maxY, double[] forceX, double[] forceY) {
+    int jVectorEnd = jStart + SPECIES.loopBound(jEnd - jStart);
+    DoubleVector minX0 = DoubleVector.broadcast(SPECIES, minX[i]);
+    DoubleVector minY0 = DoubleVector.broadcast(SPECIES, minY[i]);
+    DoubleVector maxX0 = DoubleVector.broadcast(SPECIES, maxX[i]);
+    DoubleVector maxY0 = DoubleVector.broadcast(SPECIES, maxY[i]);
+    DoubleVector sumX = DoubleVector.zero(SPECIES);
+    DoubleVector sumY = DoubleVector.zero(SPECIES);
+    for (int j = jStart; j < jVectorEnd; j += SPECIES.length()) {
+      DoubleVector minX1 = DoubleVector.fromArray(SPECIES, minX, j);
+      DoubleVector minY1 = DoubleVector.fromArray(SPECIES, minY, j);
+      DoubleVector maxX1 = DoubleVector.fromArray(SPECIES, maxX, j);
+      DoubleVector maxY1 = DoubleVector.fromArray(SPECIES, maxY, j);
+
+      // Pairs that are separated along one axis do not receive a force
+      VectorMask<Double> separated = minX1.compare(VectorOperators.GT, maxX0)
+          .or(maxX1.compare(VectorOperators.LT, minX0))
+          .or(minY1.compare(VectorOperators.GT, maxY0))
+          .or(maxY1.compare(VectorOperators.LT, minY0));
+      if (separated.allTrue()) {
+        continue;
+      }
+      DoubleVector dx = computeMinDisjoinMovement(minX0, maxX0, minX1, maxX1);
+      DoubleVector dy = computeMinDisjoinMovement(minY0, maxY0, minY1, maxY1);
+      VectorMask<Double> alongX = dx.abs().lt(dy.abs());
+      DoubleVector fx = dx.blend(0.0, alongX.not().or(separated)).mul(0.5);
+      DoubleVector fy = dy.blend(0.0, alongX.or(separated)).mul(0.5);
+      sumX = sumX.add(fx);
+      sumY = sumY.add(fy);
+      DoubleVector.fromArray(SPECIES, forceX, j).sub(fx).intoArray(forceX, j);
+      DoubleVector.fromArray(SPECIES, forceY, j).sub(fy).intoArray(forceY, j);
+    }
+    forceX[i] += sumLanes(sumX);
+    forceY[i] += sumLanes(sumY);
+    scalar.computeShapeBoundsRow(i, jVectorEnd, jEnd, minX, minY, maxX, maxY, forceX, forceY);
+  }
+
+  /**
+   * Returns the sum of the lanes of the given vector, in the order of the lanes. This is used
+   * instead of a lane reduction, because the order of a floating point reduction is not
+   * specified, and may differ between the interpreted and the compiled code.
+   * 
+   * @param vector
+   *          The vector
+   * @return The sum
+   */
+  private static double sumLanes(DoubleVector vector) {
+    double sum = 0.0;
+    for (int k = 0; k < SPECIES.length(); k++) {
+      sum += vector.lane(k);
+    }
+    return sum;
+  }
+
+  /**
+   * Computes the minimum movements that have to be added to the interval 0 so that it is
+   * disjoint to the intervals 1, assuming that the intervals overlap. This is the vectorized
+   * version of
+   * {@link de.javagl.layoutanalyzer.utils.Disjoins#computeMinDisjoinMovement(double, double, double, double)}
+   * 
+   * @param min0
+   *          The minimum of interval 0
+   * @param max0
+   *          The maximum of interval 0
+   * @param min1
+   *          The minima of the intervals 1
+   * @param max1
+   *          The maxima of the intervals 1
+   * @return The minimum disjoining movements
+   */
+  private static DoubleVector computeMinDisjoinMovement(DoubleVector min0, DoubleVector max0,
+      DoubleVector min1, DoubleVector max1) {
+    DoubleVector left = min1.sub(max0);
+    DoubleVector right = max1.sub(min0);
+    return right.blend(left, left.abs().lt(right.abs()));
+  }
+}
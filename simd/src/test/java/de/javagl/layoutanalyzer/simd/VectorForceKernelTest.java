@@ -0,0 +1,139 @@
+/*
+ * LayoutAnalyzer  
+ *
+ * Copyright (c) 2015-2015 Marco Hutter - http://www.javagl.de
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.layoutanalyzer.simd;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.javagl.layoutanalyzer.kernels.ForceKernel;
+import de.javagl.layoutanalyzer.kernels.ForceKernels;
+
+/**
+ * Tests comparing the {@link VectorForceKernel} with the {@link ForceKernels#getScalar() scalar}
+ * kernel, for rows of all lengths, so that the vectorized loops and the scalar remainder loops are
+ * covered
+ */
+public class VectorForceKernelTest {
+  /**
+   * The number of objects
+   */
+  private static final int N = 150;
+
+  /**
+   * The tolerance for the comparison of forces that are summed up in a different order
+   */
+  private static final double EPSILON = 1e-9;
+
+  @Test
+  public void testRepulsionRows() {
+    double[] x = createCoordinates(N, 0);
+    double[] y = createCoordinates(N, 1);
+    // Two objects at the same position
+    x[7] = x[3];
+    y[7] = y[3];
+    ForceKernel scalar = ForceKernels.getScalar();
+    ForceKernel vector = new VectorForceKernel();
+    double[] expectedX = new double[N];
+    double[] expectedY = new double[N];
+    double[] actualX = new double[N];
+    double[] actualY = new double[N];
+    for (int i = 0; i < N; i++) {
+      scalar.computeRepulsionRow(i, i + 1, N, x, y, 100.0, expectedX, expectedY);
+      vector.computeRepulsionRow(i, i + 1, N, x, y, 100.0, actualX, actualY);
+    }
+    assertForces(expectedX, expectedY, actualX, actualY);
+  }
+
+  @Test
+  public void testShapeBoundsRows() {
+    double[] x = createCoordinates(N, 2);
+    double[] y = createCoordinates(N, 3);
+    double[] minX = new double[N];
+    double[] minY = new double[N];
+    double[] maxX = new double[N];
+    double[] maxY = new double[N];
+    Random random = new Random(4);
+    for (int i = 0; i < N; i++) {
+      minX[i] = x[i];
+      minY[i] = y[i];
+      maxX[i] = x[i] + 20 + random.nextDouble() * 100;
+      maxY[i] = y[i] + 20 + random.nextDouble() * 100;
+    }
+    ForceKernel scalar = ForceKernels.getScalar();
+    ForceKernel vector = new VectorForceKernel();
+    double[] expectedX = new double[N];
+    double[] expectedY = new double[N];
+    double[] actualX = new double[N];
+    double[] actualY = new double[N];
+    for (int i = 0; i < N; i++) {
+      scalar.computeShapeBoundsRow(i, i + 1, N, minX, minY, maxX, maxY, expectedX, expectedY);
+      vector.computeShapeBoundsRow(i, i + 1, N, minX, minY, maxX, maxY, actualX, actualY);
+    }
+    assertForces(expectedX, expectedY, actualX, actualY);
+  }
+
+  /**
+   * Create random coordinates in [0,1000)
+   * 
+   * @param n
+   *          The number of coordinates
+   * @param seed
+   *          The random seed
+   * @return The coordinates
+   */
+  private static double[] createCoordinates(int n, long seed) {
+    Random random = new Random(seed);
+    double[] coordinates = new double[n];
+    for (int i = 0; i < n; i++) {
+      coordinates[i] = random.nextDouble() * 1000;
+    }
+    return coordinates;
+  }
+
+  /**
+   * Assert that the given forces are equal, up to rounding errors
+   * 
+   * @param expectedX
+   *          The expected x-components
+   * @param expectedY
+   *          The expected y-components
+   * @param actualX
+   *          The actual x-components
+   * @param actualY
+   *          The actual y-components
+   */
+  private static void assertForces(double[] expectedX, double[] expectedY, double[] actualX,
+      double[] actualY) {
+    for (int i = 0; i < expectedX.length; i++) {
+      assertEquals("Force x of object " + i, expectedX[i], actualX[i], EPSILON);
+      assertEquals("Force y of object " + i, expectedY[i], actualY[i], EPSILON);
+    }
+  }
+}
@@ -220,8 +220,9 @@ public class LayoutPanel<T extends LayoutObject> extends JPanel {
 		final AffineTransform scale = AffineTransform.getScaleInstance(scaleFactor, scaleFactor);
 		final AffineTransform transform = g.getTransform();
 		List<T> layoutObjects = layout.getLayoutObjects();
+		Point2D position = new Point2D.Double();
 		for (T layoutObject : layoutObjects) {
-			Point2D position = layoutObject.getPosition();
+			layoutObject.getPosition(position);
 			scale.transform(position, position);
 			g.translate(position.getX(), position.getY());
 			layoutObjectPainter.paint(layoutObject, g);
@@ -246,8 +247,10 @@ public class LayoutPanel<T extends LayoutObject> extends JPanel {
 		final AffineTransform scale = AffineTransform.getScaleInstance(scaleFactor, scaleFactor);
 
 		List<T> layoutObjects = layout.getLayoutObjects();
+		Point2D position = new Point2D.Double();
+		Point2D force = new Point2D.Double();
 		for (LayoutObject layoutObject : layoutObjects) {
-			Point2D position = layoutObject.getPosition();
+			layoutObject.getPosition(position);
 			scale.transform(position, position);
 			int n = 0;
 			for (Aspect aspect : layouterData.getAspects()) {
@@ -255,7 +258,7 @@ public class LayoutPanel<T extends LayoutObject> extends JPanel {
 
 				g.setColor(Colors.getColorWithAlpha(n, 0.25));
 
-				Point2D force = layoutData.getForce(layoutObject);
+				layoutData.getForce(layoutObject, force);
 				scale.transform(force, force);
 				Point2D tip = Points.add(position, force, null);
 				Shape arrow = arrowCreator.buildShape(position, tip, 1.0);